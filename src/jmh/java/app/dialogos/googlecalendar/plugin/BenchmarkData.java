@@ -0,0 +1,179 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.clt.diamant.Slot;
+import com.clt.diamant.graph.Graph;
+import com.clt.script.exp.Type;
+import com.clt.script.exp.values.StringValue;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * BenchmarkData - Deterministic test data for the JMH benchmarks.
+ *
+ * Produces graphs with a given number of variables, EventRecord and Event lists and
+ * events.list response bodies shaped like real Google Calendar responses.
+ */
+final class BenchmarkData {
+
+
+    static final LocalDateTime BASE_TIME = LocalDateTime.of(2025, 1, 15, 8, 0);
+
+    private static final String[] SUMMARIES = {
+        "Team Meeting", "1:1 mit Anna", "Projekt-Review", "Zahnarzt", "Mittagessen",
+        "Sprint Planning", "Kundentermin \"Müller GmbH\"", "Standup"
+    };
+    private static final String[] LOCATIONS = {
+        "Raum 2.14", "Online", null, "Hauptbahnhof, Gleis 5", null
+    };
+
+
+    private BenchmarkData() {}
+
+
+    /**
+     * Creates a graph with variableCount string variables named var0 ... var(n-1).
+     */
+    static Graph createGraph(int variableCount) {
+        Graph graph = new Graph(null);
+        for (int i = 0; i < variableCount; i++) {
+            addVariable(graph, "var" + i, "value " + i);
+        }
+        return graph;
+    }
+
+
+    /**
+     * Adds a string variable with the given value to a graph.
+     */
+    static void addVariable(Graph graph, String name, String value) {
+        Slot slot = new Slot(name, Type.String, "\"\"", false);
+        slot.setValue(new StringValue(value));
+        graph.getVariables().add(slot);
+    }
+
+
+    /**
+     * Creates eventCount timed events, one per hour starting at BASE_TIME.
+     */
+    static List<EventRecord> createRecords(int eventCount) {
+        List<EventRecord> records = new ArrayList<>(eventCount);
+        long base = BASE_TIME.toInstant(ZoneOffset.UTC).toEpochMilli();
+        for (int i = 0; i < eventCount; i++) {
+            long start = base + i * 3_600_000L;
+            records.add(new EventRecord(
+                    eventId(i),
+                    SUMMARIES[i % SUMMARIES.length],
+                    start,
+                    start + 1_800_000L,
+                    LOCATIONS[i % LOCATIONS.length],
+                    i % 3 == 0 ? "Agenda:\n- Punkt 1\n- Punkt 2" : null,
+                    false));
+        }
+        return records;
+    }
+
+
+    /**
+     * Creates eventCount Event objects like createRecords(), with the fields a
+     * calendar mirror reads (ID, status, times, summary, location, description).
+     */
+    static List<Event> createEvents(int eventCount) {
+        return createEvents(eventCount, BASE_TIME.toInstant(ZoneOffset.UTC).toEpochMilli(), 3_600_000L);
+    }
+
+
+    /**
+     * Creates eventCount Event objects like createEvents(int), starting at
+     * firstStart and spacingMillis apart.
+     */
+    static List<Event> createEvents(int eventCount, long firstStart, long spacingMillis) {
+        List<Event> events = new ArrayList<>(eventCount);
+        for (int i = 0; i < eventCount; i++) {
+            long start = firstStart + i * spacingMillis;
+            events.add(new Event()
+                    .setId(eventId(i))
+                    .setStatus("confirmed")
+                    .setSummary(SUMMARIES[i % SUMMARIES.length])
+                    .setLocation(LOCATIONS[i % LOCATIONS.length])
+                    .setDescription(i % 3 == 0 ? "Agenda:\n- Punkt 1\n- Punkt 2" : null)
+                    .setTransparency(i % 10 == 0 ? "transparent" : null)
+                    .setStart(new EventDateTime().setDateTime(new DateTime(start)).setTimeZone("Europe/Berlin"))
+                    .setEnd(new EventDateTime().setDateTime(new DateTime(start + 1_800_000L))
+                            .setTimeZone("Europe/Berlin")));
+        }
+        return events;
+    }
+
+
+    /**
+     * Creates an events.list response body with eventCount items, including the
+     * fields a full (unfiltered) response carries.
+     */
+    static String createEventsResponse(int eventCount) {
+        OffsetDateTime base = BASE_TIME.atOffset(ZoneOffset.ofHours(1));
+        StringBuilder json = new StringBuilder(eventCount * 900);
+        json.append("{\"kind\":\"calendar#events\",\"etag\":\"\\\"p33c9o0pnlbu8g0g\\\"\",")
+            .append("\"summary\":\"benchmark@example.com\",\"updated\":\"2025-01-14T09:12:41.000Z\",")
+            .append("\"timeZone\":\"Europe/Berlin\",\"accessRole\":\"owner\",")
+            .append("\"defaultReminders\":[{\"method\":\"popup\",\"minutes\":10}],")
+            .append("\"nextSyncToken\":\"CPDAlvWDx70CEPDAlvWDx70CGAU=\",\"items\":[");
+        for (int i = 0; i < eventCount; i++) {
+            OffsetDateTime start = base.plusHours(i);
+            String location = LOCATIONS[i % LOCATIONS.length];
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"kind\":\"calendar#event\",\"etag\":\"\\\"3181161784712000\\\"\",")
+                .append("\"id\":\"").append(eventId(i)).append("\",")
+                .append("\"status\":\"confirmed\",")
+                .append("\"htmlLink\":\"https://www.google.com/calendar/event?eid=").append(eventId(i)).append("\",")
+                .append("\"created\":\"2025-01-02T10:00:00.000Z\",\"updated\":\"2025-01-03T11:30:00.000Z\",")
+                .append("\"summary\":\"").append(SUMMARIES[i % SUMMARIES.length].replace("\"", "\\\"")).append("\",");
+            if (location != null) {
+                json.append("\"location\":\"").append(location).append("\",");
+            }
+            if (i % 3 == 0) {
+                json.append("\"description\":\"Agenda:\\n- Punkt 1\\n- Punkt 2\",");
+            }
+            json.append("\"creator\":{\"email\":\"benchmark@example.com\",\"self\":true},")
+                .append("\"organizer\":{\"email\":\"benchmark@example.com\",\"self\":true},")
+                .append("\"start\":{\"dateTime\":\"").append(start.format(DateTimeFormatter.ISO_OFFSET_DATE_TIME)).append("\",\"timeZone\":\"Europe/Berlin\"},")
+                .append("\"end\":{\"dateTime\":\"").append(start.plusMinutes(30).format(DateTimeFormatter.ISO_OFFSET_DATE_TIME)).append("\",\"timeZone\":\"Europe/Berlin\"},")
+                .append("\"iCalUID\":\"").append(eventId(i)).append("@google.com\",\"sequence\":0,")
+                .append("\"reminders\":{\"useDefault\":true},\"eventType\":\"default\"}");
+        }
+        json.append("]}");
+        return json.toString();
+    }
+
+
+    /**
+     * Creates a reminder string with reminderCount entries ("email:15,popup:30,...").
+     */
+    static String createReminders(int reminderCount) {
+        String[] methods = {"email", "popup", "sms"};
+        StringBuilder reminders = new StringBuilder();
+        for (int i = 0; i < reminderCount; i++) {
+            if (i > 0) {
+                reminders.append(", ");
+            }
+            reminders.append(methods[i % methods.length]).append(':').append(5 + i * 10);
+        }
+        return reminders.toString();
+    }
+
+
+    private static String eventId(int i) {
+        return String.format("b3nch%08dm4rk", i);
+    }
+}
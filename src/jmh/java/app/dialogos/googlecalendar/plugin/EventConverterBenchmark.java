@@ -0,0 +1,63 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.calendar.model.Event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * EventConverterBenchmark - Building the Event sent by CreateEventNode and UpdateEventNode.
+ *
+ * toGoogleCalendarEvent covers the conversion alone, toRequestBody additionally
+ * the JSON serialization the client performs before sending.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EventConverterBenchmark {
+
+
+    @Param({"0", "3", "10"})
+    public int reminderCount;
+
+    private EventRequest request;
+
+
+    @Setup
+    public void setUp() {
+        EventRequest.Builder builder = EventRequest.builder()
+                .summary("\"Projekt-Review\"")
+                .description("Agenda:\n- Punkt 1\n- Punkt 2")
+                .location("Raum 2.14")
+                .startTime(BenchmarkData.BASE_TIME)
+                .endTime(BenchmarkData.BASE_TIME.plusMinutes(45));
+        for (int i = 0; i < reminderCount; i++) {
+            builder.addReminder(i % 2 == 0 ? "email" : "popup", 5 + i * 10);
+        }
+        request = builder.build();
+    }
+
+
+    @Benchmark
+    public Event toGoogleCalendarEvent() {
+        return EventConverter.toGoogleCalendarEvent(request);
+    }
+
+
+    @Benchmark
+    public String toRequestBody() throws IOException {
+        return GsonFactory.getDefaultInstance().toString(EventConverter.toGoogleCalendarEvent(request));
+    }
+}
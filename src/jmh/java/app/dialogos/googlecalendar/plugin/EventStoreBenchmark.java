@@ -0,0 +1,176 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.services.calendar.model.Event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * EventStoreBenchmark - Scans over a calendar mirror (ColumnarEventStore)
+ * compared with a start-sorted List<Event>, the representation it replaces.
+ *
+ * Both sides use the same algorithm (binary search for the first candidate,
+ * then a scan in start order); the list reads its times from the Event model.
+ * The setup prints the heap retained by each representation after a full GC,
+ * plus the off-heap text of the store.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class EventStoreBenchmark {
+
+
+    private static final long HOUR = 3_600_000L;
+
+    @Param({"10000", "1000000"})
+    public int eventCount;
+
+    private List<Event> events;
+    private ColumnarEventStore store;
+    private long dayStart;
+    private long monthStart;
+
+
+    @Setup
+    public void setUp() {
+        long empty = usedHeap();
+        events = BenchmarkData.createEvents(eventCount);
+        long withEvents = usedHeap();
+        CalendarMirror mirror = new CalendarMirror("benchmark@example.com");
+        for (Event event : events) {
+            mirror.apply(event);
+        }
+        store = mirror.getEvents();
+        store.countOverlapping(0, 1);
+        long withStore = usedHeap();
+        System.out.printf("%nRetained heap for %d events: List<Event> %.1f MB, ColumnarEventStore %.1f MB"
+                + " (+ %.1f MB off-heap text)%n", eventCount, (withEvents - empty) / 1e6,
+                (withStore - withEvents) / 1e6, store.getOffHeapBytes() / 1e6);
+
+        long base = BenchmarkData.BASE_TIME.toInstant(ZoneOffset.UTC).toEpochMilli();
+        dayStart = base + eventCount / 2 * HOUR;
+        monthStart = base + eventCount / 4 * HOUR;
+    }
+
+
+    @Benchmark
+    public List<String> rangeColumnar() {
+        return store.findOverlapping(dayStart, dayStart + 24 * HOUR);
+    }
+
+
+    @Benchmark
+    public List<String> rangeEventList() {
+        List<String> result = new ArrayList<>();
+        for (int i = lowerBound(dayStart - HOUR), n = events.size(); i < n; i++) {
+            Event event = events.get(i);
+            if (startOf(event) >= dayStart + 24 * HOUR) {
+                break;
+            }
+            if (endOf(event) > dayStart && CalendarMirror.blocksTime(event)) {
+                result.add(event.getId());
+            }
+        }
+        return result;
+    }
+
+
+    @Benchmark
+    public long busyMonthColumnar() {
+        return store.busyMillis(monthStart, monthStart + 30 * 24 * HOUR);
+    }
+
+
+    @Benchmark
+    public long busyMonthEventList() {
+        long end = monthStart + 30 * 24 * HOUR;
+        long total = 0;
+        long coveredUntil = monthStart;
+        for (int i = lowerBound(monthStart - HOUR), n = events.size(); i < n; i++) {
+            Event event = events.get(i);
+            long start = startOf(event);
+            if (start >= end) {
+                break;
+            }
+            if (!CalendarMirror.blocksTime(event)) {
+                continue;
+            }
+            long from = Math.max(start, coveredUntil);
+            long to = Math.min(endOf(event), end);
+            if (to > from) {
+                total += to - from;
+                coveredUntil = to;
+            }
+        }
+        return total;
+    }
+
+
+    @Benchmark
+    public int countAllColumnar() {
+        return store.countOverlapping(Long.MIN_VALUE / 2, Long.MAX_VALUE / 2);
+    }
+
+
+    @Benchmark
+    public int countAllEventList() {
+        int count = 0;
+        for (Event event : events) {
+            if (CalendarMirror.blocksTime(event) && endOf(event) > startOf(event)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = events.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (startOf(events.get(mid)) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+
+    private static long startOf(Event event) {
+        return EventConverter.toEpochMillis(event.getStart());
+    }
+
+
+    private static long endOf(Event event) {
+        return EventConverter.toEpochMillis(event.getEnd());
+    }
+
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
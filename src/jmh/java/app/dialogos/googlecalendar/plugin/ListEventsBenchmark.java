@@ -0,0 +1,101 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.clt.script.exp.Value;
+import com.clt.script.exp.values.ListValue;
+import com.clt.script.exp.values.StructValue;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.Events;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * ListEventsBenchmark - Parsing and formatting of event listings (ListEventsNode).
+ *
+ * Response parsing compares EventRecordParser with the reflective Event model.
+ * Result formatting compares JSON and STRUCT output; the *Consumed variants
+ * also include reading one field back, which for JSON means parsing the string
+ * again on the dialog side.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ListEventsBenchmark {
+
+
+    @Param({"10", "250", "2500"})
+    public int eventCount;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private ListEventsNode node;
+    private List<EventRecord> records;
+    private String response;
+
+
+    @Setup
+    public void setUp() {
+        node = new ListEventsNode();
+        records = BenchmarkData.createRecords(eventCount);
+        response = BenchmarkData.createEventsResponse(eventCount);
+    }
+
+
+    @Benchmark
+    public EventRecordParser.Page parseRecords() throws IOException {
+        return EventRecordParser.parse(new StringReader(response));
+    }
+
+
+    @Benchmark
+    public void parseEventModel(Blackhole blackhole) throws IOException {
+        Events events = GsonFactory.getDefaultInstance().fromString(response, Events.class);
+        for (Event event : events.getItems()) {
+            blackhole.consume(EventConverter.toEventRecord(event));
+        }
+    }
+
+
+    @Benchmark
+    public String formatJson() {
+        return node.formatEventsAsJson(records, eventCount);
+    }
+
+
+    @Benchmark
+    public Value formatStruct() {
+        return node.formatEventsAsValue(records, eventCount);
+    }
+
+
+    @Benchmark
+    public String formatJsonConsumed() throws IOException {
+        JsonNode root = mapper.readTree(node.formatEventsAsJson(records, eventCount));
+        return root.get("events").get(eventCount - 1).get("summary").asText();
+    }
+
+
+    @Benchmark
+    public Value formatStructConsumed() {
+        StructValue root = (StructValue) node.formatEventsAsValue(records, eventCount);
+        StructValue last = (StructValue) ((ListValue) root.getValue("events")).get(eventCount - 1);
+        return last.getValue("summary");
+    }
+}
@@ -0,0 +1,326 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.clt.diamant.ExecutionLogger;
+import com.clt.diamant.InputCenter;
+import com.clt.diamant.WozInterface;
+import com.clt.diamant.graph.Graph;
+import com.clt.diamant.graph.Node;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * LoadGenerator - Concurrent end-to-end load test of the calendar nodes.
+ *
+ * Builds one DialogOS Graph per session with a Create, List, Update and
+ * Delete node wired through graph variables (${eventId}), and executes the
+ * nodes of all sessions concurrently against an in-process
+ * StandInCalendarServer. All sessions share one GoogleCalendarPluginRuntime,
+ * as the dialogs of one DialogOS instance do, so contention in the runtime
+ * shows up as node latency above the configured server latency.
+ *
+ * Run: ./gradlew loadTest -PloadArgs="--sessions 200 --threads virtual"
+ *
+ * Options:
+ * ├─ --sessions N      concurrent sessions/graphs (default 50)
+ * ├─ --iterations N    create/list/update/delete rounds per session (default 20)
+ * ├─ --warmup N        unmeasured rounds per session before (default 2)
+ * ├─ --threads T       platform | virtual (virtual needs Java 21+, default platform)
+ * ├─ --latency MS      median server latency, log-normal (default 50)
+ * ├─ --error-rate R    share of failed server requests, HTTP 503 (default 0)
+ * └─ --verbose         log the nodes' INFO messages (default: warnings only)
+ */
+public class LoadGenerator {
+
+
+    private static final String[] NODE_TYPES = {"create", "list", "update", "delete"};
+    private static final String CALENDAR_ID = "load@standin";
+    private static final String SIMPLE_LOGGER_LEVEL = "org.slf4j.simpleLogger.defaultLogLevel";
+
+
+    private int sessions = 50;
+    private int iterations = 20;
+    private int warmup = 2;
+    private boolean virtualThreads = false;
+    private long latencyMillis = 50;
+    private double errorRate = 0;
+    private boolean verbose = false;
+
+
+    public static void main(String[] args) throws Exception {
+        LoadGenerator generator = new LoadGenerator();
+        generator.parseArguments(args);
+        if (System.getProperty(SIMPLE_LOGGER_LEVEL) == null) {
+            // slf4j-simple reads its level when the first logger is created
+            System.setProperty(SIMPLE_LOGGER_LEVEL, generator.verbose ? "info" : "warn");
+        }
+        generator.run();
+    }
+
+
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--sessions":
+                    sessions = Integer.parseInt(args[++i]);
+                    break;
+                case "--iterations":
+                    iterations = Integer.parseInt(args[++i]);
+                    break;
+                case "--warmup":
+                    warmup = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    virtualThreads = "virtual".equalsIgnoreCase(args[++i]);
+                    break;
+                case "--latency":
+                    latencyMillis = Long.parseLong(args[++i]);
+                    break;
+                case "--error-rate":
+                    errorRate = Double.parseDouble(args[++i]);
+                    break;
+                case "--verbose":
+                    verbose = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+    }
+
+
+    private void run() throws Exception {
+        PrintStream console = System.out;
+        Path serviceAccountFile = Files.createTempFile("standin-account", ".json");
+
+        try (StandInCalendarServer server = new StandInCalendarServer(0).start()) {
+            server.writeServiceAccountFile(serviceAccountFile);
+            server.setLatency(StandInCalendarServer.LatencyDistribution.logNormal(latencyMillis, 0.5));
+            server.setLatency(StandInCalendarServer.Operation.TOKEN, StandInCalendarServer.LatencyDistribution.none());
+
+            GoogleCalendarPluginSettings settings = new GoogleCalendarPluginSettings();
+            settings.setServiceAccountFile(serviceAccountFile.toString());
+            settings.setCalendarId(CALENDAR_ID);
+            settings.setApplicationName("LoadGenerator");
+            settings.setRootUrl(server.getRootUrl());
+            GoogleCalendarPluginRuntime runtime = new GoogleCalendarPluginRuntime(settings);
+
+            List<Session> sessionList = new ArrayList<>();
+            for (int i = 0; i < sessions; i++) {
+                sessionList.add(new Session(i, runtime));
+            }
+
+            console.printf(Locale.ROOT, "Load test: %d sessions x %d iterations, %s threads, "
+                    + "server latency p50 %d ms, error rate %.3f%n",
+                    sessions, iterations, virtualThreads ? "virtual" : "platform", latencyMillis, errorRate);
+
+            try {
+                // Warmup without errors, then the measured run
+                execute(sessionList, warmup, false);
+                server.setErrorRate(StandInCalendarServer.Operation.INSERT, errorRate, 503);
+                server.setErrorRate(StandInCalendarServer.Operation.LIST, errorRate, 503);
+                server.setErrorRate(StandInCalendarServer.Operation.UPDATE, errorRate, 503);
+                server.setErrorRate(StandInCalendarServer.Operation.DELETE, errorRate, 503);
+
+                long started = System.nanoTime();
+                execute(sessionList, iterations, true);
+                long elapsed = System.nanoTime() - started;
+
+                report(console, sessionList, elapsed);
+            } finally {
+                runtime.dispose();
+            }
+        } finally {
+            Files.deleteIfExists(serviceAccountFile);
+        }
+    }
+
+
+    private void execute(List<Session> sessionList, int rounds, boolean measured) throws Exception {
+        if (rounds <= 0) {
+            return;
+        }
+        ExecutorService executor = newExecutor();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Session session : sessionList) {
+                futures.add(executor.submit(() -> session.run(rounds, measured)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+
+    /**
+     * One thread per session: a fixed platform pool or, on Java 21+, virtual threads
+     * (looked up reflectively so the harness still builds with the Java 17 toolchain).
+     */
+    private ExecutorService newExecutor() {
+        if (!virtualThreads) {
+            return Executors.newFixedThreadPool(sessions);
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or newer (running "
+                    + System.getProperty("java.version") + ")", e);
+        }
+    }
+
+
+    private void report(PrintStream out, List<Session> sessionList, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long totalOperations = 0;
+        long totalErrors = 0;
+
+        out.printf(Locale.ROOT, "%n%-8s %10s %10s %10s %10s %10s %8s%n",
+                "node", "ops", "ops/s", "p50 ms", "p99 ms", "p999 ms", "errors");
+        for (int type = 0; type < NODE_TYPES.length; type++) {
+            int count = 0;
+            long errors = 0;
+            for (Session session : sessionList) {
+                count += session.counts[type];
+                errors += session.errors[type];
+            }
+            long[] all = new long[count];
+            int offset = 0;
+            for (Session session : sessionList) {
+                System.arraycopy(session.latencies[type], 0, all, offset, session.counts[type]);
+                offset += session.counts[type];
+            }
+            Arrays.sort(all);
+
+            out.printf(Locale.ROOT, "%-8s %10d %10.1f %10.2f %10.2f %10.2f %7.2f%%%n",
+                    NODE_TYPES[type], count, count / seconds,
+                    percentile(all, 0.50), percentile(all, 0.99), percentile(all, 0.999),
+                    count == 0 ? 0 : 100.0 * errors / count);
+            totalOperations += count;
+            totalErrors += errors;
+        }
+        out.printf(Locale.ROOT, "%ntotal: %d node executions in %.2f s, %.1f ops/s, %d errors (%.2f%%)%n",
+                totalOperations, seconds, totalOperations / seconds, totalErrors,
+                totalOperations == 0 ? 0 : 100.0 * totalErrors / totalOperations);
+    }
+
+
+    private static double percentile(long[] sortedNanos, double quantile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+
+    /**
+     * One dialog: a graph with the four nodes and its own time slot, so sessions
+     * do not conflict with each other.
+     */
+    private class Session {
+
+        final Node[] nodes;
+        final long[][] latencies = new long[NODE_TYPES.length][iterations];
+        final int[] counts = new int[NODE_TYPES.length];
+        final long[] errors = new long[NODE_TYPES.length];
+
+        Session(int index, GoogleCalendarPluginRuntime runtime) {
+            Graph graph = BenchmarkData.createGraph(0);
+            LocalDateTime start = BenchmarkData.BASE_TIME.plusDays(index);
+
+            CreateEventNode create = new CreateEventNode() {
+                @Override
+                protected GoogleCalendarPluginRuntime getPluginRuntime(WozInterface comm) {
+                    return runtime;
+                }
+            };
+            create.setProperty("summary", "Load test " + index);
+            create.setProperty("startTime", start.toString());
+            create.setProperty("endTime", start.plusMinutes(30).toString());
+            create.setProperty("reminders", "popup:10");
+            create.setProperty("resultVariable", "eventId");
+
+            ListEventsNode list = new ListEventsNode() {
+                @Override
+                protected GoogleCalendarPluginRuntime getPluginRuntime(WozInterface comm) {
+                    return runtime;
+                }
+            };
+            list.setProperty("listMode", "TIME_RANGE");
+            list.setProperty("startTime", start.toLocalDate().atStartOfDay().toString());
+            list.setProperty("endTime", start.toLocalDate().plusDays(1).atStartOfDay().toString());
+            list.setProperty("resultVariable", "eventList");
+
+            UpdateEventNode update = new UpdateEventNode() {
+                @Override
+                protected GoogleCalendarPluginRuntime getPluginRuntime(WozInterface comm) {
+                    return runtime;
+                }
+            };
+            update.setProperty("eventId", "${eventId}");
+            update.setProperty("summary", "Load test " + index + " (moved)");
+            update.setProperty("startTime", start.plusMinutes(30).toString());
+            update.setProperty("endTime", start.plusMinutes(60).toString());
+            update.setProperty("eventlocation", "Raum " + index);
+            update.setProperty("resultVariable", "updateResult");
+
+            DeleteEventNode delete = new DeleteEventNode() {
+                @Override
+                protected GoogleCalendarPluginRuntime getPluginRuntime(WozInterface comm) {
+                    return runtime;
+                }
+            };
+            delete.setProperty("eventId", "${eventId}");
+            delete.setProperty("sendUpdates", "none");
+
+            nodes = new Node[] {create, list, update, delete};
+            for (Node node : nodes) {
+                graph.add(node);
+            }
+            for (String variable : new String[] {"eventId", "eventList", "updateResult", "deletionResult"}) {
+                BenchmarkData.addVariable(graph, variable, "");
+            }
+        }
+
+        void run(int rounds, boolean measured) {
+            for (int round = 0; round < rounds; round++) {
+                for (int type = 0; type < nodes.length; type++) {
+                    long started = System.nanoTime();
+                    boolean failed = false;
+                    try {
+                        nodes[type].execute(null, (InputCenter) null, (ExecutionLogger) null);
+                    } catch (RuntimeException e) {
+                        failed = true;
+                    }
+                    long elapsed = System.nanoTime() - started;
+                    if (measured) {
+                        latencies[type][counts[type]++] = elapsed;
+                        if (failed) {
+                            errors[type]++;
+                        }
+                    }
+                    if (failed && type == 0) {
+                        // Nothing to update or delete in this round
+                        break;
+                    }
+                }
+            }
+        }
+    }
+}
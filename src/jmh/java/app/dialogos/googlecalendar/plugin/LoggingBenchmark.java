@@ -0,0 +1,93 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * LoggingBenchmark - Turn latency of a large listing with the old console
+ * output versus SLF4J.
+ *
+ * Each benchmark formats the listing result like ListEventsNode and then
+ * either prints it the way the node used to (string concatenation and a
+ * synchronized PrintStream) or hands it to SLF4J at TRACE, which is disabled
+ * at the default level (slf4j-simple, INFO). The console variant writes to a
+ * null stream, so it is a lower bound: a real terminal adds the actual I/O.
+ * The 4-thread variants show the contention on the shared stream when several
+ * dialogs list at the same time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LoggingBenchmark {
+
+
+    private static final Logger LOG = LoggerFactory.getLogger(ListEventsNode.class);
+
+    @Param({"250", "2500"})
+    public int eventCount;
+
+    private final PrintStream console = new PrintStream(OutputStream.nullOutputStream(), false);
+
+    private ListEventsNode node;
+    private List<EventRecord> records;
+
+
+    @Setup
+    public void setUp() {
+        node = new ListEventsNode();
+        records = BenchmarkData.createRecords(eventCount);
+    }
+
+
+    @Benchmark
+    public String formatOnly() {
+        return node.formatEventsAsJson(records, eventCount);
+    }
+
+
+    @Benchmark
+    public String formatAndPrint() {
+        String formattedEvents = node.formatEventsAsJson(records, eventCount);
+        console.println("formatted events: " + formattedEvents);
+        return formattedEvents;
+    }
+
+
+    @Benchmark
+    public String formatAndLog() {
+        String formattedEvents = node.formatEventsAsJson(records, eventCount);
+        LOG.trace("formatted events: {}", formattedEvents);
+        return formattedEvents;
+    }
+
+
+    @Benchmark
+    @Threads(4)
+    public String formatAndPrintContended() {
+        return formatAndPrint();
+    }
+
+
+    @Benchmark
+    @Threads(4)
+    public String formatAndLogContended() {
+        return formatAndLog();
+    }
+}
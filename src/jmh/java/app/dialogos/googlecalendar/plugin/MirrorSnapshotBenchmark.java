@@ -0,0 +1,108 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.services.calendar.Calendar;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+
+/**
+ * MirrorSnapshotBenchmark - Warm start of a calendar mirror from its snapshot
+ * (MirrorSnapshotStore.load) compared with the full sync it saves, against a
+ * StandInCalendarServer with the given list latency.
+ *
+ * The setup prints the snapshot size; both sides end with the same mirror.
+ * The events start 30 days ago, half an hour apart, so all of them lie
+ * within the mirror's sync window.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MirrorSnapshotBenchmark {
+
+
+    private static final String CALENDAR_ID = "benchmark@example.com";
+
+    @Param({"20000"})
+    public int eventCount;
+
+    @Param({"0", "100"})
+    public int latencyMillis;
+
+    private StandInCalendarServer server;
+    private GoogleCalendarPluginRuntime runtime;
+    private Calendar service;
+    private Path directory;
+    private Path snapshot;
+
+
+    @Setup
+    public void setUp() throws Exception {
+        server = new StandInCalendarServer(0).start();
+        server.addEvents(CALENDAR_ID, BenchmarkData.createEvents(eventCount,
+                System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30), TimeUnit.MINUTES.toMillis(30)));
+        server.setLatency(StandInCalendarServer.Operation.LIST,
+                StandInCalendarServer.LatencyDistribution.fixed(latencyMillis));
+
+        directory = Files.createTempDirectory("mirror-snapshots");
+        Path serviceAccountFile = directory.resolve("standin-account.json");
+        server.writeServiceAccountFile(serviceAccountFile);
+        GoogleCalendarPluginSettings settings = new GoogleCalendarPluginSettings();
+        settings.setServiceAccountFile(serviceAccountFile.toString());
+        settings.setCalendarId(CALENDAR_ID);
+        settings.setApplicationName("MirrorSnapshotBenchmark");
+        settings.setRootUrl(server.getRootUrl());
+        runtime = new GoogleCalendarPluginRuntime(settings);
+        service = runtime.getCalendarService();
+
+        CalendarMirror mirror = fullSync();
+        new MirrorSnapshotStore(directory, Runnable::run).save(mirror);
+        try (Stream<Path> files = Files.list(directory)) {
+            snapshot = files.filter(file -> file.toString().endsWith(".mirror")).findFirst().orElseThrow();
+        }
+        System.out.printf("%nSnapshot of %d events: %.1f MB%n", mirror.getEvents().size(),
+                Files.size(snapshot) / 1e6);
+    }
+
+
+    @TearDown
+    public void tearDown() throws IOException {
+        runtime.dispose();
+        server.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+
+    @Benchmark
+    public CalendarMirror loadSnapshot() throws IOException {
+        return MirrorSnapshotStore.load(snapshot);
+    }
+
+
+    @Benchmark
+    public CalendarMirror fullSync() throws IOException {
+        CalendarMirror mirror = new CalendarMirror(CALENDAR_ID);
+        mirror.setLocalWrites(runtime.getLocalWrites());
+        mirror.sync(service);
+        return mirror;
+    }
+}
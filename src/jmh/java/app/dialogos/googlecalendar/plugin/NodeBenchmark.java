@@ -0,0 +1,116 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.clt.diamant.graph.Graph;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * NodeBenchmark - Input handling shared by all nodes (GoogleCalendarNode).
+ *
+ * Each benchmark only depends on the parameters of the state it uses, so
+ * evaluateVariable runs per graph size and parseAndAddReminders per
+ * reminder count.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NodeBenchmark {
+
+
+    /**
+     * Node inside a graph with variableCount variables. The template references
+     * the last variables, so every lookup scans the whole variable list.
+     */
+    @State(Scope.Benchmark)
+    public static class GraphState {
+
+        @Param({"10", "100", "1000"})
+        public int variableCount;
+
+        @Param({"1", "5"})
+        public int referenceCount;
+
+        CreateEventNode node;
+        String template;
+
+        @Setup
+        public void setUp() {
+            Graph graph = BenchmarkData.createGraph(variableCount);
+            node = new CreateEventNode();
+            graph.add(node);
+
+            StringBuilder text = new StringBuilder("Termin:");
+            for (int i = 0; i < referenceCount; i++) {
+                text.append(" ${var").append(variableCount - 1 - i % variableCount).append('}');
+            }
+            template = text.toString();
+        }
+    }
+
+
+    @State(Scope.Benchmark)
+    public static class ReminderState {
+
+        @Param({"1", "3", "10"})
+        public int reminderCount;
+
+        CreateEventNode node;
+        String reminders;
+
+        @Setup
+        public void setUp() {
+            node = new CreateEventNode();
+            reminders = BenchmarkData.createReminders(reminderCount);
+        }
+    }
+
+
+    @State(Scope.Benchmark)
+    public static class NodeState {
+
+        CreateEventNode node;
+
+        @Setup
+        public void setUp() {
+            node = new CreateEventNode();
+        }
+    }
+
+
+    @Benchmark
+    public String evaluateVariable(GraphState state) {
+        return state.node.evaluateVariable(state.template, null, null);
+    }
+
+
+    @Benchmark
+    public String evaluateVariableLiteral(GraphState state) {
+        // Plain values without ${...} are the most common input
+        return state.node.evaluateVariable("2025-01-15T10:00:00", null, null);
+    }
+
+
+    @Benchmark
+    public LocalDateTime parseDateTime(NodeState state) {
+        return state.node.parseDateTime("\"2025-01-15T10:00:00\"", "Start Time");
+    }
+
+
+    @Benchmark
+    public EventRequest.Builder parseAndAddReminders(ReminderState state) {
+        EventRequest.Builder builder = new EventRequest.Builder();
+        state.node.parseAndAddReminders(builder, state.reminders);
+        return builder;
+    }
+}
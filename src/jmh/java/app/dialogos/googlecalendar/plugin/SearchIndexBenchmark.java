@@ -0,0 +1,96 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.services.calendar.model.Event;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * SearchIndexBenchmark - Fuzzy SEARCH with the EventSearchIndex of a mirror,
+ * compared with a case-insensitive substring scan over the mirror's events
+ * (what a local search without an index costs; it finds no misspelled words).
+ *
+ * Besides the events of BenchmarkData, every event gets a numbered title
+ * word, so the vocabulary grows with the calendar like real titles do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SearchIndexBenchmark {
+
+
+    @Param({"1000", "20000"})
+    public int eventCount;
+
+    private CalendarMirror mirror;
+    private EventSearchIndex index;
+
+
+    @Setup
+    public void setUp() {
+        mirror = new CalendarMirror("benchmark@example.com");
+        int i = 0;
+        for (Event event : BenchmarkData.createEvents(eventCount)) {
+            mirror.apply(event.setSummary(event.getSummary() + " Vorgang" + i++));
+        }
+        index = new EventSearchIndex(mirror);
+        mirror.addChangeListener(index);
+        long started = System.nanoTime();
+        index.search("", 1);
+        System.out.printf("%nIndexed %d events (%d words) in %.0f ms%n", index.size(),
+                index.getVocabularySize(), (System.nanoTime() - started) / 1e6);
+    }
+
+
+    @Benchmark
+    public List<String> misspelledIndex() {
+        return index.search("zahnartz termin", 10);
+    }
+
+
+    @Benchmark
+    public List<String> commonWordIndex() {
+        return index.search("team meeting", 10);
+    }
+
+
+    @Benchmark
+    public List<String> commonWordScan() {
+        return scan("team meeting", 10);
+    }
+
+
+    private List<String> scan(String query, int maxResults) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        ColumnarEventStore store = mirror.getEvents();
+        List<String> result = new ArrayList<>();
+        store.forEach(slot -> {
+            if (result.size() < maxResults && (contains(store.getSummary(slot), needle)
+                    || contains(store.getLocation(slot), needle)
+                    || contains(store.getDescription(slot), needle))) {
+                result.add(store.getId(slot));
+            }
+        });
+        return result;
+    }
+
+
+    private static boolean contains(String text, String needle) {
+        return text != null && text.toLowerCase(Locale.ROOT).contains(needle);
+    }
+}
@@ -16,6 +16,7 @@ public final class CalendarConfig {
     private final String serviceAccountFile;
     private final String calendarId;
     private final String applicationName;
+    private final String rootUrl;
     
     /**
      * Creates a new calendar configuration.
@@ -25,9 +26,20 @@ public final class CalendarConfig {
      * @param applicationName Name of the application for Google API requests
      */
     public CalendarConfig(String serviceAccountFile, String calendarId, String applicationName) {
+        this(serviceAccountFile, calendarId, applicationName, null);
+    }
+    
+    /**
+     * Creates a new calendar configuration with a custom API root URL.
+     * 
+     * @param rootUrl Calendar API root URL, e.g. of a StandInCalendarServer (null or empty = Google)
+     */
+    public CalendarConfig(String serviceAccountFile, String calendarId, String applicationName,
+            String rootUrl) {
         this.serviceAccountFile = serviceAccountFile;
         this.calendarId = calendarId;
         this.applicationName = applicationName;
+        this.rootUrl = rootUrl;
     }
     
     /**
@@ -51,6 +63,13 @@ public final class CalendarConfig {
         return applicationName;
     }
     
+    /**
+     * Returns the custom API root URL (null or empty for the Google default).
+     */
+    public String getRootUrl() {
+        return rootUrl;
+    }
+    
     /**
      * Checks whether the configuration is complete and valid.
      */
@@ -66,6 +85,7 @@ public final class CalendarConfig {
                 "serviceAccountFile='" + serviceAccountFile + '\'' +
                 ", calendarId='" + calendarId + '\'' +
                 ", applicationName='" + applicationName + '\'' +
+                ", rootUrl='" + rootUrl + '\'' +
                 '}';
     }
 }
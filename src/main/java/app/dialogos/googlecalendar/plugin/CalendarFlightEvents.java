@@ -0,0 +1,169 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * CalendarFlightEvents - Custom Java Flight Recorder events of the plugin.
+ *
+ * All events are in the category "DialogOS / Google Calendar" and appear in
+ * JDK Mission Control next to the socket reads they explain:
+ * ├─ NodeExecution       one execute() of a calendar node
+ * ├─ TemplateEvaluation  one ${variable} substitution in a node property
+ * ├─ ApiRequest          one attempt of a Calendar API request
+ * ├─ ApiRetry            an attempt the client repeats
+ * └─ Serialization       parsing a listing or formatting the node result
+ *
+ * Usage follows the JFR pattern: create, begin(), do the work, and only fill
+ * the fields inside shouldCommit(). While no recording runs (or the events
+ * are disabled in it) shouldCommit() is false and the JIT removes the event
+ * allocation, so the cost is close to zero.
+ *
+ * Record with e.g. -XX:StartFlightRecording=filename=dialog.jfr; the events
+ * are enabled by default and can be switched off or given a threshold in a
+ * custom .jfc settings file.
+ */
+public final class CalendarFlightEvents {
+
+
+    private static final String CATEGORY_DIALOGOS = "DialogOS";
+    private static final String CATEGORY_CALENDAR = "Google Calendar";
+
+
+    private CalendarFlightEvents() {
+    }
+
+
+    @Name("app.dialogos.googlecalendar.NodeExecution")
+    @Label("Calendar Node Execution")
+    @Description("Execution of one Google Calendar node in a dialog turn")
+    @Category({CATEGORY_DIALOGOS, CATEGORY_CALENDAR})
+    public static class NodeExecution extends Event {
+
+        @Label("Node Type")
+        public String nodeType;
+
+        @Label("Calendar ID")
+        public String calendarId;
+
+        @Label("Mode")
+        @Description("List mode, output format or similar variant of the node")
+        public String mode;
+
+        @Label("Event Count")
+        public int eventCount;
+
+        @Label("Success")
+        public boolean success;
+    }
+
+
+    @Name("app.dialogos.googlecalendar.TemplateEvaluation")
+    @Label("Calendar Template Evaluation")
+    @Description("Substitution of ${variable} references in a node property")
+    @Category({CATEGORY_DIALOGOS, CATEGORY_CALENDAR})
+    @StackTrace(false)
+    public static class TemplateEvaluation extends Event {
+
+        @Label("Node Type")
+        public String nodeType;
+
+        @Label("Template")
+        public String template;
+
+        @Label("References")
+        public int references;
+
+        @Label("Graph Variables")
+        public int graphVariables;
+
+        @Label("Result Length")
+        public int resultLength;
+    }
+
+
+    @Name("app.dialogos.googlecalendar.ApiRequest")
+    @Label("Calendar API Request")
+    @Description("One attempt of a Google Calendar API request, until the response headers arrived")
+    @Category({CATEGORY_DIALOGOS, CATEGORY_CALENDAR})
+    public static class ApiRequest extends Event {
+
+        @Label("API Method")
+        public String apiMethod;
+
+        @Label("HTTP Method")
+        public String httpMethod;
+
+        @Label("Calendar ID")
+        public String calendarId;
+
+        @Label("Status Code")
+        @Description("HTTP status, 0 on I/O errors")
+        public int statusCode;
+
+        @Label("Attempt")
+        public int attempt;
+
+        @Label("Request Bytes")
+        @DataAmount
+        public long requestBytes;
+
+        @Label("Response Bytes")
+        @Description("Content-Length of the response, -1 if unknown")
+        @DataAmount
+        public long responseBytes;
+    }
+
+
+    @Name("app.dialogos.googlecalendar.ApiRetry")
+    @Label("Calendar API Retry")
+    @Description("A failed Calendar API attempt that the client repeats; the duration is the backoff wait")
+    @Category({CATEGORY_DIALOGOS, CATEGORY_CALENDAR})
+    public static class ApiRetry extends Event {
+
+        @Label("API Method")
+        public String apiMethod;
+
+        @Label("Calendar ID")
+        public String calendarId;
+
+        @Label("Status Code")
+        @Description("HTTP status of the failed attempt, 0 on I/O errors")
+        public int statusCode;
+
+        @Label("Attempt")
+        @Description("Number of the failed attempt")
+        public int attempt;
+    }
+
+
+    @Name("app.dialogos.googlecalendar.Serialization")
+    @Label("Calendar Serialization")
+    @Description("Parsing an API response or formatting a node result")
+    @Category({CATEGORY_DIALOGOS, CATEGORY_CALENDAR})
+    @StackTrace(false)
+    public static class Serialization extends Event {
+
+        public static final String PARSE_EVENT_RECORDS = "parseEventRecords";
+        public static final String FORMAT_JSON = "formatJson";
+        public static final String FORMAT_STRUCT = "formatStruct";
+
+        @Label("Operation")
+        public String operation;
+
+        @Label("Event Count")
+        public int eventCount;
+
+        @Label("Bytes")
+        @Description("Bytes read or characters written, -1 if unknown")
+        @DataAmount
+        public long bytes;
+    }
+}
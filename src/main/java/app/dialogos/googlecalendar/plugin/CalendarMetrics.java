@@ -0,0 +1,128 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * CalendarMetrics - Process-wide registry of node and API method metrics.
+ *
+ * Every node type and every Calendar API method gets one OperationMetrics,
+ * created on first use and registered as an MXBean in the platform MBean
+ * server under the domain app.dialogos.googlecalendar. The registry is
+ * global because the MBean server is: several runtimes (e.g. one per
+ * opened dialog) add up into the same beans.
+ *
+ * Lookups of existing entries are a single ConcurrentHashMap read, so
+ * callers may resolve their OperationMetrics per call or cache it.
+ *
+ * Plain counters (e.g. mirror hits) are kept by name; they are exported by
+ * PrometheusExporter but have no MBean of their own.
+ */
+public class CalendarMetrics {
+
+
+    private static final Logger LOG = LoggerFactory.getLogger(CalendarMetrics.class);
+
+    public static final String JMX_DOMAIN = "app.dialogos.googlecalendar";
+
+    // Conflict checks answered from the local mirror / by a remote query
+    public static final String MIRROR_HITS = "mirror_hits";
+    public static final String MIRROR_MISSES = "mirror_misses";
+    // Change notifications accepted from watch channels
+    public static final String PUSH_NOTIFICATIONS = "push_notifications";
+    // Update/Delete requests not sent because the event ID cannot exist
+    public static final String INVALID_EVENT_IDS = "invalid_event_ids";
+    // SEARCH answered by the local search index / by the API (q)
+    public static final String SEARCH_INDEX_HITS = "search_index_hits";
+    public static final String SEARCH_INDEX_MISSES = "search_index_misses";
+
+    private static final CalendarMetrics INSTANCE = new CalendarMetrics();
+
+    private final Map<String, OperationMetrics> nodes = new ConcurrentHashMap<>();
+    private final Map<String, OperationMetrics> apiMethods = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private volatile boolean jmxFailureReported = false;
+
+
+    public static CalendarMetrics getInstance() {
+        return INSTANCE;
+    }
+
+
+    /**
+     * Returns the metrics of a node type, e.g. "CreateEventNode".
+     */
+    public OperationMetrics node(String nodeType) {
+        OperationMetrics metrics = nodes.get(nodeType);
+        return metrics != null ? metrics : register(nodes, "Node", nodeType);
+    }
+
+
+    /**
+     * Returns the metrics of an API method, e.g. "events.list".
+     */
+    public OperationMetrics apiMethod(String method) {
+        OperationMetrics metrics = apiMethods.get(method);
+        return metrics != null ? metrics : register(apiMethods, "ApiMethod", method);
+    }
+
+
+    /**
+     * Returns a named counter, e.g. "mirror_hits"; created at 0 on first use.
+     */
+    public LongAdder counter(String name) {
+        LongAdder counter = counters.get(name);
+        return counter != null ? counter : counters.computeIfAbsent(name, key -> new LongAdder());
+    }
+
+
+    public Map<String, LongAdder> getCounters() {
+        return Collections.unmodifiableMap(counters);
+    }
+
+
+    public Collection<OperationMetrics> getNodeMetrics() {
+        return Collections.unmodifiableCollection(nodes.values());
+    }
+
+
+    public Collection<OperationMetrics> getApiMethodMetrics() {
+        return Collections.unmodifiableCollection(apiMethods.values());
+    }
+
+
+    private OperationMetrics register(Map<String, OperationMetrics> metricsByName, String type, String name) {
+        OperationMetrics created = new OperationMetrics(name);
+        OperationMetrics existing = metricsByName.putIfAbsent(name, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(JMX_DOMAIN + ":type=" + type
+                    + ",name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(created, objectName);
+            }
+        } catch (JMException | SecurityException e) {
+            // Metrics keep working without JMX; report once
+            if (!jmxFailureReported) {
+                jmxFailureReported = true;
+                LOG.warn("Could not register Google Calendar metrics in JMX: {}", e.getMessage());
+            }
+        }
+        return created;
+    }
+}
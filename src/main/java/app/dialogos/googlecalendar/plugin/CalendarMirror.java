@@ -0,0 +1,392 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.Events;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * CalendarMirror - Local, incrementally synchronized copy of one calendar.
+ *
+ * The first sync lists the calendar within a window from SYNC_PAST_MILLIS
+ * before to SYNC_HORIZON_MILLIS after now and stores the returned syncToken;
+ * every later sync only transfers the changes since then (of any time, as
+ * the API does not allow a window together with a syncToken). The mirror
+ * keeps the events (times, busy flag, title, location, description) in a
+ * ColumnarEventStore, so overlap checks within covers() can be answered
+ * without a round-trip.
+ *
+ * The window keeps singleEvents listings finite: without one, every series
+ * without an end is expanded as far as the API goes, and the past of a
+ * long-used calendar is listed too, although neither conflict checks nor
+ * dialogs look there. Once half of the horizon has passed, the next sync is
+ * a full sync that moves the window.
+ *
+ * Responsibilities:
+ * ├─ Full (within the sync window) and incremental (syncToken) synchronization
+ * ├─ Recovery from expired sync tokens (HTTP 410)
+ * ├─ Applying single events returned by write requests; syncs do not
+ * │  override them with older versions while the LocalWriteLog retains
+ * │  them, and getWriteVersion() tells which writes the store includes
+ * ├─ Passing every applied event on to ChangeListeners (runtime caches)
+ * └─ Consistent snapshots of events and syncToken (MirrorSnapshotStore)
+ */
+public class CalendarMirror {
+
+
+    private static final Logger LOG = LoggerFactory.getLogger(CalendarMirror.class);
+
+    static final String STATUS_CANCELLED = "cancelled";
+    private static final String TRANSPARENCY_TRANSPARENT = "transparent";
+    private static final int SYNC_PAGE_SIZE = 2500;
+    static final long SYNC_PAST_MILLIS = TimeUnit.DAYS.toMillis(90);
+    static final long SYNC_HORIZON_MILLIS = TimeUnit.DAYS.toMillis(730);
+
+    private final String calendarId;
+    private final ColumnarEventStore events = new ColumnarEventStore();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile LocalWriteLog localWrites;
+
+    private volatile String syncToken;
+    private volatile long lastSyncMillis;
+    // Time range listed in full by the last full sync
+    private volatile long windowStart;
+    private volatile long windowEnd;
+    // Events received by all syncs so far; tells snapshots whether anything changed
+    private volatile long receivedChanges;
+    // Version of the last LocalWriteLog write the store includes
+    private long writeVersion;
+
+
+    public CalendarMirror(String calendarId) {
+        this.calendarId = calendarId;
+    }
+
+
+    /**
+     * Creates a mirror from a snapshot: the events are filled by the caller, the
+     * next sync continues from syncToken.
+     */
+    static CalendarMirror restore(String calendarId, String syncToken, long lastSyncMillis,
+            long windowStart, long windowEnd) {
+        CalendarMirror mirror = new CalendarMirror(calendarId);
+        mirror.syncToken = syncToken;
+        mirror.lastSyncMillis = lastSyncMillis;
+        mirror.windowStart = windowStart;
+        mirror.windowEnd = windowEnd;
+        return mirror;
+    }
+
+
+    public String getCalendarId() {
+        return calendarId;
+    }
+
+
+    public ColumnarEventStore getEvents() {
+        return events;
+    }
+
+
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+
+    /**
+     * Sets the log of local writes that syncs must not override (null for none).
+     */
+    public void setLocalWrites(LocalWriteLog localWrites) {
+        this.localWrites = localWrites;
+    }
+
+
+    /**
+     * Returns true once a full sync has completed.
+     */
+    public boolean isSynced() {
+        return syncToken != null;
+    }
+
+
+    /**
+     * Returns true if the mirror holds every event overlapping [start, end):
+     * it is synced and the range lies within the window of its last full sync.
+     */
+    public boolean covers(long start, long end) {
+        return isSynced() && start >= windowStart && end <= windowEnd;
+    }
+
+
+    long getWindowStart() {
+        return windowStart;
+    }
+
+
+    long getWindowEnd() {
+        return windowEnd;
+    }
+
+
+    /**
+     * Returns the milliseconds since the last successful sync
+     * (Long.MAX_VALUE if the mirror was never synced).
+     */
+    public long getStalenessMillis() {
+        return isSynced() ? System.currentTimeMillis() - lastSyncMillis : Long.MAX_VALUE;
+    }
+
+
+    /**
+     * Returns the version of the last local write the store includes. A
+     * session's reads may use the mirror only if this is at least the session
+     * stamp (LocalWriteLog.getSessionStamp()); it drops to 0 while a full sync
+     * rebuilds the store.
+     */
+    public synchronized long getWriteVersion() {
+        return writeVersion;
+    }
+
+
+    private synchronized void includeWrites(long version) {
+        writeVersion = Math.max(writeVersion, version);
+    }
+
+
+    /**
+     * Returns the number of events received by all syncs of this mirror.
+     */
+    public long getReceivedChanges() {
+        return receivedChanges;
+    }
+
+
+    /**
+     * Encodes the mirror with MirrorSnapshotStore.encode() while no sync is
+     * running, so the events are exactly the state of the stored syncToken
+     * (events applied by write requests since then are delivered again by
+     * the next incremental sync).
+     *
+     * @return the snapshot, or null if the mirror was never synced or a sync
+     *         did not finish within waitMillis
+     */
+    byte[] snapshot(long waitMillis) throws IOException {
+        try {
+            if (!syncLock.tryLock(waitMillis, TimeUnit.MILLISECONDS)) {
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+        try {
+            if (syncToken == null) {
+                return null;
+            }
+            return MirrorSnapshotStore.encode(calendarId, syncToken, lastSyncMillis, windowStart, windowEnd,
+                    events);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+
+    /**
+     * Brings the mirror up to date. Uses the stored syncToken if there is one,
+     * otherwise lists the whole calendar. Blocks while another sync is running.
+     *
+     * @return number of changed events received (all events for a full sync)
+     */
+    public int sync(Calendar service) throws IOException {
+        syncLock.lock();
+        try {
+            return doSync(service);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+
+    /**
+     * Starts a sync on the given executor unless one is already running.
+     */
+    public void syncInBackground(Calendar service, Executor executor) {
+        executor.execute(() -> {
+            if (!syncLock.tryLock()) {
+                return;
+            }
+            try {
+                doSync(service);
+            } catch (IOException e) {
+                LOG.warn("Background sync of {} failed: {}", calendarId, e.getMessage());
+            } finally {
+                syncLock.unlock();
+            }
+        });
+    }
+
+
+    private int doSync(Calendar service) throws IOException {
+        if (syncToken != null && System.currentTimeMillis() > windowEnd - SYNC_HORIZON_MILLIS / 2) {
+            LOG.info("Sync window of {} ends soon, running full sync", calendarId);
+            syncToken = null;
+        }
+        try {
+            return fetchChanges(service);
+        } catch (GoogleJsonResponseException e) {
+            if (e.getStatusCode() != 410 || syncToken == null) {
+                throw e;
+            }
+            // Sync token expired: start over with a full sync
+            LOG.info("Sync token of {} expired, running full sync", calendarId);
+            syncToken = null;
+            return fetchChanges(service);
+        }
+    }
+
+
+    private int fetchChanges(Calendar service) throws IOException {
+        long startedAt = System.currentTimeMillis();
+        boolean fullSync = syncToken == null;
+        String pageToken = null;
+        String nextSyncToken;
+        int changes = 0;
+
+        long fullWindowStart = startedAt - SYNC_PAST_MILLIS;
+        long fullWindowEnd = startedAt + SYNC_HORIZON_MILLIS;
+        if (fullSync) {
+            synchronized (this) {
+                writeVersion = 0;
+            }
+            // Nothing is covered until the listing is complete
+            windowEnd = windowStart;
+            events.clear();
+        }
+        do {
+            Calendar.Events.List request = service.events().list(calendarId)
+                    .setSingleEvents(true)
+                    .setMaxResults(SYNC_PAGE_SIZE)
+                    .setPageToken(pageToken);
+            if (fullSync) {
+                request.setTimeMin(new DateTime(fullWindowStart))
+                        .setTimeMax(new DateTime(fullWindowEnd));
+            } else {
+                // Incremental results always include cancelled events
+                request.setSyncToken(syncToken);
+            }
+            Events page = request.execute();
+
+            List<Event> items = page.getItems();
+            LocalWriteLog writes = localWrites;
+            if (items != null) {
+                for (Event event : items) {
+                    // A listing may lag behind a write of this plugin
+                    long updated = event.getUpdated() != null ? event.getUpdated().getValue() : EventRecord.NO_TIME;
+                    if (writes == null || !writes.supersedes(calendarId, event.getId(), updated)) {
+                        apply(event);
+                    }
+                }
+                changes += items.size();
+            }
+            pageToken = page.getNextPageToken();
+            nextSyncToken = page.getNextSyncToken();
+        } while (pageToken != null);
+
+        if (fullSync && localWrites != null) {
+            // The store was cleared: restore the writes the listing may not show yet.
+            // Writes up to this version are restored or old enough to be listed.
+            long covered = localWrites.getVersion();
+            for (Event written : localWrites.retained(calendarId)) {
+                apply(written);
+            }
+            includeWrites(covered);
+        }
+        if (fullSync) {
+            windowStart = fullWindowStart;
+            windowEnd = fullWindowEnd;
+        }
+        syncToken = nextSyncToken;
+        lastSyncMillis = startedAt;
+        receivedChanges += changes;
+        LOG.debug("{} sync of {}: {} changes, {} events",
+                fullSync ? "Full" : "Incremental", calendarId, changes, events.size());
+        return changes;
+    }
+
+
+    /**
+     * Applies a single event (from a sync page or a write response) to the store.
+     * Cancelled events are removed; transparent (free) events are kept but not busy.
+     */
+    public void apply(Event event) {
+        if (event == null || event.getId() == null) {
+            return;
+        }
+        for (ChangeListener listener : listeners) {
+            listener.eventApplied(calendarId, event);
+        }
+        if (STATUS_CANCELLED.equals(event.getStatus())) {
+            events.remove(event.getId());
+            return;
+        }
+        Long start = EventConverter.toEpochMillis(event.getStart());
+        Long end = EventConverter.toEpochMillis(event.getEnd());
+        if (start == null || end == null) {
+            events.remove(event.getId());
+            return;
+        }
+        events.put(event.getId(), start, end, blocksTime(event), event.getStart().getDate() != null,
+                event.getSummary(), event.getLocation(), event.getDescription());
+    }
+
+
+    /**
+     * Applies the result of a local write with its LocalWriteLog version.
+     */
+    public void applyWrite(Event event, long version) {
+        apply(event);
+        includeWrites(version);
+    }
+
+
+    /**
+     * Returns true if the event makes its time busy (not cancelled, not marked as free).
+     */
+    public static boolean blocksTime(Event event) {
+        return !STATUS_CANCELLED.equals(event.getStatus())
+                && !TRANSPARENCY_TRANSPARENT.equals(event.getTransparency());
+    }
+
+
+    /**
+     * Removes a deleted event from the store.
+     */
+    public void remove(String eventId) {
+        events.remove(eventId);
+    }
+
+
+    /**
+     * Receives every event a mirror applies: sync changes (including
+     * cancelled events) and the results of local writes.
+     */
+    @FunctionalInterface
+    public interface ChangeListener {
+
+        void eventApplied(String calendarId, Event event);
+    }
+}
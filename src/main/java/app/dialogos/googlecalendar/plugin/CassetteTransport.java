@@ -0,0 +1,588 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.javanet.ConnectionFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * CassetteTransport - Records Calendar API exchanges to a file and replays them.
+ *
+ * Both modes hook into NetHttpTransport as its ConnectionFactory: record mode
+ * wraps the real connections and appends every request/response pair to the
+ * cassette, replay mode opens connections that answer from the cassette. Only the request line, a checksum of the request
+ * body, the status, content type/encoding and the raw response body are
+ * stored; request headers (Authorization) and credential query parameters
+ * are never written, and token endpoint exchanges are not recorded.
+ *
+ * Replay mode needs no network or credentials. The cassette is memory-mapped
+ * once and responses are streamed straight from the mapping, without copying
+ * them to the heap first. Requests are matched exactly (method, URL, body);
+ * requests that differ only in query or body (e.g. timeMin=now) fall back to
+ * the recordings of the same method and path. Repeated matches cycle through
+ * the recordings in order.
+ *
+ * File format: "GCCASS01", then per exchange
+ *   key, status, content type, content encoding (int length + UTF-8 each, -1 = null),
+ *   body (int length + raw bytes, still compressed if the server compressed it)
+ */
+public class CassetteTransport implements ConnectionFactory, Closeable {
+
+
+    private static final Logger LOG = LoggerFactory.getLogger(CassetteTransport.class);
+
+    public static final String MODE_OFF = "off";
+    public static final String MODE_RECORD = "record";
+    public static final String MODE_REPLAY = "replay";
+
+    private static final byte[] MAGIC = "GCCASS01".getBytes(StandardCharsets.US_ASCII);
+    private static final String[] SCRUBBED_PARAMETERS = {"access_token", "oauth_token", "key"};
+
+    // Record mode
+    private final ConnectionFactory delegate;
+    private final DataOutputStream out;
+
+    // Replay mode
+    private final ByteBuffer mapped;
+    private final Map<String, Recordings> exactMatches = new HashMap<>();
+    private final Map<String, Recordings> pathMatches = new HashMap<>();
+
+
+    private CassetteTransport(ConnectionFactory delegate, DataOutputStream out, ByteBuffer mapped) {
+        this.delegate = delegate;
+        this.out = out;
+        this.mapped = mapped;
+    }
+
+
+    /**
+     * Creates connections that forward to delegate and write all exchanges to file
+     * (an existing file is overwritten).
+     */
+    public static CassetteTransport record(ConnectionFactory delegate, Path file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file.toFile())));
+        out.write(MAGIC);
+        out.flush();
+        LOG.info("Recording Calendar API exchanges to {}", file);
+        return new CassetteTransport(delegate, out, null);
+    }
+
+
+    /**
+     * Creates connections that answer all requests from a recorded cassette.
+     */
+    public static CassetteTransport replay(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Cassette larger than 2 GB: " + file);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        CassetteTransport transport = new CassetteTransport(null, null, mapped);
+        transport.index();
+        LOG.info("Replaying {} Calendar API exchanges from {}", transport.size(), file);
+        return transport;
+    }
+
+
+    /**
+     * Returns the number of exchanges in a replayed cassette.
+     */
+    public int size() {
+        int size = 0;
+        for (Recordings recordings : exactMatches.values()) {
+            size += recordings.positions.size();
+        }
+        return size;
+    }
+
+
+    @Override
+    public HttpURLConnection openConnection(URL url) throws IOException {
+        if (delegate != null) {
+            return new RecordingConnection(delegate.openConnection(url));
+        }
+        return new ReplayConnection(url);
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            synchronized (out) {
+                out.close();
+            }
+        }
+    }
+
+
+    // ---------------------------------------------------------------------
+    // Keys
+    // ---------------------------------------------------------------------
+
+
+    private static String exactKey(String method, String url, byte[] body) {
+        GenericUrl parsed = new GenericUrl(url);
+        for (String parameter : SCRUBBED_PARAMETERS) {
+            parsed.remove(parameter);
+        }
+        String key = method + " " + parsed.getRawPath() + sortedQuery(parsed);
+        if (body != null && body.length > 0) {
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            key += " #" + Long.toHexString(crc.getValue());
+        }
+        return key;
+    }
+
+
+    private static String pathKey(String exactKey) {
+        int end = exactKey.indexOf('?');
+        if (end < 0) {
+            end = exactKey.indexOf(" #");
+        }
+        return end < 0 ? exactKey : exactKey.substring(0, end);
+    }
+
+
+    private static String sortedQuery(GenericUrl url) {
+        List<String> names = new ArrayList<>(url.keySet());
+        if (names.isEmpty()) {
+            return "";
+        }
+        names.sort(null);
+        StringBuilder query = new StringBuilder();
+        for (String name : names) {
+            query.append(query.length() == 0 ? '?' : '&').append(name).append('=').append(url.get(name));
+        }
+        return query.toString();
+    }
+
+
+    private static boolean isTokenRequest(String url) {
+        return new GenericUrl(url).getRawPath().endsWith("/token");
+    }
+
+
+    // ---------------------------------------------------------------------
+    // Recording
+    // ---------------------------------------------------------------------
+
+
+    /**
+     * Sends the request through the real connection; the request body is
+     * copied on the way out, the response is read in full when it is first
+     * asked for and then served from memory.
+     */
+    private class RecordingConnection extends ForwardingHttpURLConnection {
+
+        private final ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+        private RecordedResponse response;
+
+        RecordingConnection(HttpURLConnection delegate) {
+            super(delegate);
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            OutputStream wire = super.getOutputStream();
+            return new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    wire.write(b);
+                    requestBody.write(b);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    wire.write(bytes, offset, length);
+                    requestBody.write(bytes, offset, length);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    wire.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    wire.close();
+                }
+            };
+        }
+
+        @Override
+        public int getResponseCode() throws IOException {
+            return response().statusCode;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return response().getContent();
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            try {
+                return response().getErrorContent();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        private synchronized RecordedResponse response() throws IOException {
+            if (response != null) {
+                return response;
+            }
+            int statusCode = super.getResponseCode();
+            InputStream content;
+            try {
+                content = super.getInputStream();
+            } catch (IOException e) {
+                // Error statuses have their body in the error stream
+                content = super.getErrorStream();
+            }
+            byte[] body;
+            if (content == null) {
+                body = new byte[0];
+            } else {
+                try (InputStream in = content) {
+                    body = in.readAllBytes();
+                }
+            }
+            // Headers (including Authorization) go to the wire only, never to the cassette
+            response = new RecordedResponse(statusCode, super.getResponseMessage(),
+                    super.getHeaderField("Content-Type"), super.getContentEncoding(), ByteBuffer.wrap(body));
+
+            String url = getURL().toString();
+            if (!isTokenRequest(url)) {
+                write(exactKey(getRequestMethod(), url, requestBody.toByteArray()), response, body);
+            }
+            return response;
+        }
+    }
+
+
+    private void write(String key, RecordedResponse response, byte[] body) throws IOException {
+        synchronized (out) {
+            writeString(key);
+            out.writeInt(response.statusCode);
+            writeString(response.contentType);
+            writeString(response.contentEncoding);
+            out.writeInt(body.length);
+            out.write(body);
+            out.flush();
+        }
+    }
+
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+
+    // ---------------------------------------------------------------------
+    // Replay
+    // ---------------------------------------------------------------------
+
+
+    /**
+     * Positions of all recordings with the same key; replayed round-robin.
+     */
+    private static class Recordings {
+        final List<Integer> positions = new ArrayList<>();
+        final AtomicInteger next = new AtomicInteger();
+
+        int nextPosition() {
+            return positions.get(Math.floorMod(next.getAndIncrement(), positions.size()));
+        }
+    }
+
+
+    private void index() throws IOException {
+        ByteBuffer buffer = mapped.duplicate();
+        byte[] magic = new byte[MAGIC.length];
+        if (buffer.remaining() < magic.length) {
+            throw new IOException("Not a cassette file");
+        }
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IOException("Not a cassette file");
+        }
+        while (buffer.hasRemaining()) {
+            int position = buffer.position();
+            String key = readString(buffer);
+            buffer.position(buffer.position() + 4);   // status
+            skipString(buffer);                        // content type
+            skipString(buffer);                        // content encoding
+            int bodyLength = buffer.getInt();
+            buffer.position(buffer.position() + bodyLength);
+
+            exactMatches.computeIfAbsent(key, k -> new Recordings()).positions.add(position);
+            pathMatches.computeIfAbsent(pathKey(key), k -> new Recordings()).positions.add(position);
+        }
+    }
+
+
+    private RecordedResponse readResponse(int position) {
+        ByteBuffer buffer = mapped.duplicate();
+        buffer.position(position);
+        skipString(buffer);
+        int statusCode = buffer.getInt();
+        String contentType = readString(buffer);
+        String contentEncoding = readString(buffer);
+        int bodyLength = buffer.getInt();
+        ByteBuffer body = buffer.slice();
+        body.limit(bodyLength);
+        return new RecordedResponse(statusCode, null, contentType, contentEncoding, body);
+    }
+
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    private static void skipString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length > 0) {
+            buffer.position(buffer.position() + length);
+        }
+    }
+
+
+    /**
+     * A connection that never touches the network: the request body is
+     * buffered, and the response is looked up when it is first asked for.
+     */
+    private class ReplayConnection extends HttpURLConnection {
+
+        private final ByteArrayOutputStream requestBody = new ByteArrayOutputStream();
+        private RecordedResponse response;
+
+        ReplayConnection(URL url) {
+            super(url);
+        }
+
+        @Override
+        public void connect() {
+            connected = true;
+        }
+
+        @Override
+        public void disconnect() {
+            connected = false;
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+
+        @Override
+        public OutputStream getOutputStream() {
+            return requestBody;
+        }
+
+        @Override
+        public int getResponseCode() throws IOException {
+            return response().statusCode;
+        }
+
+        @Override
+        public String getResponseMessage() throws IOException {
+            return response().reasonPhrase;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return response().getContent();
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            try {
+                return response().getErrorContent();
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String getHeaderField(String name) {
+            List<String> values = headers().get(name.toLowerCase(Locale.ROOT));
+            return values != null ? values.get(0) : null;
+        }
+
+        @Override
+        public String getHeaderField(int n) {
+            try {
+                return n == 0 ? "HTTP/1.1 " + response().statusCode : null;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public Map<String, List<String>> getHeaderFields() {
+            return headers();
+        }
+
+        private Map<String, List<String>> headers() {
+            try {
+                return response().headers();
+            } catch (IOException e) {
+                return Collections.emptyMap();
+            }
+        }
+
+        private synchronized RecordedResponse response() throws IOException {
+            if (response == null) {
+                String key = exactKey(method, url.toString(), requestBody.toByteArray());
+                Recordings recordings = exactMatches.get(key);
+                if (recordings == null) {
+                    recordings = pathMatches.get(pathKey(key));
+                }
+                if (recordings == null) {
+                    throw new IOException("No recorded response for " + key);
+                }
+                response = readResponse(recordings.nextPosition());
+            }
+            return response;
+        }
+    }
+
+
+    /**
+     * A response served from memory (recording) or from the mapped cassette (replay).
+     */
+    private static class RecordedResponse {
+
+        private final int statusCode;
+        private final String reasonPhrase;
+        private final String contentType;
+        private final String contentEncoding;
+        private final ByteBuffer body;
+
+        RecordedResponse(int statusCode, String reasonPhrase, String contentType,
+                String contentEncoding, ByteBuffer body) {
+            this.statusCode = statusCode;
+            this.reasonPhrase = reasonPhrase;
+            this.contentType = contentType;
+            this.contentEncoding = contentEncoding;
+            this.body = body;
+        }
+
+        /**
+         * Returns the body of a successful response; like HttpURLConnection,
+         * throws for error statuses, whose body is the error content.
+         */
+        InputStream getContent() throws IOException {
+            if (statusCode >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                throw new IOException("Server returned HTTP response code: " + statusCode);
+            }
+            return new ByteBufferInputStream(body.duplicate());
+        }
+
+        InputStream getErrorContent() {
+            return statusCode >= HttpURLConnection.HTTP_BAD_REQUEST
+                    ? new ByteBufferInputStream(body.duplicate())
+                    : null;
+        }
+
+        Map<String, List<String>> headers() {
+            Map<String, List<String>> headers = new LinkedHashMap<>();
+            if (contentType != null) {
+                headers.put("content-type", Collections.singletonList(contentType));
+            }
+            if (contentEncoding != null) {
+                headers.put("content-encoding", Collections.singletonList(contentEncoding));
+            }
+            headers.put("content-length", Collections.singletonList(Integer.toString(body.remaining())));
+            return headers;
+        }
+    }
+
+
+    /**
+     * Reads directly from a (mapped) buffer.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public long skip(long n) {
+            int count = (int) Math.min(n, buffer.remaining());
+            buffer.position(buffer.position() + count);
+            return count;
+        }
+    }
+}
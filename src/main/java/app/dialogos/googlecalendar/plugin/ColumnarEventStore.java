@@ -0,0 +1,713 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * ColumnarEventStore - Column-oriented storage for the events of one calendar mirror.
+ *
+ * Instead of one object graph per event, every field is a column indexed by
+ * a slot number:
+ * ├─ start, end     long[] epoch milliseconds
+ * ├─ flags          byte[] (live, busy = blocks time, all-day)
+ * ├─ location       int[] codes into a dictionary (rooms repeat a lot)
+ * └─ text           int[] offset of a record in an off-heap arena:
+ *                   ID, summary, description (int length + UTF-8 each, -1 = null)
+ *
+ * The columns are kept in start order, so range and aggregate scans
+ * binary-search the first candidate and then run a sequential loop over
+ * starts/ends/flags. Events are found by ID through an open-addressing
+ * table of slots (no String keys on the heap).
+ *
+ * Writes do not keep the order themselves:
+ * ├─ New events (and events whose start moved) are appended behind the sorted part
+ * ├─ Removed events stay as dead slots that scans skip
+ * └─ The next scan sorts the appended slots and rebuilds the columns in one pass,
+ *    dropping dead slots; a full sync pays this once, a single write once per following scan
+ *
+ * Per event this takes about 40 bytes of heap plus its text off-heap, where
+ * an Event object takes 0.4 (fields of the mirror only) to 2 KB (as parsed).
+ * The location dictionary only grows until clear().
+ *
+ * Slot numbers are only valid while the caller holds the store's monitor
+ * (e.g. inside forEach()). All methods are synchronized; the store is shared
+ * between nodes and the syncs of its CalendarMirror.
+ */
+public class ColumnarEventStore {
+
+
+    public static final int NO_SLOT = -1;
+
+    private static final byte LIVE = 1;
+    private static final byte BUSY = 2;
+    private static final byte ALL_DAY = 4;
+
+    private static final int INITIAL_SLOTS = 64;
+    private static final int INITIAL_ARENA_BYTES = 16 * 1024;
+    private static final int NULL_TEXT = -1;
+    private static final int NO_LOCATION = -1;
+    // Below this size, sorting falls back to insertion sort
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    // Columns, indexed by slot; [0, sortedCount) is in start order, [sortedCount, count) appended
+    private long[] starts;
+    private long[] ends;
+    private byte[] flags;
+    private int[] locations;
+    private int[] idHashes;
+    private int[] texts;
+    private int count;
+    private int sortedCount;
+    private int size;
+
+    // ID → slot: linear probing; 0 = empty, DELETED, otherwise slot + 1
+    private static final int DELETED = -1;
+    private int[] table;
+    private int tableUsed;
+
+    // Upper bound of all durations; never shrinks, which only widens the scan
+    private long maxDuration;
+
+    private final Map<String, Integer> locationCodes = new HashMap<>();
+    private final List<String> locationValues = new ArrayList<>();
+
+    private ByteBuffer arena;
+    private int arenaGarbage;
+    // Counts clear() calls, so derived indexes (EventSearchIndex) know when to rebuild
+    private long generation;
+
+
+    public ColumnarEventStore() {
+        clear();
+    }
+
+
+    /**
+     * Adds or replaces an event.
+     *
+     * @param busy true if the event blocks its time (not transparent)
+     */
+    public synchronized void put(String eventId, long start, long end, boolean busy, boolean allDay,
+            String summary, String location, String description) {
+        byte[] id = eventId.getBytes(StandardCharsets.UTF_8);
+        int hash = hash(id);
+        int slot = find(id, hash);
+        if (slot != NO_SLOT && starts[slot] != start && slot < sortedCount) {
+            // Moving it would break the order: replace it by an appended slot
+            kill(findTableIndex(id, hash));
+            slot = NO_SLOT;
+        }
+        int record = writeRecord(id, toBytes(summary), toBytes(description));
+        boolean added = slot == NO_SLOT;
+        if (added) {
+            slot = appendSlot();
+            idHashes[slot] = hash;
+            size++;
+        } else {
+            arenaGarbage += recordLength(texts[slot]);
+        }
+        texts[slot] = record;
+        starts[slot] = start;
+        ends[slot] = end;
+        flags[slot] = (byte) (LIVE | (busy ? BUSY : 0) | (allDay ? ALL_DAY : 0));
+        locations[slot] = locationCode(location);
+        if (added) {
+            insertIntoTable(slot, hash);
+        }
+        maxDuration = Math.max(maxDuration, end - start);
+    }
+
+
+    /**
+     * Removes an event; unknown IDs are ignored.
+     */
+    public synchronized void remove(String eventId) {
+        byte[] id = eventId.getBytes(StandardCharsets.UTF_8);
+        int index = findTableIndex(id, hash(id));
+        if (index >= 0) {
+            kill(index);
+        }
+    }
+
+
+    /**
+     * Returns the IDs of all busy events overlapping [start, end).
+     */
+    public synchronized List<String> findOverlapping(long start, long end) {
+        List<String> result = new ArrayList<>();
+        merge();
+        for (int i = firstCandidate(start); i < count && starts[i] < end; i++) {
+            if (ends[i] > start && (flags[i] & BUSY) != 0) {
+                result.add(getId(i));
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns the number of busy events overlapping [start, end).
+     */
+    public synchronized int countOverlapping(long start, long end) {
+        merge();
+        int result = 0;
+        for (int i = firstCandidate(start); i < count && starts[i] < end; i++) {
+            if (ends[i] > start && (flags[i] & BUSY) != 0) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns the milliseconds of [start, end) covered by at least one busy
+     * event (overlapping events count once).
+     */
+    public synchronized long busyMillis(long start, long end) {
+        merge();
+        long total = 0;
+        long coveredUntil = start;
+        for (int i = firstCandidate(start); i < count && starts[i] < end; i++) {
+            if ((flags[i] & BUSY) == 0) {
+                continue;
+            }
+            long from = Math.max(starts[i], coveredUntil);
+            long to = Math.min(ends[i], end);
+            if (to > from) {
+                total += to - from;
+                coveredUntil = to;
+            }
+        }
+        return total;
+    }
+
+
+    /**
+     * Returns the slot of an event, or NO_SLOT.
+     */
+    public synchronized int slotOf(String eventId) {
+        byte[] id = eventId.getBytes(StandardCharsets.UTF_8);
+        return find(id, hash(id));
+    }
+
+
+    public synchronized boolean contains(String eventId) {
+        return slotOf(eventId) != NO_SLOT;
+    }
+
+
+    /**
+     * Passes the slots of all events to action in start order.
+     */
+    public synchronized void forEach(SlotConsumer action) {
+        merge();
+        for (int i = 0; i < count; i++) {
+            if ((flags[i] & LIVE) != 0) {
+                action.accept(i);
+            }
+        }
+    }
+
+
+    public synchronized String getId(int slot) {
+        int offset = texts[slot];
+        return readText(offset + Integer.BYTES, arena.getInt(offset));
+    }
+
+
+    public synchronized long getStart(int slot) {
+        return starts[slot];
+    }
+
+
+    public synchronized long getEnd(int slot) {
+        return ends[slot];
+    }
+
+
+    public synchronized boolean isBusy(int slot) {
+        return (flags[slot] & BUSY) != 0;
+    }
+
+
+    public synchronized boolean isAllDay(int slot) {
+        return (flags[slot] & ALL_DAY) != 0;
+    }
+
+
+    public synchronized String getSummary(int slot) {
+        int offset = summaryOffset(texts[slot]);
+        return readText(offset + Integer.BYTES, arena.getInt(offset));
+    }
+
+
+    public synchronized String getLocation(int slot) {
+        return locations[slot] == NO_LOCATION ? null : locationValues.get(locations[slot]);
+    }
+
+
+    public synchronized String getDescription(int slot) {
+        int offset = descriptionOffset(texts[slot]);
+        return readText(offset + Integer.BYTES, arena.getInt(offset));
+    }
+
+
+    /**
+     * Returns the event as an EventRecord, or null if it is not in the store.
+     */
+    public synchronized EventRecord getRecord(String eventId) {
+        int slot = slotOf(eventId);
+        if (slot == NO_SLOT) {
+            return null;
+        }
+        return new EventRecord(eventId, getSummary(slot), starts[slot], ends[slot],
+                getLocation(slot), getDescription(slot), false,
+                isAllDay(slot), null, null, null, EventRecord.NO_TIME);
+    }
+
+
+    public synchronized int size() {
+        return size;
+    }
+
+
+    /**
+     * Returns the number of clear() calls so far.
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+
+    /**
+     * Returns the bytes of text held off-heap, including garbage not yet compacted.
+     */
+    public synchronized int getOffHeapBytes() {
+        return arena.position();
+    }
+
+
+    public synchronized void clear() {
+        starts = new long[INITIAL_SLOTS];
+        ends = new long[INITIAL_SLOTS];
+        flags = new byte[INITIAL_SLOTS];
+        locations = new int[INITIAL_SLOTS];
+        idHashes = new int[INITIAL_SLOTS];
+        texts = new int[INITIAL_SLOTS];
+        count = 0;
+        sortedCount = 0;
+        size = 0;
+        table = new int[INITIAL_SLOTS * 2];
+        tableUsed = 0;
+        maxDuration = 0;
+        locationCodes.clear();
+        locationValues.clear();
+        arena = ByteBuffer.allocateDirect(INITIAL_ARENA_BYTES);
+        arenaGarbage = 0;
+        generation++;
+    }
+
+
+    @FunctionalInterface
+    public interface SlotConsumer {
+
+        void accept(int slot);
+    }
+
+
+    // ---------------------------------------------------------------------
+    // Slots and ID table
+    // ---------------------------------------------------------------------
+
+
+    private int appendSlot() {
+        if (count == starts.length) {
+            int capacity = count + (count >> 1);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            flags = Arrays.copyOf(flags, capacity);
+            locations = Arrays.copyOf(locations, capacity);
+            idHashes = Arrays.copyOf(idHashes, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+        }
+        return count++;
+    }
+
+
+    /**
+     * Marks the slot of a table entry as dead; merge() drops it.
+     */
+    private void kill(int tableIndex) {
+        int slot = table[tableIndex] - 1;
+        table[tableIndex] = DELETED;
+        arenaGarbage += recordLength(texts[slot]);
+        flags[slot] = 0;
+        size--;
+    }
+
+
+    private int find(byte[] id, int hash) {
+        int index = findTableIndex(id, hash);
+        return index < 0 ? NO_SLOT : table[index] - 1;
+    }
+
+
+    private int findTableIndex(byte[] id, int hash) {
+        int mask = table.length - 1;
+        for (int index = hash & mask; ; index = (index + 1) & mask) {
+            int entry = table[index];
+            if (entry == 0) {
+                return -1;
+            }
+            if (entry > 0 && idHashes[entry - 1] == hash && idEquals(entry - 1, id)) {
+                return index;
+            }
+        }
+    }
+
+
+    private void insertIntoTable(int slot, int hash) {
+        if ((tableUsed + 1) * 3 > table.length * 2) {
+            // Includes the new slot, which is live already
+            rebuildTable();
+            return;
+        }
+        int mask = table.length - 1;
+        int index = hash & mask;
+        while (table[index] > 0) {
+            index = (index + 1) & mask;
+        }
+        if (table[index] == 0) {
+            tableUsed++;
+        }
+        table[index] = slot + 1;
+    }
+
+
+    /**
+     * Rebuilds the table from the live slots, without deleted markers and at most half full.
+     */
+    private void rebuildTable() {
+        int capacity = INITIAL_SLOTS * 2;
+        while (capacity < size * 2) {
+            capacity *= 2;
+        }
+        table = new int[capacity];
+        tableUsed = 0;
+        int mask = capacity - 1;
+        for (int slot = 0; slot < count; slot++) {
+            if ((flags[slot] & LIVE) != 0) {
+                int index = idHashes[slot] & mask;
+                while (table[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                table[index] = slot + 1;
+                tableUsed++;
+            }
+        }
+    }
+
+
+    private boolean idEquals(int slot, byte[] id) {
+        int offset = texts[slot];
+        if (arena.getInt(offset) != id.length) {
+            return false;
+        }
+        offset += Integer.BYTES;
+        for (int i = 0; i < id.length; i++) {
+            if (arena.get(offset + i) != id[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static int hash(byte[] id) {
+        int h = Arrays.hashCode(id) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+
+    private int locationCode(String location) {
+        if (location == null) {
+            return NO_LOCATION;
+        }
+        Integer code = locationCodes.get(location);
+        if (code == null) {
+            code = locationValues.size();
+            locationCodes.put(location, code);
+            locationValues.add(location);
+        }
+        return code;
+    }
+
+
+    // ---------------------------------------------------------------------
+    // Start order
+    // ---------------------------------------------------------------------
+
+
+    /**
+     * Sorts the appended slots into the sorted part and drops dead slots,
+     * rebuilding all columns and the ID table. Does nothing if there are no
+     * appended slots and at most a quarter of the slots are dead.
+     */
+    private void merge() {
+        if (sortedCount == count && (count - size) * 4 <= count) {
+            return;
+        }
+        int appendedCount = 0;
+        int[] appended = new int[count - sortedCount];
+        for (int slot = sortedCount; slot < count; slot++) {
+            if ((flags[slot] & LIVE) != 0) {
+                appended[appendedCount++] = slot;
+            }
+        }
+        long[] appendedStarts = new long[appendedCount];
+        for (int i = 0; i < appendedCount; i++) {
+            appendedStarts[i] = starts[appended[i]];
+        }
+        sortByKey(appendedStarts, appended, 0, appendedCount - 1);
+
+        int[] order = new int[size];
+        int k = 0;
+        int j = 0;
+        for (int slot = 0; slot < sortedCount; slot++) {
+            if ((flags[slot] & LIVE) == 0) {
+                continue;
+            }
+            while (j < appendedCount && appendedStarts[j] < starts[slot]) {
+                order[k++] = appended[j++];
+            }
+            order[k++] = slot;
+        }
+        while (j < appendedCount) {
+            order[k++] = appended[j++];
+        }
+
+        int capacity = Math.max(INITIAL_SLOTS, size + (size >> 3));
+        long[] newStarts = new long[capacity];
+        long[] newEnds = new long[capacity];
+        byte[] newFlags = new byte[capacity];
+        int[] newLocations = new int[capacity];
+        int[] newIdHashes = new int[capacity];
+        int[] newTexts = new int[capacity];
+        for (int i = 0; i < size; i++) {
+            int slot = order[i];
+            newStarts[i] = starts[slot];
+            newEnds[i] = ends[slot];
+            newFlags[i] = flags[slot];
+            newLocations[i] = locations[slot];
+            newIdHashes[i] = idHashes[slot];
+            newTexts[i] = texts[slot];
+        }
+        starts = newStarts;
+        ends = newEnds;
+        flags = newFlags;
+        locations = newLocations;
+        idHashes = newIdHashes;
+        texts = newTexts;
+        count = size;
+        sortedCount = size;
+        rebuildTable();
+    }
+
+
+    /**
+     * Index of the first event that can overlap a range starting at start.
+     */
+    private int firstCandidate(long start) {
+        long from = start - maxDuration;
+        // Overflow for ranges near Long.MIN_VALUE: scan from the beginning
+        return from > start ? 0 : lowerBound(from);
+    }
+
+
+    /**
+     * Index of the first slot with a start >= key.
+     */
+    private int lowerBound(long key) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+
+    /**
+     * Sorts keys[from..to] ascending and moves values along (quicksort, median of three).
+     */
+    private static void sortByKey(long[] keys, int[] values, int from, int to) {
+        while (to - from >= INSERTION_SORT_THRESHOLD) {
+            int mid = (from + to) >>> 1;
+            if (keys[mid] < keys[from]) {
+                swap(keys, values, mid, from);
+            }
+            if (keys[to] < keys[from]) {
+                swap(keys, values, to, from);
+            }
+            if (keys[to] < keys[mid]) {
+                swap(keys, values, to, mid);
+            }
+            long pivot = keys[mid];
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i++;
+                }
+                while (keys[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(keys, values, i++, j--);
+                }
+            }
+            // Recurse into the smaller half, loop on the larger one
+            if (j - from < to - i) {
+                sortByKey(keys, values, from, j);
+                from = i;
+            } else {
+                sortByKey(keys, values, i, to);
+                to = j;
+            }
+        }
+        for (int i = from + 1; i <= to; i++) {
+            long key = keys[i];
+            int value = values[i];
+            int j = i - 1;
+            while (j >= from && keys[j] > key) {
+                keys[j + 1] = keys[j];
+                values[j + 1] = values[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            values[j + 1] = value;
+        }
+    }
+
+
+    private static void swap(long[] keys, int[] values, int a, int b) {
+        long key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        int value = values[a];
+        values[a] = values[b];
+        values[b] = value;
+    }
+
+
+    // ---------------------------------------------------------------------
+    // Off-heap text
+    // ---------------------------------------------------------------------
+
+
+    /**
+     * Appends a text record to the arena and returns its offset. Compacts
+     * the arena (and grows it if needed) when the record does not fit.
+     */
+    private int writeRecord(byte[] id, byte[] summary, byte[] description) {
+        int length = 3 * Integer.BYTES + id.length + textLength(summary) + textLength(description);
+        if (arena.remaining() < length) {
+            int live = arena.position() - arenaGarbage;
+            int capacity = arena.capacity();
+            while (capacity - live < length || capacity < live * 2) {
+                capacity *= 2;
+            }
+            relocate(capacity);
+        }
+        int offset = arena.position();
+        putText(id);
+        putText(summary);
+        putText(description);
+        return offset;
+    }
+
+
+    private void putText(byte[] bytes) {
+        if (bytes == null) {
+            arena.putInt(NULL_TEXT);
+        } else {
+            arena.putInt(bytes.length);
+            arena.put(bytes);
+        }
+    }
+
+
+    /**
+     * Copies the records of all live slots into a new arena of the given capacity.
+     */
+    private void relocate(int capacity) {
+        ByteBuffer old = arena;
+        arena = ByteBuffer.allocateDirect(capacity);
+        for (int slot = 0; slot < count; slot++) {
+            if ((flags[slot] & LIVE) != 0) {
+                int offset = texts[slot];
+                texts[slot] = arena.position();
+                arena.put(old.duplicate().position(offset).limit(offset + recordLength(old, offset)));
+            }
+        }
+        arenaGarbage = 0;
+    }
+
+
+    private int summaryOffset(int record) {
+        return record + Integer.BYTES + arena.getInt(record);
+    }
+
+
+    private int descriptionOffset(int record) {
+        int summary = summaryOffset(record);
+        return summary + Integer.BYTES + Math.max(0, arena.getInt(summary));
+    }
+
+
+    private int recordLength(int record) {
+        return recordLength(arena, record);
+    }
+
+
+    private static int recordLength(ByteBuffer buffer, int record) {
+        int offset = record;
+        for (int i = 0; i < 3; i++) {
+            offset += Integer.BYTES + Math.max(0, buffer.getInt(offset));
+        }
+        return offset - record;
+    }
+
+
+    private String readText(int offset, int length) {
+        if (length == NULL_TEXT) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        arena.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+
+    private static byte[] toBytes(String text) {
+        return text != null ? text.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+
+    private static int textLength(byte[] bytes) {
+        return bytes != null ? bytes.length : 0;
+    }
+}
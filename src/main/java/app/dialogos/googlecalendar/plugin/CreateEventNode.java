@@ -12,15 +12,24 @@ import org.xml.sax.SAXException;
 import com.clt.diamant.WozInterface;
 import com.clt.diamant.InputCenter;
 import com.clt.diamant.ExecutionLogger;
+import com.google.api.client.util.DateTime;
 import com.google.api.services.calendar.Calendar;
 import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.Events;
 
 
+import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import javax.swing.*;
 import java.awt.*;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 
 /**
  * CreateEventNode - Node for creating Google Calendar Events.
@@ -31,6 +40,14 @@ import java.awt.*;
  * - startTime (input from dialog)
  * - endTime (input from dialog)
  * - result (output: Event ID or error)
+ * - conflictCheck (optional: "true" checks for overlapping events before inserting)
+ * - conflictMaxStaleness (optional: max. age of the local mirror in seconds)
+ * 
+ * With conflict check enabled the node gets a second edge "conflict". It is
+ * taken instead of inserting when the new event overlaps an existing one;
+ * the result variable then holds the IDs of the conflicting events.
+ * The check is answered from the local CalendarMirror when it is fresh enough,
+ * otherwise by a narrow remote query over the requested time range.
  * 
  * The global settings (serviceAccountFile, calendarId, etc.) 
  * come from GoogleCalendarPluginSettings!
@@ -38,6 +55,8 @@ import java.awt.*;
 public class CreateEventNode extends GoogleCalendarNode {
 
 
+    private static final Logger LOG = LoggerFactory.getLogger(CreateEventNode.class);
+
     private static final String PROP_SUMMARY = "summary";
     private static final String PROP_DESCRIPTION = "description";
     private static final String PROP_LOCATION = "eventlocation";
@@ -45,6 +64,11 @@ public class CreateEventNode extends GoogleCalendarNode {
     private static final String PROP_END_TIME = "endTime";
     private static final String PROP_REMINDERS = "reminders";
     private static final String PROP_RESULT_VAR = "resultVariable";
+    private static final String PROP_CONFLICT_CHECK = "conflictCheck";
+    private static final String PROP_CONFLICT_MAX_STALENESS = "conflictMaxStaleness";
+
+    private static final String EDGE_CONFLICT = "conflict";
+    private static final int DEFAULT_MAX_STALENESS_SECONDS = 60;
 
 
     public CreateEventNode() {
@@ -56,14 +80,39 @@ public class CreateEventNode extends GoogleCalendarNode {
         this.setProperty(PROP_END_TIME, "");
         this.setProperty(PROP_REMINDERS, "");
         this.setProperty(PROP_RESULT_VAR, "eventId");
+        this.setProperty(PROP_CONFLICT_CHECK, "false");
+        this.setProperty(PROP_CONFLICT_MAX_STALENESS, String.valueOf(DEFAULT_MAX_STALENESS_SECONDS));
     }
 
 
     @Override
-    public Node execute(WozInterface comm, InputCenter input, ExecutionLogger logger) 
+    public void setProperty(String key, Object value) {
+        super.setProperty(key, value);
+        if (PROP_CONFLICT_CHECK.equals(key)) {
+            updateConflictEdge();
+        }
+    }
+
+
+    private boolean isConflictCheckEnabled() {
+        return "true".equalsIgnoreCase(String.valueOf(getProperty(PROP_CONFLICT_CHECK)));
+    }
+
+
+    /**
+     * Adds the "conflict" edge while the conflict check is enabled and removes it otherwise,
+     * so existing dialogs without the check keep a single outgoing edge.
+     */
+    private void updateConflictEdge() {
+        updateOptionalEdge(EDGE_CONFLICT, isConflictCheckEnabled());
+    }
+
+
+    @Override
+    protected Node executeOperation(WozInterface comm, InputCenter input, ExecutionLogger logger) 
             throws NodeExecutionException {
         try {
-            System.out.println("=== CreateEventNode Execute ===");
+            LOG.debug("=== CreateEventNode Execute ===");
             
             // Get property values and evaluate variables
             String summaryInput = evaluateVariable(
@@ -119,13 +168,27 @@ public class CreateEventNode extends GoogleCalendarNode {
 
             Event event = EventConverter.toGoogleCalendarEvent(eventRequest);
 
-            System.out.println("Sending event: " +
-             "summary: " + event.getSummary() + "\n" +
-             "start: " + event.getStart() + "\n" +
-             "end: " + event.getEnd() + "\n"
-             );
+            LOG.debug("Sending event: summary: {}, start: {}, end: {}",
+                    event.getSummary(), event.getStart(), event.getEnd());
             CalendarConfig config = getCalendarConfig(comm);
             Calendar service = getCalendarService(comm);
+            GoogleCalendarPluginRuntime runtime = getPluginRuntime(comm);
+
+
+            // Check for overlapping events before inserting anything
+            if (isConflictCheckEnabled()) {
+                long maxStalenessMillis = parseMaxStaleness(evaluateVariable(
+                    getProperty(PROP_CONFLICT_MAX_STALENESS).toString(), logger, comm)) * 1000L;
+                long sessionStamp = runtime.getLocalWrites().getSessionStamp(getSessionKey(comm));
+                List<String> conflicts = findConflicts(runtime, service, config.getCalendarId(),
+                    startTime, endTime, maxStalenessMillis, sessionStamp);
+                if (!conflicts.isEmpty()) {
+                    traceExecution(config.getCalendarId(), "conflict", conflicts.size());
+                    setStringVariable(resultVariable, String.join(",", conflicts));
+                    LOG.info("Konflikt mit {} Event(s): {}", conflicts.size(), conflicts);
+                    return this.getEdge(findEdge(EDGE_CONFLICT)).getTarget();
+                }
+            }
 
 
             // Create the event in Google Calendar
@@ -134,11 +197,15 @@ public class CreateEventNode extends GoogleCalendarNode {
                     event
             ).execute();
 
+            // Write through to the mirror and caches, so the next check and the
+            // next listing of this dialog see this booking
+            runtime.applyLocalWrite(getSessionKey(comm), config.getCalendarId(), createdEvent);
+            traceExecution(config.getCalendarId(), "insert", 1);
+
 
             // Save result in output variable
             setStringVariable(resultVariable, createdEvent.getId());
-            System.out.println("Event erstellt: " + createdEvent.getId() + 
-                             " (" + eventRequest.getSummary() + ")");
+            LOG.info("Event erstellt: {} ({})", createdEvent.getId(), eventRequest.getSummary());
             
             return this.getEdge(0).getTarget();
 
@@ -151,6 +218,80 @@ public class CreateEventNode extends GoogleCalendarNode {
     }
 
 
+    /**
+     * Returns the IDs of events overlapping [start, end).
+     * 
+     * Answers from the local mirror if it was synced within maxStalenessMillis
+     * and includes the session's own writes (sessionStamp); a stale mirror is
+     * first brought up to date with an incremental sync. Ranges outside the
+     * mirror's sync window (see CalendarMirror.covers) are always queried remotely.
+     * Without a usable mirror a narrow remote query over the time range is used,
+     * and a full sync is started in the background for the next booking.
+     */
+    private List<String> findConflicts(GoogleCalendarPluginRuntime runtime, Calendar service,
+            String calendarId, LocalDateTime start, LocalDateTime end, long maxStalenessMillis,
+            long sessionStamp) throws IOException {
+        long startMillis = start.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        long endMillis = end.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        CalendarMirror mirror = runtime.getCalendarMirror(calendarId);
+        runtime.noteCalendarActivity(calendarId);
+        if (mirror.isSynced() && mirror.getStalenessMillis() > maxStalenessMillis) {
+            try {
+                mirror.sync(service);
+            } catch (IOException e) {
+                LOG.warn("Incremental sync failed, falling back to remote query: {}", e.getMessage());
+            }
+        }
+        if (mirror.covers(startMillis, endMillis) && mirror.getStalenessMillis() <= maxStalenessMillis
+                && mirror.getWriteVersion() >= sessionStamp) {
+            CalendarMetrics.getInstance().counter(CalendarMetrics.MIRROR_HITS).increment();
+            return mirror.getEvents().findOverlapping(startMillis, endMillis);
+        }
+        CalendarMetrics.getInstance().counter(CalendarMetrics.MIRROR_MISSES).increment();
+
+        if (!mirror.isSynced()) {
+            mirror.syncInBackground(service, runtime.getBackgroundExecutor());
+        }
+        return queryConflictsRemote(service, calendarId, startMillis, endMillis);
+    }
+
+
+    /**
+     * Lists only the events overlapping [startMillis, endMillis) with a minimal field set.
+     */
+    private List<String> queryConflictsRemote(Calendar service, String calendarId,
+            long startMillis, long endMillis) throws IOException {
+        Events events = service.events().list(calendarId)
+                .setTimeMin(new DateTime(startMillis))
+                .setTimeMax(new DateTime(endMillis))
+                .setSingleEvents(true)
+                .setMaxResults(10)
+                .setFields("items(id,status,transparency,start,end)")
+                .execute();
+
+        List<String> conflicts = new ArrayList<>();
+        if (events.getItems() != null) {
+            for (Event existing : events.getItems()) {
+                if (CalendarMirror.blocksTime(existing)) {
+                    conflicts.add(existing.getId());
+                }
+            }
+        }
+        return conflicts;
+    }
+
+
+    private int parseMaxStaleness(String value) {
+        try {
+            return Math.max(0, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException | NullPointerException e) {
+            LOG.warn("Invalid max staleness, using default: {}", DEFAULT_MAX_STALENESS_SECONDS);
+            return DEFAULT_MAX_STALENESS_SECONDS;
+        }
+    }
+
+
     @Override
     protected void writeAttributes(XMLWriter out, IdMap uid_map) {
         super.writeAttributes(out, uid_map);
@@ -162,6 +303,8 @@ public class CreateEventNode extends GoogleCalendarNode {
         Graph.printAtt(out, PROP_END_TIME, this.getProperty(PROP_END_TIME).toString());
         Graph.printAtt(out, PROP_REMINDERS, this.getProperty(PROP_REMINDERS).toString());
         Graph.printAtt(out, PROP_RESULT_VAR, this.getProperty(PROP_RESULT_VAR).toString());
+        Graph.printAtt(out, PROP_CONFLICT_CHECK, this.getProperty(PROP_CONFLICT_CHECK).toString());
+        Graph.printAtt(out, PROP_CONFLICT_MAX_STALENESS, this.getProperty(PROP_CONFLICT_MAX_STALENESS).toString());
     }
 
 
@@ -184,6 +327,10 @@ public class CreateEventNode extends GoogleCalendarNode {
             setProperty(PROP_REMINDERS, value);
         } else if (PROP_RESULT_VAR.equals(name)) {
             setProperty(PROP_RESULT_VAR, value);
+        } else if (PROP_CONFLICT_CHECK.equals(name)) {
+            setProperty(PROP_CONFLICT_CHECK, value);
+        } else if (PROP_CONFLICT_MAX_STALENESS.equals(name)) {
+            setProperty(PROP_CONFLICT_MAX_STALENESS, value);
         }
         
     }    
@@ -222,6 +369,8 @@ public class CreateEventNode extends GoogleCalendarNode {
         properties.putIfAbsent(PROP_END_TIME, this.getProperty(PROP_END_TIME));
         properties.putIfAbsent(PROP_REMINDERS, this.getProperty(PROP_REMINDERS));
         properties.putIfAbsent(PROP_RESULT_VAR, this.getProperty(PROP_RESULT_VAR));
+        properties.putIfAbsent(PROP_CONFLICT_CHECK, this.getProperty(PROP_CONFLICT_CHECK));
+        properties.putIfAbsent(PROP_CONFLICT_MAX_STALENESS, this.getProperty(PROP_CONFLICT_MAX_STALENESS));
 
 
         // Summary
@@ -297,6 +446,28 @@ public class CreateEventNode extends GoogleCalendarNode {
         inputPanel.add(resultRow);
 
 
+        // Conflict Check - as ComboBox
+        JPanel conflictRow = new JPanel();
+        conflictRow.add(new JLabel("Conflict Check:"));
+        JComboBox<String> conflictCombo = NodePropertiesDialog.createComboBox(
+            properties, PROP_CONFLICT_CHECK, new String[] {"false", "true"});
+        conflictCombo.setToolTipText("true: bei Überschneidung Kante 'conflict' statt Einfügen");
+        conflictRow.add(conflictCombo);
+        inputPanel.add(conflictRow);
+
+
+        // Conflict Max Staleness
+        JPanel stalenessRow = new JPanel();
+        stalenessRow.add(new JLabel("Max. Staleness (s):"));
+        JTextField stalenessField = NodePropertiesDialog.createTextField(
+            properties, PROP_CONFLICT_MAX_STALENESS);
+        stalenessField.setToolTipText("Max. Alter des lokalen Index in Sekunden, Default: "
+            + DEFAULT_MAX_STALENESS_SECONDS);
+        stalenessRow.add(stalenessField);
+        inputPanel.add(stalenessRow);
+        inputPanel.add(createQuotaEdgeRow(properties));
+
+
         mainPanel.add(new JScrollPane(inputPanel), BorderLayout.CENTER);
         return mainPanel;
     }
@@ -11,12 +11,16 @@ import org.xml.sax.SAXException;
 import com.clt.diamant.WozInterface;
 import com.clt.diamant.InputCenter;
 import com.clt.diamant.ExecutionLogger;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.services.calendar.Calendar;
 
 import java.util.Map;
 import javax.swing.*;
 import java.awt.*;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * DeleteEventNode - Node for deleting Google Calendar Events.
  * 
@@ -30,6 +34,9 @@ import java.awt.*;
  */
 public class DeleteEventNode extends GoogleCalendarNode {
 
+
+    private static final Logger LOG = LoggerFactory.getLogger(DeleteEventNode.class);
+
     private static final String PROP_EVENT_ID = "eventId";
     private static final String PROP_SEND_UPDATES = "sendUpdates";
     private static final String PROP_RESULT_VAR = "resultVariable";
@@ -47,10 +54,10 @@ public class DeleteEventNode extends GoogleCalendarNode {
     }
 
     @Override
-    public Node execute(WozInterface comm, InputCenter input, ExecutionLogger logger)
+    protected Node executeOperation(WozInterface comm, InputCenter input, ExecutionLogger logger)
             throws NodeExecutionException {
         try {
-            System.out.println("=== DeleteEventNode Execute ===");
+            LOG.debug("=== DeleteEventNode Execute ===");
 
             // Evaluate eventId - this is mandatory
             String eventIdInput = getProperty(PROP_EVENT_ID).toString();
@@ -60,19 +67,29 @@ public class DeleteEventNode extends GoogleCalendarNode {
                 throw new NodeExecutionException(this, "Event ID is required");
             }
 
-            System.out.println("Event ID to delete: " + eventId);
+            LOG.debug("Event ID to delete: {}", eventId);
 
             String sendUpdatesMode = getProperty(PROP_SEND_UPDATES).toString();
             String resultVariable = evaluateVariable(
                     getProperty(PROP_RESULT_VAR).toString(), logger, comm);
 
             CalendarConfig config = getCalendarConfig(comm);
+            GoogleCalendarPluginRuntime runtime = getPluginRuntime(comm);
+            checkEventId(runtime, config.getCalendarId(), eventId);
             Calendar service = getCalendarService(comm);
 
             // Delete the event from Google Calendar
-            service.events().delete(config.getCalendarId(), eventId)
-                    .setSendUpdates(sendUpdatesMode)
-                    .execute();
+            try {
+                service.events().delete(config.getCalendarId(), eventId)
+                        .setSendUpdates(sendUpdatesMode)
+                        .execute();
+            } catch (HttpResponseException e) {
+                rememberIfMissing(runtime, config.getCalendarId(), eventId, e);
+                throw e;
+            }
+            // Remove it from the mirror and caches (read-your-writes)
+            runtime.applyLocalDelete(getSessionKey(comm), config.getCalendarId(), eventId);
+            traceExecution(config.getCalendarId(), sendUpdatesMode, 1);
 
             // Prepare result message
             String resultMessage = "Event deleted successfully: " + eventId;
@@ -85,7 +102,7 @@ public class DeleteEventNode extends GoogleCalendarNode {
             }
 
             setStringVariable(resultVariable, resultMessage);
-            System.out.println("✅ " + resultMessage);
+            LOG.info(resultMessage);
 
             return this.getEdge(0).getTarget();
 
@@ -181,6 +198,7 @@ public class DeleteEventNode extends GoogleCalendarNode {
         resultCombo.setToolTipText("Output: deletion confirmation message will be stored here");
         resultRow.add(resultCombo);
         inputPanel.add(resultRow);
+        inputPanel.add(createQuotaEdgeRow(properties));
 
         mainPanel.add(new JScrollPane(inputPanel), BorderLayout.CENTER);
         return mainPanel;
@@ -0,0 +1,111 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.services.calendar.model.Event;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * EventCache - Single events by ID for GetEventNode, on top of a WeightedCache
+ * ("events") of the runtime.
+ *
+ * Filled by everything that sees events anyway:
+ * ├─ List results (GoogleCalendarPluginRuntime.listEventRecords)
+ * ├─ Sync deltas (as a CalendarMirror.ChangeListener)
+ * ├─ Results of Create, Update and Delete (GoogleCalendarPluginRuntime.applyLocalWrite)
+ * └─ Responses of Get requests
+ *
+ * Cancelled events remove their entry. Each entry remembers when it was
+ * stored; readers pass the age they accept. An entry also counts as
+ * confirmed by every later sync of a mirror that still holds the event,
+ * since a change would have reached the cache as a sync delta.
+ */
+public class EventCache implements CalendarMirror.ChangeListener {
+
+
+    static final String NAME = "events";
+    static final WeightedCache.Spec DEFAULTS =
+            new WeightedCache.Spec(16 * 1024 * 1024, TimeUnit.MINUTES.toMillis(10), 0);
+
+    private final WeightedCache<String, Entry> cache;
+
+
+    EventCache(GoogleCalendarPluginRuntime runtime) {
+        this.cache = runtime.getCache(NAME, DEFAULTS, EventCache::weigh);
+    }
+
+
+    /**
+     * Returns the cached event if it is at most maxAgeMillis old, otherwise null.
+     *
+     * @param mirror mirror of the calendar, or null if there is none
+     */
+    public EventRecord get(String calendarId, String eventId, long maxAgeMillis, CalendarMirror mirror) {
+        Entry entry = cache.getIfPresent(key(calendarId, eventId));
+        if (entry == null) {
+            return null;
+        }
+        long age = System.currentTimeMillis() - entry.storedAt;
+        if (mirror != null && mirror.getEvents().contains(eventId)) {
+            age = Math.min(age, mirror.getStalenessMillis());
+        }
+        return age <= maxAgeMillis ? entry.record : null;
+    }
+
+
+    /**
+     * Stores an event, or removes it if it is cancelled.
+     */
+    public void put(String calendarId, EventRecord record) {
+        if (record.getId() == null) {
+            return;
+        }
+        if (record.isCancelled()) {
+            invalidate(calendarId, record.getId());
+        } else {
+            cache.put(key(calendarId, record.getId()), new Entry(record, System.currentTimeMillis()));
+        }
+    }
+
+
+    public void invalidate(String calendarId, String eventId) {
+        cache.invalidate(key(calendarId, eventId));
+    }
+
+
+    @Override
+    public void eventApplied(String calendarId, Event event) {
+        put(calendarId, EventConverter.toEventRecord(event));
+    }
+
+
+    private static String key(String calendarId, String eventId) {
+        return calendarId + "\n" + eventId;
+    }
+
+
+    // Estimated retained size: entry, record and its strings (2 bytes per char)
+    private static int weigh(String key, Entry entry) {
+        EventRecord record = entry.record;
+        return 160 + 2 * (key.length() + length(record.getId()) + length(record.getSummary())
+                + length(record.getLocation()) + length(record.getDescription()));
+    }
+
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+
+    static final class Entry {
+
+        final EventRecord record;
+        final long storedAt;
+
+        Entry(EventRecord record, long storedAt) {
+            this.record = record;
+            this.storedAt = storedAt;
+        }
+    }
+}
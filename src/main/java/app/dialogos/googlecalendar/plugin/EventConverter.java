@@ -7,7 +7,10 @@ import com.google.api.services.calendar.model.EventDateTime;
 
 
 import java.sql.Timestamp;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.regex.Pattern;
 
 
 /**
@@ -19,12 +22,20 @@ import java.time.LocalDateTime;
  * Responsibilities:
  * ├─ EventRequest → Google Calendar Event
  * ├─ LocalDateTime → Google DateTime conversion
+ * ├─ Google DateTime → epoch milliseconds
+ * ├─ Google Calendar Event → EventRecord
  * ├─ Reminders handling
+ * ├─ Event ID syntax
  * └─ Consistent DateTime formats
  */
 public class EventConverter {
 
 
+    // Every form the server issues: base32hex, instance and split-series suffixes, imported IDs
+    private static final Pattern EVENT_ID = Pattern.compile("[A-Za-z0-9_]+");
+    private static final int MAX_EVENT_ID_LENGTH = 1024;
+
+
     /**
      * Converts an EventRequest to a Google Calendar Event.
      * 
@@ -142,6 +153,80 @@ public class EventConverter {
     }
 
 
+    /**
+     * Converts Google EventDateTime to epoch milliseconds.
+     * Date-only values (all-day events) start at local midnight.
+     *
+     * @return epoch milliseconds or null if no time is set
+     */
+    public static Long toEpochMillis(EventDateTime eventDateTime) {
+        if (eventDateTime == null) {
+            return null;
+        }
+        if (eventDateTime.getDateTime() != null) {
+            return eventDateTime.getDateTime().getValue();
+        }
+        if (eventDateTime.getDate() != null) {
+            return java.time.LocalDate.parse(eventDateTime.getDate().toStringRfc3339())
+                    .atStartOfDay(java.time.ZoneId.systemDefault())
+                    .toInstant()
+                    .toEpochMilli();
+        }
+        return null;
+    }
+
+
+    /**
+     * Converts a Google Calendar Event to a compact EventRecord.
+     * 
+     * Listings get records directly from EventRecordParser; this is for
+     * events that were already deserialized (e.g. write responses).
+     */
+    public static EventRecord toEventRecord(Event event) {
+        Long start = toEpochMillis(event.getStart());
+        Long end = toEpochMillis(event.getEnd());
+        return new EventRecord(
+                event.getId(),
+                event.getSummary(),
+                start != null ? start : EventRecord.NO_TIME,
+                end != null ? end : EventRecord.NO_TIME,
+                event.getLocation(),
+                event.getDescription(),
+                "cancelled".equals(event.getStatus()),
+                false, null, null, null, EventRecord.NO_TIME,
+                event.getUpdated() != null ? event.getUpdated().getValue() : EventRecord.NO_TIME);
+    }
+
+
+    /**
+     * Converts epoch milliseconds (EventRecord times) to LocalDateTime.
+     * 
+     * @return LocalDateTime or null for EventRecord.NO_TIME
+     */
+    public static LocalDateTime toLocalDateTime(long epochMillis) {
+        if (epochMillis == EventRecord.NO_TIME) {
+            return null;
+        }
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+
+    /**
+     * Checks the syntax of an event ID: 1 to 1024 letters, digits and '_'.
+     * Client-chosen IDs are base32hex, but the server also issues instance IDs
+     * (_20260115T090000Z, _20260115 for all-day events), split series
+     * (_R20260115T090000) and imported or invitation IDs starting with '_', so
+     * only IDs outside this alphabet are rejected. An ID failing this check
+     * cannot exist, e.g. a title or a misrecognized spoken ID.
+     */
+    public static boolean isValidEventId(String eventId) {
+        return eventId != null
+                && !eventId.isEmpty()
+                && eventId.length() <= MAX_EVENT_ID_LENGTH
+                && EVENT_ID.matcher(eventId).matches();
+    }
+
+
     /**
      * Checks if two events are equal (compares most important fields).
      */
@@ -0,0 +1,167 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import java.util.List;
+
+
+/**
+ * EventRecord - Compact, immutable view of a calendar event.
+ *
+ * Holds only the fields the nodes actually read, with start and end as
+ * epoch milliseconds. Filled directly from the response stream by
+ * EventRecordParser, so listings do not build the reflective Event model.
+ *
+ * Recurring masters additionally carry their recurrence lines and time zone,
+ * exceptions their master ID and original start, so RecurrenceExpander can
+ * expand series locally; both carry the iCalUID shared by all events of the
+ * series, if it was requested. For all other events these fields are null.
+ *
+ * Usage:
+ * - Produced by GoogleCalendarPluginRuntime.listEventRecords()
+ * - Expanded by RecurrenceExpander (local recurrence expansion)
+ * - Formatted by ListEventsNode (JSON or STRUCT output)
+ * - Cached by EventCache for GetEventNode
+ */
+public final class EventRecord {
+
+    /** Marker for a missing start or end time. */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    private final String id;
+    private final String summary;
+    private final long start;
+    private final long end;
+    private final String location;
+    private final String description;
+    private final boolean cancelled;
+    private final boolean allDay;
+    private final String timeZone;
+    private final List<String> recurrence;
+    private final String recurringEventId;
+    private final long originalStart;
+    private final long updated;
+    private final String iCalUID;
+
+    /**
+     * Creates a new event record.
+     *
+     * @param id Event ID
+     * @param summary Title (may be null)
+     * @param start Start in epoch milliseconds or NO_TIME
+     * @param end End in epoch milliseconds or NO_TIME
+     * @param location Location (may be null)
+     * @param description Description (may be null)
+     * @param cancelled True for deleted events (only returned by incremental syncs)
+     */
+    public EventRecord(String id, String summary, long start, long end,
+            String location, String description, boolean cancelled) {
+        this(id, summary, start, end, location, description, cancelled,
+                false, null, null, null, NO_TIME);
+    }
+
+    /**
+     * Creates a new event record including recurrence information.
+     *
+     * @param allDay True if start and end are dates (start at local midnight)
+     * @param timeZone Time zone of the start time (may be null)
+     * @param recurrence RRULE/EXDATE lines of a recurring master (null otherwise)
+     * @param recurringEventId Master ID of a recurrence instance or exception (null otherwise)
+     * @param originalStart Original start of an exception or NO_TIME
+     */
+    public EventRecord(String id, String summary, long start, long end,
+            String location, String description, boolean cancelled,
+            boolean allDay, String timeZone, List<String> recurrence,
+            String recurringEventId, long originalStart) {
+        this(id, summary, start, end, location, description, cancelled, allDay, timeZone,
+                recurrence, recurringEventId, originalStart, NO_TIME);
+    }
+
+    /**
+     * Creates a new event record including recurrence information and the
+     * time of the event's last modification.
+     *
+     * @param updated Last modification in epoch milliseconds or NO_TIME
+     */
+    public EventRecord(String id, String summary, long start, long end,
+            String location, String description, boolean cancelled,
+            boolean allDay, String timeZone, List<String> recurrence,
+            String recurringEventId, long originalStart, long updated) {
+        this(id, summary, start, end, location, description, cancelled, allDay, timeZone,
+                recurrence, recurringEventId, originalStart, updated, null);
+    }
+
+    /**
+     * Creates a new event record including recurrence information, the time
+     * of the event's last modification and the iCalUID of its series.
+     *
+     * @param iCalUID iCalendar UID, shared by a recurring master and its exceptions (may be null)
+     */
+    public EventRecord(String id, String summary, long start, long end,
+            String location, String description, boolean cancelled,
+            boolean allDay, String timeZone, List<String> recurrence,
+            String recurringEventId, long originalStart, long updated, String iCalUID) {
+        this.id = id;
+        this.summary = summary;
+        this.start = start;
+        this.end = end;
+        this.location = location;
+        this.description = description;
+        this.cancelled = cancelled;
+        this.allDay = allDay;
+        this.timeZone = timeZone;
+        this.recurrence = recurrence;
+        this.recurringEventId = recurringEventId;
+        this.originalStart = originalStart;
+        this.updated = updated;
+        this.iCalUID = iCalUID;
+    }
+
+    public String getId() { return id; }
+    public String getSummary() { return summary; }
+    public long getStart() { return start; }
+    public long getEnd() { return end; }
+    public String getLocation() { return location; }
+    public String getDescription() { return description; }
+    public boolean isCancelled() { return cancelled; }
+    public boolean isAllDay() { return allDay; }
+    public String getTimeZone() { return timeZone; }
+    public List<String> getRecurrence() { return recurrence; }
+    public String getRecurringEventId() { return recurringEventId; }
+    public long getOriginalStart() { return originalStart; }
+    public long getUpdated() { return updated; }
+    public String getICalUID() { return iCalUID; }
+
+    /**
+     * Returns true for the master event of a recurring series.
+     */
+    public boolean isRecurringMaster() {
+        return recurrence != null && !recurrence.isEmpty();
+    }
+
+    /**
+     * Returns a concrete occurrence of this (master) record with its own ID and times.
+     */
+    public EventRecord withOccurrence(String occurrenceId, long occurrenceStart, long occurrenceEnd) {
+        return new EventRecord(occurrenceId, summary, occurrenceStart, occurrenceEnd,
+                location, description, cancelled, allDay, timeZone, null, id, occurrenceStart, updated, iCalUID);
+    }
+
+    /**
+     * Returns true if both start and end are known.
+     */
+    public boolean hasTimes() {
+        return start != NO_TIME && end != NO_TIME;
+    }
+
+    @Override
+    public String toString() {
+        return "EventRecord{" +
+                "id='" + id + '\'' +
+                ", summary='" + summary + '\'' +
+                ", start=" + start +
+                ", end=" + end +
+                ", location='" + location + '\'' +
+                (cancelled ? ", cancelled" : "") +
+                '}';
+    }
+}
@@ -0,0 +1,237 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * EventRecordParser - Streaming parser for events.list responses.
+ *
+ * Reads the response body token by token and creates one EventRecord per
+ * item; all other fields are skipped without being materialized. This avoids
+ * the reflective Event/GenericData model for large listings.
+ */
+public final class EventRecordParser {
+
+
+    private EventRecordParser() {}
+
+
+    /**
+     * One parsed page of an events.list response.
+     */
+    public static final class Page {
+        private final List<EventRecord> records;
+        private final String nextPageToken;
+        private final String nextSyncToken;
+
+        Page(List<EventRecord> records, String nextPageToken, String nextSyncToken) {
+            this.records = records;
+            this.nextPageToken = nextPageToken;
+            this.nextSyncToken = nextSyncToken;
+        }
+
+        public List<EventRecord> getRecords() { return records; }
+        public String getNextPageToken() { return nextPageToken; }
+        public String getNextSyncToken() { return nextSyncToken; }
+    }
+
+
+    /**
+     * Parses an events.list response body.
+     */
+    public static Page parse(InputStream in, Charset charset) throws IOException {
+        return parse(new InputStreamReader(in, charset));
+    }
+
+
+    /**
+     * Parses an events.list response body.
+     */
+    public static Page parse(Reader in) throws IOException {
+        List<EventRecord> records = new ArrayList<>();
+        String nextPageToken = null;
+        String nextSyncToken = null;
+
+        try (JsonReader reader = new JsonReader(in)) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "items":
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            records.add(readEvent(reader));
+                        }
+                        reader.endArray();
+                        break;
+                    case "nextPageToken":
+                        nextPageToken = readString(reader);
+                        break;
+                    case "nextSyncToken":
+                        nextSyncToken = readString(reader);
+                        break;
+                    default:
+                        reader.skipValue();
+                }
+            }
+            reader.endObject();
+        }
+        return new Page(records, nextPageToken, nextSyncToken);
+    }
+
+
+    private static EventRecord readEvent(JsonReader reader) throws IOException {
+        String id = null;
+        String summary = null;
+        String location = null;
+        String description = null;
+        EventTime start = EventTime.NONE;
+        EventTime end = EventTime.NONE;
+        EventTime originalStart = EventTime.NONE;
+        long updated = EventRecord.NO_TIME;
+        boolean cancelled = false;
+        List<String> recurrence = null;
+        String recurringEventId = null;
+        String iCalUID = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = readString(reader);
+                    break;
+                case "summary":
+                    summary = readString(reader);
+                    break;
+                case "location":
+                    location = readString(reader);
+                    break;
+                case "description":
+                    description = readString(reader);
+                    break;
+                case "status":
+                    cancelled = "cancelled".equals(readString(reader));
+                    break;
+                case "start":
+                    start = readEventTime(reader);
+                    break;
+                case "end":
+                    end = readEventTime(reader);
+                    break;
+                case "recurrence":
+                    recurrence = readStringArray(reader);
+                    break;
+                case "recurringEventId":
+                    recurringEventId = readString(reader);
+                    break;
+                case "iCalUID":
+                    iCalUID = readString(reader);
+                    break;
+                case "originalStartTime":
+                    originalStart = readEventTime(reader);
+                    break;
+                case "updated":
+                    updated = OffsetDateTime.parse(reader.nextString()).toInstant().toEpochMilli();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new EventRecord(id, summary, start.millis, end.millis, location, description,
+                cancelled, start.allDay, start.timeZone, recurrence, recurringEventId,
+                originalStart.millis, updated, iCalUID);
+    }
+
+
+    /**
+     * Parsed EventDateTime: epoch milliseconds, date-only flag and time zone.
+     */
+    private static final class EventTime {
+        static final EventTime NONE = new EventTime(EventRecord.NO_TIME, false, null);
+
+        final long millis;
+        final boolean allDay;
+        final String timeZone;
+
+        EventTime(long millis, boolean allDay, String timeZone) {
+            this.millis = millis;
+            this.allDay = allDay;
+            this.timeZone = timeZone;
+        }
+    }
+
+
+    /**
+     * Reads an EventDateTime object ({"dateTime": ...} or {"date": ...}).
+     * Date-only values (all-day events) start at local midnight, as in EventConverter.
+     */
+    private static EventTime readEventTime(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return EventTime.NONE;
+        }
+        long time = EventRecord.NO_TIME;
+        boolean allDay = false;
+        String timeZone = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "dateTime":
+                    time = OffsetDateTime.parse(reader.nextString()).toInstant().toEpochMilli();
+                    break;
+                case "date":
+                    time = LocalDate.parse(reader.nextString())
+                            .atStartOfDay(ZoneId.systemDefault())
+                            .toInstant()
+                            .toEpochMilli();
+                    allDay = true;
+                    break;
+                case "timeZone":
+                    timeZone = readString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new EventTime(time, allDay, timeZone);
+    }
+
+
+    private static List<String> readStringArray(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        List<String> values = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            values.add(reader.nextString());
+        }
+        reader.endArray();
+        return values;
+    }
+
+
+    private static String readString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
@@ -0,0 +1,458 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.services.calendar.model.Event;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+
+/**
+ * EventSearchIndex - Trigram index over the summaries, locations and
+ * descriptions of a CalendarMirror, for fuzzy SEARCH in ListEventsNode.
+ *
+ * Texts are normalized (lower case, accents removed, everything but letters
+ * and digits separates words). Two inverted indexes:
+ * ├─ trigram → words of the vocabulary, with the trigrams of " word ",
+ * │  so "appointmnt" still shares 8 of its 10 trigrams with "appointment"
+ * └─ word → events (posting lists with the fields that contain the word)
+ *
+ * A search first matches each query word against the vocabulary (Dice
+ * coefficient of the trigrams at least WORD_MATCH), then reads the postings
+ * of the matching words only, so its cost depends on the vocabulary and the
+ * hits rather than on the size of the calendar.
+ *
+ * Ranking:
+ * ├─ Each query word counts with its best match in the event, weighted by
+ * │  field (summary 1.0, location 0.8, description 0.6)
+ * ├─ The score of an event is the mean over the query words (0 if unmatched)
+ * └─ Hits below MIN_SCORE or below RELATIVE_CUTOFF of the best hit are dropped
+ *
+ * Maintenance:
+ * ├─ Changes arrive as a CalendarMirror.ChangeListener (syncs and local writes);
+ * │  removed or replaced events leave dead documents that compact() drops
+ * └─ A full sync clears the mirror's store; the next search notices the new
+ *    store generation and rebuilds the index from the store
+ *
+ * All methods are synchronized; searches reuse scratch arrays.
+ */
+public class EventSearchIndex implements CalendarMirror.ChangeListener {
+
+
+    static final float MIN_SCORE = 0.3f;
+    static final float RELATIVE_CUTOFF = 0.5f;
+    // A query word matches a word of the vocabulary from this Dice coefficient on
+    static final float WORD_MATCH = 0.5f;
+    // Long descriptions add many words but little to find an appointment by
+    private static final int MAX_DESCRIPTION_CHARS = 1000;
+
+    private static final int SUMMARY = 1;
+    private static final int LOCATION = 2;
+    private static final int DESCRIPTION = 4;
+    private static final float[] FIELD_WEIGHTS = fieldWeights();
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private final CalendarMirror mirror;
+
+    // Vocabulary: word ID → word, its number of trigrams and its postings (document << 3 | field mask)
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    private int[] wordGramCounts = new int[64];
+    private final List<IntList> wordPostings = new ArrayList<>();
+    // Trigram → word IDs
+    private final Map<Long, IntList> gramWords = new HashMap<>();
+
+    // Documents; null ID = dead
+    private final Map<String, Integer> documents = new HashMap<>();
+    private String[] ids = new String[64];
+    private long[] starts = new long[64];
+    private int documentCount;
+    private int liveCount;
+    private long generation = -1;
+
+    // Scratch arrays of search(), indexed by word ID and by document
+    private int[] sharedGrams = new int[64];
+    private float[] wordScores = new float[64];
+    private float[] totals = new float[64];
+
+
+    EventSearchIndex(CalendarMirror mirror) {
+        this.mirror = mirror;
+    }
+
+
+    /**
+     * Returns the IDs of the events matching the query, best first; ties are
+     * ordered by start, upcoming events before past ones.
+     *
+     * @return at most maxResults event IDs, empty if nothing matches
+     */
+    public synchronized List<String> search(String query, int maxResults) {
+        ColumnarEventStore store = mirror.getEvents();
+        if (generation != store.getGeneration()) {
+            rebuild(store);
+        }
+        Set<String> queryWords = words(query);
+        if (queryWords.isEmpty() || maxResults <= 0) {
+            return new ArrayList<>();
+        }
+
+        IntList touched = new IntList();
+        IntList wordTouched = new IntList();
+        IntList similar = new IntList();
+        for (String word : queryWords) {
+            long[] grams = trigrams(word);
+            // Words of the vocabulary sharing trigrams with the query word
+            similar.size = 0;
+            for (long gram : grams) {
+                IntList list = gramWords.get(gram);
+                for (int i = 0; list != null && i < list.size; i++) {
+                    int wordId = list.entries[i];
+                    if (sharedGrams[wordId]++ == 0) {
+                        similar.add(wordId);
+                    }
+                }
+            }
+            // Best weighted match per document
+            wordTouched.size = 0;
+            for (int i = 0; i < similar.size; i++) {
+                int wordId = similar.entries[i];
+                float dice = 2f * sharedGrams[wordId] / (grams.length + wordGramCounts[wordId]);
+                sharedGrams[wordId] = 0;
+                if (dice < WORD_MATCH) {
+                    continue;
+                }
+                IntList list = wordPostings.get(wordId);
+                for (int j = 0; j < list.size; j++) {
+                    int document = list.entries[j] >>> 3;
+                    float score = dice * FIELD_WEIGHTS[list.entries[j] & 7];
+                    if (wordScores[document] == 0) {
+                        wordTouched.add(document);
+                    }
+                    wordScores[document] = Math.max(wordScores[document], score);
+                }
+            }
+            for (int i = 0; i < wordTouched.size; i++) {
+                int document = wordTouched.entries[i];
+                if (ids[document] != null) {
+                    if (totals[document] == 0) {
+                        touched.add(document);
+                    }
+                    totals[document] += wordScores[document];
+                }
+                wordScores[document] = 0;
+            }
+        }
+
+        float best = 0;
+        for (int i = 0; i < touched.size; i++) {
+            totals[touched.entries[i]] /= queryWords.size();
+            best = Math.max(best, totals[touched.entries[i]]);
+        }
+        float threshold = Math.max(MIN_SCORE, best * RELATIVE_CUTOFF);
+        // Top maxResults by insertion: maxResults is small, the candidates may be many
+        long now = System.currentTimeMillis();
+        int[] top = new int[Math.min(maxResults, touched.size)];
+        int topCount = 0;
+        for (int i = 0; i < touched.size; i++) {
+            int document = touched.entries[i];
+            if (totals[document] < threshold
+                    || topCount == top.length && !ranksBefore(document, top[topCount - 1], now)) {
+                continue;
+            }
+            int position = topCount < top.length ? topCount++ : topCount - 1;
+            while (position > 0 && ranksBefore(document, top[position - 1], now)) {
+                top[position] = top[position - 1];
+                position--;
+            }
+            top[position] = document;
+        }
+        List<String> result = new ArrayList<>(topCount);
+        for (int i = 0; i < topCount; i++) {
+            result.add(ids[top[i]]);
+        }
+        for (int i = 0; i < touched.size; i++) {
+            totals[touched.entries[i]] = 0;
+        }
+        return result;
+    }
+
+
+    /**
+     * Higher score first; on a tie upcoming events in start order, then past
+     * events, the most recent first.
+     */
+    private boolean ranksBefore(int a, int b, long now) {
+        if (totals[a] != totals[b]) {
+            return totals[a] > totals[b];
+        }
+        boolean aPast = starts[a] < now;
+        boolean bPast = starts[b] < now;
+        if (aPast != bPast) {
+            return !aPast;
+        }
+        return aPast ? starts[a] > starts[b] : starts[a] < starts[b];
+    }
+
+
+    @Override
+    public synchronized void eventApplied(String calendarId, Event event) {
+        if (generation != mirror.getEvents().getGeneration()) {
+            // Rebuilt from the store by the next search
+            return;
+        }
+        remove(event.getId());
+        // Like CalendarMirror.apply(): cancelled events and events without times are not kept
+        Long start = EventConverter.toEpochMillis(event.getStart());
+        if (!CalendarMirror.STATUS_CANCELLED.equals(event.getStatus())
+                && start != null && EventConverter.toEpochMillis(event.getEnd()) != null) {
+            add(event.getId(), start, event.getSummary(), event.getLocation(), event.getDescription());
+        }
+    }
+
+
+    /**
+     * Returns the number of events in the index.
+     */
+    public synchronized int size() {
+        return liveCount;
+    }
+
+
+    /**
+     * Returns the number of distinct words indexed.
+     */
+    public synchronized int getVocabularySize() {
+        return words.size();
+    }
+
+
+    /**
+     * Indexes the events of the store from scratch. The texts are copied out
+     * first, so the store (and the conflict checks reading it) is only locked
+     * for the copy.
+     */
+    private void rebuild(ColumnarEventStore store) {
+        wordIds.clear();
+        words.clear();
+        wordPostings.clear();
+        gramWords.clear();
+        documents.clear();
+        Arrays.fill(ids, 0, documentCount, null);
+        documentCount = 0;
+        liveCount = 0;
+        List<String[]> texts;
+        long[] eventStarts;
+        synchronized (store) {
+            generation = store.getGeneration();
+            texts = new ArrayList<>(store.size());
+            eventStarts = new long[store.size()];
+            store.forEach(slot -> {
+                eventStarts[texts.size()] = store.getStart(slot);
+                texts.add(new String[] {store.getId(slot), store.getSummary(slot),
+                        store.getLocation(slot), store.getDescription(slot)});
+            });
+        }
+        for (int i = 0; i < texts.size(); i++) {
+            String[] event = texts.get(i);
+            add(event[0], eventStarts[i], event[1], event[2], event[3]);
+        }
+    }
+
+
+    private void add(String eventId, long start, String summary, String location, String description) {
+        if (description != null && description.length() > MAX_DESCRIPTION_CHARS) {
+            description = description.substring(0, MAX_DESCRIPTION_CHARS);
+        }
+        Map<String, Integer> fields = new HashMap<>();
+        addField(fields, summary, SUMMARY);
+        addField(fields, location, LOCATION);
+        addField(fields, description, DESCRIPTION);
+
+        if (documentCount == ids.length) {
+            int capacity = documentCount * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            wordScores = Arrays.copyOf(wordScores, capacity);
+            totals = Arrays.copyOf(totals, capacity);
+        }
+        int document = documentCount++;
+        ids[document] = eventId;
+        starts[document] = start;
+        documents.put(eventId, document);
+        liveCount++;
+        for (Map.Entry<String, Integer> entry : fields.entrySet()) {
+            wordPostings.get(wordId(entry.getKey())).add(document << 3 | entry.getValue());
+        }
+    }
+
+
+    private static void addField(Map<String, Integer> fields, String text, int field) {
+        if (text != null) {
+            for (String word : words(text)) {
+                fields.merge(word, field, (a, b) -> a | b);
+            }
+        }
+    }
+
+
+    /**
+     * Returns the ID of a word, adding it to the vocabulary and the trigram index if it is new.
+     */
+    private int wordId(String word) {
+        Integer known = wordIds.get(word);
+        if (known != null) {
+            return known;
+        }
+        int wordId = words.size();
+        long[] grams = trigrams(word);
+        words.add(word);
+        wordIds.put(word, wordId);
+        wordPostings.add(new IntList());
+        if (wordId == wordGramCounts.length) {
+            wordGramCounts = Arrays.copyOf(wordGramCounts, wordId * 2);
+            sharedGrams = Arrays.copyOf(sharedGrams, wordId * 2);
+        }
+        wordGramCounts[wordId] = grams.length;
+        for (long gram : grams) {
+            gramWords.computeIfAbsent(gram, key -> new IntList()).add(wordId);
+        }
+        return wordId;
+    }
+
+
+    private void remove(String eventId) {
+        Integer document = documents.remove(eventId);
+        if (document == null) {
+            return;
+        }
+        ids[document] = null;
+        liveCount--;
+        if (documentCount - liveCount > Math.max(64, liveCount)) {
+            compact();
+        }
+    }
+
+
+    /**
+     * Drops dead documents from the postings and renumbers the live ones.
+     * Words stay in the vocabulary until the next rebuild.
+     */
+    private void compact() {
+        int[] renumbered = new int[documentCount];
+        int next = 0;
+        for (int document = 0; document < documentCount; document++) {
+            if (ids[document] != null) {
+                renumbered[document] = next;
+                ids[next] = ids[document];
+                starts[next] = starts[document];
+                documents.put(ids[next], next);
+                next++;
+            } else {
+                renumbered[document] = -1;
+            }
+        }
+        Arrays.fill(ids, next, documentCount, null);
+        documentCount = next;
+        for (IntList list : wordPostings) {
+            int kept = 0;
+            for (int i = 0; i < list.size; i++) {
+                int document = renumbered[list.entries[i] >>> 3];
+                if (document >= 0) {
+                    list.entries[kept++] = document << 3 | (list.entries[i] & 7);
+                }
+            }
+            list.size = kept;
+        }
+    }
+
+
+    /**
+     * Splits a text into its distinct normalized words.
+     */
+    static Set<String> words(String text) {
+        String plain = normalize(text);
+        Set<String> words = new LinkedHashSet<>();
+        int length = plain.length();
+        for (int i = 0; i < length; ) {
+            while (i < length && !Character.isLetterOrDigit(plain.charAt(i))) {
+                i++;
+            }
+            int wordStart = i;
+            while (i < length && Character.isLetterOrDigit(plain.charAt(i))) {
+                i++;
+            }
+            if (i > wordStart) {
+                words.add(plain.substring(wordStart, i));
+            }
+        }
+        return words;
+    }
+
+
+    /**
+     * Lower case, without accents (decomposed, combining marks removed).
+     */
+    static String normalize(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > 0x7F) {
+                text = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+                break;
+            }
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+
+    /**
+     * Returns the distinct trigrams of " word ", each packed into a long (3 × 16 bits).
+     */
+    static long[] trigrams(String word) {
+        String padded = " " + word + " ";
+        long[] grams = new long[padded.length() - 2];
+        int count = 0;
+        for (int i = 0; i < grams.length; i++) {
+            long gram = (long) padded.charAt(i) << 32 | (long) padded.charAt(i + 1) << 16 | padded.charAt(i + 2);
+            boolean seen = false;
+            for (int j = 0; j < count && !seen; j++) {
+                seen = grams[j] == gram;
+            }
+            if (!seen) {
+                grams[count++] = gram;
+            }
+        }
+        return Arrays.copyOf(grams, count);
+    }
+
+
+    private static float[] fieldWeights() {
+        float[] weights = new float[8];
+        for (int mask = 1; mask < 8; mask++) {
+            weights[mask] = (mask & SUMMARY) != 0 ? 1.0f : (mask & LOCATION) != 0 ? 0.8f : 0.6f;
+        }
+        return weights;
+    }
+
+
+    private static final class IntList {
+
+        int[] entries = new int[4];
+        int size;
+
+        void add(int entry) {
+            if (size == entries.length) {
+                entries = Arrays.copyOf(entries, size * 2);
+            }
+            entries[size++] = entry;
+        }
+    }
+}
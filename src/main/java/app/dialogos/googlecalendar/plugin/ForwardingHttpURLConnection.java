@@ -0,0 +1,403 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Authenticator;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.net.URL;
+import java.security.Permission;
+import java.security.Principal;
+import java.security.cert.Certificate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocketFactory;
+
+
+/**
+ * ForwardingHttpURLConnection - An HttpURLConnection that forwards every call
+ * to another connection; subclasses override the calls they intercept.
+ *
+ * The plugin's transport wrappers (CassetteTransport, RequestScheduler) hook
+ * into NetHttpTransport through its public ConnectionFactory and wrap the
+ * connections it opens. The wrapper is an HttpsURLConnection, so the
+ * transport still installs its trust store and hostname verifier; they are
+ * passed on if the wrapped connection is an HTTPS connection and ignored
+ * otherwise (e.g. the plain HTTP of a StandInCalendarServer).
+ */
+abstract class ForwardingHttpURLConnection extends HttpsURLConnection {
+
+
+    protected final HttpURLConnection delegate;
+
+
+    protected ForwardingHttpURLConnection(HttpURLConnection delegate) {
+        super(delegate.getURL());
+        this.delegate = delegate;
+    }
+
+
+    private HttpsURLConnection https() {
+        if (delegate instanceof HttpsURLConnection) {
+            return (HttpsURLConnection) delegate;
+        }
+        throw new IllegalStateException("Not an HTTPS connection: " + delegate.getURL());
+    }
+
+
+    // ---------------------------------------------------------------------
+    // Request
+    // ---------------------------------------------------------------------
+
+
+    @Override
+    public void connect() throws IOException {
+        delegate.connect();
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return delegate.getOutputStream();
+    }
+
+    @Override
+    public URL getURL() {
+        return delegate.getURL();
+    }
+
+    @Override
+    public void setRequestMethod(String method) throws ProtocolException {
+        delegate.setRequestMethod(method);
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return delegate.getRequestMethod();
+    }
+
+    @Override
+    public void setRequestProperty(String key, String value) {
+        delegate.setRequestProperty(key, value);
+    }
+
+    @Override
+    public void addRequestProperty(String key, String value) {
+        delegate.addRequestProperty(key, value);
+    }
+
+    @Override
+    public String getRequestProperty(String key) {
+        return delegate.getRequestProperty(key);
+    }
+
+    @Override
+    public Map<String, List<String>> getRequestProperties() {
+        return delegate.getRequestProperties();
+    }
+
+    @Override
+    public void setConnectTimeout(int timeout) {
+        delegate.setConnectTimeout(timeout);
+    }
+
+    @Override
+    public int getConnectTimeout() {
+        return delegate.getConnectTimeout();
+    }
+
+    @Override
+    public void setReadTimeout(int timeout) {
+        delegate.setReadTimeout(timeout);
+    }
+
+    @Override
+    public int getReadTimeout() {
+        return delegate.getReadTimeout();
+    }
+
+    @Override
+    public void setDoInput(boolean doInput) {
+        delegate.setDoInput(doInput);
+    }
+
+    @Override
+    public boolean getDoInput() {
+        return delegate.getDoInput();
+    }
+
+    @Override
+    public void setDoOutput(boolean doOutput) {
+        delegate.setDoOutput(doOutput);
+    }
+
+    @Override
+    public boolean getDoOutput() {
+        return delegate.getDoOutput();
+    }
+
+    @Override
+    public void setAllowUserInteraction(boolean allowUserInteraction) {
+        delegate.setAllowUserInteraction(allowUserInteraction);
+    }
+
+    @Override
+    public boolean getAllowUserInteraction() {
+        return delegate.getAllowUserInteraction();
+    }
+
+    @Override
+    public void setUseCaches(boolean useCaches) {
+        delegate.setUseCaches(useCaches);
+    }
+
+    @Override
+    public boolean getUseCaches() {
+        return delegate.getUseCaches();
+    }
+
+    @Override
+    public void setDefaultUseCaches(boolean defaultUseCaches) {
+        delegate.setDefaultUseCaches(defaultUseCaches);
+    }
+
+    @Override
+    public boolean getDefaultUseCaches() {
+        return delegate.getDefaultUseCaches();
+    }
+
+    @Override
+    public void setIfModifiedSince(long ifModifiedSince) {
+        delegate.setIfModifiedSince(ifModifiedSince);
+    }
+
+    @Override
+    public long getIfModifiedSince() {
+        return delegate.getIfModifiedSince();
+    }
+
+    @Override
+    public void setFixedLengthStreamingMode(int contentLength) {
+        delegate.setFixedLengthStreamingMode(contentLength);
+    }
+
+    @Override
+    public void setFixedLengthStreamingMode(long contentLength) {
+        delegate.setFixedLengthStreamingMode(contentLength);
+    }
+
+    @Override
+    public void setChunkedStreamingMode(int chunkLength) {
+        delegate.setChunkedStreamingMode(chunkLength);
+    }
+
+    @Override
+    public void setInstanceFollowRedirects(boolean followRedirects) {
+        delegate.setInstanceFollowRedirects(followRedirects);
+    }
+
+    @Override
+    public boolean getInstanceFollowRedirects() {
+        return delegate.getInstanceFollowRedirects();
+    }
+
+    @Override
+    public void setAuthenticator(Authenticator authenticator) {
+        delegate.setAuthenticator(authenticator);
+    }
+
+    @Override
+    public Permission getPermission() throws IOException {
+        return delegate.getPermission();
+    }
+
+    @Override
+    public boolean usingProxy() {
+        return delegate.usingProxy();
+    }
+
+    @Override
+    public void disconnect() {
+        delegate.disconnect();
+    }
+
+
+    // ---------------------------------------------------------------------
+    // Response
+    // ---------------------------------------------------------------------
+
+
+    @Override
+    public int getResponseCode() throws IOException {
+        return delegate.getResponseCode();
+    }
+
+    @Override
+    public String getResponseMessage() throws IOException {
+        return delegate.getResponseMessage();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return delegate.getInputStream();
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return delegate.getErrorStream();
+    }
+
+    @Override
+    public Object getContent() throws IOException {
+        return delegate.getContent();
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public Object getContent(Class[] classes) throws IOException {
+        return delegate.getContent(classes);
+    }
+
+    @Override
+    public String getHeaderField(String name) {
+        return delegate.getHeaderField(name);
+    }
+
+    @Override
+    public String getHeaderField(int n) {
+        return delegate.getHeaderField(n);
+    }
+
+    @Override
+    public String getHeaderFieldKey(int n) {
+        return delegate.getHeaderFieldKey(n);
+    }
+
+    @Override
+    public Map<String, List<String>> getHeaderFields() {
+        return delegate.getHeaderFields();
+    }
+
+    @Override
+    public int getHeaderFieldInt(String name, int defaultValue) {
+        return delegate.getHeaderFieldInt(name, defaultValue);
+    }
+
+    @Override
+    public long getHeaderFieldLong(String name, long defaultValue) {
+        return delegate.getHeaderFieldLong(name, defaultValue);
+    }
+
+    @Override
+    public long getHeaderFieldDate(String name, long defaultValue) {
+        return delegate.getHeaderFieldDate(name, defaultValue);
+    }
+
+    @Override
+    public int getContentLength() {
+        return delegate.getContentLength();
+    }
+
+    @Override
+    public long getContentLengthLong() {
+        return delegate.getContentLengthLong();
+    }
+
+    @Override
+    public String getContentType() {
+        return delegate.getContentType();
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return delegate.getContentEncoding();
+    }
+
+    @Override
+    public long getExpiration() {
+        return delegate.getExpiration();
+    }
+
+    @Override
+    public long getDate() {
+        return delegate.getDate();
+    }
+
+    @Override
+    public long getLastModified() {
+        return delegate.getLastModified();
+    }
+
+
+    // ---------------------------------------------------------------------
+    // HTTPS
+    // ---------------------------------------------------------------------
+
+
+    @Override
+    public void setSSLSocketFactory(SSLSocketFactory factory) {
+        if (delegate instanceof HttpsURLConnection) {
+            https().setSSLSocketFactory(factory);
+        }
+    }
+
+    @Override
+    public SSLSocketFactory getSSLSocketFactory() {
+        return delegate instanceof HttpsURLConnection ? https().getSSLSocketFactory() : null;
+    }
+
+    @Override
+    public void setHostnameVerifier(HostnameVerifier verifier) {
+        if (delegate instanceof HttpsURLConnection) {
+            https().setHostnameVerifier(verifier);
+        }
+    }
+
+    @Override
+    public HostnameVerifier getHostnameVerifier() {
+        return delegate instanceof HttpsURLConnection ? https().getHostnameVerifier() : null;
+    }
+
+    @Override
+    public String getCipherSuite() {
+        return https().getCipherSuite();
+    }
+
+    @Override
+    public Certificate[] getLocalCertificates() {
+        return https().getLocalCertificates();
+    }
+
+    @Override
+    public Certificate[] getServerCertificates() throws SSLPeerUnverifiedException {
+        return https().getServerCertificates();
+    }
+
+    @Override
+    public Principal getPeerPrincipal() throws SSLPeerUnverifiedException {
+        return https().getPeerPrincipal();
+    }
+
+    @Override
+    public Principal getLocalPrincipal() {
+        return https().getLocalPrincipal();
+    }
+
+    @Override
+    public Optional<SSLSession> getSSLSession() {
+        return delegate instanceof HttpsURLConnection ? https().getSSLSession() : Optional.empty();
+    }
+
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + delegate + "]";
+    }
+}
@@ -0,0 +1,382 @@
+package app.dialogos.googlecalendar.plugin;
+
+import com.clt.diamant.graph.Graph;
+import com.clt.diamant.IdMap;
+import com.clt.diamant.graph.Node;
+import com.clt.diamant.graph.nodes.NodeExecutionException;
+import com.clt.diamant.gui.NodePropertiesDialog;
+import com.clt.xml.XMLReader;
+import com.clt.xml.XMLWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import org.xml.sax.SAXException;
+import com.clt.diamant.WozInterface;
+import com.clt.diamant.InputCenter;
+import com.clt.diamant.ExecutionLogger;
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.FreeBusyCalendar;
+import com.google.api.services.calendar.model.FreeBusyRequest;
+import com.google.api.services.calendar.model.FreeBusyRequestItem;
+import com.google.api.services.calendar.model.FreeBusyResponse;
+import com.google.api.services.calendar.model.TimePeriod;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.*;
+import java.awt.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * FreeBusyNode - Node for finding common free time slots.
+ *
+ * Queries the busy times of up to 50 calendars with a single
+ * freebusy request and computes the first free slots of the
+ * requested duration locally (see FreeSlotFinder).
+ *
+ * Required Properties:
+ * - calendarIds (optional - comma-separated, default: configured calendar)
+ * - startTime (mandatory - start of the search window)
+ * - endTime (mandatory - end of the search window)
+ * - durationMinutes (optional - slot length, default: 30)
+ * - maxSlots (optional - number of slots to return, default: 5)
+ * - resultVariable (output: free slots as JSON string)
+ *
+ * Global settings (serviceAccountFile, calendarId, etc.)
+ * come from GoogleCalendarPluginSettings!
+ */
+public class FreeBusyNode extends GoogleCalendarNode {
+
+
+    private static final Logger LOG = LoggerFactory.getLogger(FreeBusyNode.class);
+
+    private static final String PROP_CALENDAR_IDS = "calendarIds";
+    private static final String PROP_START_TIME = "startTime";
+    private static final String PROP_END_TIME = "endTime";
+    private static final String PROP_DURATION = "durationMinutes";
+    private static final String PROP_MAX_SLOTS = "maxSlots";
+    private static final String PROP_RESULT_VAR = "resultVariable";
+
+    // Limit of the freebusy endpoint per request
+    private static final int MAX_CALENDARS = 50;
+
+    public FreeBusyNode() {
+        super();
+        this.setProperty(PROP_CALENDAR_IDS, "");
+        this.setProperty(PROP_START_TIME, "");
+        this.setProperty(PROP_END_TIME, "");
+        this.setProperty(PROP_DURATION, "30");
+        this.setProperty(PROP_MAX_SLOTS, "5");
+        this.setProperty(PROP_RESULT_VAR, "freeSlots");
+    }
+
+    @Override
+    protected Node executeOperation(WozInterface comm, InputCenter input, ExecutionLogger logger)
+            throws NodeExecutionException {
+        try {
+            LOG.debug("=== FreeBusyNode Execute ===");
+
+            String calendarIdsInput = evaluateVariable(
+                    getProperty(PROP_CALENDAR_IDS).toString(), logger, comm);
+            String startTimeInput = evaluateVariable(
+                    getProperty(PROP_START_TIME).toString(), logger, comm);
+            String endTimeInput = evaluateVariable(
+                    getProperty(PROP_END_TIME).toString(), logger, comm);
+            String durationStr = evaluateVariable(
+                    getProperty(PROP_DURATION).toString(), logger, comm);
+            String maxSlotsStr = evaluateVariable(
+                    getProperty(PROP_MAX_SLOTS).toString(), logger, comm);
+            String resultVariable = evaluateVariable(
+                    getProperty(PROP_RESULT_VAR).toString(), logger, comm);
+
+            LocalDateTime startTime = parseDateTime(startTimeInput, "Start Time");
+            LocalDateTime endTime = parseDateTime(endTimeInput, "End Time");
+            if (!endTime.isAfter(startTime)) {
+                throw new NodeExecutionException(this, "End Time must be after Start Time");
+            }
+
+            int durationMinutes = parsePositiveInt(durationStr, "Duration");
+            int maxSlots = parsePositiveInt(maxSlotsStr, "Max Slots");
+
+            CalendarConfig config = getCalendarConfig(comm);
+            Calendar service = getCalendarService(comm);
+
+            List<String> calendarIds = parseCalendarIds(calendarIdsInput, config.getCalendarId());
+
+            long windowStart = toEpochMillis(startTime);
+            long windowEnd = toEpochMillis(endTime);
+
+            List<FreeSlotFinder.Interval> busy = queryBusyIntervals(
+                    service, calendarIds, windowStart, windowEnd);
+            LOG.debug("Received {} busy intervals for {} calendars", busy.size(), calendarIds.size());
+            traceExecution(String.join(",", calendarIds), null, busy.size());
+
+            List<FreeSlotFinder.Interval> slots = FreeSlotFinder.findFreeSlots(
+                    busy, windowStart, windowEnd, durationMinutes * 60_000L, maxSlots);
+
+            String formattedSlots = formatSlotsAsJson(slots, calendarIds.size());
+            setStringVariable(resultVariable, formattedSlots);
+            LOG.info("Found {} free slots, stored in variable: {}", slots.size(), resultVariable);
+
+            return this.getEdge(0).getTarget();
+
+        } catch (NodeExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new NodeExecutionException(this,
+                    "Error querying free/busy information: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Splits the comma-separated calendar list, falling back to the configured calendar.
+     */
+    private List<String> parseCalendarIds(String input, String defaultCalendarId)
+            throws NodeExecutionException {
+        List<String> calendarIds = new ArrayList<>();
+        if (input != null) {
+            for (String id : input.split(",")) {
+                String trimmed = id.trim().replaceAll("^[\"']+|[\"']+$", "");
+                if (!trimmed.isEmpty() && !calendarIds.contains(trimmed)) {
+                    calendarIds.add(trimmed);
+                }
+            }
+        }
+        if (calendarIds.isEmpty()) {
+            calendarIds.add(defaultCalendarId);
+        }
+        if (calendarIds.size() > MAX_CALENDARS) {
+            throw new NodeExecutionException(this,
+                    "At most " + MAX_CALENDARS + " calendars can be queried at once, got "
+                    + calendarIds.size());
+        }
+        return calendarIds;
+    }
+
+    /**
+     * Queries the busy periods of all calendars in one freebusy request.
+     */
+    private List<FreeSlotFinder.Interval> queryBusyIntervals(Calendar service,
+            List<String> calendarIds, long windowStart, long windowEnd) throws Exception {
+        List<FreeBusyRequestItem> items = new ArrayList<>();
+        for (String calendarId : calendarIds) {
+            items.add(new FreeBusyRequestItem().setId(calendarId));
+        }
+
+        FreeBusyRequest request = new FreeBusyRequest()
+                .setTimeMin(new DateTime(windowStart))
+                .setTimeMax(new DateTime(windowEnd))
+                .setItems(items);
+
+        FreeBusyResponse response = service.freebusy().query(request).execute();
+
+        List<FreeSlotFinder.Interval> busy = new ArrayList<>();
+        if (response.getCalendars() == null) {
+            return busy;
+        }
+        for (Map.Entry<String, FreeBusyCalendar> entry : response.getCalendars().entrySet()) {
+            FreeBusyCalendar calendar = entry.getValue();
+            // An unreadable calendar must not be reported as free
+            if (calendar.getErrors() != null && !calendar.getErrors().isEmpty()) {
+                throw new NodeExecutionException(this,
+                        "Calendar '" + entry.getKey() + "' is not accessible: "
+                        + calendar.getErrors().get(0).getReason());
+            }
+            if (calendar.getBusy() == null) {
+                continue;
+            }
+            for (TimePeriod period : calendar.getBusy()) {
+                busy.add(new FreeSlotFinder.Interval(
+                        period.getStart().getValue(), period.getEnd().getValue()));
+            }
+        }
+        return busy;
+    }
+
+    private int parsePositiveInt(String value, String fieldName) throws NodeExecutionException {
+        try {
+            int parsed = Integer.parseInt(value.trim());
+            if (parsed <= 0) {
+                throw new NumberFormatException();
+            }
+            return parsed;
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new NodeExecutionException(this,
+                    fieldName + " must be a positive number, was: " + value);
+        }
+    }
+
+    private long toEpochMillis(LocalDateTime localDateTime) {
+        return localDateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+
+    private String formatSlotsAsJson(List<FreeSlotFinder.Interval> slots, int calendarCount)
+            throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("calendar_count", calendarCount);
+        metadata.put("slot_count", slots.size());
+
+        List<Map<String, Object>> slotList = new ArrayList<>();
+        for (int i = 0; i < slots.size(); i++) {
+            FreeSlotFinder.Interval slot = slots.get(i);
+            Map<String, Object> slotMap = new HashMap<>();
+            slotMap.put("index", i + 1);
+            slotMap.put("start", toLocalDateTime(slot.getStart()));
+            slotMap.put("end", toLocalDateTime(slot.getEnd()));
+            slotMap.put("duration_minutes", (slot.getEnd() - slot.getStart()) / 60_000L);
+            slotList.add(slotMap);
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("metadata", metadata);
+        response.put("slots", slotList);
+        return mapper.writeValueAsString(response);
+    }
+
+    @Override
+    protected void writeAttributes(XMLWriter out, IdMap uid_map) {
+        super.writeAttributes(out, uid_map);
+
+        Graph.printAtt(out, PROP_CALENDAR_IDS, this.getProperty(PROP_CALENDAR_IDS).toString());
+        Graph.printAtt(out, PROP_START_TIME, this.getProperty(PROP_START_TIME).toString());
+        Graph.printAtt(out, PROP_END_TIME, this.getProperty(PROP_END_TIME).toString());
+        Graph.printAtt(out, PROP_DURATION, this.getProperty(PROP_DURATION).toString());
+        Graph.printAtt(out, PROP_MAX_SLOTS, this.getProperty(PROP_MAX_SLOTS).toString());
+        Graph.printAtt(out, PROP_RESULT_VAR, this.getProperty(PROP_RESULT_VAR).toString());
+    }
+
+    @Override
+    protected void readAttribute(XMLReader r, String name, String value, IdMap uid_map)
+            throws SAXException {
+        super.readAttribute(r, name, value, uid_map);
+
+        if (PROP_CALENDAR_IDS.equals(name)) {
+            setProperty(PROP_CALENDAR_IDS, value);
+        } else if (PROP_START_TIME.equals(name)) {
+            setProperty(PROP_START_TIME, value);
+        } else if (PROP_END_TIME.equals(name)) {
+            setProperty(PROP_END_TIME, value);
+        } else if (PROP_DURATION.equals(name)) {
+            setProperty(PROP_DURATION, value);
+        } else if (PROP_MAX_SLOTS.equals(name)) {
+            setProperty(PROP_MAX_SLOTS, value);
+        } else if (PROP_RESULT_VAR.equals(name)) {
+            setProperty(PROP_RESULT_VAR, value);
+        }
+    }
+
+    @Override
+    public JComponent createEditorComponent(Map<String, Object> properties) {
+        JPanel mainPanel = new JPanel(new BorderLayout(5, 5));
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JPanel inputPanel = new JPanel();
+        inputPanel.setLayout(new BoxLayout(inputPanel, BoxLayout.Y_AXIS));
+
+        // Info Panel
+        JTextArea infoArea = new JTextArea(
+                "FREE/BUSY:\n" +
+                "Finds slots in which all calendars are free.\n" +
+                "Calendar IDs: comma-separated, max. " + MAX_CALENDARS + "\n" +
+                "(empty = calendar from plugin settings)\n\n" +
+                "VARIABLE SYNTAX:\n" +
+                "${variableName} - value of variable\n" +
+                "DateTime Format: 2026-01-15T10:00:00\n"
+        );
+        infoArea.setEditable(false);
+        infoArea.setLineWrap(true);
+        infoArea.setWrapStyleWord(true);
+        infoArea.setBackground(new Color(240, 240, 240));
+        inputPanel.add(new JScrollPane(infoArea));
+
+        // Ensure all properties exist as strings
+        properties.putIfAbsent(PROP_CALENDAR_IDS, this.getProperty(PROP_CALENDAR_IDS));
+        properties.putIfAbsent(PROP_START_TIME, this.getProperty(PROP_START_TIME));
+        properties.putIfAbsent(PROP_END_TIME, this.getProperty(PROP_END_TIME));
+        properties.putIfAbsent(PROP_DURATION, this.getProperty(PROP_DURATION));
+        properties.putIfAbsent(PROP_MAX_SLOTS, this.getProperty(PROP_MAX_SLOTS));
+        properties.putIfAbsent(PROP_RESULT_VAR, this.getProperty(PROP_RESULT_VAR));
+
+        // Calendar IDs
+        JPanel calendarsRow = new JPanel();
+        calendarsRow.add(new JLabel("Calendar IDs:"));
+        JTextField calendarsField = NodePropertiesDialog.createTextField(properties, PROP_CALENDAR_IDS);
+        calendarsField.setToolTipText("e.g. 'alice@example.com,bob@example.com' or '${attendees}'");
+        calendarsRow.add(calendarsField);
+        inputPanel.add(calendarsRow);
+
+        // Start Time
+        JPanel startRow = new JPanel();
+        JLabel startLabel = new JLabel("Start Time (REQUIRED):");
+        startLabel.setForeground(Color.RED);
+        startRow.add(startLabel);
+        JTextField startField = NodePropertiesDialog.createTextField(properties, PROP_START_TIME);
+        startField.setToolTipText("e.g. '2026-01-15T08:00:00' - start of the search window");
+        startRow.add(startField);
+        inputPanel.add(startRow);
+
+        // End Time
+        JPanel endRow = new JPanel();
+        JLabel endLabel = new JLabel("End Time (REQUIRED):");
+        endLabel.setForeground(Color.RED);
+        endRow.add(endLabel);
+        JTextField endField = NodePropertiesDialog.createTextField(properties, PROP_END_TIME);
+        endField.setToolTipText("e.g. '2026-01-15T18:00:00' - end of the search window");
+        endRow.add(endField);
+        inputPanel.add(endRow);
+
+        // Duration
+        JPanel durationRow = new JPanel();
+        durationRow.add(new JLabel("Duration (minutes):"));
+        JTextField durationField = NodePropertiesDialog.createTextField(properties, PROP_DURATION);
+        durationField.setToolTipText("Default: 30");
+        durationRow.add(durationField);
+        inputPanel.add(durationRow);
+
+        // Max Slots
+        JPanel maxRow = new JPanel();
+        maxRow.add(new JLabel("Max Slots:"));
+        JTextField maxField = NodePropertiesDialog.createTextField(properties, PROP_MAX_SLOTS);
+        maxField.setToolTipText("Default: 5");
+        maxRow.add(maxField);
+        inputPanel.add(maxRow);
+
+        // Result Variable - as ComboBox
+        JPanel resultRow = new JPanel();
+        resultRow.add(new JLabel("Result Variable:"));
+        JComboBox<?> resultCombo = NodePropertiesDialog.createComboBox(
+                properties,
+                PROP_RESULT_VAR,
+                getListVariables()
+        );
+        resultCombo.setToolTipText("Output: free slots will be stored here");
+        resultRow.add(resultCombo);
+        inputPanel.add(resultRow);
+        inputPanel.add(createQuotaEdgeRow(properties));
+
+        mainPanel.add(new JScrollPane(inputPanel), BorderLayout.CENTER);
+        return mainPanel;
+    }
+
+    @Override
+    public void writeVoiceXML(XMLWriter out, IdMap uid_map) {
+        // not relevant
+    }
+}
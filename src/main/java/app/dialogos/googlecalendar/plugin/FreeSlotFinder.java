@@ -0,0 +1,127 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * FreeSlotFinder - Computes common free time slots from busy intervals.
+ *
+ * All times are epoch milliseconds. Busy intervals of any number of calendars
+ * are combined with a sweep line over the sorted start and end points, so the
+ * result is free in every calendar at the same time.
+ *
+ * Used by FreeBusyNode to answer "when are we all free?" locally instead of
+ * listing every event and searching the gaps in dialog script.
+ */
+public final class FreeSlotFinder {
+
+
+    private FreeSlotFinder() {}
+
+
+    /**
+     * Busy or free interval [start, end) in epoch milliseconds.
+     */
+    public static final class Interval {
+        private final long start;
+        private final long end;
+
+        public Interval(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() { return start; }
+        public long getEnd() { return end; }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + ")";
+        }
+    }
+
+
+    /**
+     * Finds the first free slots of the given duration within the window.
+     *
+     * A long free gap yields several consecutive slots, so a dialog can offer
+     * alternatives within the same morning.
+     *
+     * @param busy Busy intervals of all calendars (unsorted, may overlap)
+     * @param windowStart Start of the search window
+     * @param windowEnd End of the search window
+     * @param durationMillis Length of each slot
+     * @param maxSlots Maximum number of slots to return
+     * @return Free slots in chronological order
+     */
+    public static List<Interval> findFreeSlots(List<Interval> busy, long windowStart, long windowEnd,
+            long durationMillis, int maxSlots) {
+        if (durationMillis <= 0) {
+            throw new IllegalArgumentException("Duration must be positive");
+        }
+        List<Interval> slots = new ArrayList<>();
+        if (maxSlots <= 0 || windowEnd - windowStart < durationMillis) {
+            return slots;
+        }
+
+        // Sweep line: sorted start points open a busy interval, sorted end points close one
+        long[] starts = new long[busy.size()];
+        long[] ends = new long[busy.size()];
+        int n = 0;
+        for (Interval interval : busy) {
+            // Empty intervals block nothing and would unbalance the sweep
+            if (interval.getEnd() > interval.getStart()) {
+                starts[n] = interval.getStart();
+                ends[n] = interval.getEnd();
+                n++;
+            }
+        }
+        Arrays.sort(starts, 0, n);
+        Arrays.sort(ends, 0, n);
+
+        long freeFrom = windowStart;
+        int open = 0;
+        int s = 0;
+        int e = 0;
+        while (s < n && slots.size() < maxSlots) {
+            if (starts[s] < ends[e]) {
+                // A busy interval opens; if nothing was open, the gap before it is free
+                if (open == 0) {
+                    addSlots(slots, freeFrom, Math.min(starts[s], windowEnd), durationMillis, maxSlots);
+                }
+                open++;
+                s++;
+            } else {
+                open--;
+                if (open == 0) {
+                    freeFrom = Math.max(freeFrom, ends[e]);
+                }
+                e++;
+            }
+        }
+        if (s == n && slots.size() < maxSlots) {
+            // Remaining end points only close intervals; the last one marks the final free gap
+            if (n > 0) {
+                freeFrom = Math.max(freeFrom, ends[n - 1]);
+            }
+            addSlots(slots, freeFrom, windowEnd, durationMillis, maxSlots);
+        }
+        return slots;
+    }
+
+
+    /**
+     * Splits the free gap [from, to) into consecutive slots of the given duration.
+     */
+    private static void addSlots(List<Interval> slots, long from, long to, long durationMillis,
+            int maxSlots) {
+        long slotStart = from;
+        while (slotStart + durationMillis <= to && slots.size() < maxSlots) {
+            slots.add(new Interval(slotStart, slotStart + durationMillis));
+            slotStart += durationMillis;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package app.dialogos.googlecalendar.plugin;
+
+import com.clt.diamant.graph.Graph;
+import com.clt.diamant.IdMap;
+import com.clt.diamant.graph.Node;
+import com.clt.diamant.graph.nodes.NodeExecutionException;
+import com.clt.diamant.gui.NodePropertiesDialog;
+import com.clt.xml.XMLReader;
+import com.clt.xml.XMLWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import org.xml.sax.SAXException;
+import com.clt.diamant.WozInterface;
+import com.clt.diamant.InputCenter;
+import com.clt.diamant.ExecutionLogger;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.Event;
+
+import java.util.Map;
+import javax.swing.*;
+import java.awt.*;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * GetEventNode - Node for reading a single Google Calendar Event by ID.
+ *
+ * Reads through the EventCache of the runtime, which list results, mirror
+ * syncs and write responses keep filled; only a miss or an entry older than
+ * maxAgeSeconds costs an events.get request.
+ *
+ * Required Properties:
+ * - eventId (mandatory - ID of the event to read)
+ * - maxAgeSeconds (optional - accepted age of a cached event, default: 60, 0 = always fetch)
+ * - outputFormat (optional - JSON string or native STRUCT value, default: JSON)
+ * - resultVariable (output: the event with the fields of a ListEventsNode entry)
+ *
+ * Global settings (serviceAccountFile, calendarId, etc.)
+ * come from GoogleCalendarPluginSettings!
+ */
+public class GetEventNode extends GoogleCalendarNode {
+
+
+    private static final Logger LOG = LoggerFactory.getLogger(GetEventNode.class);
+
+    private static final String PROP_EVENT_ID = "eventId";
+    private static final String PROP_MAX_AGE = "maxAgeSeconds";
+    private static final String PROP_OUTPUT_FORMAT = "outputFormat";
+    private static final String PROP_RESULT_VAR = "resultVariable";
+
+    // Partial response: only what EventRecord holds
+    private static final String RECORD_FIELDS = "id,status,updated,summary,location,description,start,end";
+
+    // Output format constants
+    private static final String FORMAT_JSON = "JSON";
+    private static final String FORMAT_STRUCT = "STRUCT";
+
+    public GetEventNode() {
+        super();
+        this.setProperty(PROP_EVENT_ID, "");
+        this.setProperty(PROP_MAX_AGE, "60");
+        this.setProperty(PROP_OUTPUT_FORMAT, FORMAT_JSON);
+        this.setProperty(PROP_RESULT_VAR, "event");
+    }
+
+    @Override
+    protected Node executeOperation(WozInterface comm, InputCenter input, ExecutionLogger logger)
+            throws NodeExecutionException {
+        try {
+            LOG.debug("=== GetEventNode Execute ===");
+
+            // Evaluate eventId - this is mandatory
+            String eventIdInput = getProperty(PROP_EVENT_ID).toString();
+            String eventId = evaluateVariable(eventIdInput, logger, comm).replaceAll("^[\"']+|[\"']+$", "");
+            if (eventId == null || eventId.isEmpty()) {
+                throw new NodeExecutionException(this, "Event ID is required");
+            }
+            String maxAgeStr = evaluateVariable(
+                    getProperty(PROP_MAX_AGE).toString(), logger, comm);
+            String resultVariable = evaluateVariable(
+                    getProperty(PROP_RESULT_VAR).toString(), logger, comm);
+            long maxAgeMillis = parseMaxAge(maxAgeStr) * 1000L;
+
+            CalendarConfig config = getCalendarConfig(comm);
+            GoogleCalendarPluginRuntime runtime = getPluginRuntime(comm);
+            String calendarId = config.getCalendarId();
+            checkEventId(runtime, calendarId, eventId);
+
+            EventCache cache = runtime.getEventCache();
+            EventRecord event = cache.get(calendarId, eventId, maxAgeMillis,
+                    runtime.findCalendarMirror(calendarId));
+            String source = "cache";
+            if (event == null) {
+                event = fetchEvent(runtime, getCalendarService(comm), calendarId, eventId);
+                cache.put(calendarId, event);
+                source = "api";
+            }
+            LOG.debug("Event {} read from {}", eventId, source);
+
+            runtime.noteCalendarActivity(calendarId);
+            traceExecution(calendarId, source, 1);
+
+            if (FORMAT_STRUCT.equals(getProperty(PROP_OUTPUT_FORMAT).toString())) {
+                setVariable(resultVariable, ListEventsNode.toEventValue(event, 0));
+            } else {
+                setStringVariable(resultVariable, formatEventAsJson(event));
+            }
+            LOG.info("Event {} stored in variable: {}", eventId, resultVariable);
+
+            return this.getEdge(0).getTarget();
+
+        } catch (NodeExecutionException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new NodeExecutionException(this,
+                    "Error reading event: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the event from the API. Deleted events (404/410 or status
+     * "cancelled") are remembered as missing and reported as not found.
+     */
+    private EventRecord fetchEvent(GoogleCalendarPluginRuntime runtime, Calendar service,
+            String calendarId, String eventId) throws Exception {
+        Event event;
+        try {
+            event = service.events().get(calendarId, eventId)
+                    .setFields(RECORD_FIELDS)
+                    .execute();
+        } catch (HttpResponseException e) {
+            rememberIfMissing(runtime, calendarId, eventId, e);
+            if (e.getStatusCode() == 404 || e.getStatusCode() == 410) {
+                throw new NodeExecutionException(this, "Event not found: " + eventId, e);
+            }
+            throw e;
+        }
+        EventRecord record = EventConverter.toEventRecord(event);
+        if (record.isCancelled()) {
+            runtime.rememberMissing(calendarId, eventId);
+            throw new NodeExecutionException(this, "Event not found: " + eventId + " (deleted)");
+        }
+        return record;
+    }
+
+    private long parseMaxAge(String value) throws NodeExecutionException {
+        try {
+            long parsed = Long.parseLong(value.trim());
+            if (parsed < 0) {
+                throw new NumberFormatException();
+            }
+            return parsed;
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new NodeExecutionException(this,
+                    "Max Age must be a number of seconds (0 = always fetch), was: " + value);
+        }
+    }
+
+    private String formatEventAsJson(EventRecord event) throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.registerModule(new JavaTimeModule());
+        mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return mapper.writeValueAsString(ListEventsNode.toEventMap(event, 0));
+    }
+
+    @Override
+    protected void writeAttributes(XMLWriter out, IdMap uid_map) {
+        super.writeAttributes(out, uid_map);
+
+        Graph.printAtt(out, PROP_EVENT_ID, this.getProperty(PROP_EVENT_ID).toString());
+        Graph.printAtt(out, PROP_MAX_AGE, this.getProperty(PROP_MAX_AGE).toString());
+        Graph.printAtt(out, PROP_OUTPUT_FORMAT, this.getProperty(PROP_OUTPUT_FORMAT).toString());
+        Graph.printAtt(out, PROP_RESULT_VAR, this.getProperty(PROP_RESULT_VAR).toString());
+    }
+
+    @Override
+    protected void readAttribute(XMLReader r, String name, String value, IdMap uid_map)
+            throws SAXException {
+        super.readAttribute(r, name, value, uid_map);
+
+        if (PROP_EVENT_ID.equals(name)) {
+            setProperty(PROP_EVENT_ID, value);
+        } else if (PROP_MAX_AGE.equals(name)) {
+            setProperty(PROP_MAX_AGE, value);
+        } else if (PROP_OUTPUT_FORMAT.equals(name)) {
+            setProperty(PROP_OUTPUT_FORMAT, value);
+        } else if (PROP_RESULT_VAR.equals(name)) {
+            setProperty(PROP_RESULT_VAR, value);
+        }
+    }
+
+    @Override
+    public JComponent createEditorComponent(Map<String, Object> properties) {
+        JPanel mainPanel = new JPanel(new BorderLayout(5, 5));
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+        JPanel inputPanel = new JPanel();
+        inputPanel.setLayout(new BoxLayout(inputPanel, BoxLayout.Y_AXIS));
+
+        // Info Panel
+        JTextArea infoArea = new JTextArea(
+                "GET EVENT:\n" +
+                "Reads one event by its ID, from the plugin's event cache\n" +
+                "if the cached copy is at most Max Age seconds old,\n" +
+                "otherwise from Google Calendar.\n\n" +
+                "OUTPUT FORMAT:\n" +
+                "JSON   - JSON string\n" +
+                "STRUCT - native struct, e.g. event.summary\n\n" +
+                "VARIABLE SYNTAX:\n" +
+                "${variableName} - value of variable\n"
+        );
+        infoArea.setEditable(false);
+        infoArea.setLineWrap(true);
+        infoArea.setWrapStyleWord(true);
+        infoArea.setBackground(new Color(240, 240, 240));
+        inputPanel.add(new JScrollPane(infoArea));
+
+        // Ensure all properties exist as strings
+        properties.putIfAbsent(PROP_EVENT_ID, this.getProperty(PROP_EVENT_ID));
+        properties.putIfAbsent(PROP_MAX_AGE, this.getProperty(PROP_MAX_AGE));
+        properties.putIfAbsent(PROP_OUTPUT_FORMAT, this.getProperty(PROP_OUTPUT_FORMAT));
+        properties.putIfAbsent(PROP_RESULT_VAR, this.getProperty(PROP_RESULT_VAR));
+
+        // Event ID (MANDATORY)
+        JPanel eventIdRow = new JPanel();
+        JLabel eventIdLabel = new JLabel("Event ID (REQUIRED):");
+        eventIdLabel.setForeground(Color.RED);
+        eventIdRow.add(eventIdLabel);
+        JTextField eventIdField = NodePropertiesDialog.createTextField(properties, PROP_EVENT_ID);
+        eventIdField.setToolTipText("e.g. '${selectedEventId}' or direct event ID string");
+        eventIdRow.add(eventIdField);
+        inputPanel.add(eventIdRow);
+
+        // Max Age
+        JPanel maxAgeRow = new JPanel();
+        maxAgeRow.add(new JLabel("Max Age (seconds):"));
+        JTextField maxAgeField = NodePropertiesDialog.createTextField(properties, PROP_MAX_AGE);
+        maxAgeField.setToolTipText("Default: 60, 0 = always read from Google Calendar");
+        maxAgeRow.add(maxAgeField);
+        inputPanel.add(maxAgeRow);
+
+        // Output Format
+        JPanel formatRow = new JPanel();
+        formatRow.add(new JLabel("Output Format:"));
+        String[] formats = {FORMAT_JSON, FORMAT_STRUCT};
+        JComboBox<String> formatCombo = NodePropertiesDialog.createComboBox(
+                properties, PROP_OUTPUT_FORMAT, formats);
+        formatCombo.setToolTipText("JSON string or native DialogOS struct value");
+        formatRow.add(formatCombo);
+        inputPanel.add(formatRow);
+
+        // Result Variable - as ComboBox
+        JPanel resultRow = new JPanel();
+        resultRow.add(new JLabel("Result Variable:"));
+        JComboBox<?> resultCombo = NodePropertiesDialog.createComboBox(
+                properties,
+                PROP_RESULT_VAR,
+                getListVariables(true)
+        );
+        resultCombo.setToolTipText("Output: the event (String for JSON, struct variable for STRUCT)");
+        resultRow.add(resultCombo);
+        inputPanel.add(resultRow);
+        inputPanel.add(createQuotaEdgeRow(properties));
+
+        mainPanel.add(new JScrollPane(inputPanel), BorderLayout.CENTER);
+        return mainPanel;
+    }
+
+    @Override
+    public void writeVoiceXML(XMLWriter out, IdMap uid_map) {
+        // not relevant
+    }
+}
@@ -5,6 +5,7 @@ import com.clt.diamant.graph.Graph;
 import com.clt.diamant.IdMap;
 import com.clt.diamant.graph.Node;
 import com.clt.diamant.graph.nodes.NodeExecutionException;
+import com.clt.diamant.gui.NodePropertiesDialog;
 import com.clt.xml.XMLReader;
 import com.clt.xml.XMLWriter;
 import com.google.gson.JsonObject;
@@ -17,6 +18,7 @@ import com.clt.diamant.ExecutionLogger;
 import com.clt.diamant.Slot;
 import com.clt.script.exp.*;
 import com.clt.dialogos.plugin.PluginRuntime;
+import com.google.api.client.http.HttpResponseException;
 
 
 import java.time.LocalDateTime;
@@ -29,6 +31,9 @@ import java.util.Map;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 
 /**
  * GoogleCalendarNode - ABSTRACT BASE CLASS for all Google Calendar operations.
@@ -38,25 +43,217 @@ import java.util.List;
  * ├─ CreateEventNode
  * ├─ UpdateEventNode
  * ├─ ListEventsNode
- * └─ DeleteEventNode
+ * ├─ GetEventNode
+ * ├─ DeleteEventNode
+ * └─ FreeBusyNode
  * 
  * A Dialog OS user will NOT be able to see this class directly.
 **/
 public abstract class GoogleCalendarNode extends Node {
 
 
+    private static final Logger LOG = LoggerFactory.getLogger(GoogleCalendarNode.class);
+
+    // DialogOS node title, used as the node name in the quota usage
+    private static final String PROP_TITLE = "title";
+    protected static final String PROP_QUOTA_EDGE = "quotaEdge";
+    protected static final String EDGE_QUOTA = "quota";
+
+    // Resolved on first execution, so loading a graph does not register MBeans
+    private transient OperationMetrics nodeMetrics;
+    // JFR event of the running execution; null while the event type is disabled
+    private transient CalendarFlightEvents.NodeExecution currentExecution;
+
     public GoogleCalendarNode() {
         super();
         this.addEdge();  // Standard success edge
+        this.setProperty(PROP_QUOTA_EDGE, "false");
+    }
+
+
+    @Override
+    public void setProperty(String key, Object value) {
+        super.setProperty(key, value);
+        if (PROP_QUOTA_EDGE.equals(key)) {
+            updateOptionalEdge(EDGE_QUOTA, "true".equalsIgnoreCase(String.valueOf(value)));
+        }
+    }
+
+
+    /**
+     * Returns the index of the outgoing edge with the given condition, or -1.
+     * Optional edges (quota, conflict) are looked up by condition because
+     * their position depends on the order they were switched on.
+     */
+    protected int findEdge(String condition) {
+        for (int i = 1; i < numEdges(); i++) {
+            if (condition.equals(getEdge(i).getCondition())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Adds or removes an optional outgoing edge; the success edge stays at index 0.
+     */
+    protected void updateOptionalEdge(String condition, boolean present) {
+        int index = findEdge(condition);
+        if (present && index < 0) {
+            addEdge(condition);
+        } else if (!present && index >= 0) {
+            removeEdge(index);
+        }
     }
 
 
 
+    /**
+     * Executes the node and records its latency and outcome in CalendarMetrics
+     * (JMX: app.dialogos.googlecalendar:type=Node) and as a JFR NodeExecution
+     * event. Concrete nodes implement executeOperation().
+     *
+     * The API requests of the node are charged to the session quota
+     * (SessionQuota). If a request was refused because a budget is used up,
+     * the node takes its "quota" edge when it has one and fails otherwise.
+     */
     @Override
-    public abstract Node execute(WozInterface comm, InputCenter input, ExecutionLogger logger) 
+    public Node execute(WozInterface comm, InputCenter input, ExecutionLogger logger)
+            throws NodeExecutionException {
+        OperationMetrics metrics = getNodeMetrics();
+        CalendarFlightEvents.NodeExecution event = new CalendarFlightEvents.NodeExecution();
+        currentExecution = event.isEnabled() ? event : null;
+        event.begin();
+        GoogleCalendarPluginRuntime runtime = findPluginRuntime(comm);
+        SessionQuota.Charge charge = enterQuota(runtime, comm);
+        long started = System.nanoTime();
+        boolean failed = true;
+        try {
+            Node next = executeOperation(comm, input, logger);
+            failed = false;
+            return next;
+        } catch (NodeExecutionException e) {
+            int quotaEdge = findEdge(EDGE_QUOTA);
+            if (charge == null || !charge.isRefused() || quotaEdge < 0) {
+                throw e;
+            }
+            LOG.info("{}: API quota exhausted, taking edge '{}'", metrics.getName(), EDGE_QUOTA);
+            traceExecution(null, EDGE_QUOTA, 0);
+            failed = false;
+            return getEdge(quotaEdge).getTarget();
+        } finally {
+            if (charge != null) {
+                charge.close();
+                writeQuotaUsage(runtime, charge.getAccount());
+            }
+            metrics.recordCall(System.nanoTime() - started, failed);
+            currentExecution = null;
+            if (event.shouldCommit()) {
+                event.nodeType = metrics.getName();
+                event.success = !failed;
+                event.commit();
+            }
+        }
+    }
+
+
+    /**
+     * Adds details to the JFR NodeExecution event of the running execution
+     * (no-op while JFR does not record it).
+     *
+     * @param calendarId Calendar the node worked on
+     * @param mode Variant of the node, e.g. the list mode (may be null)
+     * @param eventCount Number of events read or written
+     */
+    protected void traceExecution(String calendarId, String mode, int eventCount) {
+        CalendarFlightEvents.NodeExecution event = currentExecution;
+        if (event != null) {
+            event.calendarId = calendarId;
+            event.mode = mode;
+            event.eventCount = eventCount;
+        }
+    }
+
+
+    protected abstract Node executeOperation(WozInterface comm, InputCenter input, ExecutionLogger logger)
             throws NodeExecutionException;
 
 
+    /**
+     * Returns the runtime, or null if it is not available; executeOperation()
+     * then reports the problem itself.
+     */
+    private GoogleCalendarPluginRuntime findPluginRuntime(WozInterface comm) {
+        try {
+            return getPluginRuntime(comm);
+        } catch (NodeExecutionException e) {
+            return null;
+        }
+    }
+
+
+    /**
+     * Binds the current thread to the session account and this node, so the
+     * API requests of this execution are charged to them.
+     * The session is the dialog run (comm), or the graph without one.
+     */
+    private SessionQuota.Charge enterQuota(GoogleCalendarPluginRuntime runtime, WozInterface comm) {
+        SessionQuota quota = runtime != null ? runtime.getSessionQuota() : null;
+        if (quota == null) {
+            return null;
+        }
+        Object session = getSessionKey(comm);
+        Object title = getProperty(PROP_TITLE);
+        String name = title != null && !title.toString().isEmpty() ? title.toString() : getNodeMetrics().getName();
+        String nodeKey = name + "@" + Integer.toHexString(System.identityHashCode(this));
+        return quota.enter(quota.account(session), nodeKey, name);
+    }
+
+
+    /**
+     * Identifies the dialog session: DialogOS passes one WozInterface per run;
+     * without one (benchmarks, load tests) the node's graph stands in.
+     */
+    protected Object getSessionKey(WozInterface comm) {
+        return comm != null ? comm : getGraph();
+    }
+
+
+    /**
+     * Stores the session's quota usage in the configured variable, so it holds
+     * the totals of the run when the dialog ends. Problems with the variable
+     * are only logged: they must not change the outcome of the node.
+     */
+    private void writeQuotaUsage(GoogleCalendarPluginRuntime runtime, SessionQuota.Account account) {
+        String variable = runtime.getSettings().getQuotaVariable();
+        if (variable == null || variable.isEmpty()) {
+            return;
+        }
+        try {
+            setVariable(variable, account.toValue());
+        } catch (RuntimeException e) {
+            LOG.warn("Could not store quota usage in '{}': {}", variable, e.getMessage());
+        }
+    }
+
+
+    /**
+     * Metrics of this node type, keyed by the concrete node class
+     * (anonymous subclasses count for the node they extend).
+     */
+    private OperationMetrics getNodeMetrics() {
+        if (nodeMetrics == null) {
+            Class<?> type = getClass();
+            while (type.getSuperclass() != GoogleCalendarNode.class && type.getSuperclass() != null) {
+                type = type.getSuperclass();
+            }
+            nodeMetrics = CalendarMetrics.getInstance().node(type.getSimpleName());
+        }
+        return nodeMetrics;
+    }
+
+
 
     /**
      * Retrieves the shared PluginRuntime.
@@ -109,11 +306,41 @@ public abstract class GoogleCalendarNode extends Node {
     }
 
 
+    /**
+     * Fails fast for event IDs that cannot or no longer exist, before any request is made:
+     * ├─ Not in the event ID alphabet (letters, digits, '_', see EventConverter.isValidEventId)
+     * └─ Recently answered with 404/410 or deleted by this plugin (negative cache)
+     */
+    protected void checkEventId(GoogleCalendarPluginRuntime runtime, String calendarId, String eventId)
+            throws NodeExecutionException {
+        if (!EventConverter.isValidEventId(eventId)) {
+            CalendarMetrics.getInstance().counter(CalendarMetrics.INVALID_EVENT_IDS).increment();
+            throw new NodeExecutionException(this,
+                    "Event not found: '" + eventId + "' is not a valid event ID");
+        }
+        if (runtime.isKnownMissing(calendarId, eventId)) {
+            throw new NodeExecutionException(this,
+                    "Event not found: " + eventId + " (deleted or unknown)");
+        }
+    }
+
+
+    /**
+     * Remembers the event as missing if the API answered 404 Not Found or 410 Gone.
+     */
+    protected void rememberIfMissing(GoogleCalendarPluginRuntime runtime, String calendarId, String eventId,
+            HttpResponseException e) {
+        if (e.getStatusCode() == 404 || e.getStatusCode() == 410) {
+            runtime.rememberMissing(calendarId, eventId);
+        }
+    }
+
+
     @Override
     protected void writeAttributes(XMLWriter out, IdMap uid_map) {
         super.writeAttributes(out, uid_map);
-        // Base class has no additional properties to save
-        // Concrete nodes override and save their properties
+        // Common properties; concrete nodes override and save their own
+        Graph.printAtt(out, PROP_QUOTA_EDGE, String.valueOf(this.getProperty(PROP_QUOTA_EDGE)));
     }
     
     protected void writeAttributeIfNotEmpty(XMLWriter out, String name, String value) {
@@ -127,8 +354,10 @@ public abstract class GoogleCalendarNode extends Node {
     protected void readAttribute(XMLReader r, String name, String value, IdMap uid_map) 
             throws SAXException {
         super.readAttribute(r, name, value, uid_map);
-        // Base class has no additional properties to load
-        // Concrete nodes override and load their properties
+        // Common properties; concrete nodes override and load their own
+        if (PROP_QUOTA_EDGE.equals(name)) {
+            setProperty(PROP_QUOTA_EDGE, value);
+        }
     }
 
 
@@ -142,6 +371,21 @@ public abstract class GoogleCalendarNode extends Node {
     }
 
 
+    /**
+     * Editor row for the "quota" edge option, shared by all calendar nodes.
+     */
+    protected JPanel createQuotaEdgeRow(Map<String, Object> properties) {
+        properties.putIfAbsent(PROP_QUOTA_EDGE, this.getProperty(PROP_QUOTA_EDGE));
+        JPanel quotaRow = new JPanel();
+        quotaRow.add(new JLabel("Quota Edge:"));
+        JComboBox<String> quotaCombo = NodePropertiesDialog.createComboBox(
+            properties, PROP_QUOTA_EDGE, new String[] {"false", "true"});
+        quotaCombo.setToolTipText("true: Kante 'quota', wenn das API-Kontingent der Session erschöpft ist");
+        quotaRow.add(quotaCombo);
+        return quotaRow;
+    }
+
+
     public static Color getDefaultColor() {
         return new Color(100, 150, 200);  // Blue for Google Calendar
     }
@@ -154,11 +398,19 @@ public abstract class GoogleCalendarNode extends Node {
 
 
     protected void setStringVariable(String variableName, String value) 
+        throws NodeExecutionException {
+        setVariable(variableName, new com.clt.script.exp.values.StringValue(value));
+    }
+
+
+    /**
+     * Stores any DialogOS value (e.g. list or struct) in a graph variable.
+     */
+    protected void setVariable(String variableName, Value value) 
         throws NodeExecutionException {
         try {
-            Graph graph = this. getGraph();
-            Value stringValue = new com.clt.script.exp.values.StringValue(value);
-            graph.setSlotValue(variableName, stringValue);
+            Graph graph = this.getGraph();
+            graph.setSlotValue(variableName, value);
         } catch (Exception e) {
             throw new NodeExecutionException(this, 
                 "Fehler beim Setzen von '" + variableName + "':  " + e.getMessage(), e);
@@ -177,6 +429,8 @@ public abstract class GoogleCalendarNode extends Node {
         if (input == null || input.isEmpty()) {
             return input;
         }
+        CalendarFlightEvents.TemplateEvaluation event = new CalendarFlightEvents.TemplateEvaluation();
+        event.begin();
 
 
         // Pattern: ${variableName}
@@ -187,10 +441,12 @@ public abstract class GoogleCalendarNode extends Node {
 
         StringBuffer result = new StringBuffer();
         boolean found = false;
+        int references = 0;
 
 
         while (m.find()) {
             found = true;
+            references++;
             String variableName = m.group(1);  // e.g. "eventTitle" from "${eventTitle}"
 
 
@@ -232,7 +488,16 @@ public abstract class GoogleCalendarNode extends Node {
         m.appendTail(result);
         
         // If no variable found: input remains as is
-        return found ? result.toString() : input;
+        String evaluated = found ? result.toString() : input;
+        if (event.shouldCommit()) {
+            event.nodeType = getNodeMetrics().getName();
+            event.template = input;
+            event.references = references;
+            event.graphVariables = getGraph() != null ? getGraph().getVariables().size() : 0;
+            event.resultLength = evaluated.length();
+            event.commit();
+        }
+        return evaluated;
     }
 
 
@@ -331,6 +596,16 @@ public abstract class GoogleCalendarNode extends Node {
 
     // Helper method to get variable list
     protected String[] getListVariables() {
+        return getListVariables(false);
+    }
+
+
+    /**
+     * Returns the variable names for result combo boxes.
+     * 
+     * @param anyType also list non-String variables (for struct/list results)
+     */
+    protected String[] getListVariables(boolean anyType) {
         List<String> varNames = new ArrayList<>();
         varNames.add("eventId"); // Default
         
@@ -339,7 +614,7 @@ public abstract class GoogleCalendarNode extends Node {
         if (graph != null) {
             List<Slot> variables = graph.getVariables();
             for (Slot slot : variables) {
-                if (slot.getType() == Type.String) {
+                if (anyType || slot.getType() == Type.String) {
                     varNames.add(slot.getName());
                 }
             }
@@ -45,7 +45,9 @@ public class GoogleCalendarPlugin implements com.clt.dialogos.plugin.Plugin {
             Arrays.asList(CreateEventNode.class, 
                 UpdateEventNode.class, 
                 ListEventsNode.class, 
-                DeleteEventNode.class)
+                GetEventNode.class,
+                DeleteEventNode.class,
+                FreeBusyNode.class)
         );
     }
 
@@ -3,18 +3,39 @@ package app.dialogos.googlecalendar.plugin;
 
 import com.clt.dialogos.plugin.PluginRuntime;
 import com.google.auth.oauth2.GoogleCredentials;
+import com.google.api.client.googleapis.GoogleUtils;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.javanet.ConnectionFactory;
+import com.google.api.client.http.javanet.DefaultConnectionFactory;
+import com.google.api.client.http.javanet.NetHttpTransport;
 import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
 import com.google.api.services.calendar.Calendar;
 import com.google.api.services.calendar.CalendarScopes;
+import com.google.api.services.calendar.model.Event;
 
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.GeneralSecurityException;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 
 /**
@@ -24,16 +45,61 @@ import java.util.Collections;
  * Responsibilities:
  * - Authentication via Service Account
  * - Providing the Calendar Service for all Nodes
+ * - Local calendar mirrors and their background synchronization,
+ *   optionally kept fresh with adaptive intervals (MirrorSyncScheduler)
+ *   and/or push notifications (PushChannelReceiver), persisted across
+ *   restarts (MirrorSnapshotStore)
+ * - Fuzzy SEARCH over the mirrors (EventSearchIndex)
+ * - Optional record/replay of API exchanges (CassetteTransport)
+ * - Per API method metrics (MetricsRequestInitializer → CalendarMetrics),
+ *   optionally served to Prometheus (PrometheusExporter)
+ * - API request budgets per dialog session and node (SessionQuota)
+ * - Priority of dialog turns over background work for connection slots
+ *   and rate limit (RequestScheduler)
+ * - Read-your-writes: results of Create/Update/Delete are applied to the
+ *   mirror and caches at once and kept in a LocalWriteLog
+ * - Bounded caches with shared limits and statistics (WeightedCache),
+ *   among them single events by ID (EventCache, read by GetEventNode) and
+ *   the event IDs known to be missing (Update/Delete fail fast)
  * - Resource Management (connections, credentials)
  */
 public class GoogleCalendarPluginRuntime implements PluginRuntime {
 
 
+    private static final Logger LOG = LoggerFactory.getLogger(GoogleCalendarPluginRuntime.class);
+
     private final GoogleCalendarPluginSettings settings;
     private Calendar calendarService;
     private GoogleCredentials credentials;
+    private CassetteTransport cassette;
     private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
 
+    // Event IDs the API answered with 404/410, keyed "calendarId\neventId"
+    static final String CACHE_MISSING_EVENTS = "missingEvents";
+    private static final WeightedCache.Spec MISSING_EVENTS_DEFAULTS =
+            new WeightedCache.Spec(256 * 1024, TimeUnit.SECONDS.toMillis(30), 0);
+    private final Map<String, CalendarMirror> mirrors = new ConcurrentHashMap<>();
+    private final Map<String, EventSearchIndex> searchIndexes = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor backgroundExecutor = new ThreadPoolExecutor(1, 1,
+            0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+        Thread thread = new Thread(() -> {
+            RequestScheduler.markBackgroundThread();
+            r.run();
+        }, "GoogleCalendar-Background");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private PrometheusExporter metricsExporter;
+    private SessionQuota sessionQuota;
+    private RequestScheduler requestScheduler;
+    private MirrorSyncScheduler syncScheduler;
+    private PushChannelReceiver pushReceiver;
+    private MirrorSnapshotStore snapshotStore;
+    private final Map<String, WeightedCache<?, ?>> caches = new ConcurrentHashMap<>();
+    private Map<String, WeightedCache.Spec> cacheLimits = Collections.emptyMap();
+    private EventCache eventCache;
+    private final LocalWriteLog localWrites = new LocalWriteLog();
+
 
     public GoogleCalendarPluginRuntime(GoogleCalendarPluginSettings settings) {
         this.settings = settings;
@@ -50,23 +116,66 @@ public class GoogleCalendarPluginRuntime implements PluginRuntime {
     public void initialize() throws Exception {
         try {
             CalendarConfig config = settings.getCalendarConfig();
+            String cassetteMode = settings.getCassetteMode();
+            boolean replay = CassetteTransport.MODE_REPLAY.equals(cassetteMode);
             
-            validateConfiguration(config);
+            validateConfiguration(config, !replay);
+            this.sessionQuota = new SessionQuota(
+                    parseQuota(settings.getSessionQuota(), "Session Quota"),
+                    parseQuota(settings.getNodeQuota(), "Node Quota"));
+            this.cacheLimits = parseCacheLimits(settings.getCacheLimits());
+            this.eventCache = new EventCache(this);
             
-            // Load credentials from the Service Account file
-            this.credentials = GoogleCredentials.fromStream(
-                    new FileInputStream(config.getServiceAccountFile())
-            ).createScoped(Collections.singletonList(CalendarScopes.CALENDAR));
+            // Cassette and scheduler wrap the connections of the transport
+            ConnectionFactory connections = null;
+            HttpRequestInitializer initializer = null;
+            if (replay) {
+                // Answer everything from the cassette: no network, no credentials
+                connections = this.cassette = CassetteTransport.replay(cassetteFile());
+            } else {
+                // Load credentials from the Service Account file
+                this.credentials = GoogleCredentials.fromStream(
+                        new FileInputStream(config.getServiceAccountFile())
+                ).createScoped(Collections.singletonList(CalendarScopes.CALENDAR));
+                initializer = new HttpCredentialsAdapter(this.credentials);
+
+                if (CassetteTransport.MODE_RECORD.equals(cassetteMode)) {
+                    connections = this.cassette = CassetteTransport.record(
+                            new DefaultConnectionFactory(), cassetteFile());
+                }
+            }
+            this.requestScheduler = createRequestScheduler();
+            if (this.requestScheduler != null) {
+                connections = this.requestScheduler.wrap(
+                        connections != null ? connections : new DefaultConnectionFactory());
+            }
+            HttpTransport transport = connections == null
+                    ? GoogleNetHttpTransport.newTrustedTransport()
+                    : new NetHttpTransport.Builder()
+                            .trustCertificates(GoogleUtils.getCertificateTrustStore())
+                            .setConnectionFactory(connections)
+                            .build();
             
-            // Create the Calendar Service
-            this.calendarService = new Calendar.Builder(
-                    GoogleNetHttpTransport.newTrustedTransport(),
+            // Create the Calendar Service; every request is recorded in CalendarMetrics (JMX)
+            Calendar.Builder builder = new Calendar.Builder(
+                    transport,
                     JSON_FACTORY,
-                    new HttpCredentialsAdapter(this.credentials))
-            .setApplicationName(config.getApplicationName())
-            .build();
+                    new MetricsRequestInitializer(initializer, CalendarMetrics.getInstance()))
+            .setApplicationName(config.getApplicationName());
+            if (config.getRootUrl() != null && !config.getRootUrl().isEmpty()) {
+                // e.g. a StandInCalendarServer; the batch path is resolved against it as well
+                builder.setRootUrl(config.getRootUrl());
+            }
+            this.calendarService = builder.build();
+            if (MirrorSyncScheduler.MODE_ADAPTIVE.equals(settings.getMirrorSync())) {
+                this.syncScheduler = new MirrorSyncScheduler(this.calendarService, backgroundExecutor,
+                        MirrorSyncScheduler.DEFAULT_MIN_INTERVAL_MILLIS, MirrorSyncScheduler.DEFAULT_MAX_INTERVAL_MILLIS);
+            }
             
-            System.out.println("Google Calendar Plugin initialized successfully");
+            LOG.info("Google Calendar Plugin initialized successfully (root URL {})", builder.getRootUrl());
+            startMetricsExporter();
+            startPushReceiver();
+            restoreMirrors();
         } catch (IOException e) {
             throw new Exception("Failed to initialize Google Calendar API: " + e.getMessage(), e);
         } catch (GeneralSecurityException e) {
@@ -75,11 +184,152 @@ public class GoogleCalendarPluginRuntime implements PluginRuntime {
     }
 
 
+    /**
+     * Starts the Prometheus endpoint if a Metrics Port is configured. A port that
+     * cannot be bound only disables the endpoint; the plugin keeps working.
+     */
+    private void startMetricsExporter() {
+        String address = settings.getMetricsPort();
+        if (address == null || address.trim().isEmpty() || this.metricsExporter != null) {
+            return;
+        }
+        try {
+            this.metricsExporter = new PrometheusExporter(address.trim(), this, CalendarMetrics.getInstance()).start();
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.warn("Could not start Prometheus metrics endpoint on '{}': {}", address, e.getMessage());
+        }
+    }
+
+
+    /**
+     * Starts the push notification receiver if a Push Callback URL is configured.
+     * Like the metrics endpoint, a receiver that cannot start only disables push;
+     * mirrors are then synced on demand (or by the Mirror Sync scheduler).
+     */
+    private void startPushReceiver() {
+        String callbackUrl = settings.getPushCallbackUrl();
+        if (callbackUrl == null || callbackUrl.trim().isEmpty() || this.pushReceiver != null) {
+            return;
+        }
+        String receiver = settings.getPushReceiver();
+        if (receiver == null || receiver.trim().isEmpty()) {
+            LOG.warn("Push Callback URL is set but Push Receiver is not; push notifications disabled");
+            return;
+        }
+        try {
+            this.pushReceiver = new PushChannelReceiver(this.calendarService, backgroundExecutor,
+                    callbackUrl.trim(), receiver.trim()).start();
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.warn("Could not start push notification receiver on '{}': {}", receiver, e.getMessage());
+        }
+    }
+
+
+    /**
+     * Restores the mirror of the configured calendar saved by an earlier run if
+     * a Mirror Snapshot Directory is configured; it is usable at once and
+     * catches up with an incremental sync in the background. Snapshots of
+     * other calendars are deleted rather than revived, so a calendar that was
+     * configured once is not synced, watched and saved forever.
+     */
+    private void restoreMirrors() {
+        String directory = settings.getMirrorSnapshotDirectory();
+        if (directory == null || directory.trim().isEmpty() || this.snapshotStore != null) {
+            return;
+        }
+        try {
+            this.snapshotStore = new MirrorSnapshotStore(Paths.get(directory.trim()), backgroundExecutor);
+        } catch (IOException | InvalidPathException e) {
+            LOG.warn("Mirror snapshots disabled, directory '{}' not usable: {}", directory, e.getMessage());
+            return;
+        }
+        Collection<String> configured = Collections.singleton(settings.getCalendarConfig().getCalendarId());
+        for (CalendarMirror restored : snapshotStore.loadAll(configured)) {
+            CalendarMirror mirror = mirrors.computeIfAbsent(restored.getCalendarId(), id -> {
+                attachMirror(restored);
+                return restored;
+            });
+            mirror.syncInBackground(calendarService, backgroundExecutor);
+        }
+        snapshotStore.start(this::getCalendarMirrors);
+    }
+
+
+    private Path cassetteFile() {
+        String file = settings.getCassetteFile();
+        if (file == null || file.isEmpty()) {
+            throw new IllegalArgumentException("Cassette File is not set");
+        }
+        return Paths.get(file);
+    }
+
+
+    /**
+     * Creates the scheduler for the configured limits, or null if there are none.
+     */
+    private RequestScheduler createRequestScheduler() {
+        int maxConcurrent = (int) parseLimit(settings.getMaxConcurrentRequests(), "Max Concurrent Requests");
+        double rateLimit = parseLimit(settings.getRateLimit(), "Rate Limit");
+        if (maxConcurrent == 0 && rateLimit == 0) {
+            return null;
+        }
+        LOG.info("Scheduling Calendar API requests: max. {} concurrent, {} per second (0 = unlimited)",
+                maxConcurrent, rateLimit);
+        return new RequestScheduler(maxConcurrent, rateLimit, RequestScheduler.DEFAULT_BACKGROUND_SHARE);
+    }
+
+
+    private static double parseLimit(String value, String name) {
+        if (value == null || value.trim().isEmpty()) {
+            return 0;
+        }
+        try {
+            double limit = Double.parseDouble(value.trim());
+            if (limit < 0 || Double.isNaN(limit) || Double.isInfinite(limit)) {
+                throw new NumberFormatException();
+            }
+            return limit;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a positive number, was '" + value + "'");
+        }
+    }
+
+
+    /**
+     * Parses a budget setting; empty means unlimited.
+     */
+    private static long parseQuota(String value, String name) {
+        if (value == null || value.trim().isEmpty()) {
+            return SessionQuota.UNLIMITED;
+        }
+        try {
+            long quota = Long.parseLong(value.trim());
+            if (quota < 0) {
+                throw new NumberFormatException();
+            }
+            return quota;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " must be a number of requests, was '" + value + "'");
+        }
+    }
+
+
+    private static Map<String, WeightedCache.Spec> parseCacheLimits(String value) {
+        try {
+            return WeightedCache.Spec.parseAll(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cache Limits: " + e.getMessage());
+        }
+    }
+
+
     /**
      * Validates the configuration before initialization.
      */
-    private void validateConfiguration(CalendarConfig config) throws IllegalArgumentException {
-        if (config.getServiceAccountFile() == null || config.getServiceAccountFile().isEmpty()) {
+    private void validateConfiguration(CalendarConfig config, boolean needsCredentials)
+            throws IllegalArgumentException {
+        if (needsCredentials
+                && (config.getServiceAccountFile() == null || config.getServiceAccountFile().isEmpty())) {
             throw new IllegalArgumentException("Service Account File path is not set");
         }
         if (config.getCalendarId() == null || config.getCalendarId().isEmpty()) {
@@ -110,18 +360,335 @@ public class GoogleCalendarPluginRuntime implements PluginRuntime {
     }
 
 
+    /**
+     * Fast path for listings: executes an events.list request and reads the
+     * response stream directly into compact EventRecords, skipping the
+     * reflective Event model. The records are also stored in the EventCache,
+     * except for events with a more recent local write.
+     */
+    public EventRecordParser.Page listEventRecords(Calendar.Events.List request) throws IOException {
+        HttpResponse response = request.executeUnparsed();
+        CalendarFlightEvents.Serialization event = new CalendarFlightEvents.Serialization();
+        event.begin();
+        try {
+            EventRecordParser.Page page = EventRecordParser.parse(response.getContent(), response.getContentCharset());
+            String calendarId = request.getCalendarId();
+            for (EventRecord record : page.getRecords()) {
+                // A listing may lag behind a write of this plugin
+                if (!localWrites.supersedes(calendarId, record.getId(), record.getUpdated())) {
+                    eventCache.put(calendarId, record);
+                }
+            }
+            if (event.shouldCommit()) {
+                Long contentLength = response.getHeaders().getContentLength();
+                event.operation = CalendarFlightEvents.Serialization.PARSE_EVENT_RECORDS;
+                event.eventCount = page.getRecords().size();
+                event.bytes = contentLength != null ? contentLength : -1;
+                event.commit();
+            }
+            return page;
+        } finally {
+            response.disconnect();
+        }
+    }
+
+
+    /**
+     * Returns the local mirror of a calendar, creating an empty (unsynced) one on first use.
+     * With adaptive mirror sync or push notifications the new mirror is kept fresh from then on.
+     */
+    public CalendarMirror getCalendarMirror(String calendarId) {
+        return mirrors.computeIfAbsent(calendarId, id -> {
+            CalendarMirror mirror = new CalendarMirror(id);
+            attachMirror(mirror);
+            return mirror;
+        });
+    }
+
+
+    /**
+     * Keeps a new mirror fresh (adaptive sync, push) and feeds the events it
+     * applies into the caches.
+     */
+    private void attachMirror(CalendarMirror mirror) {
+        mirror.addChangeListener(this::eventApplied);
+        mirror.setLocalWrites(localWrites);
+        if (syncScheduler != null) {
+            syncScheduler.track(mirror);
+        }
+        if (pushReceiver != null) {
+            pushReceiver.watch(mirror);
+        }
+    }
+
+
+    private void eventApplied(String calendarId, Event event) {
+        eventCache.eventApplied(calendarId, event);
+        // Local writes and sync changes bring an event (back) into existence
+        if (!CalendarMirror.STATUS_CANCELLED.equals(event.getStatus())) {
+            forgetMissing(calendarId, event.getId());
+        }
+    }
+
+
+    /**
+     * Applies the event returned by an insert, update or patch request to the
+     * mirror (if there is one) and all caches, and records it for the session.
+     *
+     * @param sessionKey the dialog session that wrote (see GoogleCalendarNode.getSessionKey)
+     * @return the version of the write, now the session stamp
+     */
+    public long applyLocalWrite(Object sessionKey, String calendarId, Event written) {
+        long version = localWrites.recordWrite(sessionKey, calendarId, written);
+        applyLocally(calendarId, written, version);
+        noteLocalWrite(calendarId);
+        return version;
+    }
+
+
+    /**
+     * Applies a deletion to the mirror (if there is one) and all caches, and
+     * records it for the session.
+     *
+     * @return the version of the write, now the session stamp
+     */
+    public long applyLocalDelete(Object sessionKey, String calendarId, String eventId) {
+        long version = localWrites.recordDelete(sessionKey, calendarId, eventId);
+        applyLocally(calendarId, new Event().setId(eventId).setStatus(CalendarMirror.STATUS_CANCELLED), version);
+        // A second delete of the same event fails without a request
+        rememberMissing(calendarId, eventId);
+        noteLocalWrite(calendarId);
+        return version;
+    }
+
+
+    private void applyLocally(String calendarId, Event event, long version) {
+        CalendarMirror mirror = mirrors.get(calendarId);
+        if (mirror != null) {
+            // Passes the event on to eventApplied()
+            mirror.applyWrite(event, version);
+        } else {
+            eventApplied(calendarId, event);
+        }
+    }
+
+
+    /**
+     * Returns the recent local writes, for read-your-writes in listings.
+     */
+    public LocalWriteLog getLocalWrites() {
+        return localWrites;
+    }
+
+
+    /**
+     * Nodes report that a dialog is working with the calendar, so its mirror
+     * (if there is one) is synced more often for a while.
+     */
+    public void noteCalendarActivity(String calendarId) {
+        if (syncScheduler != null) {
+            syncScheduler.noteActivity(calendarId);
+        }
+    }
+
+
+    /**
+     * Nodes report a write to the calendar; its mirror is synced again soon.
+     */
+    public void noteLocalWrite(String calendarId) {
+        if (syncScheduler != null) {
+            syncScheduler.noteLocalWrite(calendarId);
+        }
+    }
+
+
+    /**
+     * Returns the adaptive sync scheduler, or null if Mirror Sync is off.
+     */
+    public MirrorSyncScheduler getSyncScheduler() {
+        return syncScheduler;
+    }
+
+
+    /**
+     * Returns the push notification receiver, or null if push notifications are off.
+     */
+    public PushChannelReceiver getPushReceiver() {
+        return pushReceiver;
+    }
+
+
+    /**
+     * Returns the mirror of a calendar if one was created, without creating it.
+     */
+    public CalendarMirror findCalendarMirror(String calendarId) {
+        return mirrors.get(calendarId);
+    }
+
+
+    /**
+     * Returns the search index over the calendar's mirror, creating it (and the
+     * mirror) on first use; it is built from the mirror by its first search.
+     */
+    public EventSearchIndex getSearchIndex(String calendarId) {
+        return searchIndexes.computeIfAbsent(calendarId, id -> {
+            CalendarMirror mirror = getCalendarMirror(id);
+            EventSearchIndex index = new EventSearchIndex(mirror);
+            mirror.addChangeListener(index);
+            return index;
+        });
+    }
+
+
+    /**
+     * Returns all mirrors created so far.
+     */
+    public Collection<CalendarMirror> getCalendarMirrors() {
+        return Collections.unmodifiableCollection(mirrors.values());
+    }
+
+
+    /**
+     * Returns the cache with the given name, creating it on first use with the
+     * limits of the Cache Limits setting or, if it names none, the defaults.
+     * Refresh-ahead loads run on the background executor.
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> WeightedCache<K, V> getCache(String name, WeightedCache.Spec defaults,
+            WeightedCache.Weigher<K, V> weigher) {
+        return (WeightedCache<K, V>) caches.computeIfAbsent(name, n -> {
+            WeightedCache.Spec spec = cacheLimits.getOrDefault(n, defaults);
+            LOG.debug("Creating cache {} ({})", n, spec);
+            return new WeightedCache<>(n, spec, weigher, backgroundExecutor);
+        });
+    }
+
+
+    /**
+     * Returns all caches created so far.
+     */
+    public Collection<WeightedCache<?, ?>> getCaches() {
+        return Collections.unmodifiableCollection(caches.values());
+    }
+
+
+    /**
+     * Returns the cache of single events read by GetEventNode.
+     */
+    public EventCache getEventCache() {
+        return eventCache;
+    }
+
+
+    /**
+     * Returns true if the API recently reported the event as deleted or unknown.
+     */
+    public boolean isKnownMissing(String calendarId, String eventId) {
+        return missingEvents().getIfPresent(calendarId + "\n" + eventId) != null;
+    }
+
+
+    /**
+     * Remembers that the event does not exist (404/410 or deleted by this plugin).
+     */
+    public void rememberMissing(String calendarId, String eventId) {
+        missingEvents().put(calendarId + "\n" + eventId, Boolean.TRUE);
+    }
+
+
+    /**
+     * Forgets a missing event again, e.g. because a sync brought it back.
+     */
+    public void forgetMissing(String calendarId, String eventId) {
+        missingEvents().invalidate(calendarId + "\n" + eventId);
+    }
+
+
+    private WeightedCache<String, Boolean> missingEvents() {
+        return getCache(CACHE_MISSING_EVENTS, MISSING_EVENTS_DEFAULTS,
+                (key, value) -> 48 + 2 * key.length());
+    }
+
+
+    /**
+     * Returns the API request accounting of the dialog sessions using this runtime.
+     */
+    public SessionQuota getSessionQuota() {
+        return sessionQuota;
+    }
+
+
+    /**
+     * Returns the scheduler of the API requests, or null if no limits are configured.
+     */
+    public RequestScheduler getRequestScheduler() {
+        return requestScheduler;
+    }
+
+
+    /**
+     * Executor for background work (mirror syncs) so nodes never wait for it.
+     * Its requests use the background lane of the RequestScheduler.
+     */
+    public ExecutorService getBackgroundExecutor() {
+        return backgroundExecutor;
+    }
+
+
+    /**
+     * Returns the number of background tasks waiting to run.
+     */
+    public int getBackgroundQueueDepth() {
+        return backgroundExecutor.getQueue().size();
+    }
+
+
     @Override
     public void dispose() {
         try {
+            if (this.syncScheduler != null) {
+                this.syncScheduler.close();
+                this.syncScheduler = null;
+            }
+            if (this.pushReceiver != null) {
+                // Stops the channels, so Google stops sending
+                this.pushReceiver.close();
+                this.pushReceiver = null;
+            }
+            if (this.snapshotStore != null) {
+                // Saves the mirrors changed since the last periodic save
+                this.snapshotStore.close();
+                this.snapshotStore = null;
+            }
+            backgroundExecutor.shutdownNow();
+            if (this.metricsExporter != null) {
+                this.metricsExporter.close();
+                this.metricsExporter = null;
+            }
+            mirrors.clear();
+            for (WeightedCache<?, ?> cache : caches.values()) {
+                LOG.info("Cache {}", cache);
+                cache.invalidateAll();
+            }
+            caches.clear();
+            if (this.sessionQuota != null) {
+                for (SessionQuota.Account account : this.sessionQuota.getAccounts()) {
+                    LOG.info("Session API usage: {}", account);
+                }
+            }
             if (this.calendarService != null) {
                 this.calendarService = null;
             }
             if (this.credentials != null) {
                 this.credentials = null;
             }
-            System.out.println("Google Calendar Plugin shut down");
+            if (this.cassette != null) {
+                this.cassette.close();
+                this.cassette = null;
+            }
+            LOG.info("Google Calendar Plugin shut down");
         } catch (Exception e) {
-            System.err.println("Error during shutdown: " + e.getMessage());
+            LOG.error("Error during shutdown", e);
         }
     }
 
@@ -15,7 +15,10 @@ import org.xml.sax.SAXException;
 
 import java.awt.*;
 import java.io.File;
+import java.util.function.Consumer;
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 
@@ -24,7 +27,10 @@ import javax.swing.filechooser.FileNameExtensionFilter;
  * This class stores the shared configuration values that apply across all nodes.
  * 
  * Structure:
- * - Global Settings (PluginSettings): serviceAccountFile, calendarId, applicationName
+ * - Global Settings (PluginSettings): serviceAccountFile, calendarId, applicationName, rootUrl,
+ *   cassetteMode, cassetteFile, metricsPort, sessionQuota, nodeQuota, quotaVariable,
+ *   maxConcurrentRequests, rateLimit, mirrorSync, pushCallbackUrl, pushReceiver,
+ *   mirrorSnapshotDirectory, cacheLimits
  * - Per-Node Settings: managed in individual node classes
  */
 public class GoogleCalendarPluginSettings extends PluginSettings {
@@ -72,6 +78,217 @@ public class GoogleCalendarPluginSettings extends PluginSettings {
             return "Name of the application using this calendar";
         }
     };
+
+
+    static final String DEFAULT_ROOT_URL = "";
+    StringProperty rootUrlProperty = new DefaultStringProperty(
+            "ROOT_URL", null, null,
+            DEFAULT_ROOT_URL) {
+        @Override
+        public String getName() {
+            return "Root URL";
+        }
+        @Override
+        public String getDescription() {
+            return "Calendar API root URL (empty = Google), e.g. http://127.0.0.1:8089/ for a local StandInCalendarServer";
+        }
+    };
+
+
+    static final String DEFAULT_CASSETTE_MODE = CassetteTransport.MODE_OFF;
+    StringProperty cassetteModeProperty = new DefaultStringProperty(
+            "CASSETTE_MODE", null, null,
+            DEFAULT_CASSETTE_MODE) {
+        @Override
+        public String getName() {
+            return "HTTP Cassette";
+        }
+        @Override
+        public String getDescription() {
+            return "off, record (save API responses to the cassette file) or replay (answer from it, no network)";
+        }
+    };
+
+
+    static final String DEFAULT_METRICS_PORT = "";
+    StringProperty metricsPortProperty = new DefaultStringProperty(
+            "METRICS_PORT", null, null,
+            DEFAULT_METRICS_PORT) {
+        @Override
+        public String getName() {
+            return "Metrics Port";
+        }
+        @Override
+        public String getDescription() {
+            return "Port of the Prometheus /metrics endpoint on localhost, or host:port (e.g. 0.0.0.0:9464) "
+                    + "to serve other interfaces without authentication; empty = off";
+        }
+    };
+
+
+    static final String DEFAULT_SESSION_QUOTA = "";
+    StringProperty sessionQuotaProperty = new DefaultStringProperty(
+            "SESSION_QUOTA", null, null,
+            DEFAULT_SESSION_QUOTA) {
+        @Override
+        public String getName() {
+            return "Session Quota";
+        }
+        @Override
+        public String getDescription() {
+            return "Max. Calendar API requests per dialog session; empty = unlimited";
+        }
+    };
+
+
+    static final String DEFAULT_NODE_QUOTA = "";
+    StringProperty nodeQuotaProperty = new DefaultStringProperty(
+            "NODE_QUOTA", null, null,
+            DEFAULT_NODE_QUOTA) {
+        @Override
+        public String getName() {
+            return "Node Quota";
+        }
+        @Override
+        public String getDescription() {
+            return "Max. Calendar API requests per node within a dialog session; empty = unlimited";
+        }
+    };
+
+
+    static final String DEFAULT_QUOTA_VARIABLE = "";
+    StringProperty quotaVariableProperty = new DefaultStringProperty(
+            "QUOTA_VARIABLE", null, null,
+            DEFAULT_QUOTA_VARIABLE) {
+        @Override
+        public String getName() {
+            return "Quota Usage Variable";
+        }
+        @Override
+        public String getDescription() {
+            return "Variable that receives the session's API usage (struct) after each calendar node; empty = none";
+        }
+    };
+
+
+    static final String DEFAULT_MAX_CONCURRENT_REQUESTS = "";
+    StringProperty maxConcurrentRequestsProperty = new DefaultStringProperty(
+            "MAX_CONCURRENT_REQUESTS", null, null,
+            DEFAULT_MAX_CONCURRENT_REQUESTS) {
+        @Override
+        public String getName() {
+            return "Max Concurrent Requests";
+        }
+        @Override
+        public String getDescription() {
+            return "Max. Calendar API requests in flight; dialog turns go before background syncs. Empty = unlimited";
+        }
+    };
+
+
+    static final String DEFAULT_RATE_LIMIT = "";
+    StringProperty rateLimitProperty = new DefaultStringProperty(
+            "RATE_LIMIT", null, null,
+            DEFAULT_RATE_LIMIT) {
+        @Override
+        public String getName() {
+            return "Rate Limit";
+        }
+        @Override
+        public String getDescription() {
+            return "Max. Calendar API requests per second; dialog turns go before background syncs. Empty = unlimited";
+        }
+    };
+
+
+    static final String DEFAULT_MIRROR_SYNC = MirrorSyncScheduler.MODE_OFF;
+    StringProperty mirrorSyncProperty = new DefaultStringProperty(
+            "MIRROR_SYNC", null, null,
+            DEFAULT_MIRROR_SYNC) {
+        @Override
+        public String getName() {
+            return "Mirror Sync";
+        }
+        @Override
+        public String getDescription() {
+            return "off (mirrors sync on demand) or adaptive (background syncs, interval follows the calendar's change rate)";
+        }
+    };
+
+
+    static final String DEFAULT_PUSH_CALLBACK_URL = "";
+    StringProperty pushCallbackUrlProperty = new DefaultStringProperty(
+            "PUSH_CALLBACK_URL", null, null,
+            DEFAULT_PUSH_CALLBACK_URL) {
+        @Override
+        public String getName() {
+            return "Push Callback URL";
+        }
+        @Override
+        public String getDescription() {
+            return "Public HTTPS URL Google sends change notifications to (watch channels); empty = no push notifications";
+        }
+    };
+
+
+    static final String DEFAULT_PUSH_RECEIVER = "";
+    StringProperty pushReceiverProperty = new DefaultStringProperty(
+            "PUSH_RECEIVER", null, null,
+            DEFAULT_PUSH_RECEIVER) {
+        @Override
+        public String getName() {
+            return "Push Receiver";
+        }
+        @Override
+        public String getDescription() {
+            return "Local address of the notification receiver: port or host:port, https:// prefix for TLS";
+        }
+    };
+
+
+    static final String DEFAULT_MIRROR_SNAPSHOT_DIRECTORY = "";
+    StringProperty mirrorSnapshotDirectoryProperty = new DefaultStringProperty(
+            "MIRROR_SNAPSHOT_DIRECTORY", null, null,
+            DEFAULT_MIRROR_SNAPSHOT_DIRECTORY) {
+        @Override
+        public String getName() {
+            return "Mirror Snapshot Directory";
+        }
+        @Override
+        public String getDescription() {
+            return "Directory where calendar mirrors are saved for a fast restart; empty = not saved";
+        }
+    };
+
+
+    static final String DEFAULT_CACHE_LIMITS = "";
+    StringProperty cacheLimitsProperty = new DefaultStringProperty(
+            "CACHE_LIMITS", null, null,
+            DEFAULT_CACHE_LIMITS) {
+        @Override
+        public String getName() {
+            return "Cache Limits";
+        }
+        @Override
+        public String getDescription() {
+            return "Limits of the plugin caches: name=size[/expiry[/refresh]], ... (e.g. events=16MB/10m/8m); empty = defaults";
+        }
+    };
+
+
+    static final String DEFAULT_CASSETTE_FILE = "";
+    StringProperty cassetteFileProperty = new DefaultStringProperty(
+            "CASSETTE_FILE", null, null,
+            DEFAULT_CASSETTE_FILE) {
+        @Override
+        public String getName() {
+            return "Cassette File";
+        }
+        @Override
+        public String getDescription() {
+            return "Path of the record/replay cassette file";
+        }
+    };
     
     /**
      * Returns the global calendar configuration.
@@ -81,7 +298,8 @@ public class GoogleCalendarPluginSettings extends PluginSettings {
         return new CalendarConfig(
                 serviceAccountFileProperty.getValue(),
                 calendarIdProperty.getValue(),
-                applicationNameProperty.getValue()
+                applicationNameProperty.getValue(),
+                rootUrlProperty.getValue()
         );
     }
 
@@ -101,6 +319,76 @@ public class GoogleCalendarPluginSettings extends PluginSettings {
     }
 
 
+    public String getRootUrl() {
+        return rootUrlProperty.getValue();
+    }
+
+
+    public String getCassetteMode() {
+        return cassetteModeProperty.getValue();
+    }
+
+
+    public String getCassetteFile() {
+        return cassetteFileProperty.getValue();
+    }
+
+
+    public String getMetricsPort() {
+        return metricsPortProperty.getValue();
+    }
+
+
+    public String getSessionQuota() {
+        return sessionQuotaProperty.getValue();
+    }
+
+
+    public String getNodeQuota() {
+        return nodeQuotaProperty.getValue();
+    }
+
+
+    public String getQuotaVariable() {
+        return quotaVariableProperty.getValue();
+    }
+
+
+    public String getMaxConcurrentRequests() {
+        return maxConcurrentRequestsProperty.getValue();
+    }
+
+
+    public String getRateLimit() {
+        return rateLimitProperty.getValue();
+    }
+
+
+    public String getMirrorSync() {
+        return mirrorSyncProperty.getValue();
+    }
+
+
+    public String getPushCallbackUrl() {
+        return pushCallbackUrlProperty.getValue();
+    }
+
+
+    public String getPushReceiver() {
+        return pushReceiverProperty.getValue();
+    }
+
+
+    public String getMirrorSnapshotDirectory() {
+        return mirrorSnapshotDirectoryProperty.getValue();
+    }
+
+
+    public String getCacheLimits() {
+        return cacheLimitsProperty.getValue();
+    }
+
+
     // Setters for external configuration
     public void setServiceAccountFile(String path) {
         this.serviceAccountFileProperty.setValue(path);
@@ -117,6 +405,76 @@ public class GoogleCalendarPluginSettings extends PluginSettings {
     }
 
 
+    public void setRootUrl(String rootUrl) {
+        this.rootUrlProperty.setValue(rootUrl);
+    }
+
+
+    public void setCassetteMode(String mode) {
+        this.cassetteModeProperty.setValue(mode);
+    }
+
+
+    public void setCassetteFile(String path) {
+        this.cassetteFileProperty.setValue(path);
+    }
+
+
+    public void setMetricsPort(String port) {
+        this.metricsPortProperty.setValue(port);
+    }
+
+
+    public void setSessionQuota(String requests) {
+        this.sessionQuotaProperty.setValue(requests);
+    }
+
+
+    public void setNodeQuota(String requests) {
+        this.nodeQuotaProperty.setValue(requests);
+    }
+
+
+    public void setQuotaVariable(String variable) {
+        this.quotaVariableProperty.setValue(variable);
+    }
+
+
+    public void setMaxConcurrentRequests(String requests) {
+        this.maxConcurrentRequestsProperty.setValue(requests);
+    }
+
+
+    public void setRateLimit(String requestsPerSecond) {
+        this.rateLimitProperty.setValue(requestsPerSecond);
+    }
+
+
+    public void setMirrorSync(String mode) {
+        this.mirrorSyncProperty.setValue(mode);
+    }
+
+
+    public void setPushCallbackUrl(String url) {
+        this.pushCallbackUrlProperty.setValue(url);
+    }
+
+
+    public void setPushReceiver(String address) {
+        this.pushReceiverProperty.setValue(address);
+    }
+
+
+    public void setMirrorSnapshotDirectory(String directory) {
+        this.mirrorSnapshotDirectoryProperty.setValue(directory);
+    }
+
+
+    public void setCacheLimits(String limits) {
+        this.cacheLimitsProperty.setValue(limits);
+    }
+
+
     @Override
     public void writeAttributes(XMLWriter xmlWriter, IdMap idMap) {
         if (!serviceAccountFileProperty.getValue().equals(DEFAULT_SERVICE_ACCOUNT_FILE))
@@ -125,6 +483,34 @@ public class GoogleCalendarPluginSettings extends PluginSettings {
             Graph.printAtt(xmlWriter, calendarIdProperty.getID(), calendarIdProperty.getValue());
         if (!applicationNameProperty.getValue().equals(DEFAULT_APPLICATION_NAME))
             Graph.printAtt(xmlWriter, applicationNameProperty.getID(), applicationNameProperty.getValue());
+        if (!rootUrlProperty.getValue().equals(DEFAULT_ROOT_URL))
+            Graph.printAtt(xmlWriter, rootUrlProperty.getID(), rootUrlProperty.getValue());
+        if (!cassetteModeProperty.getValue().equals(DEFAULT_CASSETTE_MODE))
+            Graph.printAtt(xmlWriter, cassetteModeProperty.getID(), cassetteModeProperty.getValue());
+        if (!cassetteFileProperty.getValue().equals(DEFAULT_CASSETTE_FILE))
+            Graph.printAtt(xmlWriter, cassetteFileProperty.getID(), cassetteFileProperty.getValue());
+        if (!metricsPortProperty.getValue().equals(DEFAULT_METRICS_PORT))
+            Graph.printAtt(xmlWriter, metricsPortProperty.getID(), metricsPortProperty.getValue());
+        if (!sessionQuotaProperty.getValue().equals(DEFAULT_SESSION_QUOTA))
+            Graph.printAtt(xmlWriter, sessionQuotaProperty.getID(), sessionQuotaProperty.getValue());
+        if (!nodeQuotaProperty.getValue().equals(DEFAULT_NODE_QUOTA))
+            Graph.printAtt(xmlWriter, nodeQuotaProperty.getID(), nodeQuotaProperty.getValue());
+        if (!quotaVariableProperty.getValue().equals(DEFAULT_QUOTA_VARIABLE))
+            Graph.printAtt(xmlWriter, quotaVariableProperty.getID(), quotaVariableProperty.getValue());
+        if (!maxConcurrentRequestsProperty.getValue().equals(DEFAULT_MAX_CONCURRENT_REQUESTS))
+            Graph.printAtt(xmlWriter, maxConcurrentRequestsProperty.getID(), maxConcurrentRequestsProperty.getValue());
+        if (!rateLimitProperty.getValue().equals(DEFAULT_RATE_LIMIT))
+            Graph.printAtt(xmlWriter, rateLimitProperty.getID(), rateLimitProperty.getValue());
+        if (!mirrorSyncProperty.getValue().equals(DEFAULT_MIRROR_SYNC))
+            Graph.printAtt(xmlWriter, mirrorSyncProperty.getID(), mirrorSyncProperty.getValue());
+        if (!pushCallbackUrlProperty.getValue().equals(DEFAULT_PUSH_CALLBACK_URL))
+            Graph.printAtt(xmlWriter, pushCallbackUrlProperty.getID(), pushCallbackUrlProperty.getValue());
+        if (!pushReceiverProperty.getValue().equals(DEFAULT_PUSH_RECEIVER))
+            Graph.printAtt(xmlWriter, pushReceiverProperty.getID(), pushReceiverProperty.getValue());
+        if (!mirrorSnapshotDirectoryProperty.getValue().equals(DEFAULT_MIRROR_SNAPSHOT_DIRECTORY))
+            Graph.printAtt(xmlWriter, mirrorSnapshotDirectoryProperty.getID(), mirrorSnapshotDirectoryProperty.getValue());
+        if (!cacheLimitsProperty.getValue().equals(DEFAULT_CACHE_LIMITS))
+            Graph.printAtt(xmlWriter, cacheLimitsProperty.getID(), cacheLimitsProperty.getValue());
     }
 
 
@@ -136,6 +522,34 @@ public class GoogleCalendarPluginSettings extends PluginSettings {
             calendarIdProperty.setValue(value);
         } else if (name.equals(applicationNameProperty.getID())) {
             applicationNameProperty.setValue(value);
+        } else if (name.equals(rootUrlProperty.getID())) {
+            rootUrlProperty.setValue(value);
+        } else if (name.equals(cassetteModeProperty.getID())) {
+            cassetteModeProperty.setValue(value);
+        } else if (name.equals(cassetteFileProperty.getID())) {
+            cassetteFileProperty.setValue(value);
+        } else if (name.equals(metricsPortProperty.getID())) {
+            metricsPortProperty.setValue(value);
+        } else if (name.equals(sessionQuotaProperty.getID())) {
+            sessionQuotaProperty.setValue(value);
+        } else if (name.equals(nodeQuotaProperty.getID())) {
+            nodeQuotaProperty.setValue(value);
+        } else if (name.equals(quotaVariableProperty.getID())) {
+            quotaVariableProperty.setValue(value);
+        } else if (name.equals(maxConcurrentRequestsProperty.getID())) {
+            maxConcurrentRequestsProperty.setValue(value);
+        } else if (name.equals(rateLimitProperty.getID())) {
+            rateLimitProperty.setValue(value);
+        } else if (name.equals(mirrorSyncProperty.getID())) {
+            mirrorSyncProperty.setValue(value);
+        } else if (name.equals(pushCallbackUrlProperty.getID())) {
+            pushCallbackUrlProperty.setValue(value);
+        } else if (name.equals(pushReceiverProperty.getID())) {
+            pushReceiverProperty.setValue(value);
+        } else if (name.equals(mirrorSnapshotDirectoryProperty.getID())) {
+            mirrorSnapshotDirectoryProperty.setValue(value);
+        } else if (name.equals(cacheLimitsProperty.getID())) {
+            cacheLimitsProperty.setValue(value);
         }
     }
 
@@ -201,14 +615,7 @@ public class GoogleCalendarPluginSettings extends PluginSettings {
         gbc.gridx = 1;
         gbc.weightx = 1.0;
         JTextField calendarIdField = new JTextField(getCalendarId(), 30);
-        calendarIdField.setDocument(new javax.swing.text.PlainDocument() {
-            @Override
-            public void insertString(int offset, String str, javax.swing.text.AttributeSet attr) 
-                    throws javax.swing.text.BadLocationException {
-                super.insertString(offset, str, attr);
-                setCalendarId(getText(0, getLength()));
-            }
-        });
+        bindText(calendarIdField, this::setCalendarId);
         settingsPanel.add(calendarIdField, gbc);
 
 
@@ -222,17 +629,216 @@ public class GoogleCalendarPluginSettings extends PluginSettings {
         gbc.gridx = 1;
         gbc.weightx = 1.0;
         JTextField appNameField = new JTextField(getApplicationName(), 30);
-        appNameField.setDocument(new javax.swing.text.PlainDocument() {
-            @Override
-            public void insertString(int offset, String str, javax.swing.text.AttributeSet attr) 
-                    throws javax.swing.text.BadLocationException {
-                super.insertString(offset, str, attr);
-                setApplicationName(getText(0, getLength()));
-            }
-        });
+        bindText(appNameField, this::setApplicationName);
         settingsPanel.add(appNameField, gbc);
 
 
+        // Root URL (optional, for a local stand-in server)
+        gbc.gridx = 0;
+        gbc.gridy = 3;
+        gbc.weightx = 0;
+        settingsPanel.add(new JLabel("Root URL:"), gbc);
+
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        JTextField rootUrlField = new JTextField(getRootUrl(), 30);
+        rootUrlField.setToolTipText(rootUrlProperty.getDescription());
+        bindText(rootUrlField, this::setRootUrl);
+        settingsPanel.add(rootUrlField, gbc);
+
+
+        // HTTP cassette (record/replay of API responses)
+        gbc.gridx = 0;
+        gbc.gridy = 4;
+        gbc.weightx = 0;
+        settingsPanel.add(new JLabel("HTTP Cassette:"), gbc);
+
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        JPanel cassettePanel = new JPanel(new BorderLayout());
+        JComboBox<String> cassetteModeBox = new JComboBox<>(new String[] {
+            CassetteTransport.MODE_OFF, CassetteTransport.MODE_RECORD, CassetteTransport.MODE_REPLAY});
+        cassetteModeBox.setSelectedItem(getCassetteMode());
+        cassetteModeBox.setToolTipText(cassetteModeProperty.getDescription());
+        cassetteModeBox.addActionListener(e -> setCassetteMode((String) cassetteModeBox.getSelectedItem()));
+        cassettePanel.add(cassetteModeBox, BorderLayout.WEST);
+
+        JTextField cassetteFileField = new JTextField(getCassetteFile(), 24);
+        cassetteFileField.setToolTipText(cassetteFileProperty.getDescription());
+        bindText(cassetteFileField, this::setCassetteFile);
+        cassettePanel.add(cassetteFileField, BorderLayout.CENTER);
+        settingsPanel.add(cassettePanel, gbc);
+
+
+        // Prometheus metrics endpoint (optional)
+        gbc.gridx = 0;
+        gbc.gridy = 5;
+        gbc.weightx = 0;
+        settingsPanel.add(new JLabel("Metrics Port:"), gbc);
+
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        JTextField metricsPortField = new JTextField(getMetricsPort(), 30);
+        metricsPortField.setToolTipText(metricsPortProperty.getDescription());
+        bindText(metricsPortField, this::setMetricsPort);
+        settingsPanel.add(metricsPortField, gbc);
+
+
+        // API request budget per dialog session (optional)
+        gbc.gridx = 0;
+        gbc.gridy = 6;
+        gbc.weightx = 0;
+        settingsPanel.add(new JLabel("Session Quota:"), gbc);
+
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        JTextField sessionQuotaField = new JTextField(getSessionQuota(), 30);
+        sessionQuotaField.setToolTipText(sessionQuotaProperty.getDescription());
+        bindText(sessionQuotaField, this::setSessionQuota);
+        settingsPanel.add(sessionQuotaField, gbc);
+
+
+        // API request budget per node and session (optional)
+        gbc.gridx = 0;
+        gbc.gridy = 7;
+        gbc.weightx = 0;
+        settingsPanel.add(new JLabel("Node Quota:"), gbc);
+
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        JTextField nodeQuotaField = new JTextField(getNodeQuota(), 30);
+        nodeQuotaField.setToolTipText(nodeQuotaProperty.getDescription());
+        bindText(nodeQuotaField, this::setNodeQuota);
+        settingsPanel.add(nodeQuotaField, gbc);
+
+
+        // Variable for the session's quota usage (optional)
+        gbc.gridx = 0;
+        gbc.gridy = 8;
+        gbc.weightx = 0;
+        settingsPanel.add(new JLabel("Quota Usage Variable:"), gbc);
+
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        JTextField quotaVariableField = new JTextField(getQuotaVariable(), 30);
+        quotaVariableField.setToolTipText(quotaVariableProperty.getDescription());
+        bindText(quotaVariableField, this::setQuotaVariable);
+        settingsPanel.add(quotaVariableField, gbc);
+
+
+        // Request scheduling: concurrency limit (optional)
+        gbc.gridx = 0;
+        gbc.gridy = 9;
+        gbc.weightx = 0;
+        settingsPanel.add(new JLabel("Max Concurrent Requests:"), gbc);
+
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        JTextField maxConcurrentField = new JTextField(getMaxConcurrentRequests(), 30);
+        maxConcurrentField.setToolTipText(maxConcurrentRequestsProperty.getDescription());
+        bindText(maxConcurrentField, this::setMaxConcurrentRequests);
+        settingsPanel.add(maxConcurrentField, gbc);
+
+
+        // Request scheduling: rate limit (optional)
+        gbc.gridx = 0;
+        gbc.gridy = 10;
+        gbc.weightx = 0;
+        settingsPanel.add(new JLabel("Rate Limit (requests/s):"), gbc);
+
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        JTextField rateLimitField = new JTextField(getRateLimit(), 30);
+        rateLimitField.setToolTipText(rateLimitProperty.getDescription());
+        bindText(rateLimitField, this::setRateLimit);
+        settingsPanel.add(rateLimitField, gbc);
+
+
+        // Background sync of the calendar mirrors
+        gbc.gridx = 0;
+        gbc.gridy = 11;
+        gbc.weightx = 0;
+        settingsPanel.add(new JLabel("Mirror Sync:"), gbc);
+
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        JComboBox<String> mirrorSyncBox = new JComboBox<>(new String[] {
+            MirrorSyncScheduler.MODE_OFF, MirrorSyncScheduler.MODE_ADAPTIVE});
+        mirrorSyncBox.setSelectedItem(getMirrorSync());
+        mirrorSyncBox.setToolTipText(mirrorSyncProperty.getDescription());
+        mirrorSyncBox.addActionListener(e -> setMirrorSync((String) mirrorSyncBox.getSelectedItem()));
+        settingsPanel.add(mirrorSyncBox, gbc);
+
+
+        // Push notifications: public callback URL (optional)
+        gbc.gridx = 0;
+        gbc.gridy = 12;
+        gbc.weightx = 0;
+        settingsPanel.add(new JLabel("Push Callback URL:"), gbc);
+
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        JTextField pushCallbackUrlField = new JTextField(getPushCallbackUrl(), 30);
+        pushCallbackUrlField.setToolTipText(pushCallbackUrlProperty.getDescription());
+        bindText(pushCallbackUrlField, this::setPushCallbackUrl);
+        settingsPanel.add(pushCallbackUrlField, gbc);
+
+
+        // Push notifications: local receiver address
+        gbc.gridx = 0;
+        gbc.gridy = 13;
+        gbc.weightx = 0;
+        settingsPanel.add(new JLabel("Push Receiver:"), gbc);
+
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        JTextField pushReceiverField = new JTextField(getPushReceiver(), 30);
+        pushReceiverField.setToolTipText(pushReceiverProperty.getDescription());
+        bindText(pushReceiverField, this::setPushReceiver);
+        settingsPanel.add(pushReceiverField, gbc);
+
+
+        // Snapshots of the calendar mirrors (optional)
+        gbc.gridx = 0;
+        gbc.gridy = 14;
+        gbc.weightx = 0;
+        settingsPanel.add(new JLabel("Mirror Snapshot Directory:"), gbc);
+
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        JTextField snapshotDirectoryField = new JTextField(getMirrorSnapshotDirectory(), 30);
+        snapshotDirectoryField.setToolTipText(mirrorSnapshotDirectoryProperty.getDescription());
+        bindText(snapshotDirectoryField, this::setMirrorSnapshotDirectory);
+        settingsPanel.add(snapshotDirectoryField, gbc);
+
+
+        // Limits of the plugin caches (optional)
+        gbc.gridx = 0;
+        gbc.gridy = 15;
+        gbc.weightx = 0;
+        settingsPanel.add(new JLabel("Cache Limits:"), gbc);
+
+
+        gbc.gridx = 1;
+        gbc.weightx = 1.0;
+        JTextField cacheLimitsField = new JTextField(getCacheLimits(), 30);
+        cacheLimitsField.setToolTipText(cacheLimitsProperty.getDescription());
+        bindText(cacheLimitsField, this::setCacheLimits);
+        settingsPanel.add(cacheLimitsField, gbc);
+
+
         mainPanel.add(settingsPanel);
         mainPanel.add(Box.createVerticalGlue());
 
@@ -242,9 +848,44 @@ public class GoogleCalendarPluginSettings extends PluginSettings {
             fileField.setText(getServiceAccountFile() != null ? getServiceAccountFile() : "");
             calendarIdField.setText(getCalendarId() != null ? getCalendarId() : "");
             appNameField.setText(getApplicationName() != null ? getApplicationName() : "");
+            rootUrlField.setText(getRootUrl() != null ? getRootUrl() : "");
+            cassetteFileField.setText(getCassetteFile() != null ? getCassetteFile() : "");
+            metricsPortField.setText(getMetricsPort() != null ? getMetricsPort() : "");
+            sessionQuotaField.setText(getSessionQuota() != null ? getSessionQuota() : "");
+            nodeQuotaField.setText(getNodeQuota() != null ? getNodeQuota() : "");
+            quotaVariableField.setText(getQuotaVariable() != null ? getQuotaVariable() : "");
+            maxConcurrentField.setText(getMaxConcurrentRequests() != null ? getMaxConcurrentRequests() : "");
+            rateLimitField.setText(getRateLimit() != null ? getRateLimit() : "");
+            pushCallbackUrlField.setText(getPushCallbackUrl() != null ? getPushCallbackUrl() : "");
+            pushReceiverField.setText(getPushReceiver() != null ? getPushReceiver() : "");
+            snapshotDirectoryField.setText(getMirrorSnapshotDirectory() != null ? getMirrorSnapshotDirectory() : "");
+            cacheLimitsField.setText(getCacheLimits() != null ? getCacheLimits() : "");
         });
         // Panel with scroll support
         JScrollPane scrollPane = new JScrollPane(mainPanel);
         return scrollPane;
     }
+
+
+    /**
+     * Passes every change of the field's text to the setter, deletions included.
+     */
+    private static void bindText(JTextField field, Consumer<String> setter) {
+        field.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                setter.accept(field.getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                setter.accept(field.getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                setter.accept(field.getText());
+            }
+        });
+    }
 }
@@ -5,6 +5,12 @@ import com.clt.diamant.IdMap;
 import com.clt.diamant.graph.Node;
 import com.clt.diamant.graph.nodes.NodeExecutionException;
 import com.clt.diamant.gui.NodePropertiesDialog;
+import com.clt.script.exp.Value;
+import com.clt.script.exp.values.BoolValue;
+import com.clt.script.exp.values.IntValue;
+import com.clt.script.exp.values.ListValue;
+import com.clt.script.exp.values.StringValue;
+import com.clt.script.exp.values.StructValue;
 import com.clt.xml.XMLReader;
 import com.clt.xml.XMLWriter;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -15,55 +21,131 @@ import org.xml.sax.SAXException;
 import com.clt.diamant.WozInterface;
 import com.clt.diamant.InputCenter;
 import com.clt.diamant.ExecutionLogger;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
 import com.google.api.client.util.DateTime;
 import com.google.api.services.calendar.Calendar;
-import com.google.api.services.calendar.model.Event;
-import com.google.api.services.calendar.model.Events;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import javax.swing.*;
 import java.awt.*;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * ListEventsNode - Node for listing Google Calendar Events.
  * 
  * Supported List Modes:
  * 1. UPCOMING: Events from now onwards (limited by maxResults)
  * 2. TIME_RANGE: Events within a specific date/time range
- * 3. SEARCH: Events matching a search query
+ * 3. SEARCH: Events matching a search query (fuzzy, see below)
  * 4. ALL: All events (limited by maxResults)
+ * 5. CHANGES_SINCE: Events created, changed or deleted since a cursor
  * 
  * Required Properties:
- * - listMode (mandatory - UPCOMING, TIME_RANGE, SEARCH, or ALL)
+ * - listMode (mandatory - UPCOMING, TIME_RANGE, SEARCH, ALL or CHANGES_SINCE)
  * - searchQuery (required for SEARCH mode)
+ * - cursorVariable (required for CHANGES_SINCE mode - read and written by the node)
  * - startTime (required for TIME_RANGE mode)
  * - endTime (required for TIME_RANGE mode)
  * - maxResults (optional - default: 10)
+ * - outputFormat (optional - JSON string or native STRUCT value, default: JSON)
+ * - recurrenceExpansion (optional - SERVER or LOCAL, default: SERVER)
+ * - searchMaxStaleness (optional - max. age of the local mirror for SEARCH in seconds,
+ *   default: 0 = always search with the API)
  * - resultVariable (output: list of events as formatted string or error)
  * 
+ * With a searchMaxStaleness above 0, SEARCH is answered from the
+ * EventSearchIndex of the calendar's mirror when the mirror is fresh enough:
+ * ranked trigram matching over title, location and description, so
+ * misrecognized words ("dentist appointmnt") still find the event. Only if
+ * the index finds nothing (or there is no fresh mirror) the query goes to
+ * the API as q. It is opt-in because the mirror costs quota of its own: a
+ * full sync of the whole calendar when it is created, an incremental sync
+ * whenever a search finds it stale, and from then on the syncs of the Mirror
+ * Sync scheduler, push notifications and snapshots like every other mirror.
+ * 
+ * With LOCAL expansion, UPCOMING and TIME_RANGE fetch recurring masters
+ * and their exceptions instead of one item per instance, and expand them with
+ * RecurrenceExpander only within the requested window. The API lists an
+ * exception by its new time, so the exceptions of each series are fetched
+ * once more by the series' iCalUID: one moved out of the window must still
+ * remove its original occurrence. UPCOMING has no end, so it expands the next
+ * LOCAL_HORIZON_DAYS and uses server-side expansion if fewer than maxResults
+ * events are found there; ALL always uses server-side expansion, since its
+ * window reaches back to the first event. Series with recurrence rules the
+ * expander does not support fall back to server-side expansion as well.
+ * 
+ * CHANGES_SINCE lists only the delta since the cursor in cursorVariable and
+ * stores a new cursor there, so a dialog polling for changes pays for the
+ * changes, not for the size of the calendar. The cursor is "<millis>" or
+ * "<millis>:<syncToken>": the sync token of the last listing if the API
+ * returned one, otherwise updatedMin with the time of the last request. An
+ * expired token (410) falls back to updatedMin. An empty cursor starts at
+ * now. All changes are returned regardless of maxResults, each with a
+ * status field ("confirmed" or "cancelled"; the API may send cancelled
+ * events with nothing but their ID).
+ * 
+ * Read-your-writes: events this dialog created, updated or deleted within
+ * the last minute are shown as written, even if the API lists them late
+ * (LocalWriteLog.overlay()).
+ * 
  * Global settings (serviceAccountFile, calendarId, etc.)
  * come from GoogleCalendarPluginSettings!
  */
 public class ListEventsNode extends GoogleCalendarNode {
 
+
+    private static final Logger LOG = LoggerFactory.getLogger(ListEventsNode.class);
+
     private static final String PROP_LIST_MODE = "listMode";
     private static final String PROP_SEARCH_QUERY = "searchQuery";
     private static final String PROP_START_TIME = "startTime";
     private static final String PROP_END_TIME = "endTime";
     private static final String PROP_MAX_RESULTS = "maxResults";
     private static final String PROP_RESULT_VAR = "resultVariable";
+    private static final String PROP_OUTPUT_FORMAT = "outputFormat";
+    private static final String PROP_RECURRENCE_EXPANSION = "recurrenceExpansion";
+    private static final String PROP_SEARCH_MAX_STALENESS = "searchMaxStaleness";
+    private static final String PROP_CURSOR_VAR = "cursorVariable";
+
+    // Partial response: only what EventRecord holds
+    private static final String RECORD_FIELDS =
+            "nextPageToken,nextSyncToken,items(id,status,updated,summary,location,description,start,end)";
+    // Additionally the recurrence data needed for local expansion
+    private static final String RECURRENCE_FIELDS =
+            "nextPageToken,nextSyncToken,items(id,status,updated,summary,location,description,start,end,"
+            + "recurrence,recurringEventId,originalStartTime,iCalUID)";
+    private static final int PAGE_SIZE = 2500;
+    // Windows fetched by UPCOMING with LOCAL expansion, until maxResults are found
+    private static final int LOCAL_HORIZON_DAYS = 31;
+    private static final int DEFAULT_SEARCH_MAX_STALENESS_SECONDS = 0;
 
     // List mode constants
     private static final String MODE_UPCOMING = "UPCOMING";
     private static final String MODE_TIME_RANGE = "TIME_RANGE";
     private static final String MODE_SEARCH = "SEARCH";
     private static final String MODE_ALL = "ALL";
+    private static final String MODE_CHANGES_SINCE = "CHANGES_SINCE";
+
+    // Output format constants
+    private static final String FORMAT_JSON = "JSON";
+    private static final String FORMAT_STRUCT = "STRUCT";
+
+    // Recurrence expansion constants
+    private static final String EXPANSION_SERVER = "SERVER";
+    private static final String EXPANSION_LOCAL = "LOCAL";
 
     public ListEventsNode() {
         super();
@@ -73,13 +155,17 @@ public class ListEventsNode extends GoogleCalendarNode {
         this.setProperty(PROP_END_TIME, "");
         this.setProperty(PROP_MAX_RESULTS, "10");
         this.setProperty(PROP_RESULT_VAR, "eventList");
+        this.setProperty(PROP_OUTPUT_FORMAT, FORMAT_JSON);
+        this.setProperty(PROP_RECURRENCE_EXPANSION, EXPANSION_SERVER);
+        this.setProperty(PROP_SEARCH_MAX_STALENESS, String.valueOf(DEFAULT_SEARCH_MAX_STALENESS_SECONDS));
+        this.setProperty(PROP_CURSOR_VAR, "calendarCursor");
     }
 
     @Override
-    public Node execute(WozInterface comm, InputCenter input, ExecutionLogger logger)
+    protected Node executeOperation(WozInterface comm, InputCenter input, ExecutionLogger logger)
             throws NodeExecutionException {
         try {
-            System.out.println("=== ListEventsNode Execute ===");
+            LOG.debug("=== ListEventsNode Execute ===");
 
             String listMode = getProperty(PROP_LIST_MODE).toString();
             String maxResultsStr = evaluateVariable(
@@ -92,19 +178,34 @@ public class ListEventsNode extends GoogleCalendarNode {
             try {
                 maxResults = Integer.parseInt(maxResultsStr);
             } catch (NumberFormatException e) {
-                System.out.println("Invalid maxResults format, using default: 10");
+                LOG.warn("Invalid maxResults format '{}', using default: 10", maxResultsStr);
             }
 
             CalendarConfig config = getCalendarConfig(comm);
             Calendar service = getCalendarService(comm);
+            GoogleCalendarPluginRuntime runtime = getPluginRuntime(comm);
 
-            List<Event> events = new ArrayList<>();
+            List<EventRecord> events = new ArrayList<>();
+            // What the listing covers, for showing this dialog's own writes
+            long windowStart = Long.MIN_VALUE;
+            long windowEnd = Long.MAX_VALUE;
+            String query = null;
+            boolean sortedByStart = true;
+            // Mirror results include this dialog's writes already
+            boolean fromMirror = false;
+            // Set for CHANGES_SINCE: cursor variable and the new cursor
+            String cursorVariable = null;
+            String nextCursor = null;
+            boolean localExpansion = EXPANSION_LOCAL.equals(
+                    getProperty(PROP_RECURRENCE_EXPANSION).toString());
 
             // Execute based on list mode
             switch (listMode) {
                 case MODE_UPCOMING:
-                    events = listUpcomingEvents(service, config.getCalendarId(), maxResults);
-                    System.out.println("Listed " + events.size() + " upcoming events");
+                    windowStart = System.currentTimeMillis();
+                    events = listUpcomingEvents(runtime, service, config.getCalendarId(), maxResults,
+                            localExpansion);
+                    LOG.debug("Listed {} upcoming events", events.size());
                     break;
 
                 case MODE_TIME_RANGE:
@@ -125,9 +226,11 @@ public class ListEventsNode extends GoogleCalendarNode {
                     LocalDateTime startTime = parseDateTime(startTimeInput, "Start Time");
                     LocalDateTime endTime = parseDateTime(endTimeInput, "End Time");
 
-                    events = listEventsByTimeRange(service, config.getCalendarId(),
-                            startTime, endTime, maxResults);
-                    System.out.println("Listed " + events.size() + " events in time range");
+                    events = listEventsByTimeRange(runtime, service, config.getCalendarId(),
+                            startTime, endTime, maxResults, localExpansion);
+                    windowStart = toDateTime(startTime).getValue();
+                    windowEnd = toDateTime(endTime).getValue();
+                    LOG.debug("Listed {} events in time range", events.size());
                     break;
 
                 case MODE_SEARCH:
@@ -139,24 +242,84 @@ public class ListEventsNode extends GoogleCalendarNode {
                                 "Search Query is required for SEARCH mode");
                     }
 
-                    events = searchEvents(service, config.getCalendarId(), searchQuery, maxResults);
-                    System.out.println("Found " + events.size() + " events matching: " + searchQuery);
+                    long searchMaxStalenessMillis = parseSearchMaxStaleness(evaluateVariable(
+                            getProperty(PROP_SEARCH_MAX_STALENESS).toString(), logger, comm)) * 1000L;
+                    events = searchLocally(runtime, service, config.getCalendarId(), searchQuery,
+                            maxResults, searchMaxStalenessMillis,
+                            runtime.getLocalWrites().getSessionStamp(getSessionKey(comm)));
+                    fromMirror = events != null;
+                    if (!fromMirror) {
+                        events = searchEvents(runtime, service, config.getCalendarId(), searchQuery, maxResults);
+                    }
+                    query = searchQuery.toLowerCase(Locale.ROOT);
+                    sortedByStart = false;
+                    LOG.debug("Found {} events matching: {} ({})", events.size(), searchQuery,
+                            fromMirror ? "search index" : "api");
                     break;
 
                 case MODE_ALL:
-                    events = listAllEvents(service, config.getCalendarId(), maxResults);
-                    System.out.println("Listed " + events.size() + " total events");
+                    events = listAllEvents(runtime, service, config.getCalendarId(), maxResults);
+                    LOG.debug("Listed {} total events", events.size());
+                    break;
+
+                case MODE_CHANGES_SINCE:
+                    cursorVariable = evaluateVariable(
+                            getProperty(PROP_CURSOR_VAR).toString(), logger, comm);
+                    if (cursorVariable == null || cursorVariable.isEmpty()) {
+                        throw new NodeExecutionException(this,
+                                "Cursor Variable is required for CHANGES_SINCE mode");
+                    }
+                    String cursor = evaluateVariable("${" + cursorVariable + "}", logger, comm);
+                    Changes changes = listChanges(runtime, service, config.getCalendarId(), cursor);
+                    events = changes.events;
+                    nextCursor = changes.cursor;
+                    // A delta is complete or useless: never cut it at maxResults
+                    maxResults = events.size();
+                    // The delta already contains this dialog's writes
+                    fromMirror = true;
+                    LOG.debug("Listed {} changes since cursor '{}'", events.size(), cursor);
                     break;
 
                 default:
                     throw new NodeExecutionException(this, "Unknown list mode: " + listMode);
             }
 
+            if (!fromMirror) {
+                events = showOwnWrites(runtime, comm, config.getCalendarId(), events, maxResults,
+                        windowStart, windowEnd, query, sortedByStart);
+            }
+
+            runtime.noteCalendarActivity(config.getCalendarId());
+            traceExecution(config.getCalendarId(), listMode, events.size());
+
             // Format events for output
-            String formattedEvents = formatEventsAsJson(events, maxResults);
-            setStringVariable(resultVariable, formattedEvents);
-            System.out.println("formatted events: " + formattedEvents);
-            System.out.println("Events stored in variable: " + resultVariable);
+            CalendarFlightEvents.Serialization serialization = new CalendarFlightEvents.Serialization();
+            serialization.begin();
+            String formattedEvents = null;
+            boolean withStatus = nextCursor != null;
+            if (FORMAT_STRUCT.equals(getProperty(PROP_OUTPUT_FORMAT).toString())) {
+                setVariable(resultVariable, formatEventsAsValue(events, maxResults, withStatus));
+                serialization.operation = CalendarFlightEvents.Serialization.FORMAT_STRUCT;
+                serialization.bytes = -1;
+            } else {
+                formattedEvents = formatEventsAsJson(events, maxResults, withStatus);
+                setStringVariable(resultVariable, formattedEvents);
+                serialization.operation = CalendarFlightEvents.Serialization.FORMAT_JSON;
+                serialization.bytes = formattedEvents.length();
+            }
+            if (serialization.shouldCommit()) {
+                serialization.eventCount = Math.min(events.size(), maxResults);
+                serialization.commit();
+            }
+            if (formattedEvents != null) {
+                // Can be hundreds of KB; only at TRACE
+                LOG.trace("formatted events: {}", formattedEvents);
+            }
+            LOG.info("{} events stored in variable: {}", Math.min(events.size(), maxResults), resultVariable);
+            if (nextCursor != null) {
+                // Only after the result: a failed run must not skip the changes
+                setStringVariable(cursorVariable, nextCursor);
+            }
 
             return this.getEdge(0).getTarget();
 
@@ -171,65 +334,352 @@ public class ListEventsNode extends GoogleCalendarNode {
     /**
      * Lists upcoming events from now onwards
      */
-    private List<Event> listUpcomingEvents(Calendar service, String calendarId, int maxResults)
+    List<EventRecord> listUpcomingEvents(GoogleCalendarPluginRuntime runtime,
+            Calendar service, String calendarId, int maxResults, boolean localExpansion)
             throws Exception {
         DateTime now = new DateTime(System.currentTimeMillis());
 
-        Events events = service.events().list(calendarId)
+        if (localExpansion) {
+            // Bounded fetch: without an end the whole future would be listed
+            long horizon = now.getValue() + TimeUnit.DAYS.toMillis(LOCAL_HORIZON_DAYS);
+            List<EventRecord> expanded = expandLocally(runtime, service, calendarId,
+                    now.getValue(), horizon, maxResults);
+            if (expanded != null && expanded.size() >= maxResults) {
+                return expanded;
+            }
+            if (expanded != null) {
+                LOG.debug("Fewer than {} events within {} days, using server expansion", maxResults,
+                        LOCAL_HORIZON_DAYS);
+            }
+        }
+
+        Calendar.Events.List request = service.events().list(calendarId)
                 .setTimeMin(now)
                 .setMaxResults(maxResults)
                 .setOrderBy("startTime")
-                .setSingleEvents(true)
-                .execute();
+                .setSingleEvents(true);
 
-        return events.getItems() != null ? events.getItems() : new ArrayList<>();
+        return fetchRecords(runtime, request);
     }
 
     /**
      * Lists events within a specific date/time range
      */
-    private List<Event> listEventsByTimeRange(Calendar service, String calendarId,
-            LocalDateTime start, LocalDateTime end, int maxResults)
+    List<EventRecord> listEventsByTimeRange(GoogleCalendarPluginRuntime runtime,
+            Calendar service, String calendarId,
+            LocalDateTime start, LocalDateTime end, int maxResults, boolean localExpansion)
             throws Exception {
         DateTime startTime = toDateTime(start);
         DateTime endTime = toDateTime(end);
 
-        Events events = service.events().list(calendarId)
+        if (localExpansion) {
+            List<EventRecord> expanded = expandLocally(runtime, service, calendarId,
+                    startTime.getValue(), endTime.getValue(), maxResults);
+            if (expanded != null) {
+                return expanded;
+            }
+        }
+
+        Calendar.Events.List request = service.events().list(calendarId)
                 .setTimeMin(startTime)
                 .setTimeMax(endTime)
                 .setMaxResults(maxResults)
                 .setOrderBy("startTime")
-                .setSingleEvents(true)
-                .execute();
+                .setSingleEvents(true);
+
+        return fetchRecords(runtime, request);
+    }
+
+    /**
+     * Searches the EventSearchIndex of the calendar's mirror if the mirror was
+     * synced within maxStalenessMillis and includes the session's own writes
+     * (sessionStamp, see LocalWriteLog); a stale mirror is first brought up to
+     * date with an incremental sync, a new one is synced in the background for
+     * the next search. The mirror only holds its sync window (see CalendarMirror),
+     * so events far in the past or future are found by the API fallback.
+     *
+     * @return the matching events, best first, or null if the API must be asked
+     *         (no fresh mirror, or nothing found)
+     */
+    List<EventRecord> searchLocally(GoogleCalendarPluginRuntime runtime, Calendar service,
+            String calendarId, String query, int maxResults, long maxStalenessMillis, long sessionStamp) {
+        if (maxStalenessMillis <= 0) {
+            return null;
+        }
+        CalendarMirror mirror = runtime.getCalendarMirror(calendarId);
+        if (mirror.isSynced() && mirror.getStalenessMillis() > maxStalenessMillis) {
+            try {
+                mirror.sync(service);
+            } catch (IOException e) {
+                LOG.warn("Incremental sync failed, searching with the API: {}", e.getMessage());
+            }
+        }
+        if (!mirror.isSynced() || mirror.getStalenessMillis() > maxStalenessMillis
+                || mirror.getWriteVersion() < sessionStamp) {
+            if (!mirror.isSynced()) {
+                mirror.syncInBackground(service, runtime.getBackgroundExecutor());
+            }
+            CalendarMetrics.getInstance().counter(CalendarMetrics.SEARCH_INDEX_MISSES).increment();
+            return null;
+        }
+
+        List<EventRecord> result = new ArrayList<>();
+        for (String eventId : runtime.getSearchIndex(calendarId).search(query, maxResults)) {
+            EventRecord record = mirror.getEvents().getRecord(eventId);
+            if (record != null) {
+                result.add(record);
+            }
+        }
+        if (result.isEmpty()) {
+            CalendarMetrics.getInstance().counter(CalendarMetrics.SEARCH_INDEX_MISSES).increment();
+            return null;
+        }
+        CalendarMetrics.getInstance().counter(CalendarMetrics.SEARCH_INDEX_HITS).increment();
+        return result;
+    }
 
-        return events.getItems() != null ? events.getItems() : new ArrayList<>();
+    private int parseSearchMaxStaleness(String value) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException | NullPointerException e) {
+            LOG.warn("Invalid searchMaxStaleness '{}', using default: {}", value,
+                    DEFAULT_SEARCH_MAX_STALENESS_SECONDS);
+            return DEFAULT_SEARCH_MAX_STALENESS_SECONDS;
+        }
     }
 
     /**
-     * Searches events by query string
+     * Searches events by query string with the API (q)
      */
-    private List<Event> searchEvents(Calendar service, String calendarId, String query, int maxResults)
+    private List<EventRecord> searchEvents(GoogleCalendarPluginRuntime runtime,
+            Calendar service, String calendarId, String query, int maxResults)
             throws Exception {
-        Events events = service.events().list(calendarId)
+        Calendar.Events.List request = service.events().list(calendarId)
                 .setQ(query)
-                .setMaxResults(maxResults)
-                .execute();
+                .setMaxResults(maxResults);
 
-        return events.getItems() != null ? events.getItems() : new ArrayList<>();
+        return fetchRecords(runtime, request);
     }
 
     /**
-     * Lists all events (limited by maxResults)
+     * Lists all events (limited by maxResults). Always expanded by the server:
+     * local expansion would have to list the whole calendar for the first
+     * maxResults events.
      */
-    private List<Event> listAllEvents(Calendar service, String calendarId, int maxResults)
+    private List<EventRecord> listAllEvents(GoogleCalendarPluginRuntime runtime,
+            Calendar service, String calendarId, int maxResults)
             throws Exception {
-        Events events = service.events().list(calendarId)
+        Calendar.Events.List request = service.events().list(calendarId)
                 .setMaxResults(maxResults)
                 .setOrderBy("startTime")
-                .setSingleEvents(true)
-                .execute();
+                .setSingleEvents(true);
+
+        return fetchRecords(runtime, request);
+    }
+
+    /**
+     * Lists the events created, changed or deleted since the cursor, with its
+     * sync token if it has one, otherwise with updatedMin. An expired sync
+     * token (410) falls back to updatedMin; if that is rejected as well, the
+     * cursor restarts now and the changes in between are lost (logged).
+     * Quotes around the cursor (a string variable's value) are ignored.
+     */
+    Changes listChanges(GoogleCalendarPluginRuntime runtime, Calendar service,
+            String calendarId, String cursor) throws Exception {
+        long requestStart = System.currentTimeMillis();
+        long since = requestStart;
+        String syncToken = null;
+        String value = cursor != null ? cursor.trim().replaceAll("^[\"']+|[\"']+$", "").trim() : "";
+        if (!value.isEmpty()) {
+            int separator = value.indexOf(':');
+            try {
+                since = Long.parseLong(separator < 0 ? value : value.substring(0, separator));
+                if (separator >= 0 && separator < value.length() - 1) {
+                    syncToken = value.substring(separator + 1);
+                }
+            } catch (NumberFormatException e) {
+                LOG.warn("Invalid cursor '{}', listing changes from now on", cursor);
+            }
+        }
 
-        return events.getItems() != null ? events.getItems() : new ArrayList<>();
+        List<EventRecord> events = new ArrayList<>();
+        if (syncToken != null) {
+            try {
+                String nextSyncToken = fetchChanges(runtime, service, calendarId, syncToken, since, events);
+                return new Changes(events, requestStart, nextSyncToken);
+            } catch (GoogleJsonResponseException e) {
+                if (e.getStatusCode() != 410) {
+                    throw e;
+                }
+                LOG.info("Sync token of cursor expired, listing changes since {}", new DateTime(since));
+                events.clear();
+            }
+        }
+        try {
+            String nextSyncToken = fetchChanges(runtime, service, calendarId, null, since, events);
+            return new Changes(events, requestStart, nextSyncToken);
+        } catch (GoogleJsonResponseException e) {
+            if (e.getStatusCode() != 410) {
+                throw e;
+            }
+            LOG.warn("Changes since {} are no longer available, cursor restarts now", new DateTime(since));
+            return new Changes(new ArrayList<>(), requestStart, null);
+        }
+    }
+
+    /**
+     * Reads all pages of a delta listing into events.
+     *
+     * @return the sync token for the next listing, or null if the API returned none
+     */
+    private String fetchChanges(GoogleCalendarPluginRuntime runtime, Calendar service, String calendarId,
+            String syncToken, long updatedMin, List<EventRecord> events) throws IOException {
+        String pageToken = null;
+        EventRecordParser.Page page;
+        do {
+            Calendar.Events.List request = service.events().list(calendarId)
+                    .setSingleEvents(true)
+                    .setShowDeleted(true)
+                    .setMaxResults(PAGE_SIZE)
+                    .setPageToken(pageToken)
+                    .setFields(RECORD_FIELDS);
+            if (syncToken != null) {
+                request.setSyncToken(syncToken);
+            } else {
+                request.setUpdatedMin(new DateTime(updatedMin));
+            }
+            page = runtime.listEventRecords(request);
+            events.addAll(page.getRecords());
+            pageToken = page.getNextPageToken();
+        } while (pageToken != null);
+        return page.getNextSyncToken();
+    }
+
+    /**
+     * Lists without server-side expansion (recurring masters, exceptions and
+     * cancelled instances) and expands the series locally within
+     * [windowStart, windowEnd). Long.MIN_VALUE / Long.MAX_VALUE mean unbounded.
+     * 
+     * The window only lists exceptions by their current time. An exception
+     * moved out of the window still overrides its original occurrence, so
+     * the exceptions of every listed series are added from a listing by the
+     * series' iCalUID (one request per series, only in bounded windows).
+     * 
+     * @return the expanded events, or null if a series uses recurrence rules
+     *         RecurrenceExpander does not support
+     */
+    private List<EventRecord> expandLocally(GoogleCalendarPluginRuntime runtime,
+            Calendar service, String calendarId, long windowStart, long windowEnd, int maxResults)
+            throws Exception {
+        Calendar.Events.List window = service.events().list(calendarId);
+        if (windowStart != Long.MIN_VALUE) {
+            window.setTimeMin(new DateTime(windowStart));
+        }
+        if (windowEnd != Long.MAX_VALUE) {
+            window.setTimeMax(new DateTime(windowEnd));
+        }
+        List<EventRecord> items = listUnexpanded(runtime, window);
+
+        List<EventRecord> masters = new ArrayList<>();
+        for (EventRecord item : items) {
+            if (!item.isRecurringMaster() || item.isCancelled()) {
+                continue;
+            }
+            if (!RecurrenceExpander.isSupported(item)) {
+                LOG.info("Recurrence of {} not supported locally: {}, using server expansion",
+                        item.getId(), item.getRecurrence());
+                return null;
+            }
+            masters.add(item);
+        }
+        boolean bounded = windowStart != Long.MIN_VALUE || windowEnd != Long.MAX_VALUE;
+        if (bounded && !masters.isEmpty()) {
+            Set<String> listed = new HashSet<>();
+            for (EventRecord item : items) {
+                listed.add(item.getId());
+            }
+            for (EventRecord master : masters) {
+                if (master.getICalUID() == null) {
+                    continue;
+                }
+                Calendar.Events.List series = service.events().list(calendarId)
+                        .setICalUID(master.getICalUID());
+                for (EventRecord item : listUnexpanded(runtime, series)) {
+                    if (item.getRecurringEventId() != null && listed.add(item.getId())) {
+                        items.add(item);
+                    }
+                }
+            }
+        }
+        List<EventRecord> expanded = RecurrenceExpander.expand(items, windowStart, windowEnd, maxResults);
+        LOG.debug("Expanded {} items locally to {} events", items.size(), expanded.size());
+        return expanded;
+    }
+
+    /**
+     * Lists all pages of a request without server-side expansion, including
+     * cancelled exceptions, with the recurrence fields.
+     */
+    private List<EventRecord> listUnexpanded(GoogleCalendarPluginRuntime runtime,
+            Calendar.Events.List request) throws Exception {
+        request.setSingleEvents(false)
+                .setShowDeleted(true)
+                .setMaxResults(PAGE_SIZE)
+                .setFields(RECURRENCE_FIELDS);
+        List<EventRecord> items = new ArrayList<>();
+        String pageToken = null;
+        do {
+            EventRecordParser.Page page = runtime.listEventRecords(request.setPageToken(pageToken));
+            items.addAll(page.getRecords());
+            pageToken = page.getNextPageToken();
+        } while (pageToken != null);
+        return items;
+    }
+
+    /**
+     * Executes a list request through the streaming fast path of the runtime.
+     * Only the fields read by EventRecord are requested.
+     */
+    private List<EventRecord> fetchRecords(GoogleCalendarPluginRuntime runtime,
+            Calendar.Events.List request) throws Exception {
+        request.setFields(RECORD_FIELDS);
+        return runtime.listEventRecords(request).getRecords();
+    }
+
+    /**
+     * Applies this dialog's recent writes to a listing: the API may list a new
+     * or changed event only after a delay, or still list a deleted one.
+     */
+    private List<EventRecord> showOwnWrites(GoogleCalendarPluginRuntime runtime, WozInterface comm,
+            String calendarId, List<EventRecord> events, int maxResults,
+            long windowStart, long windowEnd, String query, boolean sortedByStart) {
+        Object session = getSessionKey(comm);
+        LocalWriteLog writes = runtime.getLocalWrites();
+        if (writes.getSessionStamp(session) == 0) {
+            return events;
+        }
+        List<EventRecord> result = new ArrayList<>(events);
+        int changed = writes.overlay(session, calendarId, result,
+                event -> event.getEnd() > windowStart && event.getStart() < windowEnd
+                        && (query == null || matchesQuery(event, query)),
+                sortedByStart, events.size() < maxResults);
+        if (changed > 0) {
+            LOG.debug("Listing adjusted to {} own write(s) of this dialog", changed);
+        }
+        return result;
+    }
+
+    /**
+     * Approximates the API's free-text search for events written locally:
+     * the query occurs in the title, location or description.
+     */
+    private static boolean matchesQuery(EventRecord event, String lowerCaseQuery) {
+        for (String text : new String[] {event.getSummary(), event.getLocation(), event.getDescription()}) {
+            if (text != null && text.toLowerCase(Locale.ROOT).contains(lowerCaseQuery)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -244,18 +694,20 @@ public class ListEventsNode extends GoogleCalendarNode {
      * Formats list of events into readable string representation
      * Each event on new line: "ID | Title | Start | End"
      */
-    private String formatEventsList(List<Event> events) {
+    private String formatEventsList(List<EventRecord> events) {
         if (events == null || events.isEmpty()) {
             return "No events found";
         }
 
         StringBuilder result = new StringBuilder();
         for (int i = 0; i < events.size(); i++) {
-            Event event = events.get(i);
+            EventRecord event = events.get(i);
             String id = event.getId();
             String summary = event.getSummary() != null ? event.getSummary() : "(No title)";
-            String start = event.getStart() != null ? event.getStart().toString() : "N/A";
-            String end = event.getEnd() != null ? event.getEnd().toString() : "N/A";
+            String start = event.getStart() != EventRecord.NO_TIME
+                    ? formatLocalDateTime(EventConverter.toLocalDateTime(event.getStart())) : "N/A";
+            String end = event.getEnd() != EventRecord.NO_TIME
+                    ? formatLocalDateTime(EventConverter.toLocalDateTime(event.getEnd())) : "N/A";
 
             result.append(id).append(" | ")
                     .append(summary).append(" | ")
@@ -270,7 +722,14 @@ public class ListEventsNode extends GoogleCalendarNode {
         return result.toString();
     }
 
-    private String formatEventsAsJson(List<Event> events, int displayCount) {
+    String formatEventsAsJson(List<EventRecord> events, int displayCount) {
+        return formatEventsAsJson(events, displayCount, false);
+    }
+
+    /**
+     * @param withStatus adds each event's status ("confirmed" or "cancelled"), for CHANGES_SINCE
+     */
+    String formatEventsAsJson(List<EventRecord> events, int displayCount, boolean withStatus) {
         int startIndex = 0;
 
         // Configure ObjectMapper with JavaTimeModule for LocalDateTime support
@@ -307,21 +766,10 @@ public class ListEventsNode extends GoogleCalendarNode {
         // events with structured data
         List<Map<String, Object>> eventsList = new ArrayList<>();
         for (int i = startIndex; i < Math.min(startIndex + displayCount, events.size()); i++) {
-            Event event = events.get(i);
-            Map<String, Object> eventMap = new HashMap<>();
-            
-            LocalDateTime startTime = parseJsonToLocalDateTime(event.getStart().toString());
-            LocalDateTime endTime = parseJsonToLocalDateTime(event.getEnd().toString());
-
-            eventMap.put("index", i + 1);
-            eventMap.put("id", event.getId());
-            eventMap.put("summary", event.getSummary() != null ? event.getSummary() : "(No title)");
-            eventMap.put("start", startTime);
-            eventMap.put("end", endTime);
-            eventMap.put("duration_minutes", calculateDuration(startTime, endTime));
-            eventMap.put("location", event.getLocation());
-            eventMap.put("description", event.getDescription());
-            
+            Map<String, Object> eventMap = toEventMap(events.get(i), i + 1);
+            if (withStatus) {
+                eventMap.put("status", status(events.get(i)));
+            }
             eventsList.add(eventMap);
         }
         
@@ -330,12 +778,115 @@ public class ListEventsNode extends GoogleCalendarNode {
         try {
             return mapper.writeValueAsString(response);
         } catch (Exception e) {
-            System.out.println("JSON serialization failed: " + e + " using fallback");
+            LOG.warn("JSON serialization failed, using fallback", e);
             return formatEventsList(events); // Fallback
         }
     }
 
-    private int calculateDuration(LocalDateTime start, LocalDateTime end) {
+    /**
+     * Builds the result as native DialogOS value with the same shape as the JSON output:
+     * a struct { metadata: {...}, events: [ {index, id, summary, start, end, ...}, ... ] }.
+     * Dialog scripts can read fields directly, e.g. eventList.events[0].summary.
+     */
+    Value formatEventsAsValue(List<EventRecord> events, int displayCount) {
+        return formatEventsAsValue(events, displayCount, false);
+    }
+
+    Value formatEventsAsValue(List<EventRecord> events, int displayCount, boolean withStatus) {
+        int totalCount = events == null ? 0 : events.size();
+        int displayedCount = Math.max(0, Math.min(displayCount, totalCount));
+
+        Value[] eventValues = new Value[displayedCount];
+        for (int i = 0; i < displayedCount; i++) {
+            eventValues[i] = toEventValue(events.get(i), i + 1, withStatus);
+        }
+
+        Value metadata = new StructValue(
+                new String[] {"total_count", "displayed_count", "start_index", "has_more"},
+                new Value[] {
+                    new IntValue(totalCount),
+                    new IntValue(displayedCount),
+                    new IntValue(0),
+                    new BoolValue(displayCount < totalCount)
+                });
+
+        return new StructValue(
+                new String[] {"metadata", "events"},
+                new Value[] {metadata, new ListValue(eventValues)});
+    }
+
+    /**
+     * One event of the JSON output. The index is its 1-based position in the
+     * list; GetEventNode passes 0 for a single event, which leaves it out.
+     */
+    static Map<String, Object> toEventMap(EventRecord event, int index) {
+        LocalDateTime startTime = EventConverter.toLocalDateTime(event.getStart());
+        LocalDateTime endTime = EventConverter.toLocalDateTime(event.getEnd());
+
+        Map<String, Object> eventMap = new HashMap<>();
+        if (index > 0) {
+            eventMap.put("index", index);
+        }
+        eventMap.put("id", event.getId());
+        eventMap.put("summary", event.getSummary() != null ? event.getSummary() : "(No title)");
+        eventMap.put("start", startTime);
+        eventMap.put("end", endTime);
+        eventMap.put("duration_minutes", calculateDuration(startTime, endTime));
+        eventMap.put("location", event.getLocation());
+        eventMap.put("description", event.getDescription());
+        return eventMap;
+    }
+
+    /**
+     * One event of the STRUCT output, with the same fields as toEventMap().
+     */
+    static Value toEventValue(EventRecord event, int index) {
+        return toEventValue(event, index, false);
+    }
+
+    private static Value toEventValue(EventRecord event, int index, boolean withStatus) {
+        LocalDateTime startTime = EventConverter.toLocalDateTime(event.getStart());
+        LocalDateTime endTime = EventConverter.toLocalDateTime(event.getEnd());
+
+        String[] names = {"id", "summary", "start", "end", "duration_minutes", "location", "description"};
+        Value[] values = {
+            new StringValue(event.getId()),
+            new StringValue(event.getSummary() != null ? event.getSummary() : "(No title)"),
+            new StringValue(formatLocalDateTime(startTime)),
+            new StringValue(formatLocalDateTime(endTime)),
+            new IntValue(calculateDuration(startTime, endTime)),
+            new StringValue(event.getLocation() != null ? event.getLocation() : ""),
+            new StringValue(event.getDescription() != null ? event.getDescription() : "")
+        };
+        if (index <= 0 && !withStatus) {
+            return new StructValue(names, values);
+        }
+        int offset = index > 0 ? 1 : 0;
+        int length = names.length + offset + (withStatus ? 1 : 0);
+        String[] indexedNames = new String[length];
+        Value[] indexedValues = new Value[length];
+        if (index > 0) {
+            indexedNames[0] = "index";
+            indexedValues[0] = new IntValue(index);
+        }
+        System.arraycopy(names, 0, indexedNames, offset, names.length);
+        System.arraycopy(values, 0, indexedValues, offset, values.length);
+        if (withStatus) {
+            indexedNames[length - 1] = "status";
+            indexedValues[length - 1] = new StringValue(status(event));
+        }
+        return new StructValue(indexedNames, indexedValues);
+    }
+
+    private static String status(EventRecord event) {
+        return event.isCancelled() ? "cancelled" : "confirmed";
+    }
+
+    private static String formatLocalDateTime(LocalDateTime dateTime) {
+        return dateTime != null ? dateTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) : "";
+    }
+
+    private static int calculateDuration(LocalDateTime start, LocalDateTime end) {
         if (start == null || end == null) return 0;
         return (int) java.time.temporal.ChronoUnit.MINUTES.between(start, end);
     }
@@ -350,6 +901,10 @@ public class ListEventsNode extends GoogleCalendarNode {
         Graph.printAtt(out, PROP_END_TIME, this.getProperty(PROP_END_TIME).toString());
         Graph.printAtt(out, PROP_MAX_RESULTS, this.getProperty(PROP_MAX_RESULTS).toString());
         Graph.printAtt(out, PROP_RESULT_VAR, this.getProperty(PROP_RESULT_VAR).toString());
+        Graph.printAtt(out, PROP_OUTPUT_FORMAT, this.getProperty(PROP_OUTPUT_FORMAT).toString());
+        Graph.printAtt(out, PROP_RECURRENCE_EXPANSION, this.getProperty(PROP_RECURRENCE_EXPANSION).toString());
+        Graph.printAtt(out, PROP_SEARCH_MAX_STALENESS, this.getProperty(PROP_SEARCH_MAX_STALENESS).toString());
+        Graph.printAtt(out, PROP_CURSOR_VAR, this.getProperty(PROP_CURSOR_VAR).toString());
     }
 
     @Override
@@ -369,6 +924,14 @@ public class ListEventsNode extends GoogleCalendarNode {
             setProperty(PROP_MAX_RESULTS, value);
         } else if (PROP_RESULT_VAR.equals(name)) {
             setProperty(PROP_RESULT_VAR, value);
+        } else if (PROP_OUTPUT_FORMAT.equals(name)) {
+            setProperty(PROP_OUTPUT_FORMAT, value);
+        } else if (PROP_RECURRENCE_EXPANSION.equals(name)) {
+            setProperty(PROP_RECURRENCE_EXPANSION, value);
+        } else if (PROP_SEARCH_MAX_STALENESS.equals(name)) {
+            setProperty(PROP_SEARCH_MAX_STALENESS, value);
+        } else if (PROP_CURSOR_VAR.equals(name)) {
+            setProperty(PROP_CURSOR_VAR, value);
         }
     }
 
@@ -385,8 +948,15 @@ public class ListEventsNode extends GoogleCalendarNode {
                 "LIST MODES:\n" +
                 "UPCOMING    - Events from now onwards\n" +
                 "TIME_RANGE  - Events in specific date range\n" +
-                "SEARCH      - Events matching a query\n" +
-                "ALL         - All events\n\n" +
+                "SEARCH      - Events matching a query (fuzzy, local index)\n" +
+                "ALL         - All events\n" +
+                "CHANGES_SINCE - Changes since the cursor variable\n\n" +
+                "OUTPUT FORMAT:\n" +
+                "JSON   - JSON string\n" +
+                "STRUCT - native struct, e.g. eventList.events[0].summary\n\n" +
+                "RECURRENCE EXPANSION:\n" +
+                "SERVER - one item per instance from the API\n" +
+                "LOCAL  - series expanded locally within the window\n\n" +
                 "VARIABLE SYNTAX:\n" +
                 "${variableName} - value of variable\n" +
                 "DateTime Format: 2026-01-15T10:00:00\n"
@@ -404,13 +974,17 @@ public class ListEventsNode extends GoogleCalendarNode {
         properties.putIfAbsent(PROP_END_TIME, this.getProperty(PROP_END_TIME));
         properties.putIfAbsent(PROP_MAX_RESULTS, this.getProperty(PROP_MAX_RESULTS));
         properties.putIfAbsent(PROP_RESULT_VAR, this.getProperty(PROP_RESULT_VAR));
+        properties.putIfAbsent(PROP_OUTPUT_FORMAT, this.getProperty(PROP_OUTPUT_FORMAT));
+        properties.putIfAbsent(PROP_RECURRENCE_EXPANSION, this.getProperty(PROP_RECURRENCE_EXPANSION));
+        properties.putIfAbsent(PROP_SEARCH_MAX_STALENESS, this.getProperty(PROP_SEARCH_MAX_STALENESS));
+        properties.putIfAbsent(PROP_CURSOR_VAR, this.getProperty(PROP_CURSOR_VAR));
 
         // List Mode (MANDATORY)
         JPanel modeRow = new JPanel();
         JLabel modeLabel = new JLabel("List Mode (REQUIRED):");
         modeLabel.setForeground(Color.RED);
         modeRow.add(modeLabel);
-        String[] modes = {MODE_UPCOMING, MODE_TIME_RANGE, MODE_SEARCH, MODE_ALL};
+        String[] modes = {MODE_UPCOMING, MODE_TIME_RANGE, MODE_SEARCH, MODE_ALL, MODE_CHANGES_SINCE};
         JComboBox<String> modeCombo = NodePropertiesDialog.createComboBox(
                 properties, PROP_LIST_MODE, modes);
         modeCombo.setToolTipText("Select listing mode");
@@ -425,6 +999,14 @@ public class ListEventsNode extends GoogleCalendarNode {
         searchRow.add(searchField);
         inputPanel.add(searchRow);
 
+        // Search Max. Staleness (for SEARCH mode)
+        JPanel stalenessRow = new JPanel();
+        stalenessRow.add(new JLabel("Search Max. Staleness (s):"));
+        JTextField stalenessField = NodePropertiesDialog.createTextField(properties, PROP_SEARCH_MAX_STALENESS);
+        stalenessField.setToolTipText("Max. age of the local mirror for SEARCH; default: 0 = always ask the API (a mirror costs a full sync)");
+        stalenessRow.add(stalenessField);
+        inputPanel.add(stalenessRow);
+
         // Start Time (for TIME_RANGE mode)
         JPanel startRow = new JPanel();
         startRow.add(new JLabel("Start Time:"));
@@ -441,6 +1023,15 @@ public class ListEventsNode extends GoogleCalendarNode {
         endRow.add(endField);
         inputPanel.add(endRow);
 
+        // Cursor Variable (for CHANGES_SINCE mode)
+        JPanel cursorRow = new JPanel();
+        cursorRow.add(new JLabel("Cursor Variable:"));
+        JComboBox<?> cursorCombo = NodePropertiesDialog.createComboBox(
+                properties, PROP_CURSOR_VAR, getListVariables());
+        cursorCombo.setToolTipText("String variable holding the cursor; read and updated by CHANGES_SINCE (empty = from now on)");
+        cursorRow.add(cursorCombo);
+        inputPanel.add(cursorRow);
+
         // Max Results
         JPanel maxRow = new JPanel();
         maxRow.add(new JLabel("Max Results:"));
@@ -449,17 +1040,38 @@ public class ListEventsNode extends GoogleCalendarNode {
         maxRow.add(maxField);
         inputPanel.add(maxRow);
 
+        // Output Format
+        JPanel formatRow = new JPanel();
+        formatRow.add(new JLabel("Output Format:"));
+        String[] formats = {FORMAT_JSON, FORMAT_STRUCT};
+        JComboBox<String> formatCombo = NodePropertiesDialog.createComboBox(
+                properties, PROP_OUTPUT_FORMAT, formats);
+        formatCombo.setToolTipText("JSON string or native DialogOS struct/list value");
+        formatRow.add(formatCombo);
+        inputPanel.add(formatRow);
+
+        // Recurrence Expansion
+        JPanel expansionRow = new JPanel();
+        expansionRow.add(new JLabel("Recurrence Expansion:"));
+        String[] expansions = {EXPANSION_SERVER, EXPANSION_LOCAL};
+        JComboBox<String> expansionCombo = NodePropertiesDialog.createComboBox(
+                properties, PROP_RECURRENCE_EXPANSION, expansions);
+        expansionCombo.setToolTipText("LOCAL: fetch recurring series once and expand them locally");
+        expansionRow.add(expansionCombo);
+        inputPanel.add(expansionRow);
+
         // Result Variable - as ComboBox
         JPanel resultRow = new JPanel();
         resultRow.add(new JLabel("Result Variable:"));
         JComboBox<?> resultCombo = NodePropertiesDialog.createComboBox(
                 properties,
                 PROP_RESULT_VAR,
-                getListVariables()
+                getListVariables(true)
         );
-        resultCombo.setToolTipText("Output: formatted event list will be stored here");
+        resultCombo.setToolTipText("Output: event list (String for JSON, struct variable for STRUCT)");
         resultRow.add(resultCombo);
         inputPanel.add(resultRow);
+        inputPanel.add(createQuotaEdgeRow(properties));
 
         mainPanel.add(new JScrollPane(inputPanel), BorderLayout.CENTER);
         return mainPanel;
@@ -469,4 +1081,18 @@ public class ListEventsNode extends GoogleCalendarNode {
     public void writeVoiceXML(XMLWriter out, IdMap uid_map) {
         // not relevant
     }
+
+    /**
+     * Result of a CHANGES_SINCE listing: the changed events and the next cursor.
+     */
+    static final class Changes {
+
+        final List<EventRecord> events;
+        final String cursor;
+
+        Changes(List<EventRecord> events, long requestStart, String nextSyncToken) {
+            this.events = events;
+            this.cursor = nextSyncToken != null ? requestStart + ":" + nextSyncToken : String.valueOf(requestStart);
+        }
+    }
 }
@@ -0,0 +1,281 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.services.calendar.model.Event;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+
+/**
+ * LocalWriteLog - The recent writes of the Create, Update and Delete nodes,
+ * for read-your-writes consistency.
+ *
+ * Every write gets a version from one counter; a dialog session remembers
+ * the version of its last write (session stamp) and the events it wrote.
+ * Local state may only answer a session's reads if it includes the
+ * session stamp (CalendarMirror.getWriteVersion()).
+ *
+ * Writes are retained for RETENTION_MILLIS, long enough for the listings and
+ * syncs of the API to catch up with them:
+ * ├─ CalendarMirror syncs and listings do not override a retained write with
+ * │  an older version of the event (supersedes()); a full sync applies the
+ * │  retained writes again after clearing the store
+ * └─ ListEventsNode results show the session's own retained writes
+ *    (overlay()), even if the API lists the event late or not yet
+ *
+ * A listed version that is newer than the write (another client changed the
+ * event afterwards) ends its retention. A deletion is kept as a cancelled
+ * event with only its ID; its modification time is the local time of the
+ * delete. Sessions are keyed like in SessionQuota (the run's WozInterface)
+ * and held weakly.
+ */
+public class LocalWriteLog {
+
+
+    static final long RETENTION_MILLIS = TimeUnit.SECONDS.toMillis(60);
+    private static final String STATUS_CANCELLED = "cancelled";
+
+    private final Map<String, Write> writes = new LinkedHashMap<>();
+    private final Map<Object, Session> sessions = new WeakHashMap<>();
+    private long version;
+
+
+    /**
+     * Records the event returned by an insert, update or patch request.
+     *
+     * @return the version of the write
+     */
+    public long recordWrite(Object sessionKey, String calendarId, Event written) {
+        return record(sessionKey, calendarId, written);
+    }
+
+
+    /**
+     * Records the deletion of an event.
+     *
+     * @return the version of the write
+     */
+    public long recordDelete(Object sessionKey, String calendarId, String eventId) {
+        return record(sessionKey, calendarId, new Event().setId(eventId).setStatus(STATUS_CANCELLED));
+    }
+
+
+    private synchronized long record(Object sessionKey, String calendarId, Event event) {
+        long now = System.currentTimeMillis();
+        prune(now);
+        long updated = event.getUpdated() != null ? event.getUpdated().getValue() : now;
+        Write write = new Write(++version, calendarId, event, now, updated);
+        // Re-insert, so the map stays in write order for pruning
+        writes.remove(write.key());
+        writes.put(write.key(), write);
+        if (sessionKey != null) {
+            Session session = sessions.computeIfAbsent(sessionKey, key -> new Session());
+            session.stamp = write.version;
+            session.keys.remove(write.key());
+            session.keys.add(write.key());
+        }
+        return write.version;
+    }
+
+
+    /**
+     * Returns the version of the last write of any session.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+
+    /**
+     * Returns the session stamp: the version of the session's last write, 0 if none.
+     */
+    public synchronized long getSessionStamp(Object sessionKey) {
+        Session session = sessions.get(sessionKey);
+        return session != null ? session.stamp : 0;
+    }
+
+
+    /**
+     * Returns true if a retained write of the event is at least as recent as a
+     * listed version last modified at listedUpdated (EventRecord.NO_TIME if
+     * unknown); syncs and listings must then not override the write. A newer
+     * listed version ends the retention of the write.
+     */
+    public synchronized boolean supersedes(String calendarId, String eventId, long listedUpdated) {
+        prune(System.currentTimeMillis());
+        String key = key(calendarId, eventId);
+        Write write = writes.get(key);
+        if (write == null) {
+            return false;
+        }
+        if (listedUpdated != EventRecord.NO_TIME && listedUpdated > write.updated) {
+            writes.remove(key);
+            return false;
+        }
+        return true;
+    }
+
+
+    /**
+     * Returns the retained writes of a calendar in write order
+     * (deletions as cancelled events).
+     */
+    public synchronized List<Event> retained(String calendarId) {
+        prune(System.currentTimeMillis());
+        List<Event> result = new ArrayList<>();
+        for (Write write : writes.values()) {
+            if (write.calendarId.equals(calendarId)) {
+                result.add(write.event);
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns the retained writes of a session, in write order.
+     */
+    public synchronized List<Write> sessionWrites(Object sessionKey, String calendarId) {
+        Session session = sessions.get(sessionKey);
+        if (session == null) {
+            return Collections.emptyList();
+        }
+        prune(System.currentTimeMillis());
+        List<Write> result = new ArrayList<>();
+        for (Iterator<String> keys = session.keys.iterator(); keys.hasNext(); ) {
+            Write write = writes.get(keys.next());
+            if (write == null) {
+                keys.remove();
+            } else if (write.calendarId.equals(calendarId)) {
+                result.add(write);
+            }
+        }
+        result.sort((a, b) -> Long.compare(a.version, b.version));
+        return result;
+    }
+
+
+    /**
+     * Shows the session's own writes in a listing: a written event replaces its
+     * listed version or, if it matches the listing but is missing, is inserted
+     * in start order; a deleted event is removed.
+     *
+     * @param records the listing, sorted by start if sortedByStart
+     * @param matches whether an event belongs in this listing (mode, window, query)
+     * @param complete false if the API had more results than returned; then an
+     *        event starting after the last listed one is not inserted
+     * @return the number of records changed
+     */
+    public int overlay(Object sessionKey, String calendarId, List<EventRecord> records,
+            Predicate<EventRecord> matches, boolean sortedByStart, boolean complete) {
+        int changed = 0;
+        for (Write write : sessionWrites(sessionKey, calendarId)) {
+            String eventId = write.event.getId();
+            int index = indexOf(records, eventId);
+            EventRecord record = write.isDelete() ? null : EventConverter.toEventRecord(write.event);
+            boolean keep = record != null && record.hasTimes() && write.event.getRecurrence() == null
+                    && matches.test(record);
+            if (index >= 0) {
+                records.remove(index);
+                changed++;
+            }
+            if (!keep) {
+                continue;
+            }
+            int position = records.size();
+            if (sortedByStart) {
+                position = 0;
+                while (position < records.size() && records.get(position).getStart() <= record.getStart()) {
+                    position++;
+                }
+                if (position == records.size() && !complete && index < 0) {
+                    // Beyond the last listed event: unknown events may lie in between
+                    continue;
+                }
+            }
+            records.add(position, record);
+            if (index < 0) {
+                changed++;
+            }
+        }
+        return changed;
+    }
+
+
+    private static int indexOf(List<EventRecord> records, String eventId) {
+        for (int i = 0; i < records.size(); i++) {
+            if (eventId.equals(records.get(i).getId())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    // Writes are in write order, so expired ones are at the head
+    private void prune(long now) {
+        for (Iterator<Write> it = writes.values().iterator(); it.hasNext(); ) {
+            if (now - it.next().writtenAt <= RETENTION_MILLIS) {
+                break;
+            }
+            it.remove();
+        }
+    }
+
+
+    private static String key(String calendarId, String eventId) {
+        return calendarId + "\n" + eventId;
+    }
+
+
+    private static final class Session {
+
+        long stamp;
+        final Set<String> keys = new LinkedHashSet<>();
+    }
+
+
+    /**
+     * One write: the event as returned by the API, or a cancelled event for a deletion.
+     */
+    public static final class Write {
+
+        private final long version;
+        private final String calendarId;
+        private final Event event;
+        private final long writtenAt;
+        private final long updated;
+
+        Write(long version, String calendarId, Event event, long writtenAt, long updated) {
+            this.version = version;
+            this.calendarId = calendarId;
+            this.event = event;
+            this.writtenAt = writtenAt;
+            this.updated = updated;
+        }
+
+        public long getVersion() { return version; }
+        public String getCalendarId() { return calendarId; }
+        public Event getEvent() { return event; }
+        public long getWrittenAt() { return writtenAt; }
+        public long getUpdated() { return updated; }
+
+        public boolean isDelete() {
+            return STATUS_CANCELLED.equals(event.getStatus());
+        }
+
+        String key() {
+            return LocalWriteLog.key(calendarId, event.getId());
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.client.http.HttpContent;
+import com.google.api.client.http.HttpExecuteInterceptor;
+import com.google.api.client.http.HttpIOExceptionHandler;
+import com.google.api.client.http.HttpRequest;
+import com.google.api.client.http.HttpRequestInitializer;
+import com.google.api.client.http.HttpResponse;
+import com.google.api.client.http.HttpResponseInterceptor;
+import com.google.api.client.http.HttpUnsuccessfulResponseHandler;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * MetricsRequestInitializer - Records every Calendar API request in CalendarMetrics.
+ *
+ * Wraps the credentials initializer of the Calendar client and chains itself
+ * in front of the interceptor and handlers that initializer installs, so
+ * token refreshes and retries keep working. Per attempt (a retried request
+ * counts once per attempt) it records:
+ * ├─ latency until the response headers arrived (or the I/O error)
+ * ├─ errors: HTTP status >= 400 and I/O failures
+ * ├─ retries: attempts the client repeats after a handler asked for it
+ * └─ payload: uncompressed request body, response Content-Length
+ *
+ * Each attempt is also a JFR ApiRequest event, each repeated attempt an
+ * ApiRetry event (see CalendarFlightEvents). The API method (e.g. events.list)
+ * is derived from HTTP method and URL path.
+ *
+ * Before each attempt is sent it is charged to the dialog session of the
+ * calling node (SessionQuota); an attempt over budget fails right there.
+ */
+class MetricsRequestInitializer implements HttpRequestInitializer {
+
+
+    private static final String METHOD_OVERRIDE_HEADER = "X-HTTP-Method-Override";
+
+    private final HttpRequestInitializer delegate;
+    private final CalendarMetrics metrics;
+
+
+    MetricsRequestInitializer(HttpRequestInitializer delegate, CalendarMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+
+    @Override
+    public void initialize(HttpRequest request) throws IOException {
+        if (delegate != null) {
+            delegate.initialize(request);
+        }
+        RequestObserver observer = new RequestObserver(request.getInterceptor(),
+                request.getResponseInterceptor(), request.getUnsuccessfulResponseHandler(),
+                request.getIOExceptionHandler());
+        request.setInterceptor(observer);
+        request.setResponseInterceptor(observer);
+        request.setUnsuccessfulResponseHandler(observer);
+        request.setIOExceptionHandler(observer);
+    }
+
+
+    /**
+     * Maps HTTP method and path to the API method name, e.g.
+     * GET /calendar/v3/calendars/{id}/events → events.list.
+     */
+    static String apiMethodName(String httpMethod, String path) {
+        String[] segments = path == null ? new String[0] : path.split("/");
+        int events = -1;
+        for (int i = 0; i < segments.length; i++) {
+            if ("batch".equals(segments[i])) {
+                return "batch";
+            }
+            if ("freeBusy".equals(segments[i])) {
+                return "freebusy.query";
+            }
+            if ("channels".equals(segments[i]) && i + 1 < segments.length) {
+                return "channels." + segments[i + 1];
+            }
+            if ("events".equals(segments[i]) && i >= 2 && "calendars".equals(segments[i - 2])) {
+                events = i;
+                break;
+            }
+        }
+        if (events < 0) {
+            return "other";
+        }
+
+        int remaining = segments.length - events - 1;
+        if (remaining == 0) {
+            return "POST".equals(httpMethod) ? "events.insert" : "events.list";
+        }
+        if (remaining == 1 && "POST".equals(httpMethod)) {
+            // events/import, events/quickAdd, events/watch
+            return "events." + segments[events + 1];
+        }
+        if (remaining == 2) {
+            // events/{eventId}/instances, events/{eventId}/move
+            return "events." + segments[events + 2];
+        }
+        switch (httpMethod) {
+            case "GET":
+                return "events.get";
+            case "PUT":
+                return "events.update";
+            case "PATCH":
+                return "events.patch";
+            case "DELETE":
+                return "events.delete";
+            default:
+                return "other";
+        }
+    }
+
+
+    /**
+     * Returns the calendar ID of a .../calendars/{calendarId}/... path, or null.
+     */
+    static String calendarId(String path) {
+        String[] segments = path == null ? new String[0] : path.split("/");
+        for (int i = 0; i < segments.length - 1; i++) {
+            if ("calendars".equals(segments[i])) {
+                return URLDecoder.decode(segments[i + 1], StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Per-request state: start time of the current attempt and the resolved API method.
+     */
+    private class RequestObserver implements HttpExecuteInterceptor, HttpResponseInterceptor,
+            HttpUnsuccessfulResponseHandler, HttpIOExceptionHandler {
+
+        private final HttpExecuteInterceptor nextInterceptor;
+        private final HttpResponseInterceptor nextResponseInterceptor;
+        private final HttpUnsuccessfulResponseHandler nextResponseHandler;
+        private final HttpIOExceptionHandler nextIOExceptionHandler;
+
+        private OperationMetrics operation;
+        private String httpMethod;
+        private long attemptStarted;
+        private long sentBytes;
+        private boolean attemptRecorded;
+        private int attempt;
+        private CalendarFlightEvents.ApiRequest event;
+
+        RequestObserver(HttpExecuteInterceptor nextInterceptor, HttpResponseInterceptor nextResponseInterceptor,
+                HttpUnsuccessfulResponseHandler nextResponseHandler, HttpIOExceptionHandler nextIOExceptionHandler) {
+            this.nextInterceptor = nextInterceptor;
+            this.nextResponseInterceptor = nextResponseInterceptor;
+            this.nextResponseHandler = nextResponseHandler;
+            this.nextIOExceptionHandler = nextIOExceptionHandler;
+        }
+
+        @Override
+        public void intercept(HttpRequest request) throws IOException {
+            if (operation == null) {
+                // URL and method are only set after the initializer ran
+                httpMethod = request.getRequestMethod();
+                Object override = request.getHeaders().get(METHOD_OVERRIDE_HEADER);
+                if (override != null) {
+                    httpMethod = override.toString();
+                }
+                operation = metrics.apiMethod(apiMethodName(httpMethod, request.getUrl().getRawPath()));
+            }
+            // Counts against the session budget, or refuses to send the attempt
+            SessionQuota.charge(operation.getName());
+            attempt++;
+            if (nextInterceptor != null) {
+                nextInterceptor.intercept(request);
+            }
+            HttpContent content = request.getContent();
+            // HttpRequest asks for the length anyway; AbstractHttpContent caches it
+            sentBytes = content != null ? content.getLength() : 0;
+            attemptRecorded = false;
+            event = new CalendarFlightEvents.ApiRequest();
+            event.begin();
+            attemptStarted = System.nanoTime();
+        }
+
+        /**
+         * Called by HttpRequest for every unsuccessful attempt, before it decides on a retry.
+         */
+        @Override
+        public boolean handleResponse(HttpRequest request, HttpResponse response, boolean supportsRetry)
+                throws IOException {
+            recordAttempt(request, response, true);
+            CalendarFlightEvents.ApiRetry retryEvent = new CalendarFlightEvents.ApiRetry();
+            retryEvent.begin();
+            boolean retry = nextResponseHandler != null
+                    && nextResponseHandler.handleResponse(request, response, supportsRetry);
+            if (retry && supportsRetry) {
+                recordRetry(retryEvent, request, response.getStatusCode());
+            }
+            return retry;
+        }
+
+        /**
+         * Called once with the final response; records it unless handleResponse already did.
+         */
+        @Override
+        public void interceptResponse(HttpResponse response) throws IOException {
+            recordAttempt(response.getRequest(), response, response.getStatusCode() >= 400);
+            if (nextResponseInterceptor != null) {
+                nextResponseInterceptor.interceptResponse(response);
+            }
+        }
+
+        @Override
+        public boolean handleIOException(HttpRequest request, boolean supportsRetry) throws IOException {
+            if (operation != null) {
+                recordAttempt(request, null, true);
+            }
+            CalendarFlightEvents.ApiRetry retryEvent = new CalendarFlightEvents.ApiRetry();
+            retryEvent.begin();
+            boolean retry = nextIOExceptionHandler != null
+                    && nextIOExceptionHandler.handleIOException(request, supportsRetry);
+            if (retry && supportsRetry && operation != null) {
+                recordRetry(retryEvent, request, 0);
+            }
+            return retry;
+        }
+
+        /**
+         * Records the current attempt once; response is null after an I/O error.
+         */
+        private void recordAttempt(HttpRequest request, HttpResponse response, boolean failed) {
+            if (attemptRecorded) {
+                return;
+            }
+            attemptRecorded = true;
+            Long contentLength = response != null ? response.getHeaders().getContentLength() : null;
+            long receivedBytes = contentLength != null ? contentLength : -1;
+            operation.recordCall(System.nanoTime() - attemptStarted, failed);
+            operation.recordPayload(sentBytes, receivedBytes);
+
+            if (event != null && event.shouldCommit()) {
+                event.apiMethod = operation.getName();
+                event.httpMethod = httpMethod;
+                event.calendarId = calendarId(request.getUrl().getRawPath());
+                event.statusCode = response != null ? response.getStatusCode() : 0;
+                event.attempt = attempt;
+                event.requestBytes = sentBytes;
+                event.responseBytes = receivedBytes;
+                event.commit();
+            }
+        }
+
+        /**
+         * Records a retry; the JFR event spans the handler's backoff wait.
+         */
+        private void recordRetry(CalendarFlightEvents.ApiRetry retry, HttpRequest request, int statusCode) {
+            operation.recordRetry();
+            if (retry.shouldCommit()) {
+                retry.apiMethod = operation.getName();
+                retry.calendarId = calendarId(request.getUrl().getRawPath());
+                retry.statusCode = statusCode;
+                retry.attempt = attempt;
+                retry.commit();
+            }
+        }
+    }
+}
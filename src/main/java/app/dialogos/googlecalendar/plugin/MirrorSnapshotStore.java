@@ -0,0 +1,354 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * MirrorSnapshotStore - Persists calendar mirrors to compact binary snapshots
+ * so a restarted runtime does not have to list every calendar again.
+ *
+ * One file per calendar (<calendar ID, URL-encoded>.mirror) holds the
+ * syncToken, the time of the last sync and the events of the mirror
+ * (times, flags and text). At startup the snapshots of the configured
+ * calendars are read, checked and loaded into their mirrors; a mirror is
+ * usable right away (within its staleness limits) and an incremental sync
+ * from the saved token brings it up to date. An expired token falls back to
+ * a full sync as usual. Snapshots of calendars that are no longer configured,
+ * and temporary files of interrupted saves, are deleted. MirrorSnapshotBenchmark
+ * compares loading a snapshot with the full sync it replaces.
+ *
+ * Snapshots are written every SAVE_INTERVAL for mirrors that received
+ * changes since the last save, and once more on close(). Each write goes to
+ * a temporary file that then replaces the snapshot, so a crash never leaves
+ * a torn file behind; a damaged or foreign file is skipped on load.
+ *
+ * File format: "GCMIRR03", calendar ID, syncToken (int length + UTF-8 each),
+ *   last sync, sync window start and end (long epoch millis), event count (int),
+ *   per event in start order: start, end (long epoch millis), flags (byte: 1 busy, 2 all-day),
+ *     event ID, summary, location, description (int length + UTF-8, -1 for none),
+ *   CRC32 of everything before (long)
+ * Snapshots of other versions are skipped; the mirror then syncs in full.
+ */
+public class MirrorSnapshotStore implements Closeable {
+
+
+    private static final Logger LOG = LoggerFactory.getLogger(MirrorSnapshotStore.class);
+
+    static final long SAVE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    // A sync running longer than this delays a save to the next interval
+    private static final long SYNC_WAIT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private static final byte[] MAGIC = "GCMIRR03".getBytes(StandardCharsets.US_ASCII);
+    private static final String SUFFIX = ".mirror";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final byte FLAG_BUSY = 1;
+    private static final byte FLAG_ALL_DAY = 2;
+
+    private final Path directory;
+    private final Executor saveExecutor;
+    private final ScheduledThreadPoolExecutor timer;
+    // Received changes of each mirror at its last save
+    private final Map<String, Long> savedChanges = new ConcurrentHashMap<>();
+    private volatile Supplier<Collection<CalendarMirror>> mirrors;
+
+
+    /**
+     * @param directory directory of the snapshot files; created if missing
+     * @param saveExecutor executor the periodic saves run on
+     */
+    public MirrorSnapshotStore(Path directory, Executor saveExecutor) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.saveExecutor = saveExecutor;
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "GoogleCalendar-SnapshotTimer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+
+    /**
+     * Loads the snapshots of the given calendars and deletes the snapshots of
+     * all other calendars as well as leftover temporary files. Unreadable
+     * snapshots are logged and skipped; the next save replaces them.
+     */
+    public List<CalendarMirror> loadAll(Collection<String> calendarIds) {
+        List<CalendarMirror> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory,
+                "*{" + SUFFIX + "," + SUFFIX + TEMPORARY_SUFFIX + "}")) {
+            for (Path file : files) {
+                String calendarId = calendarIdOf(file);
+                if (calendarId == null) {
+                    delete(file, "left over from an interrupted save");
+                    continue;
+                }
+                if (!calendarIds.contains(calendarId)) {
+                    delete(file, "its calendar is not configured");
+                    continue;
+                }
+                try {
+                    long started = System.nanoTime();
+                    CalendarMirror mirror = load(file);
+                    savedChanges.put(mirror.getCalendarId(), mirror.getReceivedChanges());
+                    loaded.add(mirror);
+                    LOG.info("Restored mirror of {} from {}: {} events in {} ms", mirror.getCalendarId(), file,
+                            mirror.getEvents().size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+                } catch (IOException e) {
+                    LOG.warn("Ignoring mirror snapshot {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            LOG.warn("Could not read mirror snapshots from {}: {}", directory, e.getMessage());
+        }
+        return loaded;
+    }
+
+
+    /**
+     * Saves the mirrors of the supplier every SAVE_INTERVAL (those with changes only).
+     */
+    public void start(Supplier<Collection<CalendarMirror>> mirrors) {
+        this.mirrors = mirrors;
+        timer.scheduleWithFixedDelay(() -> {
+            try {
+                saveExecutor.execute(this::saveChanged);
+            } catch (RejectedExecutionException e) {
+                // executor shut down, close() saves
+            }
+        }, SAVE_INTERVAL_MILLIS, SAVE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+
+    /**
+     * Stops the periodic saves and saves all mirrors with changes.
+     */
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        if (mirrors != null) {
+            saveChanged();
+        }
+    }
+
+
+    /**
+     * Writes the snapshot of a mirror; returns false if there was nothing to
+     * save yet (never synced) or a running sync did not finish in time.
+     */
+    public boolean save(CalendarMirror mirror) throws IOException {
+        long changes = mirror.getReceivedChanges();
+        byte[] snapshot = mirror.snapshot(SYNC_WAIT_MILLIS);
+        if (snapshot == null) {
+            return false;
+        }
+        Path file = fileOf(mirror.getCalendarId());
+        Path temporary = file.resolveSibling(file.getFileName() + TEMPORARY_SUFFIX);
+        Files.write(temporary, snapshot);
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        savedChanges.put(mirror.getCalendarId(), changes);
+        LOG.debug("Saved mirror of {} ({} events, {} bytes)", mirror.getCalendarId(),
+                mirror.getEvents().size(), snapshot.length);
+        return true;
+    }
+
+
+    private void saveChanged() {
+        for (CalendarMirror mirror : mirrors.get()) {
+            Long saved = savedChanges.get(mirror.getCalendarId());
+            if (!mirror.isSynced() || (saved != null && saved == mirror.getReceivedChanges())) {
+                continue;
+            }
+            try {
+                save(mirror);
+            } catch (IOException e) {
+                LOG.warn("Could not save mirror snapshot of {}: {}", mirror.getCalendarId(), e.getMessage());
+            }
+        }
+    }
+
+
+    private Path fileOf(String calendarId) {
+        return directory.resolve(URLEncoder.encode(calendarId, StandardCharsets.UTF_8) + SUFFIX);
+    }
+
+
+    /**
+     * Returns the calendar ID of a snapshot file name, null for a temporary file.
+     */
+    private static String calendarIdOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.endsWith(SUFFIX)) {
+            return null;
+        }
+        try {
+            return URLDecoder.decode(name.substring(0, name.length() - SUFFIX.length()), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+
+    private static void delete(Path file, String reason) {
+        try {
+            Files.deleteIfExists(file);
+            LOG.info("Deleted mirror snapshot {}: {}", file, reason);
+        } catch (IOException e) {
+            LOG.warn("Could not delete mirror snapshot {}: {}", file, e.getMessage());
+        }
+    }
+
+
+    /**
+     * Encodes a snapshot; the caller keeps syncs out while this runs.
+     */
+    static byte[] encode(String calendarId, String syncToken, long lastSyncMillis, long windowStart,
+            long windowEnd, ColumnarEventStore events) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + events.size() * 96);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write(MAGIC);
+        writeString(out, calendarId);
+        writeString(out, syncToken);
+        out.writeLong(lastSyncMillis);
+        out.writeLong(windowStart);
+        out.writeLong(windowEnd);
+        // Count and entries under one lock: write requests may still change the store
+        synchronized (events) {
+            out.writeInt(events.size());
+            try {
+                events.forEach(slot -> {
+                    try {
+                        out.writeLong(events.getStart(slot));
+                        out.writeLong(events.getEnd(slot));
+                        out.writeByte((events.isBusy(slot) ? FLAG_BUSY : 0)
+                                | (events.isAllDay(slot) ? FLAG_ALL_DAY : 0));
+                        writeString(out, events.getId(slot));
+                        writeString(out, events.getSummary(slot));
+                        writeString(out, events.getLocation(slot));
+                        writeString(out, events.getDescription(slot));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeLong(crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * Reads a snapshot file and rebuilds the mirror from it. The events are
+     * copied into the mirror's store anyway, so the file is read in one go
+     * rather than mapped.
+     */
+    static CalendarMirror load(Path file) throws IOException {
+        ByteBuffer snapshot = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (snapshot.capacity() < MAGIC.length + Long.BYTES) {
+            throw new IOException("Not a mirror snapshot");
+        }
+
+        ByteBuffer content = snapshot.duplicate();
+        content.limit(snapshot.capacity() - Long.BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(content.duplicate());
+        if (crc.getValue() != snapshot.getLong(snapshot.capacity() - Long.BYTES)) {
+            throw new IOException("Checksum mismatch");
+        }
+
+        try {
+            byte[] magic = new byte[MAGIC.length];
+            content.get(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a mirror snapshot");
+            }
+            String calendarId = readString(content);
+            String syncToken = readString(content);
+            long lastSyncMillis = content.getLong();
+            long windowStart = content.getLong();
+            long windowEnd = content.getLong();
+            int count = content.getInt();
+
+            CalendarMirror mirror = CalendarMirror.restore(calendarId, syncToken, lastSyncMillis,
+                    windowStart, windowEnd);
+            ColumnarEventStore events = mirror.getEvents();
+            for (int i = 0; i < count; i++) {
+                long start = content.getLong();
+                long end = content.getLong();
+                byte flags = content.get();
+                String eventId = readString(content);
+                if (eventId == null) {
+                    throw new IOException("Event without ID");
+                }
+                events.put(eventId, start, end, (flags & FLAG_BUSY) != 0, (flags & FLAG_ALL_DAY) != 0,
+                        readString(content), readString(content), readString(content));
+            }
+            return mirror;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Truncated mirror snapshot", e);
+        }
+    }
+
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == -1) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,260 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.services.calendar.Calendar;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * MirrorSyncScheduler - Keeps calendar mirrors fresh with per-calendar,
+ * adaptive sync intervals.
+ *
+ * Each tracked mirror is synced incrementally (syncToken; only the first
+ * sync and an expired token list the whole calendar). After every sync the
+ * calendar's interval is adapted:
+ * ├─ no changes     → interval doubles (exponential backoff up to maxInterval)
+ * ├─ changes        → interval shrinks to the mean time between the observed
+ * │                   changes (elapsed time / changes), never grows
+ * ├─ sync failed    → interval doubles
+ * ├─ dialog activity → the next sync is at most ACTIVE_INTERVAL away while a
+ * │                   dialog used the calendar within ACTIVITY_WINDOW
+ * └─ local write    → interval drops to minInterval and the next sync comes
+ *                     minInterval after the write
+ *
+ * So an idle calendar costs a request every maxInterval, a busy one is
+ * polled as often as it changes, and the calendar a dialog is working on
+ * stays close to live. Syncs run on the runtime's background executor
+ * (background lane of the RequestScheduler); this class only keeps time on
+ * its own daemon thread. A mirror synced elsewhere (e.g. by a conflict
+ * check) in the meantime postpones the scheduled sync instead of repeating it.
+ */
+public class MirrorSyncScheduler implements Closeable {
+
+
+    private static final Logger LOG = LoggerFactory.getLogger(MirrorSyncScheduler.class);
+
+    public static final String MODE_OFF = "off";
+    public static final String MODE_ADAPTIVE = "adaptive";
+    public static final long DEFAULT_MIN_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(5);
+    public static final long DEFAULT_MAX_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(15);
+    static final long ACTIVE_INTERVAL_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    static final long ACTIVITY_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final Calendar service;
+    private final Executor syncExecutor;
+    private final long minIntervalMillis;
+    private final long maxIntervalMillis;
+    private final ScheduledThreadPoolExecutor timer;
+    private final Map<String, Schedule> schedules = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+
+    /**
+     * @param service Calendar client used for the syncs
+     * @param syncExecutor executor the syncs run on
+     */
+    public MirrorSyncScheduler(Calendar service, Executor syncExecutor, long minIntervalMillis,
+            long maxIntervalMillis) {
+        if (minIntervalMillis <= 0 || maxIntervalMillis < minIntervalMillis) {
+            throw new IllegalArgumentException("Invalid sync intervals: " + minIntervalMillis
+                    + " .. " + maxIntervalMillis + " ms");
+        }
+        this.service = service;
+        this.syncExecutor = syncExecutor;
+        this.minIntervalMillis = minIntervalMillis;
+        this.maxIntervalMillis = maxIntervalMillis;
+        this.timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "GoogleCalendar-SyncTimer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+
+    /**
+     * Starts keeping a mirror fresh; an unsynced mirror is synced right away.
+     */
+    public void track(CalendarMirror mirror) {
+        Schedule schedule = new Schedule(mirror, minIntervalMillis);
+        if (schedules.putIfAbsent(mirror.getCalendarId(), schedule) == null) {
+            synchronized (schedule) {
+                scheduleIn(schedule, mirror.isSynced() ? minIntervalMillis : 0);
+            }
+        }
+    }
+
+
+    /**
+     * A dialog used the calendar: keep it within ACTIVE_INTERVAL for a while.
+     */
+    public void noteActivity(String calendarId) {
+        Schedule schedule = schedules.get(calendarId);
+        if (schedule == null) {
+            return;
+        }
+        synchronized (schedule) {
+            schedule.lastActivityMillis = System.currentTimeMillis();
+            scheduleIn(schedule, Math.min(schedule.intervalMillis, ACTIVE_INTERVAL_MILLIS)
+                    - schedule.mirror.getStalenessMillis());
+        }
+    }
+
+
+    /**
+     * The plugin wrote to the calendar: others tend to react (replies, edits),
+     * so look again soon and reset the backoff.
+     */
+    public void noteLocalWrite(String calendarId) {
+        Schedule schedule = schedules.get(calendarId);
+        if (schedule == null) {
+            return;
+        }
+        synchronized (schedule) {
+            schedule.lastActivityMillis = System.currentTimeMillis();
+            schedule.intervalMillis = minIntervalMillis;
+            scheduleIn(schedule, minIntervalMillis);
+        }
+    }
+
+
+    /**
+     * Returns the current sync interval of a calendar in milliseconds, or -1 if it is not tracked.
+     */
+    public long getIntervalMillis(String calendarId) {
+        Schedule schedule = schedules.get(calendarId);
+        if (schedule == null) {
+            return -1;
+        }
+        synchronized (schedule) {
+            return effectiveInterval(schedule);
+        }
+    }
+
+
+    @Override
+    public void close() {
+        closed = true;
+        timer.shutdownNow();
+        schedules.clear();
+    }
+
+
+    /**
+     * (Re)schedules the next sync in delayMillis unless one is already due earlier.
+     * Caller holds the schedule's lock.
+     */
+    private void scheduleIn(Schedule schedule, long delayMillis) {
+        if (closed) {
+            return;
+        }
+        long delay = Math.max(0, delayMillis);
+        long dueAt = System.currentTimeMillis() + delay;
+        if (schedule.pending != null) {
+            if (schedule.dueAtMillis <= dueAt) {
+                return;
+            }
+            schedule.pending.cancel(false);
+        }
+        schedule.dueAtMillis = dueAt;
+        try {
+            schedule.pending = timer.schedule(() -> submit(schedule), delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // closed concurrently
+            schedule.pending = null;
+        }
+    }
+
+
+    private void submit(Schedule schedule) {
+        synchronized (schedule) {
+            schedule.pending = null;
+        }
+        try {
+            syncExecutor.execute(() -> run(schedule));
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Sync of {} not started, executor shut down", schedule.mirror.getCalendarId());
+        }
+    }
+
+
+    private void run(Schedule schedule) {
+        if (closed) {
+            return;
+        }
+        CalendarMirror mirror = schedule.mirror;
+        long elapsed;
+        synchronized (schedule) {
+            long interval = effectiveInterval(schedule);
+            elapsed = mirror.getStalenessMillis();
+            if (mirror.isSynced() && elapsed < interval) {
+                // Synced by someone else in the meantime
+                scheduleIn(schedule, interval - elapsed);
+                return;
+            }
+        }
+
+        boolean incremental = mirror.isSynced();
+        try {
+            int changes = mirror.sync(service);
+            synchronized (schedule) {
+                if (!incremental) {
+                    schedule.intervalMillis = minIntervalMillis;
+                } else if (changes == 0) {
+                    schedule.intervalMillis = Math.min(maxIntervalMillis, schedule.intervalMillis * 2);
+                } else {
+                    long meanTimeBetweenChanges = elapsed / changes;
+                    schedule.intervalMillis = Math.max(minIntervalMillis,
+                            Math.min(schedule.intervalMillis, meanTimeBetweenChanges));
+                }
+            }
+            LOG.debug("Sync of {}: {} changes, next in {} ms", mirror.getCalendarId(), changes,
+                    getIntervalMillis(mirror.getCalendarId()));
+        } catch (IOException | RuntimeException e) {
+            LOG.warn("Scheduled sync of {} failed: {}", mirror.getCalendarId(), e.getMessage());
+            synchronized (schedule) {
+                schedule.intervalMillis = Math.min(maxIntervalMillis, schedule.intervalMillis * 2);
+            }
+        } finally {
+            synchronized (schedule) {
+                scheduleIn(schedule, effectiveInterval(schedule));
+            }
+        }
+    }
+
+
+    private long effectiveInterval(Schedule schedule) {
+        boolean active = System.currentTimeMillis() - schedule.lastActivityMillis < ACTIVITY_WINDOW_MILLIS;
+        return active ? Math.min(schedule.intervalMillis, ACTIVE_INTERVAL_MILLIS) : schedule.intervalMillis;
+    }
+
+
+    /**
+     * Sync state of one calendar; guarded by its own monitor.
+     */
+    private static class Schedule {
+
+        private final CalendarMirror mirror;
+        private long intervalMillis;
+        private long lastActivityMillis = Long.MIN_VALUE / 2;
+        private ScheduledFuture<?> pending;
+        private long dueAtMillis;
+
+        Schedule(CalendarMirror mirror, long intervalMillis) {
+            this.mirror = mirror;
+            this.intervalMillis = intervalMillis;
+        }
+    }
+}
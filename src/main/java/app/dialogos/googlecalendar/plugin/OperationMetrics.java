@@ -0,0 +1,144 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * OperationMetrics - Latency histogram and counters of one node type or API method.
+ *
+ * Instances are created and registered by CalendarMetrics; the record methods
+ * are lock-free and allocation-free.
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+
+
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder requestBytes = new LongAdder();
+    private final LongAdder responseBytes = new LongAdder();
+
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+
+    /**
+     * Records one completed call (successful or not) with its duration.
+     */
+    public void recordCall(long nanos, boolean failed) {
+        latency.record(nanos);
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+
+    public void recordRetry() {
+        retries.increment();
+    }
+
+
+    /**
+     * Adds payload sizes; negative values (unknown length) are ignored.
+     */
+    public void recordPayload(long sentBytes, long receivedBytes) {
+        if (sentBytes > 0) {
+            requestBytes.add(sentBytes);
+        }
+        if (receivedBytes > 0) {
+            responseBytes.add(receivedBytes);
+        }
+    }
+
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+
+    @Override
+    public long getCalls() {
+        return latency.getCount();
+    }
+
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+
+    @Override
+    public long getRetries() {
+        return retries.sum();
+    }
+
+
+    @Override
+    public long getRequestBytes() {
+        return requestBytes.sum();
+    }
+
+
+    @Override
+    public long getResponseBytes() {
+        return responseBytes.sum();
+    }
+
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMeanNanos() / NANOS_PER_MILLI;
+    }
+
+
+    @Override
+    public double getP50Millis() {
+        return latency.getValueAtQuantile(0.50) / NANOS_PER_MILLI;
+    }
+
+
+    @Override
+    public double getP90Millis() {
+        return latency.getValueAtQuantile(0.90) / NANOS_PER_MILLI;
+    }
+
+
+    @Override
+    public double getP99Millis() {
+        return latency.getValueAtQuantile(0.99) / NANOS_PER_MILLI;
+    }
+
+
+    @Override
+    public double getP999Millis() {
+        return latency.getValueAtQuantile(0.999) / NANOS_PER_MILLI;
+    }
+
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMaxNanos() / NANOS_PER_MILLI;
+    }
+
+
+    @Override
+    public void reset() {
+        latency.reset();
+        errors.reset();
+        retries.reset();
+        requestBytes.reset();
+        responseBytes.reset();
+    }
+}
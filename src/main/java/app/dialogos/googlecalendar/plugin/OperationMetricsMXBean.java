@@ -0,0 +1,41 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+/**
+ * OperationMetricsMXBean - JMX view of one node type or API method.
+ *
+ * Registered by CalendarMetrics as
+ * app.dialogos.googlecalendar:type=Node,name=&lt;node class&gt; and
+ * app.dialogos.googlecalendar:type=ApiMethod,name=&lt;method&gt;
+ * (e.g. events.list), visible in JConsole / VisualVM.
+ */
+public interface OperationMetricsMXBean {
+
+    long getCalls();
+
+    long getErrors();
+
+    /** Requests repeated by the client (backoff, token refresh); always 0 for nodes. */
+    long getRetries();
+
+    /** Uncompressed request body bytes sent; always 0 for nodes. */
+    long getRequestBytes();
+
+    /** Response bytes as announced by Content-Length; always 0 for nodes. */
+    long getResponseBytes();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+
+    /** Clears all counters and the latency histogram. */
+    void reset();
+}
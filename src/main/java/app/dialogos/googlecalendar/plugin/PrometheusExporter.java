@@ -0,0 +1,327 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * PrometheusExporter - Serves the plugin metrics in the Prometheus text format.
+ *
+ * Started by GoogleCalendarPluginRuntime when "Metrics Port" is set and
+ * answers GET /metrics with:
+ * ├─ dialogos_calendar_node_duration_seconds        summary per node type
+ * ├─ dialogos_calendar_node_errors_total
+ * ├─ dialogos_calendar_api_request_duration_seconds summary per API method
+ * ├─ dialogos_calendar_api_errors_total / _retries_total / _request_bytes_total / _response_bytes_total
+ * ├─ dialogos_calendar_mirror_hits_total / _mirror_misses_total   (conflict checks)
+ * ├─ dialogos_calendar_push_notifications_total (push notifications, if enabled)
+ * ├─ dialogos_calendar_mirror_events / _mirror_staleness_seconds per calendar
+ * ├─ dialogos_calendar_mirror_sync_interval_seconds per calendar (adaptive Mirror Sync)
+ * ├─ dialogos_calendar_cache_*  hits, misses, loads, evictions, ... and weight per cache
+ * ├─ dialogos_calendar_background_queue_depth
+ * └─ dialogos_calendar_scheduler_in_flight / _scheduler_waiting per lane (if limits are set)
+ *
+ * The API request counts (_count of the API summary) are the quota usage:
+ * the Calendar API quota is counted in requests.
+ *
+ * The endpoint has no authentication. A bare port therefore binds the
+ * loopback interface only; to let a Prometheus server on another machine
+ * scrape it, give the interface as host:port (e.g. "0.0.0.0:9464" for all
+ * interfaces) and restrict access to the port by firewall.
+ *
+ * Everything is read from CalendarMetrics and the runtime at scrape time;
+ * nothing is added to the node or request path, so an exporter nobody
+ * scrapes costs one idle thread.
+ */
+public class PrometheusExporter implements Closeable {
+
+
+    private static final Logger LOG = LoggerFactory.getLogger(PrometheusExporter.class);
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final String PREFIX = "dialogos_calendar_";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final GoogleCalendarPluginRuntime runtime;
+    private final CalendarMetrics metrics;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+
+    /**
+     * Creates the exporter on the loopback interface, or on the given host.
+     *
+     * @param address "port" (loopback) or "host:port"
+     */
+    public PrometheusExporter(String address, GoogleCalendarPluginRuntime runtime, CalendarMetrics metrics)
+            throws IOException {
+        this.runtime = runtime;
+        this.metrics = metrics;
+
+        int separator = address.lastIndexOf(':');
+        int port = Integer.parseInt(address.substring(separator + 1).trim());
+        InetSocketAddress bindAddress = separator < 0
+                ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port)
+                : new InetSocketAddress(address.substring(0, separator).trim(), port);
+
+        server = HttpServer.create(bindAddress, 0);
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "GoogleCalendar-Metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(executor);
+        server.createContext("/metrics", this::handle);
+    }
+
+
+    public PrometheusExporter start() {
+        server.start();
+        LOG.info("Prometheus metrics on http://{}:{}/metrics",
+                server.getAddress().getHostString(), server.getAddress().getPort());
+        return this;
+    }
+
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            if ("HEAD".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } catch (RuntimeException e) {
+            LOG.error("Metrics scrape failed", e);
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+
+    /**
+     * Renders all metrics in the text exposition format.
+     */
+    String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+
+        writeSummaries(out, "node_duration_seconds", "Duration of calendar node executions",
+                "node", metrics.getNodeMetrics());
+        writeHeader(out, "node_errors_total", "counter", "Failed calendar node executions");
+        for (OperationMetrics node : metrics.getNodeMetrics()) {
+            writeSample(out, "node_errors_total", "node", node.getName(), node.getErrors());
+        }
+
+        writeSummaries(out, "api_request_duration_seconds",
+                "Duration of Calendar API request attempts until the response headers",
+                "method", metrics.getApiMethodMetrics());
+        writeHeader(out, "api_errors_total", "counter", "Calendar API attempts with HTTP status >= 400 or I/O errors");
+        for (OperationMetrics method : metrics.getApiMethodMetrics()) {
+            writeSample(out, "api_errors_total", "method", method.getName(), method.getErrors());
+        }
+        writeHeader(out, "api_retries_total", "counter", "Calendar API attempts repeated by the client");
+        for (OperationMetrics method : metrics.getApiMethodMetrics()) {
+            writeSample(out, "api_retries_total", "method", method.getName(), method.getRetries());
+        }
+        writeHeader(out, "api_request_bytes_total", "counter", "Uncompressed request body bytes");
+        for (OperationMetrics method : metrics.getApiMethodMetrics()) {
+            writeSample(out, "api_request_bytes_total", "method", method.getName(), method.getRequestBytes());
+        }
+        writeHeader(out, "api_response_bytes_total", "counter", "Response bytes announced by Content-Length");
+        for (OperationMetrics method : metrics.getApiMethodMetrics()) {
+            writeSample(out, "api_response_bytes_total", "method", method.getName(), method.getResponseBytes());
+        }
+
+        for (Map.Entry<String, LongAdder> counter : metrics.getCounters().entrySet()) {
+            String name = counter.getKey() + "_total";
+            writeHeader(out, name, "counter", null);
+            writeSample(out, name, null, null, counter.getValue().sum());
+        }
+
+        writeHeader(out, "mirror_events", "gauge", "Events in the local calendar mirror");
+        for (CalendarMirror mirror : runtime.getCalendarMirrors()) {
+            writeSample(out, "mirror_events", "calendar", mirror.getCalendarId(), mirror.getEvents().size());
+        }
+        writeHeader(out, "mirror_staleness_seconds", "gauge", "Seconds since the last mirror sync (+Inf if never synced)");
+        for (CalendarMirror mirror : runtime.getCalendarMirrors()) {
+            long staleness = mirror.getStalenessMillis();
+            writeSample(out, "mirror_staleness_seconds", "calendar", mirror.getCalendarId(),
+                    staleness == Long.MAX_VALUE ? Double.POSITIVE_INFINITY : staleness / 1000.0);
+        }
+
+        MirrorSyncScheduler syncScheduler = runtime.getSyncScheduler();
+        if (syncScheduler != null) {
+            writeHeader(out, "mirror_sync_interval_seconds", "gauge", "Current adaptive sync interval of the mirror");
+            for (CalendarMirror mirror : runtime.getCalendarMirrors()) {
+                long interval = syncScheduler.getIntervalMillis(mirror.getCalendarId());
+                if (interval >= 0) {
+                    writeSample(out, "mirror_sync_interval_seconds", "calendar", mirror.getCalendarId(), interval / 1000.0);
+                }
+            }
+        }
+
+        writeCaches(out, runtime.getCaches());
+
+        writeHeader(out, "background_queue_depth", "gauge", "Background tasks (mirror syncs) waiting to run");
+        writeSample(out, "background_queue_depth", null, null, runtime.getBackgroundQueueDepth());
+
+        RequestScheduler scheduler = runtime.getRequestScheduler();
+        if (scheduler != null) {
+            writeHeader(out, "scheduler_in_flight", "gauge", "Calendar API requests holding a scheduler slot");
+            writeSample(out, "scheduler_in_flight", null, null, scheduler.getInFlight());
+            writeHeader(out, "scheduler_waiting", "gauge", "Calendar API requests waiting for a slot or token");
+            for (RequestScheduler.Lane lane : RequestScheduler.Lane.values()) {
+                writeSample(out, "scheduler_waiting", "lane", lane.name().toLowerCase(Locale.ROOT),
+                        scheduler.getWaiting(lane));
+            }
+        }
+        return out.toString();
+    }
+
+
+    private static void writeCaches(StringBuilder out, Collection<WeightedCache<?, ?>> caches) {
+        if (caches.isEmpty()) {
+            return;
+        }
+        writeCacheSamples(out, "cache_hits_total", "counter", "Cache lookups answered from the cache",
+                caches, WeightedCache::getHits);
+        writeCacheSamples(out, "cache_misses_total", "counter", "Cache lookups not found or expired",
+                caches, WeightedCache::getMisses);
+        writeCacheSamples(out, "cache_loads_total", "counter", "Values loaded on a miss or by refresh-ahead",
+                caches, WeightedCache::getLoads);
+        writeCacheSamples(out, "cache_load_failures_total", "counter", "Loads that failed",
+                caches, WeightedCache::getLoadFailures);
+        writeCacheSamples(out, "cache_refreshes_total", "counter", "Refresh-ahead loads",
+                caches, WeightedCache::getRefreshes);
+        writeCacheSamples(out, "cache_evictions_total", "counter", "Entries evicted to stay within the weight",
+                caches, WeightedCache::getEvictions);
+        writeCacheSamples(out, "cache_evicted_bytes_total", "counter", "Weight of the evicted entries",
+                caches, WeightedCache::getEvictedWeight);
+        writeCacheSamples(out, "cache_expirations_total", "counter", "Entries dropped after their expiry",
+                caches, WeightedCache::getExpirations);
+        writeCacheSamples(out, "cache_entries", "gauge", "Entries in the cache",
+                caches, WeightedCache::size);
+        writeCacheSamples(out, "cache_weight_bytes", "gauge", "Estimated size of the cached entries",
+                caches, WeightedCache::getWeight);
+        writeCacheSamples(out, "cache_max_weight_bytes", "gauge", "Configured maximum size",
+                caches, WeightedCache::getMaximumWeight);
+    }
+
+
+    private static void writeCacheSamples(StringBuilder out, String name, String type, String help,
+            Collection<WeightedCache<?, ?>> caches, ToLongFunction<WeightedCache<?, ?>> value) {
+        writeHeader(out, name, type, help);
+        for (WeightedCache<?, ?> cache : caches) {
+            writeSample(out, name, "cache", cache.getName(), value.applyAsLong(cache));
+        }
+    }
+
+
+    private static void writeSummaries(StringBuilder out, String name, String help, String label,
+            Iterable<OperationMetrics> operations) {
+        writeHeader(out, name, "summary", help);
+        for (OperationMetrics operation : operations) {
+            LatencyHistogram latency = operation.getLatency();
+            for (double quantile : QUANTILES) {
+                out.append(PREFIX).append(name).append('{').append(label).append("=\"");
+                appendEscaped(out, operation.getName());
+                out.append("\",quantile=\"").append(quantile).append("\"} ");
+                appendValue(out, latency.getValueAtQuantile(quantile) / 1e9);
+                out.append('\n');
+            }
+            writeSample(out, name + "_sum", label, operation.getName(), latency.getMeanNanos() * latency.getCount() / 1e9);
+            writeSample(out, name + "_count", label, operation.getName(), latency.getCount());
+        }
+    }
+
+
+    private static void writeHeader(StringBuilder out, String name, String type, String help) {
+        if (help != null) {
+            out.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        }
+        out.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+    }
+
+
+    private static void writeSample(StringBuilder out, String name, String label, String labelValue, double value) {
+        out.append(PREFIX).append(name);
+        if (label != null) {
+            out.append('{').append(label).append("=\"");
+            appendEscaped(out, labelValue);
+            out.append("\"}");
+        }
+        out.append(' ');
+        appendValue(out, value);
+        out.append('\n');
+    }
+
+
+    private static void appendValue(StringBuilder out, double value) {
+        if (Double.isInfinite(value)) {
+            out.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(String.format(Locale.ROOT, "%.9g", value));
+        }
+    }
+
+
+    private static void appendEscaped(StringBuilder out, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.Channel;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.net.ssl.SSLContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * PushChannelReceiver - Keeps calendar mirrors fresh with Calendar API push
+ * notifications instead of polling.
+ *
+ * For every mirror it registers an events.watch channel whose address is the
+ * public callback URL, and runs the embedded webhook receiver the
+ * notifications arrive at (HTTP, or HTTPS with the JVM's default key store
+ * when the receiver address starts with https://). Google requires an HTTPS
+ * callback URL; a reverse proxy in front of a plain HTTP receiver works as well.
+ *
+ * Per notification (headers X-Goog-Channel-ID, -Token, X-Goog-Resource-State):
+ * ├─ unknown channel    → ignored (e.g. a channel of an earlier run)
+ * ├─ wrong token        → rejected with 403
+ * ├─ state "sync"       → channel confirmation, nothing to do
+ * └─ "exists"/"not_exists" → incremental sync of just that calendar's mirror
+ *
+ * Syncs run on the background executor (background lane of the
+ * RequestScheduler). A notification arriving while a sync for the calendar
+ * is queued is merged into it; one arriving while it runs queues one more.
+ *
+ * Channels expire; each one is replaced by a new channel RENEWAL_MARGIN
+ * before its expiration (at the latest halfway through its lifetime), and the
+ * old one is stopped only after the new one is registered, so no change
+ * falls between them. A failed registration is retried with backoff, and the
+ * mirror is synced once the channel is back. close() stops all channels,
+ * including one whose registration is still in flight.
+ */
+public class PushChannelReceiver implements Closeable {
+
+
+    private static final Logger LOG = LoggerFactory.getLogger(PushChannelReceiver.class);
+
+    static final long RENEWAL_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    static final long MIN_RETRY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    static final long MAX_RETRY_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private static final String CHANNEL_TYPE = "web_hook";
+    private static final String STATE_SYNC = "sync";
+
+    private final Calendar service;
+    private final Executor syncExecutor;
+    private final String callbackUrl;
+    private final String token;
+    private final HttpServer server;
+    private final ExecutorService serverExecutor;
+    private final ScheduledThreadPoolExecutor timer;
+    private final Map<String, Watch> watchesByCalendar = new ConcurrentHashMap<>();
+    private final Map<String, Watch> watchesByChannel = new ConcurrentHashMap<>();
+    private final CalendarMetrics metrics = CalendarMetrics.getInstance();
+    private volatile boolean closed;
+
+
+    /**
+     * Creates the receiver; the webhook listens on the path of the callback URL.
+     *
+     * @param service Calendar client used for watch, stop and the syncs
+     * @param syncExecutor executor the registrations and syncs run on
+     * @param callbackUrl public HTTPS address Google sends the notifications to
+     * @param receiverAddress local address to listen on: "port", "host:port",
+     *                        optionally prefixed with http:// or https://
+     */
+    public PushChannelReceiver(Calendar service, Executor syncExecutor, String callbackUrl, String receiverAddress)
+            throws IOException {
+        this.service = service;
+        this.syncExecutor = syncExecutor;
+        this.callbackUrl = callbackUrl;
+        byte[] secret = new byte[18];
+        new SecureRandom().nextBytes(secret);
+        this.token = Base64.getUrlEncoder().withoutPadding().encodeToString(secret);
+
+        String address = receiverAddress.trim();
+        boolean https = address.startsWith("https://");
+        address = address.replaceFirst("^https?://", "");
+        if (address.endsWith("/")) {
+            address = address.substring(0, address.length() - 1);
+        }
+        int separator = address.lastIndexOf(':');
+        int port = Integer.parseInt(address.substring(separator + 1).trim());
+        InetSocketAddress bindAddress = separator < 0
+                ? new InetSocketAddress(port)
+                : new InetSocketAddress(address.substring(0, separator).trim(), port);
+
+        if (https) {
+            HttpsServer httpsServer = HttpsServer.create(bindAddress, 0);
+            try {
+                // Key store from javax.net.ssl.keyStore / keyStorePassword
+                httpsServer.setHttpsConfigurator(new HttpsConfigurator(SSLContext.getDefault()));
+            } catch (NoSuchAlgorithmException e) {
+                throw new IOException("TLS not available: " + e.getMessage(), e);
+            }
+            server = httpsServer;
+        } else {
+            server = HttpServer.create(bindAddress, 0);
+        }
+        serverExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "GoogleCalendar-PushReceiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(serverExecutor);
+        String path = URI.create(callbackUrl).getPath();
+        server.createContext(path == null || path.isEmpty() ? "/" : path, this::handle);
+
+        timer = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "GoogleCalendar-ChannelTimer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+    }
+
+
+    public PushChannelReceiver start() {
+        server.start();
+        LOG.info("Receiving Calendar push notifications on port {} for {}", getPort(), callbackUrl);
+        return this;
+    }
+
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+
+    /**
+     * Registers a watch channel for the mirror's calendar (once per calendar);
+     * the registration runs in the background.
+     */
+    public void watch(CalendarMirror mirror) {
+        Watch watch = new Watch(mirror);
+        if (watchesByCalendar.putIfAbsent(mirror.getCalendarId(), watch) == null) {
+            submit(() -> register(watch));
+        }
+    }
+
+
+    /**
+     * Returns the expiration (epoch millis) of the calendar's current channel,
+     * 0 if it has none (yet) and Long.MAX_VALUE if it does not expire.
+     */
+    public long getChannelExpiration(String calendarId) {
+        Watch watch = watchesByCalendar.get(calendarId);
+        Channel channel = watch != null ? watch.channel : null;
+        if (channel == null) {
+            return 0;
+        }
+        return channel.getExpiration() != null ? channel.getExpiration() : Long.MAX_VALUE;
+    }
+
+
+    @Override
+    public void close() {
+        closed = true;
+        timer.shutdownNow();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+        for (Watch watch : watchesByCalendar.values()) {
+            Channel channel = watch.channel;
+            if (channel != null) {
+                stop(channel);
+            }
+        }
+        watchesByCalendar.clear();
+        watchesByChannel.clear();
+    }
+
+
+    /**
+     * Opens a new channel for the calendar, retires the previous one and
+     * schedules the renewal.
+     */
+    private void register(Watch watch) {
+        if (closed) {
+            return;
+        }
+        String calendarId = watch.mirror.getCalendarId();
+        Channel channel;
+        try {
+            channel = service.events().watch(calendarId, new Channel()
+                    .setId(UUID.randomUUID().toString())
+                    .setType(CHANNEL_TYPE)
+                    .setAddress(callbackUrl)
+                    .setToken(token)).execute();
+        } catch (IOException | RuntimeException e) {
+            long retry = watch.retryMillis;
+            watch.retryMillis = Math.min(MAX_RETRY_MILLIS, retry * 2);
+            watch.gap = true;
+            LOG.warn("Watch channel for {} could not be registered, retrying in {} s: {}",
+                    calendarId, TimeUnit.MILLISECONDS.toSeconds(retry), e.getMessage());
+            schedule(() -> register(watch), retry);
+            return;
+        }
+
+        watchesByChannel.put(channel.getId(), watch);
+        Channel previous = watch.channel;
+        watch.channel = channel;
+        if (closed) {
+            // close() ran while the channel was being opened and may have missed it
+            stop(channel);
+            return;
+        }
+        watch.retryMillis = MIN_RETRY_MILLIS;
+        if (previous != null) {
+            watchesByChannel.remove(previous.getId());
+            stop(previous);
+        }
+        if (watch.gap) {
+            // Changes without a channel went unnoticed
+            watch.gap = false;
+            requestSync(watch);
+        }
+
+        Long expiration = channel.getExpiration();
+        if (expiration != null) {
+            long lifetime = expiration - System.currentTimeMillis();
+            long renewIn = lifetime - Math.min(RENEWAL_MARGIN_MILLIS, lifetime / 2);
+            schedule(() -> register(watch), renewIn);
+            LOG.debug("Watch channel {} for {} registered, renewal in {} s", channel.getId(), calendarId,
+                    TimeUnit.MILLISECONDS.toSeconds(renewIn));
+        } else {
+            LOG.debug("Watch channel {} for {} registered", channel.getId(), calendarId);
+        }
+    }
+
+
+    private void stop(Channel channel) {
+        try {
+            service.channels().stop(new Channel()
+                    .setId(channel.getId())
+                    .setResourceId(channel.getResourceId())).execute();
+        } catch (IOException | RuntimeException e) {
+            // It expires on its own
+            LOG.debug("Stopping watch channel {} failed: {}", channel.getId(), e.getMessage());
+        }
+    }
+
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes();
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            String channelId = exchange.getRequestHeaders().getFirst("X-Goog-Channel-ID");
+            String state = exchange.getRequestHeaders().getFirst("X-Goog-Resource-State");
+            Watch watch = channelId != null ? watchesByChannel.get(channelId) : null;
+            if (watch == null) {
+                LOG.debug("Ignoring notification of unknown channel {}", channelId);
+                exchange.sendResponseHeaders(204, -1);
+                return;
+            }
+            if (!token.equals(exchange.getRequestHeaders().getFirst("X-Goog-Channel-Token"))) {
+                LOG.warn("Rejecting notification for channel {} with wrong token", channelId);
+                exchange.sendResponseHeaders(403, -1);
+                return;
+            }
+            if (!STATE_SYNC.equals(state)) {
+                metrics.counter(CalendarMetrics.PUSH_NOTIFICATIONS).increment();
+                requestSync(watch);
+            }
+            exchange.sendResponseHeaders(204, -1);
+        } catch (RuntimeException e) {
+            LOG.error("Handling push notification failed", e);
+            exchange.sendResponseHeaders(500, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+
+    /**
+     * Queues an incremental sync of the watch's mirror unless one is queued already.
+     */
+    private void requestSync(Watch watch) {
+        if (!watch.syncQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            syncExecutor.execute(() -> {
+                watch.syncQueued.set(false);
+                if (closed) {
+                    return;
+                }
+                try {
+                    int changes = watch.mirror.sync(service);
+                    LOG.debug("Push sync of {}: {} changes", watch.mirror.getCalendarId(), changes);
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Push sync of {} failed: {}", watch.mirror.getCalendarId(), e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            watch.syncQueued.set(false);
+        }
+    }
+
+
+    private void submit(Runnable task) {
+        try {
+            syncExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            LOG.debug("Watch channel task not started, executor shut down");
+        }
+    }
+
+
+    private void schedule(Runnable task, long delayMillis) {
+        if (closed) {
+            return;
+        }
+        try {
+            timer.schedule(() -> submit(task), Math.max(0, delayMillis), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // closed concurrently
+        }
+    }
+
+
+    /**
+     * Channel state of one calendar. The channel fields are only written by
+     * register(), of which at most one per calendar is scheduled at a time.
+     */
+    private static class Watch {
+
+        private final CalendarMirror mirror;
+        private final AtomicBoolean syncQueued = new AtomicBoolean();
+        private volatile Channel channel;
+        private long retryMillis = MIN_RETRY_MILLIS;
+        private boolean gap;
+
+        Watch(CalendarMirror mirror) {
+            this.mirror = mirror;
+        }
+    }
+}
@@ -0,0 +1,565 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+
+/**
+ * RecurrenceExpander - Expands recurring events locally.
+ *
+ * Takes the non-expanded result of events.list (singleEvents=false): single
+ * events, recurring masters with their RRULE/EXDATE lines and exceptions
+ * (moved or cancelled instances). Each master is expanded lazily, only as far
+ * as needed for the requested window and result count; all sources are
+ * merged in start order.
+ *
+ * Occurrences get the same IDs as server-expanded instances
+ * (masterId_20260115T090000Z, or masterId_20260115 for all-day events),
+ * so Update and Delete nodes work on them unchanged.
+ *
+ * Supported RRULE parts: FREQ (DAILY, WEEKLY, MONTHLY, YEARLY), INTERVAL,
+ * COUNT, UNTIL, BYDAY, BYMONTHDAY, BYMONTH, WKST. Series using anything else
+ * (e.g. RDATE or BYSETPOS) are reported by isSupported() so the caller can
+ * fall back to server-side expansion.
+ */
+public final class RecurrenceExpander {
+
+
+    private static final Set<String> SUPPORTED_RULE_PARTS = new HashSet<>(Arrays.asList(
+            "FREQ", "INTERVAL", "COUNT", "UNTIL", "BYDAY", "BYMONTHDAY", "BYMONTH", "WKST"));
+    private static final DateTimeFormatter INSTANCE_ID_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter INSTANCE_ID_DATE =
+            DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final DateTimeFormatter ICAL_DATE_TIME =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss");
+
+    // Stop expanding if this many periods in a row produce no occurrence
+    private static final int MAX_EMPTY_PERIODS = 1000;
+
+
+    private RecurrenceExpander() {}
+
+
+    /**
+     * Returns true if all recurrence lines of the master can be expanded locally.
+     */
+    public static boolean isSupported(EventRecord master) {
+        if (!master.isRecurringMaster() || !master.hasTimes()) {
+            return false;
+        }
+        int ruleCount = 0;
+        for (String line : master.getRecurrence()) {
+            String name = propertyName(line);
+            if (name.equals("RRULE")) {
+                ruleCount++;
+                Map<String, String> parts = parseRule(line);
+                if (!SUPPORTED_RULE_PARTS.containsAll(parts.keySet())
+                        || !Arrays.asList("DAILY", "WEEKLY", "MONTHLY", "YEARLY").contains(parts.get("FREQ"))) {
+                    return false;
+                }
+                // BYDAY in a yearly rule without BYMONTH means "in the year", not supported
+                if ("YEARLY".equals(parts.get("FREQ")) && parts.containsKey("BYDAY")
+                        && !parts.containsKey("BYMONTH")) {
+                    return false;
+                }
+            } else if (!name.equals("EXDATE")) {
+                return false;
+            }
+        }
+        return ruleCount == 1;
+    }
+
+
+    /**
+     * Expands a non-expanded listing into concrete events within [windowStart, windowEnd),
+     * sorted by start time and limited to maxResults.
+     *
+     * All recurring masters must be supported (see isSupported()).
+     *
+     * @param items Result of events.list with singleEvents=false and showDeleted=true
+     * @param windowStart Start of the window (epoch ms), Long.MIN_VALUE for unbounded
+     * @param windowEnd End of the window (epoch ms), Long.MAX_VALUE for unbounded
+     * @param maxResults Maximum number of events to return
+     */
+    public static List<EventRecord> expand(List<EventRecord> items, long windowStart, long windowEnd,
+            int maxResults) {
+        // Exceptions replace (or cancel) the occurrence at their original start
+        Map<String, Set<Long>> overridden = new HashMap<>();
+        List<EventRecord> fixed = new ArrayList<>();
+        List<EventRecord> masters = new ArrayList<>();
+
+        for (EventRecord item : items) {
+            if (item.getRecurringEventId() != null && item.getOriginalStart() != EventRecord.NO_TIME) {
+                overridden.computeIfAbsent(item.getRecurringEventId(), k -> new HashSet<>())
+                        .add(item.getOriginalStart());
+            }
+            if (item.isCancelled() || !item.hasTimes()) {
+                continue;
+            }
+            if (item.isRecurringMaster()) {
+                masters.add(item);
+            } else if (overlaps(item.getStart(), item.getEnd(), windowStart, windowEnd)) {
+                fixed.add(item);
+            }
+        }
+        fixed.sort(Comparator.comparingLong(EventRecord::getStart));
+
+        // Lazy k-way merge of the fixed events and one occurrence stream per master
+        PriorityQueue<PeekingIterator> queue = new PriorityQueue<>(
+                Comparator.comparingLong(it -> it.peek().getStart()));
+        addIfNotEmpty(queue, new PeekingIterator(fixed.iterator()));
+        for (EventRecord master : masters) {
+            Set<Long> skip = overridden.getOrDefault(master.getId(), Collections.emptySet());
+            addIfNotEmpty(queue, new PeekingIterator(
+                    new OccurrenceIterator(master, windowStart, windowEnd, skip)));
+        }
+
+        List<EventRecord> result = new ArrayList<>();
+        while (!queue.isEmpty() && result.size() < maxResults) {
+            PeekingIterator next = queue.poll();
+            result.add(next.next());
+            addIfNotEmpty(queue, next);
+        }
+        return result;
+    }
+
+
+    /**
+     * Lazily expands a single master within [windowStart, windowEnd).
+     */
+    public static Iterator<EventRecord> occurrences(EventRecord master, long windowStart, long windowEnd) {
+        return new OccurrenceIterator(master, windowStart, windowEnd, Collections.emptySet());
+    }
+
+
+    private static void addIfNotEmpty(PriorityQueue<PeekingIterator> queue, PeekingIterator it) {
+        if (it.hasNext()) {
+            queue.add(it);
+        }
+    }
+
+
+    private static boolean overlaps(long start, long end, long windowStart, long windowEnd) {
+        return end > windowStart && start < windowEnd;
+    }
+
+
+    private static String propertyName(String line) {
+        int end = line.length();
+        int colon = line.indexOf(':');
+        int semicolon = line.indexOf(';');
+        if (colon >= 0) end = colon;
+        if (semicolon >= 0 && semicolon < end) end = semicolon;
+        return line.substring(0, end).trim().toUpperCase();
+    }
+
+
+    private static Map<String, String> parseRule(String line) {
+        Map<String, String> parts = new HashMap<>();
+        for (String part : line.substring(line.indexOf(':') + 1).split(";")) {
+            int eq = part.indexOf('=');
+            if (eq > 0) {
+                parts.put(part.substring(0, eq).trim().toUpperCase(), part.substring(eq + 1).trim().toUpperCase());
+            }
+        }
+        return parts;
+    }
+
+
+    private static DayOfWeek parseWeekday(String code) {
+        switch (code) {
+            case "MO": return DayOfWeek.MONDAY;
+            case "TU": return DayOfWeek.TUESDAY;
+            case "WE": return DayOfWeek.WEDNESDAY;
+            case "TH": return DayOfWeek.THURSDAY;
+            case "FR": return DayOfWeek.FRIDAY;
+            case "SA": return DayOfWeek.SATURDAY;
+            case "SU": return DayOfWeek.SUNDAY;
+            default: throw new IllegalArgumentException("Unknown weekday in RRULE: " + code);
+        }
+    }
+
+
+    /**
+     * Parses an iCalendar date or date-time value ("20260115", "20260115T090000",
+     * "20260115T080000Z") to epoch milliseconds.
+     */
+    private static long parseICalTime(String value, ZoneId zone) {
+        value = value.trim();
+        if (value.endsWith("Z")) {
+            return LocalDateTime.parse(value.substring(0, value.length() - 1), ICAL_DATE_TIME)
+                    .toInstant(ZoneOffset.UTC).toEpochMilli();
+        }
+        if (value.indexOf('T') >= 0) {
+            return LocalDateTime.parse(value, ICAL_DATE_TIME).atZone(zone).toInstant().toEpochMilli();
+        }
+        return LocalDate.parse(value, INSTANCE_ID_DATE).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+
+    /**
+     * BYDAY entry, e.g. "MO" (every Monday) or "-1FR" (last Friday of the month).
+     */
+    private static final class WeekdayNum {
+        final int ordinal;
+        final DayOfWeek day;
+
+        WeekdayNum(String value) {
+            String code = value.substring(value.length() - 2);
+            String number = value.substring(0, value.length() - 2).replace("+", "");
+            this.ordinal = number.isEmpty() ? 0 : Integer.parseInt(number);
+            this.day = parseWeekday(code);
+        }
+    }
+
+
+    /**
+     * Generates the occurrences of one master in start order, beginning at the first
+     * period that can overlap the window.
+     */
+    private static final class OccurrenceIterator implements Iterator<EventRecord> {
+
+        private final EventRecord master;
+        private final long windowStart;
+        private final long windowEnd;
+        private final Set<Long> skip;
+
+        private final ZoneId zone;
+        private final LocalDate firstDate;
+        private final LocalTime timeOfDay;
+        private final long duration;
+
+        private final String freq;
+        private final int interval;
+        private final int count;
+        private final long until;
+        private final List<WeekdayNum> byDay = new ArrayList<>();
+        private final List<Integer> byMonthDay = new ArrayList<>();
+        private final List<Integer> byMonth = new ArrayList<>();
+        private final DayOfWeek weekStart;
+        private final Set<Long> exdates = new HashSet<>();
+
+        private long period;
+        private int generated;
+        private final List<Long> pending = new ArrayList<>();
+        private int pendingIndex;
+        private EventRecord next;
+        private boolean done;
+
+        OccurrenceIterator(EventRecord master, long windowStart, long windowEnd, Set<Long> skip) {
+            this.master = master;
+            this.windowStart = windowStart;
+            this.windowEnd = windowEnd;
+            this.skip = skip;
+
+            this.zone = master.isAllDay() || master.getTimeZone() == null
+                    ? ZoneId.systemDefault() : ZoneId.of(master.getTimeZone());
+            ZonedDateTime dtStart = Instant.ofEpochMilli(master.getStart()).atZone(zone);
+            this.firstDate = dtStart.toLocalDate();
+            this.timeOfDay = dtStart.toLocalTime();
+            this.duration = master.getEnd() - master.getStart();
+
+            Map<String, String> rule = Collections.emptyMap();
+            for (String line : master.getRecurrence()) {
+                String name = propertyName(line);
+                if (name.equals("RRULE")) {
+                    rule = parseRule(line);
+                } else if (name.equals("EXDATE")) {
+                    parseExdate(line);
+                }
+            }
+            this.freq = rule.getOrDefault("FREQ", "DAILY");
+            this.interval = Integer.parseInt(rule.getOrDefault("INTERVAL", "1"));
+            this.count = rule.containsKey("COUNT") ? Integer.parseInt(rule.get("COUNT")) : -1;
+            this.until = rule.containsKey("UNTIL") ? parseUntil(rule.get("UNTIL")) : Long.MAX_VALUE;
+            if (rule.containsKey("BYDAY")) {
+                for (String value : rule.get("BYDAY").split(",")) {
+                    byDay.add(new WeekdayNum(value.trim()));
+                }
+            }
+            if (rule.containsKey("BYMONTHDAY")) {
+                for (String value : rule.get("BYMONTHDAY").split(",")) {
+                    byMonthDay.add(Integer.parseInt(value.trim()));
+                }
+            }
+            if (rule.containsKey("BYMONTH")) {
+                for (String value : rule.get("BYMONTH").split(",")) {
+                    byMonth.add(Integer.parseInt(value.trim()));
+                }
+            }
+            this.weekStart = rule.containsKey("WKST") ? parseWeekday(rule.get("WKST")) : DayOfWeek.MONDAY;
+
+            this.period = firstPeriod();
+        }
+
+        private void parseExdate(String line) {
+            ZoneId exZone = zone;
+            String params = line.substring(0, Math.max(0, line.indexOf(':')));
+            for (String param : params.split(";")) {
+                if (param.toUpperCase().startsWith("TZID=")) {
+                    exZone = ZoneId.of(param.substring(5));
+                }
+            }
+            for (String value : line.substring(line.indexOf(':') + 1).split(",")) {
+                exdates.add(parseICalTime(value, exZone));
+            }
+        }
+
+        private long parseUntil(String value) {
+            // A date-only UNTIL includes the whole day
+            if (value.indexOf('T') < 0) {
+                return LocalDate.parse(value, INSTANCE_ID_DATE).plusDays(1)
+                        .atStartOfDay(zone).toInstant().toEpochMilli() - 1;
+            }
+            return parseICalTime(value, zone);
+        }
+
+        /**
+         * Without COUNT, periods that end before the window can be skipped arithmetically.
+         * With COUNT every period has to be generated to count its occurrences.
+         */
+        private long firstPeriod() {
+            if (count >= 0 || windowStart == Long.MIN_VALUE) {
+                return 0;
+            }
+            long earliest = windowStart - duration;
+            if (earliest <= master.getStart()) {
+                return 0;
+            }
+            LocalDate earliestDate = Instant.ofEpochMilli(earliest).atZone(zone).toLocalDate();
+            long units;
+            switch (freq) {
+                case "DAILY":
+                    units = ChronoUnit.DAYS.between(firstDate, earliestDate);
+                    break;
+                case "WEEKLY":
+                    units = ChronoUnit.WEEKS.between(weekOf(firstDate), weekOf(earliestDate));
+                    break;
+                case "MONTHLY":
+                    units = ChronoUnit.MONTHS.between(firstDate.withDayOfMonth(1), earliestDate.withDayOfMonth(1));
+                    break;
+                default:
+                    units = earliestDate.getYear() - firstDate.getYear();
+            }
+            // Start one period early; occurrences before the window are filtered anyway
+            return Math.max(0, units / interval - 1);
+        }
+
+        private LocalDate weekOf(LocalDate date) {
+            return date.with(TemporalAdjusters.previousOrSame(weekStart));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                next = computeNext();
+                done = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public EventRecord next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            EventRecord result = next;
+            next = null;
+            return result;
+        }
+
+        private EventRecord computeNext() {
+            int emptyPeriods = 0;
+            while (true) {
+                if (pendingIndex >= pending.size()) {
+                    if (emptyPeriods++ > MAX_EMPTY_PERIODS) {
+                        return null;
+                    }
+                    pending.clear();
+                    pendingIndex = 0;
+                    for (LocalDate date : candidates(period++)) {
+                        pending.add(ZonedDateTime.of(date, timeOfDay, zone).toInstant().toEpochMilli());
+                    }
+                    continue;
+                }
+                emptyPeriods = 0;
+                long start = pending.get(pendingIndex++);
+                if (start < master.getStart()) {
+                    continue;
+                }
+                if ((count >= 0 && generated >= count) || start > until || start >= windowEnd) {
+                    return null;
+                }
+                generated++;
+                if (exdates.contains(start) || skip.contains(start)
+                        || !overlaps(start, start + duration, windowStart, windowEnd)) {
+                    continue;
+                }
+                return master.withOccurrence(instanceId(start), start, start + duration);
+            }
+        }
+
+        /**
+         * Returns the candidate dates of the given period in ascending order.
+         */
+        private List<LocalDate> candidates(long index) {
+            List<LocalDate> dates = new ArrayList<>();
+            long step = index * interval;
+            switch (freq) {
+                case "DAILY": {
+                    LocalDate date = firstDate.plusDays(step);
+                    if (matchesFilters(date)) {
+                        dates.add(date);
+                    }
+                    break;
+                }
+                case "WEEKLY": {
+                    LocalDate weekStartDate = weekOf(firstDate).plusWeeks(step);
+                    for (int i = 0; i < 7; i++) {
+                        LocalDate date = weekStartDate.plusDays(i);
+                        boolean dayMatches = byDay.isEmpty()
+                                ? date.getDayOfWeek() == firstDate.getDayOfWeek()
+                                : byDay.stream().anyMatch(d -> d.day == date.getDayOfWeek());
+                        if (dayMatches && (byMonth.isEmpty() || byMonth.contains(date.getMonthValue()))) {
+                            dates.add(date);
+                        }
+                    }
+                    break;
+                }
+                case "MONTHLY": {
+                    LocalDate month = firstDate.withDayOfMonth(1).plusMonths(step);
+                    if (byMonth.isEmpty() || byMonth.contains(month.getMonthValue())) {
+                        addMonthCandidates(dates, month);
+                    }
+                    break;
+                }
+                default: {
+                    LocalDate year = firstDate.withDayOfYear(1).plusYears(step);
+                    List<Integer> months = byMonth.isEmpty()
+                            ? Collections.singletonList(firstDate.getMonthValue()) : byMonth;
+                    for (int m : months) {
+                        addMonthCandidates(dates, year.withMonth(m));
+                    }
+                }
+            }
+            Collections.sort(dates);
+            return dates;
+        }
+
+        /**
+         * Adds the matching days of one month (BYMONTHDAY, BYDAY or the day of DTSTART).
+         */
+        private void addMonthCandidates(List<LocalDate> dates, LocalDate month) {
+            int length = month.lengthOfMonth();
+            if (!byMonthDay.isEmpty()) {
+                for (int day : byMonthDay) {
+                    int dayOfMonth = day > 0 ? day : length + day + 1;
+                    if (dayOfMonth >= 1 && dayOfMonth <= length) {
+                        LocalDate date = month.withDayOfMonth(dayOfMonth);
+                        if (byDay.isEmpty() || byDay.stream().anyMatch(d -> d.day == date.getDayOfWeek())) {
+                            dates.add(date);
+                        }
+                    }
+                }
+            } else if (!byDay.isEmpty()) {
+                for (WeekdayNum weekday : byDay) {
+                    if (weekday.ordinal == 0) {
+                        LocalDate date = month.with(TemporalAdjusters.firstInMonth(weekday.day));
+                        while (date.getMonth() == month.getMonth()) {
+                            dates.add(date);
+                            date = date.plusWeeks(1);
+                        }
+                    } else {
+                        LocalDate date = month.with(TemporalAdjusters.dayOfWeekInMonth(weekday.ordinal, weekday.day));
+                        if (date.getMonth() == month.getMonth()) {
+                            dates.add(date);
+                        }
+                    }
+                }
+            } else if (firstDate.getDayOfMonth() <= length) {
+                // Months without this day (e.g. the 31st) are skipped, as in RFC 5545
+                dates.add(month.withDayOfMonth(firstDate.getDayOfMonth()));
+            }
+        }
+
+        private boolean matchesFilters(LocalDate date) {
+            if (!byMonth.isEmpty() && !byMonth.contains(date.getMonthValue())) {
+                return false;
+            }
+            if (!byMonthDay.isEmpty()) {
+                int length = date.lengthOfMonth();
+                boolean matches = byMonthDay.stream().anyMatch(
+                        d -> (d > 0 ? d : length + d + 1) == date.getDayOfMonth());
+                if (!matches) {
+                    return false;
+                }
+            }
+            return byDay.isEmpty() || byDay.stream().anyMatch(d -> d.day == date.getDayOfWeek());
+        }
+
+        private String instanceId(long start) {
+            if (master.isAllDay()) {
+                return master.getId() + "_" + Instant.ofEpochMilli(start).atZone(zone).format(INSTANCE_ID_DATE);
+            }
+            return master.getId() + "_" + Instant.ofEpochMilli(start).atZone(ZoneOffset.UTC).format(INSTANCE_ID_TIME);
+        }
+    }
+
+
+    /**
+     * Iterator wrapper with one element lookahead, used for the merge.
+     */
+    private static final class PeekingIterator implements Iterator<EventRecord> {
+        private final Iterator<EventRecord> delegate;
+        private EventRecord head;
+
+        PeekingIterator(Iterator<EventRecord> delegate) {
+            this.delegate = delegate;
+        }
+
+        EventRecord peek() {
+            if (head == null && delegate.hasNext()) {
+                head = delegate.next();
+            }
+            return head;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return peek() != null;
+        }
+
+        @Override
+        public EventRecord next() {
+            EventRecord result = peek();
+            if (result == null) {
+                throw new NoSuchElementException();
+            }
+            head = null;
+            return result;
+        }
+    }
+}
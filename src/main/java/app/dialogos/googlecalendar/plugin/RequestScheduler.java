@@ -0,0 +1,369 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.client.http.javanet.ConnectionFactory;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * RequestScheduler - Shares connection slots and rate-limit tokens between
+ * interactive node calls and background work.
+ *
+ * Every Calendar API request needs a slot (at most maxConcurrent requests
+ * in flight, from sending until the response body is read or closed) and a
+ * token of the limiter (token bucket with tokensPerSecond, burst of one
+ * second). Waiting requests queue in two lanes:
+ * ├─ INTERACTIVE  node executions of a dialog turn (default for all threads)
+ * └─ BACKGROUND   the runtime's background executor (mirror syncs)
+ *
+ * A free slot and token go to the oldest interactive request first, so a
+ * dialog turn overtakes every queued background request. Requests already
+ * on the wire are never interrupted. To keep background work from starving
+ * while interactive traffic saturates the limits, every
+ * interactivePerBackground-th grant in a row goes to the background lane if
+ * it is waiting (default share 20 %: one in five).
+ *
+ * A limit of 0 means unlimited; with both limits at 0 the runtime does not
+ * install the scheduler at all.
+ */
+public class RequestScheduler {
+
+
+    public static final double DEFAULT_BACKGROUND_SHARE = 0.2;
+
+    public enum Lane {
+        INTERACTIVE,
+        BACKGROUND
+    }
+
+    private static final ThreadLocal<Lane> CURRENT_LANE = ThreadLocal.withInitial(() -> Lane.INTERACTIVE);
+
+    private final int maxConcurrent;
+    private final double tokensPerSecond;
+    private final int interactivePerBackground;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Deque<Waiter> interactive = new ArrayDeque<>();
+    private final Deque<Waiter> background = new ArrayDeque<>();
+    private int inFlight;
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    // Grants in a row to the interactive lane while background requests waited
+    private int interactiveStreak;
+
+
+    /**
+     * @param maxConcurrent max. requests in flight, 0 = unlimited
+     * @param tokensPerSecond max. request rate, 0 = unlimited
+     * @param backgroundShare guaranteed share (0..1) of grants for waiting background requests
+     */
+    public RequestScheduler(int maxConcurrent, double tokensPerSecond, double backgroundShare) {
+        if (maxConcurrent < 0 || tokensPerSecond < 0 || backgroundShare <= 0 || backgroundShare > 1) {
+            throw new IllegalArgumentException("Invalid scheduler limits: " + maxConcurrent + " requests, "
+                    + tokensPerSecond + "/s, background share " + backgroundShare);
+        }
+        this.maxConcurrent = maxConcurrent;
+        this.tokensPerSecond = tokensPerSecond;
+        this.interactivePerBackground = (int) Math.ceil((1 - backgroundShare) / backgroundShare);
+        this.tokens = Math.max(1, tokensPerSecond);
+    }
+
+
+    /**
+     * Puts all requests of the current thread into the background lane.
+     * Called once by the threads of the runtime's background executor.
+     */
+    public static void markBackgroundThread() {
+        CURRENT_LANE.set(Lane.BACKGROUND);
+    }
+
+
+    public static Lane currentLane() {
+        return CURRENT_LANE.get();
+    }
+
+
+    /**
+     * Returns a connection factory that schedules every request sent through
+     * the connections of delegate; NetHttpTransport.Builder.setConnectionFactory
+     * installs it.
+     */
+    public ConnectionFactory wrap(ConnectionFactory delegate) {
+        return new ScheduledTransport(delegate);
+    }
+
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    public int getWaiting(Lane lane) {
+        lock.lock();
+        try {
+            return queue(lane).size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * Waits for a slot and a token in the given lane.
+     *
+     * @throws InterruptedIOException if the thread is interrupted while waiting
+     */
+    void acquire(Lane lane) throws InterruptedIOException {
+        lock.lock();
+        try {
+            Waiter waiter = new Waiter();
+            Deque<Waiter> queue = queue(lane);
+            queue.addLast(waiter);
+            try {
+                while (true) {
+                    refill();
+                    boolean slotFree = maxConcurrent == 0 || inFlight < maxConcurrent;
+                    if (slotFree && next() == waiter) {
+                        if (tokensPerSecond == 0 || tokens >= 1) {
+                            grant(lane, queue);
+                            return;
+                        }
+                        // Head of the line: sleep until the next token
+                        long waitNanos = (long) Math.ceil((1 - tokens) / tokensPerSecond * 1e9);
+                        changed.awaitNanos(Math.max(waitNanos, 1));
+                    } else {
+                        changed.await();
+                    }
+                }
+            } catch (InterruptedException e) {
+                queue.remove(waiter);
+                changed.signalAll();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a Calendar API slot");
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    private Deque<Waiter> queue(Lane lane) {
+        return lane == Lane.INTERACTIVE ? interactive : background;
+    }
+
+
+    /**
+     * The waiter entitled to the next grant: interactive first, unless the
+     * background lane is due its share.
+     */
+    private Waiter next() {
+        Waiter firstInteractive = interactive.peekFirst();
+        Waiter firstBackground = background.peekFirst();
+        if (firstBackground == null) {
+            return firstInteractive;
+        }
+        if (firstInteractive == null || interactiveStreak >= interactivePerBackground) {
+            return firstBackground;
+        }
+        return firstInteractive;
+    }
+
+
+    private void grant(Lane lane, Deque<Waiter> queue) {
+        queue.removeFirst();
+        inFlight++;
+        if (tokensPerSecond > 0) {
+            tokens -= 1;
+        }
+        if (lane == Lane.BACKGROUND || background.isEmpty()) {
+            interactiveStreak = 0;
+        } else {
+            interactiveStreak++;
+        }
+        // The next waiter may be able to go as well
+        changed.signalAll();
+    }
+
+
+    private void refill() {
+        if (tokensPerSecond == 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        tokens = Math.min(Math.max(1, tokensPerSecond),
+                tokens + (now - refilledAt) / (double) TimeUnit.SECONDS.toNanos(1) * tokensPerSecond);
+        refilledAt = now;
+    }
+
+
+    private static class Waiter {
+    }
+
+
+    /**
+     * Transport wrapper at the connection level: every connection the
+     * NetHttpTransport opens acquires before its request goes out and releases
+     * when its response is consumed, closed or disconnected.
+     */
+    private class ScheduledTransport implements ConnectionFactory {
+
+        private final ConnectionFactory delegate;
+
+        ScheduledTransport(ConnectionFactory delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public HttpURLConnection openConnection(URL url) throws IOException {
+            return new ScheduledConnection(delegate.openConnection(url));
+        }
+    }
+
+
+    /**
+     * Acquires on the first call that reaches the network (connect, request
+     * body or response) and holds the slot until the body is read to the end,
+     * closed or the connection disconnected, whichever comes first.
+     */
+    private class ScheduledConnection extends ForwardingHttpURLConnection {
+
+        private final AtomicBoolean acquired = new AtomicBoolean();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        ScheduledConnection(HttpURLConnection delegate) {
+            super(delegate);
+        }
+
+        private void acquireOnce() throws IOException {
+            if (!acquired.get()) {
+                acquire(currentLane());
+                acquired.set(true);
+            }
+        }
+
+        private void releaseOnce() {
+            if (acquired.get() && released.compareAndSet(false, true)) {
+                release();
+            }
+        }
+
+        @Override
+        public void connect() throws IOException {
+            acquireOnce();
+            try {
+                super.connect();
+            } catch (IOException | RuntimeException e) {
+                releaseOnce();
+                throw e;
+            }
+        }
+
+        @Override
+        public OutputStream getOutputStream() throws IOException {
+            acquireOnce();
+            try {
+                return super.getOutputStream();
+            } catch (IOException | RuntimeException e) {
+                releaseOnce();
+                throw e;
+            }
+        }
+
+        @Override
+        public int getResponseCode() throws IOException {
+            acquireOnce();
+            try {
+                return super.getResponseCode();
+            } catch (IOException | RuntimeException e) {
+                releaseOnce();
+                throw e;
+            }
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            acquireOnce();
+            // Throws for error statuses; the body then comes from getErrorStream()
+            return releasingAtEnd(super.getInputStream());
+        }
+
+        @Override
+        public InputStream getErrorStream() {
+            return releasingAtEnd(super.getErrorStream());
+        }
+
+        @Override
+        public void disconnect() {
+            try {
+                super.disconnect();
+            } finally {
+                releaseOnce();
+            }
+        }
+
+        private InputStream releasingAtEnd(InputStream content) {
+            if (content == null) {
+                releaseOnce();
+                return null;
+            }
+            return new FilterInputStream(content) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b < 0) {
+                        releaseOnce();
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) throws IOException {
+                    int n = super.read(buffer, offset, length);
+                    if (n < 0) {
+                        releaseOnce();
+                    }
+                    return n;
+                }
+
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        releaseOnce();
+                    }
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.clt.script.exp.Value;
+import com.clt.script.exp.values.BoolValue;
+import com.clt.script.exp.values.IntValue;
+import com.clt.script.exp.values.StructValue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+
+/**
+ * SessionQuota - Counts Calendar API units per dialog session and node and
+ * enforces the configured budgets.
+ *
+ * One unit is one request attempt sent to the Calendar API (the API quota
+ * counts requests, and a retried request is sent again). Attribution works
+ * through the executing thread: GoogleCalendarNode.execute() binds the
+ * session account and the node with enter(), and MetricsRequestInitializer
+ * calls charge() before every attempt on that thread. Requests of other
+ * threads (background mirror syncs) belong to no session and are not counted.
+ *
+ * Budgets (0 = unlimited):
+ * ├─ session budget  units of one dialog session over all nodes
+ * └─ node budget     units of one node within a session, e.g. a node in a loop
+ *
+ * An attempt that would exceed a budget is not sent: charge() throws a
+ * QuotaExceededException, which the node reports like any I/O error and
+ * GoogleCalendarNode routes to the node's "quota" edge. Nodes answered
+ * locally (e.g. a conflict check from the mirror) keep working.
+ *
+ * A session is one dialog run. DialogOS passes one WozInterface per run;
+ * without one (benchmarks, load tests) the node's graph stands in. Sessions
+ * are held weakly, so ended runs do not accumulate.
+ */
+public class SessionQuota {
+
+
+    public static final long UNLIMITED = 0;
+
+    private static final ThreadLocal<Charge> CURRENT = new ThreadLocal<>();
+
+    private final long sessionBudget;
+    private final long nodeBudget;
+    private final Map<Object, Account> accounts = Collections.synchronizedMap(new WeakHashMap<>());
+
+
+    /**
+     * @param sessionBudget max. units per session, UNLIMITED for no limit
+     * @param nodeBudget max. units per node and session, UNLIMITED for no limit
+     */
+    public SessionQuota(long sessionBudget, long nodeBudget) {
+        this.sessionBudget = Math.max(UNLIMITED, sessionBudget);
+        this.nodeBudget = Math.max(UNLIMITED, nodeBudget);
+    }
+
+
+    public long getSessionBudget() {
+        return sessionBudget;
+    }
+
+
+    public long getNodeBudget() {
+        return nodeBudget;
+    }
+
+
+    /**
+     * Returns the account of a session, creating it on first use.
+     */
+    public Account account(Object sessionKey) {
+        synchronized (accounts) {
+            return accounts.computeIfAbsent(sessionKey, key -> new Account());
+        }
+    }
+
+
+    /**
+     * Returns the accounts of all sessions still alive.
+     */
+    public List<Account> getAccounts() {
+        synchronized (accounts) {
+            return new ArrayList<>(accounts.values());
+        }
+    }
+
+
+    /**
+     * Charges the following requests of the current thread to the given node
+     * until the returned Charge is closed.
+     *
+     * @param nodeKey Identifies the node within the session; must not reference the
+     *                node itself, or the weakly held session would stay reachable
+     * @param nodeName Name in the usage summary, e.g. the node title
+     */
+    public Charge enter(Account account, String nodeKey, String nodeName) {
+        Charge charge = new Charge(account, account.usage(nodeKey, nodeName), CURRENT.get());
+        CURRENT.set(charge);
+        return charge;
+    }
+
+
+    /**
+     * Counts one API attempt for the session and node bound to the current
+     * thread; a no-op on threads without a session.
+     *
+     * @throws QuotaExceededException if the attempt would exceed a budget (nothing is counted then)
+     */
+    static void charge(String apiMethod) throws QuotaExceededException {
+        Charge charge = CURRENT.get();
+        if (charge != null) {
+            charge.charge(apiMethod);
+        }
+    }
+
+
+    /**
+     * Usage of one dialog session.
+     */
+    public class Account {
+
+        // Insertion order = order of first use in the dialog
+        private final Map<String, NodeUsage> nodes = new LinkedHashMap<>();
+        private long units;
+        private boolean exceeded;
+
+        private synchronized NodeUsage usage(String nodeKey, String nodeName) {
+            return nodes.computeIfAbsent(nodeKey, key -> new NodeUsage(nodeName));
+        }
+
+        private synchronized void charge(NodeUsage node, String apiMethod) throws QuotaExceededException {
+            if (sessionBudget != UNLIMITED && units >= sessionBudget) {
+                exceeded = true;
+                throw new QuotaExceededException("Session quota of " + sessionBudget
+                        + " API requests exhausted (" + apiMethod + " not sent)");
+            }
+            if (nodeBudget != UNLIMITED && node.units >= nodeBudget) {
+                exceeded = true;
+                throw new QuotaExceededException("Node quota of " + nodeBudget + " API requests for '"
+                        + node.name + "' exhausted (" + apiMethod + " not sent)");
+            }
+            units++;
+            node.units++;
+        }
+
+        public synchronized long getUnits() {
+            return units;
+        }
+
+        /**
+         * Returns true once an attempt of this session was refused.
+         */
+        public synchronized boolean isExceeded() {
+            return exceeded;
+        }
+
+        /**
+         * Returns the units per node name; nodes with the same name are added up.
+         */
+        public synchronized Map<String, Long> getNodeUnits() {
+            Map<String, Long> result = new LinkedHashMap<>();
+            for (NodeUsage node : nodes.values()) {
+                result.merge(node.name, node.units, Long::sum);
+            }
+            return result;
+        }
+
+        /**
+         * Returns the usage as a DialogOS struct:
+         * { units, budget, nodeBudget, exceeded, nodes: { <node name>: units, ... } }
+         * (budgets 0 = unlimited).
+         */
+        public Value toValue() {
+            Map<String, Long> nodeUnits = getNodeUnits();
+            String[] nodeNames = nodeUnits.keySet().toArray(new String[0]);
+            Value[] nodeValues = new Value[nodeNames.length];
+            for (int i = 0; i < nodeNames.length; i++) {
+                nodeValues[i] = new IntValue(nodeUnits.get(nodeNames[i]));
+            }
+            return new StructValue(
+                    new String[] {"units", "budget", "nodeBudget", "exceeded", "nodes"},
+                    new Value[] {
+                        new IntValue(getUnits()),
+                        new IntValue(sessionBudget),
+                        new IntValue(nodeBudget),
+                        new BoolValue(isExceeded()),
+                        new StructValue(nodeNames, nodeValues)
+                    });
+        }
+
+        @Override
+        public String toString() {
+            return getUnits() + " API requests"
+                    + (sessionBudget != UNLIMITED ? " of " + sessionBudget : "")
+                    + (isExceeded() ? ", quota exceeded" : "")
+                    + " " + getNodeUnits();
+        }
+    }
+
+
+    private static class NodeUsage {
+
+        private final String name;
+        private long units;
+
+        NodeUsage(String name) {
+            this.name = name;
+        }
+    }
+
+
+    /**
+     * Binding of the current thread to a session and node; close() restores
+     * the previous binding.
+     */
+    public static class Charge implements AutoCloseable {
+
+        private final Account account;
+        private final NodeUsage node;
+        private final Charge previous;
+        private boolean refused;
+
+        private Charge(Account account, NodeUsage node, Charge previous) {
+            this.account = account;
+            this.node = node;
+            this.previous = previous;
+        }
+
+        private void charge(String apiMethod) throws QuotaExceededException {
+            try {
+                account.charge(node, apiMethod);
+            } catch (QuotaExceededException e) {
+                refused = true;
+                throw e;
+            }
+        }
+
+        /**
+         * Returns true if an attempt was refused while this binding was active.
+         */
+        public boolean isRefused() {
+            return refused;
+        }
+
+        public Account getAccount() {
+            return account;
+        }
+
+        @Override
+        public void close() {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+
+    /**
+     * Thrown instead of sending a request that would exceed a budget. An
+     * IOException, so the nodes' existing error handling applies.
+     */
+    public static class QuotaExceededException extends IOException {
+
+        public QuotaExceededException(String message) {
+            super(message);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.xml.sax.SAXException;
 import com.clt.diamant.WozInterface;
 import com.clt.diamant.InputCenter;
 import com.clt.diamant.ExecutionLogger;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.services.calendar.Calendar;
 import com.google.api.services.calendar.model.Event;
 
@@ -19,6 +20,9 @@ import java.util.Map;
 import javax.swing.*;
 import java.awt.*;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 
 /**
  * UpdateEventNode - Node for updating existing Google Calendar Events.
@@ -39,6 +43,8 @@ import java.awt.*;
 public class UpdateEventNode extends GoogleCalendarNode {
 
 
+    private static final Logger LOG = LoggerFactory.getLogger(UpdateEventNode.class);
+
     private static final String PROP_EVENT_ID = "eventId";
     private static final String PROP_SUMMARY = "summary";
     private static final String PROP_DESCRIPTION = "description";
@@ -63,18 +69,18 @@ public class UpdateEventNode extends GoogleCalendarNode {
 
 
     @Override
-    public Node execute(WozInterface comm, InputCenter input, ExecutionLogger logger) 
+    protected Node executeOperation(WozInterface comm, InputCenter input, ExecutionLogger logger) 
             throws NodeExecutionException {
         try {
             String eventIdInput = getProperty(PROP_EVENT_ID).toString();
-            System.out.println("=== UpdateEventNode Execute ===");
+            LOG.debug("=== UpdateEventNode Execute ===");
             
             // Evaluate eventId - this is mandatory
             String eventId = evaluateVariable(eventIdInput, logger, comm).replaceAll("^[\"']+|[\"']+$", "");
             if (eventId == null || eventId.isEmpty()) {
                 throw new NodeExecutionException(this, "Event ID is required");
             }
-            System.out.println("Event ID evaluation: " + eventId);
+            LOG.debug("Event ID evaluation: {}", eventId);
             
             String summaryInput = evaluateVariable(
                 getProperty(PROP_SUMMARY).toString(), logger, comm);
@@ -126,29 +132,37 @@ public class UpdateEventNode extends GoogleCalendarNode {
             EventRequest eventRequest = eventBuilder.build();
 
             Event event = EventConverter.toGoogleCalendarEvent(eventRequest);
-            System.out.println("Sending event: " +
-             "summary: " + event.getSummary() + "\n" +
-             "start: " + event.getStart() + "\n" +
-             "end: " + event.getEnd() + "\n"
-             );
+            LOG.debug("Sending event: summary: {}, start: {}, end: {}",
+                    event.getSummary(), event.getStart(), event.getEnd());
             CalendarConfig config = getCalendarConfig(comm);
+            GoogleCalendarPluginRuntime runtime = getPluginRuntime(comm);
+            checkEventId(runtime, config.getCalendarId(), eventId);
             Calendar service = getCalendarService(comm);
 
 
             // Update the event in Google Calendar
-            Event updatedEvent = service.events().update(
-                    config.getCalendarId(),
-                    eventId,
-                    event
-            )
-            .setSendUpdates("all")  // Notify all participants about the update
-            .execute();
+            Event updatedEvent;
+            try {
+                updatedEvent = service.events().update(
+                        config.getCalendarId(),
+                        eventId,
+                        event
+                )
+                .setSendUpdates("all")  // Notify all participants about the update
+                .execute();
+            } catch (HttpResponseException e) {
+                rememberIfMissing(runtime, config.getCalendarId(), eventId, e);
+                throw e;
+            }
+
 
+            // Write through to the mirror and caches (read-your-writes)
+            runtime.applyLocalWrite(getSessionKey(comm), config.getCalendarId(), updatedEvent);
+            traceExecution(config.getCalendarId(), "update", 1);
 
             // Store result in output variable
             setStringVariable(resultVariable, updatedEvent.getId());
-            System.out.println("Event updated: " + updatedEvent.getId() + 
-                             " (" + (summaryInput != null ? summaryInput : "unchanged") + ")");
+            LOG.info("Event updated: {} ({})", updatedEvent.getId(), summaryInput != null ? summaryInput : "unchanged");
             
             return this.getEdge(0).getTarget();
 
@@ -307,6 +321,7 @@ public class UpdateEventNode extends GoogleCalendarNode {
         resultCombo.setToolTipText("Output: updated Event ID will be stored here");
         resultRow.add(resultCombo);
         inputPanel.add(resultRow);
+        inputPanel.add(createQuotaEdgeRow(properties));
 
         mainPanel.add(new JScrollPane(inputPanel), BorderLayout.CENTER);
         return mainPanel;
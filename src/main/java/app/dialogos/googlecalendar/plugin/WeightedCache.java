@@ -0,0 +1,690 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * WeightedCache - Bounded in-memory cache shared by the plugin's caches
+ * (created through GoogleCalendarPluginRuntime.getCache()).
+ *
+ * The bound is a weight, normally the estimated bytes of an entry, so a
+ * cache of large events holds fewer entries than one of IDs. Eviction
+ * follows W-TinyLFU:
+ * ├─ New entries go to a small LRU window (1% of the weight)
+ * ├─ Entries leaving the window are candidates for the main space, a
+ * │  segmented LRU (probation, protected = 80%); a hit in probation
+ * │  promotes the entry to protected
+ * └─ When the main space is full, a candidate only gets in if it was used
+ *    more often than the probation LRU it would replace; usage is counted
+ *    in a count-min sketch (4-bit counters, halved periodically)
+ * One-off lookups (a listing nobody asks for again) thus cannot flush
+ * entries that are used all the time.
+ *
+ * Entries expire expireAfterWrite after they were stored. With a loader,
+ * a hit older than refreshAfterWrite returns the cached value and reloads
+ * it on the refresh executor (refresh-ahead), so frequently read entries
+ * never expire in front of a dialog. Expired entries are dropped when they
+ * are read or evicted.
+ *
+ * Statistics (hits, misses, loads, evictions, ...) are exported by the
+ * PrometheusExporter. All methods are synchronized; loaders run outside the
+ * lock, so two threads missing the same key may both load it.
+ */
+public class WeightedCache<K, V> {
+
+
+    private static final Logger LOG = LoggerFactory.getLogger(WeightedCache.class);
+
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private static final byte WINDOW = 0;
+    private static final byte PROBATION = 1;
+    private static final byte PROTECTED = 2;
+
+    private final String name;
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final long protectedMaximum;
+    private final long expireAfterWriteNanos;
+    private final long refreshAfterWriteNanos;
+    private final Weigher<K, V> weigher;
+    private final Executor refreshExecutor;
+
+    private final Map<K, Node<K, V>> data = new HashMap<>();
+    private final Queue<K, V> window = new Queue<>();
+    private final Queue<K, V> probation = new Queue<>();
+    private final Queue<K, V> protectedQueue = new Queue<>();
+    private final FrequencySketch sketch = new FrequencySketch();
+    private long weight;
+    private long windowWeight;
+    private long protectedWeight;
+
+    private long hits;
+    private long misses;
+    private long loads;
+    private long loadFailures;
+    private long refreshes;
+    private long evictions;
+    private long evictedWeight;
+    private long expirations;
+
+
+    /**
+     * @param refreshExecutor runs refresh-ahead loads; null = no refresh-ahead
+     */
+    public WeightedCache(String name, Spec spec, Weigher<K, V> weigher, Executor refreshExecutor) {
+        this.name = name;
+        this.maximumWeight = spec.maximumWeight;
+        this.windowMaximum = Math.max(1, spec.maximumWeight * WINDOW_PERCENT / 100);
+        this.protectedMaximum = (spec.maximumWeight - windowMaximum) * PROTECTED_PERCENT / 100;
+        this.expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(spec.expireAfterWriteMillis);
+        this.refreshAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(spec.refreshAfterWriteMillis);
+        this.weigher = weigher;
+        this.refreshExecutor = refreshExecutor;
+    }
+
+
+    /**
+     * Returns the cached value, or null if there is none or it has expired.
+     */
+    public synchronized V getIfPresent(K key) {
+        Node<K, V> node = lookup(key);
+        return node != null ? node.value : null;
+    }
+
+
+    /**
+     * Returns the cached value or loads (and caches) it on a miss. A loader
+     * result of null is returned but not cached. A hit due for refresh is
+     * reloaded in the background.
+     */
+    public V get(K key, Loader<K, V> loader) throws IOException {
+        synchronized (this) {
+            Node<K, V> node = lookup(key);
+            if (node != null) {
+                if (refreshAfterWriteNanos > 0 && refreshExecutor != null && !node.refreshing
+                        && System.nanoTime() - node.writeNanos > refreshAfterWriteNanos) {
+                    refresh(node, loader);
+                }
+                return node.value;
+            }
+        }
+        V value;
+        try {
+            value = loader.load(key);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                loadFailures++;
+            }
+            throw e;
+        }
+        synchronized (this) {
+            loads++;
+            if (value != null) {
+                put(key, value);
+            }
+        }
+        return value;
+    }
+
+
+    /**
+     * Stores a value. Values heavier than the whole cache are not stored
+     * (and an older value of the key is removed).
+     */
+    public synchronized void put(K key, V value) {
+        int entryWeight = Math.max(1, weigher.weigh(key, value));
+        Node<K, V> node = data.get(key);
+        if (entryWeight > maximumWeight) {
+            if (node != null) {
+                remove(node);
+            }
+            return;
+        }
+        sketch.increment(spread(key));
+        if (node != null) {
+            adjustWeight(node, entryWeight - node.weight);
+            node.value = value;
+            node.weight = entryWeight;
+            node.writeNanos = System.nanoTime();
+            node.refreshing = false;
+            onHit(node);
+        } else {
+            node = new Node<>(key, value, entryWeight);
+            data.put(key, node);
+            sketch.ensureCapacity(data.size());
+            window.addLast(node);
+            windowWeight += entryWeight;
+            weight += entryWeight;
+        }
+        evict();
+    }
+
+
+    public synchronized void invalidate(K key) {
+        Node<K, V> node = data.get(key);
+        if (node != null) {
+            remove(node);
+        }
+    }
+
+
+    /**
+     * Removes all entries whose key matches.
+     */
+    public synchronized void invalidateIf(Predicate<K> filter) {
+        List<Node<K, V>> matching = new ArrayList<>();
+        for (Node<K, V> node : data.values()) {
+            if (filter.test(node.key)) {
+                matching.add(node);
+            }
+        }
+        for (Node<K, V> node : matching) {
+            remove(node);
+        }
+    }
+
+
+    public synchronized void invalidateAll() {
+        data.clear();
+        window.clear();
+        probation.clear();
+        protectedQueue.clear();
+        weight = 0;
+        windowWeight = 0;
+        protectedWeight = 0;
+    }
+
+
+    public String getName() {
+        return name;
+    }
+
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+
+    public synchronized int size() {
+        return data.size();
+    }
+
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+
+    public synchronized long getLoads() {
+        return loads;
+    }
+
+
+    public synchronized long getLoadFailures() {
+        return loadFailures;
+    }
+
+
+    public synchronized long getRefreshes() {
+        return refreshes;
+    }
+
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+
+    public synchronized long getEvictedWeight() {
+        return evictedWeight;
+    }
+
+
+    public synchronized long getExpirations() {
+        return expirations;
+    }
+
+
+    @Override
+    public synchronized String toString() {
+        long requests = hits + misses;
+        return String.format(Locale.ROOT, "%s: %d entries, %d/%d bytes, hit rate %.1f%% (%d requests),"
+                + " %d loads, %d refreshes, %d evictions, %d expirations", name, data.size(), weight,
+                maximumWeight, requests > 0 ? 100.0 * hits / requests : 0.0, requests, loads, refreshes,
+                evictions, expirations);
+    }
+
+
+    @FunctionalInterface
+    public interface Weigher<K, V> {
+
+        /**
+         * Returns the weight of an entry, normally its estimated size in bytes.
+         */
+        int weigh(K key, V value);
+    }
+
+
+    @FunctionalInterface
+    public interface Loader<K, V> {
+
+        /**
+         * Returns the value of a key, or null if there is none.
+         */
+        V load(K key) throws IOException;
+    }
+
+
+    // ---------------------------------------------------------------------
+    // Policy
+    // ---------------------------------------------------------------------
+
+
+    private Node<K, V> lookup(K key) {
+        sketch.increment(spread(key));
+        Node<K, V> node = data.get(key);
+        if (node != null && expireAfterWriteNanos > 0
+                && System.nanoTime() - node.writeNanos > expireAfterWriteNanos) {
+            remove(node);
+            expirations++;
+            node = null;
+        }
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        onHit(node);
+        return node;
+    }
+
+
+    private void onHit(Node<K, V> node) {
+        switch (node.queue) {
+            case WINDOW:
+                window.moveToLast(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.queue = PROTECTED;
+                protectedQueue.addLast(node);
+                protectedWeight += node.weight;
+                // Demote the protected LRU entries that no longer fit
+                while (protectedWeight > protectedMaximum && protectedQueue.head != node) {
+                    Node<K, V> demoted = protectedQueue.head;
+                    protectedQueue.remove(demoted);
+                    protectedWeight -= demoted.weight;
+                    demoted.queue = PROBATION;
+                    probation.addLast(demoted);
+                }
+                break;
+            default:
+                protectedQueue.moveToLast(node);
+                break;
+        }
+    }
+
+
+    /**
+     * Moves window overflow into probation as candidates, then evicts until
+     * the cache fits: candidate against probation LRU by frequency.
+     */
+    private void evict() {
+        Node<K, V> candidate = null;
+        while (windowWeight > windowMaximum) {
+            Node<K, V> node = window.head;
+            window.remove(node);
+            windowWeight -= node.weight;
+            node.queue = PROBATION;
+            probation.addLast(node);
+            if (candidate == null) {
+                candidate = node;
+            }
+        }
+
+        while (weight > maximumWeight) {
+            Node<K, V> victim = probation.head;
+            if (victim == null) {
+                victim = protectedQueue.head != null ? protectedQueue.head : window.head;
+            } else if (candidate != null && candidate != victim) {
+                if (sketch.frequency(spread(candidate.key)) <= sketch.frequency(spread(victim.key))) {
+                    victim = candidate;
+                }
+            }
+            if (victim == candidate) {
+                candidate = candidate.next;
+            }
+            evictions++;
+            evictedWeight += victim.weight;
+            remove(victim);
+        }
+    }
+
+
+    private void refresh(Node<K, V> node, Loader<K, V> loader) {
+        node.refreshing = true;
+        long writeNanos = node.writeNanos;
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    V value = loader.load(node.key);
+                    synchronized (this) {
+                        loads++;
+                        refreshes++;
+                        // Only if nothing replaced or invalidated the entry meanwhile;
+                        // put() of an existing key updates the node in place
+                        if (data.get(node.key) == node && node.writeNanos == writeNanos) {
+                            if (value != null) {
+                                put(node.key, value);
+                            } else {
+                                remove(node);
+                            }
+                        }
+                    }
+                } catch (IOException | RuntimeException e) {
+                    synchronized (this) {
+                        loadFailures++;
+                        node.refreshing = false;
+                    }
+                    LOG.debug("Refresh of {} in cache {} failed: {}", node.key, name, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            node.refreshing = false;
+        }
+    }
+
+
+    private void adjustWeight(Node<K, V> node, int delta) {
+        weight += delta;
+        if (node.queue == WINDOW) {
+            windowWeight += delta;
+        } else if (node.queue == PROTECTED) {
+            protectedWeight += delta;
+        }
+    }
+
+
+    private void remove(Node<K, V> node) {
+        data.remove(node.key);
+        adjustWeight(node, -node.weight);
+        switch (node.queue) {
+            case WINDOW:
+                window.remove(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            default:
+                protectedQueue.remove(node);
+                break;
+        }
+    }
+
+
+    private static int spread(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 17);
+    }
+
+
+    private static final class Node<K, V> {
+
+        final K key;
+        V value;
+        int weight;
+        long writeNanos;
+        byte queue = WINDOW;
+        boolean refreshing;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.writeNanos = System.nanoTime();
+        }
+    }
+
+
+    /**
+     * Doubly linked LRU queue of nodes; head = least recently used.
+     */
+    private static final class Queue<K, V> {
+
+        Node<K, V> head;
+        Node<K, V> tail;
+
+        void addLast(Node<K, V> node) {
+            node.prev = tail;
+            node.next = null;
+            if (tail != null) {
+                tail.next = node;
+            } else {
+                head = node;
+            }
+            tail = node;
+        }
+
+        void remove(Node<K, V> node) {
+            if (node.prev != null) {
+                node.prev.next = node.next;
+            } else {
+                head = node.next;
+            }
+            if (node.next != null) {
+                node.next.prev = node.prev;
+            } else {
+                tail = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (tail != node) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+        }
+    }
+
+
+    /**
+     * Count-min sketch with 4-bit counters, 16 per long. Each key has four
+     * counters; its frequency is the smallest. After 10 increments per
+     * counter group all counters are halved, so old popularity fades.
+     */
+    private static final class FrequencySketch {
+
+        private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+        };
+        private static final long RESET_MASK = 0x7777777777777777L;
+
+        private long[] table = new long[16];
+        private int additions;
+
+        void ensureCapacity(int entries) {
+            if (entries > table.length) {
+                table = new long[Integer.highestOneBit(entries - 1) << 1];
+                additions = 0;
+            }
+        }
+
+        int frequency(int hash) {
+            int start = (hash & 3) << 2;
+            int frequency = Integer.MAX_VALUE;
+            for (int i = 0; i < 4; i++) {
+                int shift = (start + i) << 2;
+                frequency = Math.min(frequency, (int) ((table[indexOf(hash, i)] >>> shift) & 0xfL));
+            }
+            return frequency;
+        }
+
+        void increment(int hash) {
+            int start = (hash & 3) << 2;
+            boolean added = false;
+            for (int i = 0; i < 4; i++) {
+                int index = indexOf(hash, i);
+                int shift = (start + i) << 2;
+                if (((table[index] >>> shift) & 0xfL) != 0xfL) {
+                    table[index] += 1L << shift;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= table.length * 10) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & RESET_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        private int indexOf(int hash, int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h & (table.length - 1);
+        }
+    }
+
+
+    // ---------------------------------------------------------------------
+    // Limits
+    // ---------------------------------------------------------------------
+
+
+    /**
+     * Limits of a cache: maximum weight (bytes), expiry and refresh-ahead age (0 = none).
+     *
+     * Text form (Cache Limits setting): size[/expiry[/refresh]], e.g. "16MB/10m/8m";
+     * sizes in B, KB, MB or GB, times in ms, s, m or h.
+     */
+    public static final class Spec {
+
+        // Longer suffixes first, so "MB" is not read as "B"
+        private static final Map<String, Long> SIZE_UNITS = new LinkedHashMap<>();
+        private static final Map<String, Long> TIME_UNITS = new LinkedHashMap<>();
+
+        static {
+            SIZE_UNITS.put("KB", 1024L);
+            SIZE_UNITS.put("MB", 1024L * 1024);
+            SIZE_UNITS.put("GB", 1024L * 1024 * 1024);
+            SIZE_UNITS.put("B", 1L);
+            TIME_UNITS.put("ms", 1L);
+            TIME_UNITS.put("s", 1000L);
+            TIME_UNITS.put("m", 60_000L);
+            TIME_UNITS.put("h", 3_600_000L);
+        }
+
+        final long maximumWeight;
+        final long expireAfterWriteMillis;
+        final long refreshAfterWriteMillis;
+
+        public Spec(long maximumWeight, long expireAfterWriteMillis, long refreshAfterWriteMillis) {
+            if (maximumWeight <= 0 || expireAfterWriteMillis < 0 || refreshAfterWriteMillis < 0) {
+                throw new IllegalArgumentException("Cache limits must be positive");
+            }
+            this.maximumWeight = maximumWeight;
+            this.expireAfterWriteMillis = expireAfterWriteMillis;
+            this.refreshAfterWriteMillis = refreshAfterWriteMillis;
+        }
+
+        public static Spec parse(String text) {
+            String[] parts = text.trim().split("/");
+            if (parts.length > 3) {
+                throw new IllegalArgumentException("Invalid cache limits '" + text + "'");
+            }
+            return new Spec(parseSize(parts[0]),
+                    parts.length > 1 ? parseDuration(parts[1]) : 0,
+                    parts.length > 2 ? parseDuration(parts[2]) : 0);
+        }
+
+        /**
+         * Parses "name=limits, name=limits, ..."; empty text gives no entries.
+         */
+        public static Map<String, Spec> parseAll(String text) {
+            Map<String, Spec> specs = new LinkedHashMap<>();
+            if (text == null || text.trim().isEmpty()) {
+                return specs;
+            }
+            for (String entry : text.split(",")) {
+                int separator = entry.indexOf('=');
+                if (separator <= 0) {
+                    throw new IllegalArgumentException("Expected name=limits, was '" + entry.trim() + "'");
+                }
+                specs.put(entry.substring(0, separator).trim(), parse(entry.substring(separator + 1)));
+            }
+            return specs;
+        }
+
+        private static long parseSize(String text) {
+            String value = text.trim().toUpperCase(Locale.ROOT);
+            long unit = 1;
+            for (Map.Entry<String, Long> suffix : SIZE_UNITS.entrySet()) {
+                if (value.endsWith(suffix.getKey())) {
+                    unit = suffix.getValue();
+                    value = value.substring(0, value.length() - suffix.getKey().length()).trim();
+                    break;
+                }
+            }
+            try {
+                return Long.parseLong(value) * unit;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cache size '" + text.trim() + "'");
+            }
+        }
+
+        private static long parseDuration(String text) {
+            String value = text.trim().toLowerCase(Locale.ROOT);
+            for (Map.Entry<String, Long> suffix : TIME_UNITS.entrySet()) {
+                if (value.endsWith(suffix.getKey())) {
+                    try {
+                        String number = value.substring(0, value.length() - suffix.getKey().length()).trim();
+                        return Long.parseLong(number) * suffix.getValue();
+                    } catch (NumberFormatException e) {
+                        break;
+                    }
+                }
+            }
+            throw new IllegalArgumentException("Invalid cache time '" + text.trim() + "' (e.g. 30s, 10m)");
+        }
+
+        @Override
+        public String toString() {
+            return maximumWeight + "B/" + expireAfterWriteMillis + "ms/" + refreshAfterWriteMillis + "ms";
+        }
+    }
+}
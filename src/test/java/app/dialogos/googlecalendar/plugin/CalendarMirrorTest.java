@@ -0,0 +1,131 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+
+/**
+ * CalendarMirrorTest - Read-your-writes of a mirror synced from a
+ * StandInCalendarServer: writes retained by the LocalWriteLog survive sync
+ * pages that lag behind them and full syncs that rebuild the store.
+ */
+class CalendarMirrorTest {
+
+
+    private static final String CALENDAR_ID = "mirror-test@group.calendar.google.com";
+    private static final long HOUR_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @TempDir
+    Path tempDir;
+
+    private StandInCalendarServer server;
+    private GoogleCalendarPluginRuntime runtime;
+    private Calendar service;
+    private CalendarMirror mirror;
+    private LocalWriteLog writes;
+
+
+    @BeforeEach
+    void startRuntime() throws Exception {
+        server = new StandInCalendarServer(0).start();
+        Path account = tempDir.resolve("standin-account.json");
+        server.writeServiceAccountFile(account);
+
+        GoogleCalendarPluginSettings settings = new GoogleCalendarPluginSettings();
+        settings.setServiceAccountFile(account.toString());
+        settings.setCalendarId(CALENDAR_ID);
+        settings.setApplicationName("CalendarMirrorTest");
+        settings.setRootUrl(server.getRootUrl());
+        runtime = new GoogleCalendarPluginRuntime(settings);
+        service = runtime.getCalendarService();
+
+        mirror = new CalendarMirror(CALENDAR_ID);
+        writes = new LocalWriteLog();
+        mirror.setLocalWrites(writes);
+    }
+
+
+    @AfterEach
+    void stopRuntime() {
+        if (runtime != null) {
+            runtime.dispose();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+
+    @Test
+    void laggingSyncPageDoesNotOverwriteLocalWrite() throws Exception {
+        Event listed = insert("a", "Planning", 24);
+        mirror.sync(service);
+
+        // This plugin's write, which the API has not caught up with yet
+        Event written = listed.clone().setSummary("Planning (moved)")
+                .setUpdated(new DateTime(System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1)));
+        long version = writes.recordWrite(new Object(), CALENDAR_ID, written);
+        mirror.applyWrite(written, version);
+
+        // The next sync page still lists an older version
+        service.events().patch(CALENDAR_ID, "a", new Event().setLocation("Room 1")).execute();
+        assertEquals(1, mirror.sync(service));
+
+        assertEquals("Planning (moved)", mirror.getEvents().getRecord("a").getSummary());
+        assertEquals(version, mirror.getWriteVersion());
+    }
+
+
+    @Test
+    void fullSyncRestoresRetainedWrites() throws Exception {
+        insert("a", "Planning", 24);
+        insert("b", "Review", 48);
+        mirror.sync(service);
+
+        // Created and deleted by this plugin; the API does not list either yet
+        Object session = new Object();
+        Event created = event("c", "Retro", 72).setUpdated(new DateTime(System.currentTimeMillis()));
+        mirror.applyWrite(created, writes.recordWrite(session, CALENDAR_ID, created));
+        long deleteVersion = writes.recordDelete(session, CALENDAR_ID, "b");
+        mirror.applyWrite(new Event().setId("b").setStatus(CalendarMirror.STATUS_CANCELLED), deleteVersion);
+
+        // 410 on the next incremental sync: the store is cleared and listed again
+        server.expireSyncTokens();
+        mirror.sync(service);
+
+        assertNotNull(mirror.getEvents().getRecord("a"));
+        assertNull(mirror.getEvents().getRecord("b"), "deleted event listed by the full sync");
+        assertNotNull(mirror.getEvents().getRecord("c"), "created event missing from the full sync");
+        assertEquals(writes.getVersion(), mirror.getWriteVersion());
+        assertEquals(writes.getSessionStamp(session), mirror.getWriteVersion());
+    }
+
+
+    private Event insert(String id, String summary, int hoursFromNow) throws Exception {
+        return service.events().insert(CALENDAR_ID, event(id, summary, hoursFromNow)).execute();
+    }
+
+
+    private static Event event(String id, String summary, int hoursFromNow) {
+        long start = System.currentTimeMillis() + hoursFromNow * HOUR_MILLIS;
+        return new Event()
+                .setId(id)
+                .setSummary(summary)
+                .setStart(new EventDateTime().setDateTime(new DateTime(start)))
+                .setEnd(new EventDateTime().setDateTime(new DateTime(start + HOUR_MILLIS)));
+    }
+}
@@ -0,0 +1,213 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * ColumnarEventStoreTest - Scans over the sorted and appended parts (merge),
+ * moved and removed events, growth of the ID table and of the off-heap
+ * arena (relocate), checked against a plain map of the same events.
+ */
+class ColumnarEventStoreTest {
+
+
+    private static final long HOUR = 3_600_000L;
+
+
+    @Test
+    void scansSeeSortedAndAppendedEventsInStartOrder() {
+        ColumnarEventStore store = new ColumnarEventStore();
+        store.put("c", 3 * HOUR, 4 * HOUR, true, false, "C", null, null);
+        store.put("a", 1 * HOUR, 2 * HOUR, true, false, "A", null, null);
+        store.findOverlapping(0, 1);
+        // Appended behind the sorted part until the next scan
+        store.put("b", 2 * HOUR, 3 * HOUR, true, false, "B", null, null);
+        store.put("free", 2 * HOUR, 5 * HOUR, false, false, "Free", null, null);
+
+        assertEquals(Arrays.asList("a", "b", "c"), store.findOverlapping(0, 10 * HOUR));
+        assertEquals(Arrays.asList("a", "b", "free", "c"), ids(store));
+        assertEquals(2, store.countOverlapping(2 * HOUR, 4 * HOUR));
+    }
+
+
+    @Test
+    void busyMillisCountsOverlapsOnce() {
+        ColumnarEventStore store = new ColumnarEventStore();
+        store.put("long", 0, 4 * HOUR, true, false, null, null, null);
+        store.put("inside", HOUR, 2 * HOUR, true, false, null, null, null);
+        store.put("after", 3 * HOUR, 6 * HOUR, true, false, null, null, null);
+        store.put("free", 6 * HOUR, 8 * HOUR, false, false, null, null, null);
+
+        assertEquals(6 * HOUR, store.busyMillis(0, 10 * HOUR));
+        assertEquals(3 * HOUR, store.busyMillis(3 * HOUR, 10 * HOUR));
+    }
+
+
+    @Test
+    void movedEventLeavesItsOldPlace() {
+        ColumnarEventStore store = new ColumnarEventStore();
+        for (int i = 0; i < 5; i++) {
+            store.put("e" + i, i * HOUR, i * HOUR + HOUR / 2, true, false, "Event " + i, null, null);
+        }
+        store.findOverlapping(0, 1);
+
+        store.put("e1", 10 * HOUR, 11 * HOUR, true, false, "Moved", null, null);
+
+        assertEquals(5, store.size());
+        assertEquals(Arrays.asList("e0", "e2", "e3", "e4", "e1"), ids(store));
+        assertEquals(Collections.emptyList(), store.findOverlapping(HOUR, HOUR + HOUR / 2));
+        EventRecord moved = store.getRecord("e1");
+        assertEquals("Moved", moved.getSummary());
+        assertEquals(10 * HOUR, moved.getStart());
+    }
+
+
+    @Test
+    void removedEventsAreGoneAndCanComeBack() {
+        ColumnarEventStore store = new ColumnarEventStore();
+        store.put("a", 0, HOUR, true, false, "A", "Room 1", "Text");
+        store.put("b", HOUR, 2 * HOUR, true, false, "B", null, null);
+
+        store.remove("a");
+        store.remove("unknown");
+
+        assertFalse(store.contains("a"));
+        assertNull(store.getRecord("a"));
+        assertEquals(1, store.size());
+        assertEquals(Arrays.asList("b"), store.findOverlapping(0, 10 * HOUR));
+
+        store.put("a", 5 * HOUR, 6 * HOUR, true, false, "A again", null, null);
+        assertEquals(Arrays.asList("b", "a"), ids(store));
+        assertEquals("A again", store.getRecord("a").getSummary());
+    }
+
+
+    @Test
+    void textsSurviveArenaGrowthAndCompaction() {
+        ColumnarEventStore store = new ColumnarEventStore();
+        String description = "Agenda: ä ö ü € – ".repeat(10);
+        for (int i = 0; i < 2000; i++) {
+            store.put("event-" + i, i * HOUR, i * HOUR + HOUR, true, i % 7 == 0,
+                    "Summary " + i, i % 3 == 0 ? null : "Room " + (i % 5), description + i);
+        }
+        // Rewrites leave the old records as garbage until the arena is compacted
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 2000; i += 2) {
+                store.put("event-" + i, i * HOUR, i * HOUR + HOUR, true, i % 7 == 0,
+                        "Summary " + i + " v" + round, i % 3 == 0 ? null : "Room " + (i % 5), description + i);
+            }
+        }
+
+        for (int i = 0; i < 2000; i++) {
+            EventRecord record = store.getRecord("event-" + i);
+            assertEquals(i % 2 == 0 ? "Summary " + i + " v4" : "Summary " + i, record.getSummary());
+            assertEquals(i % 3 == 0 ? null : "Room " + (i % 5), record.getLocation());
+            assertEquals(description + i, record.getDescription());
+            assertEquals(i % 7 == 0, record.isAllDay());
+        }
+        // 7000 records were written, 2000 are live: the garbage was dropped at least once
+        int recordBytes = 3 * Integer.BYTES + "event-1000".length() + "Summary 1000 v4".length()
+                + (description + 1000).getBytes(StandardCharsets.UTF_8).length;
+        assertTrue(store.getOffHeapBytes() < 7000 * recordBytes, "off-heap bytes " + store.getOffHeapBytes());
+    }
+
+
+    @Test
+    void matchesMapOfSameEvents() {
+        ColumnarEventStore store = new ColumnarEventStore();
+        Map<String, long[]> model = new HashMap<>();
+        Random random = new Random(7);
+        for (int step = 0; step < 20_000; step++) {
+            String id = "e" + random.nextInt(3000);
+            int action = random.nextInt(10);
+            if (action < 2) {
+                store.remove(id);
+                model.remove(id);
+            } else {
+                long start = random.nextInt(5000) * (HOUR / 4);
+                long end = start + (1 + random.nextInt(16)) * (HOUR / 4);
+                boolean busy = action != 9;
+                store.put(id, start, end, busy, false, "Title " + step, null, null);
+                model.put(id, new long[] {start, end, busy ? 1 : 0});
+            }
+            if (step % 1000 == 999) {
+                long from = random.nextInt(5000) * (HOUR / 4);
+                long to = from + random.nextInt(200) * (HOUR / 4);
+                assertEquals(overlapping(model, from, to), sorted(store.findOverlapping(from, to)));
+                assertEquals(overlapping(model, from, to).size(), store.countOverlapping(from, to));
+                assertEquals(model.size(), store.size());
+                assertStartOrder(store);
+            }
+        }
+        for (Map.Entry<String, long[]> event : model.entrySet()) {
+            EventRecord record = store.getRecord(event.getKey());
+            assertEquals(event.getValue()[0], record.getStart());
+            assertEquals(event.getValue()[1], record.getEnd());
+        }
+    }
+
+
+    @Test
+    void clearStartsNewGeneration() {
+        ColumnarEventStore store = new ColumnarEventStore();
+        long generation = store.getGeneration();
+        store.put("a", 0, HOUR, true, false, "A", "Room", null);
+
+        store.clear();
+
+        assertEquals(0, store.size());
+        assertFalse(store.contains("a"));
+        assertEquals(generation + 1, store.getGeneration());
+        assertEquals(Collections.emptyList(), ids(store));
+    }
+
+
+    private static List<String> ids(ColumnarEventStore store) {
+        List<String> ids = new ArrayList<>();
+        store.forEach(slot -> ids.add(store.getId(slot)));
+        return ids;
+    }
+
+
+    private static void assertStartOrder(ColumnarEventStore store) {
+        long[] previous = {Long.MIN_VALUE};
+        store.forEach(slot -> {
+            assertTrue(store.getStart(slot) >= previous[0], "start order");
+            previous[0] = store.getStart(slot);
+        });
+    }
+
+
+    private static List<String> overlapping(Map<String, long[]> model, long from, long to) {
+        List<String> ids = new ArrayList<>();
+        for (Map.Entry<String, long[]> event : model.entrySet()) {
+            long[] times = event.getValue();
+            if (times[2] == 1 && times[0] < to && times[1] > from) {
+                ids.add(event.getKey());
+            }
+        }
+        return sorted(ids);
+    }
+
+
+    private static List<String> sorted(List<String> ids) {
+        List<String> copy = new ArrayList<>(ids);
+        Collections.sort(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,56 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * EventConverterTest - The event ID check accepts every ID form the server
+ * issues and rejects only what cannot be an event ID.
+ */
+class EventConverterTest {
+
+
+    @Test
+    void serverIssuedIdsAreValid() {
+        String[] ids = {
+            "4f1k2p9qv0m3s7d8e6b5c4a2h1",
+            // Instance of a recurring event, timed and all-day
+            "4f1k2p9qv0m3s7d8e6b5c4a2h1_20240115T090000Z",
+            "4f1k2p9qv0m3s7d8e6b5c4a2h1_20240115",
+            // "This and following" split series and one of its instances
+            "4f1k2p9qv0m3s7d8e6b5c4a2h1_R20240115T090000",
+            "4f1k2p9qv0m3s7d8e6b5c4a2h1_R20240115T090000_20240122T090000Z",
+            // Imported or invitation IDs
+            "_60q30c1g60o30e1i60o4ac1g60rj8gpl88rj2c1h84s34h9g60s30c1g60o30c1g",
+            "_6tlnaqrle5p6cpb4dhmj4phpeg",
+            "abc",
+            "x".repeat(1024)
+        };
+        for (String id : ids) {
+            assertTrue(EventConverter.isValidEventId(id), id);
+        }
+    }
+
+
+    @Test
+    void impossibleIdsAreRejected() {
+        String[] ids = {
+            null,
+            "",
+            " ",
+            "Team Meeting",
+            "4f1k2p9qv0m3s7d8e6b5c4a2h1 ",
+            "abc-def",
+            "abc@google.com",
+            "${eventId}",
+            "x".repeat(1025)
+        };
+        for (String id : ids) {
+            assertFalse(EventConverter.isValidEventId(id), String.valueOf(id));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+
+/**
+ * EventSearchIndexTest - Fuzzy matching and ranking, and an index kept up to
+ * date through the mirror's changes (including compact() of dead documents)
+ * that answers like one rebuilt from the mirror.
+ */
+class EventSearchIndexTest {
+
+
+    private static final String CALENDAR_ID = "search@example.com";
+    private static final long DAY = 86_400_000L;
+    // Far in the future, so every event counts as upcoming and ties go by start
+    private static final long BASE = 4_102_444_800_000L;
+
+
+    @Test
+    void misspelledAndAccentedWordsMatch() {
+        CalendarMirror mirror = new CalendarMirror(CALENDAR_ID);
+        EventSearchIndex index = attach(mirror);
+        mirror.apply(event("dentist", 1, "Dentist appointment", "Praxis Müller", null));
+        mirror.apply(event("lunch", 2, "Lunch", "Café Central", null));
+
+        assertEquals(Arrays.asList("dentist"), index.search("dentist appointmnt", 10));
+        assertEquals(Arrays.asList("dentist"), index.search("MULLER", 10));
+        assertEquals(Arrays.asList("lunch"), index.search("cafe", 10));
+        assertEquals(Collections.emptyList(), index.search("board meeting", 10));
+    }
+
+
+    @Test
+    void summaryRanksBeforeLocationBeforeDescription() {
+        CalendarMirror mirror = new CalendarMirror(CALENDAR_ID);
+        EventSearchIndex index = attach(mirror);
+        mirror.apply(event("description", 1, "Sync", null, "Prepare the budget"));
+        mirror.apply(event("location", 2, "Sync", "Budget room", null));
+        mirror.apply(event("summary", 3, "Budget review", null, null));
+        mirror.apply(event("summary-later", 4, "Budget review", null, null));
+
+        assertEquals(Arrays.asList("summary", "summary-later", "location", "description"),
+                index.search("budget", 10));
+        assertEquals(Arrays.asList("summary", "summary-later"), index.search("budget", 2));
+    }
+
+
+    @Test
+    void updatesAndDeletesReplaceOldTexts() {
+        CalendarMirror mirror = new CalendarMirror(CALENDAR_ID);
+        EventSearchIndex index = attach(mirror);
+        mirror.apply(event("a", 1, "Dentist", null, null));
+        index.search("dentist", 10);
+
+        mirror.apply(event("a", 1, "Haircut", null, null));
+        mirror.apply(event("b", 2, "Dentist", null, null));
+        mirror.apply(cancelled("b"));
+
+        assertEquals(Collections.emptyList(), index.search("dentist", 10));
+        assertEquals(Arrays.asList("a"), index.search("haircut", 10));
+        assertEquals(1, index.size());
+    }
+
+
+    @Test
+    void compactedIndexAnswersLikeRebuiltOne() {
+        CalendarMirror mirror = new CalendarMirror(CALENDAR_ID);
+        EventSearchIndex index = attach(mirror);
+        String[] titles = {"Team meeting", "Dentist appointment", "Project review", "Lunch with Anna",
+                "Budget planning", "Yoga class"};
+        for (int i = 0; i < 100; i++) {
+            mirror.apply(event("e" + i, i, titles[i % titles.length], "Room " + (i % 4), null));
+        }
+        index.search("meeting", 10);
+
+        // Every update and delete leaves a dead document; far more than 64 of them force compact()
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 100; i++) {
+                mirror.apply(event("e" + i, i, titles[(i + round + 1) % titles.length], "Room " + (i % 4),
+                        round == 2 ? "Notes " + i : null));
+            }
+        }
+        for (int i = 0; i < 100; i += 5) {
+            mirror.apply(cancelled("e" + i));
+        }
+
+        // Built from the mirror's store by its first search
+        EventSearchIndex rebuilt = new EventSearchIndex(mirror);
+        for (String query : new String[] {"meeting", "dentist appointmnt", "yoga", "room 2", "notes 17",
+                "budget review", "anna"}) {
+            List<String> expected = rebuilt.search(query, 50);
+            assertFalse(expected.isEmpty(), query);
+            assertEquals(expected, index.search(query, 50), query);
+        }
+        assertEquals(80, rebuilt.size());
+        assertEquals(80, index.size());
+    }
+
+
+    private static EventSearchIndex attach(CalendarMirror mirror) {
+        EventSearchIndex index = new EventSearchIndex(mirror);
+        mirror.addChangeListener(index);
+        return index;
+    }
+
+
+    private static Event event(String id, int day, String summary, String location, String description) {
+        long start = BASE + day * DAY;
+        return new Event()
+                .setId(id)
+                .setStatus("confirmed")
+                .setSummary(summary)
+                .setLocation(location)
+                .setDescription(description)
+                .setStart(new EventDateTime().setDateTime(new DateTime(start)))
+                .setEnd(new EventDateTime().setDateTime(new DateTime(start + DAY / 24)));
+    }
+
+
+    private static Event cancelled(String id) {
+        return new Event().setId(id).setStatus(CalendarMirror.STATUS_CANCELLED);
+    }
+}
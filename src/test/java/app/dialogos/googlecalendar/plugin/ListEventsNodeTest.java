@@ -0,0 +1,263 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * ListEventsNodeTest - Listings of ListEventsNode against a
+ * StandInCalendarServer: local recurrence expansion within a window, local
+ * search only with a mirror that includes the session's writes, and the
+ * cursors of CHANGES_SINCE.
+ */
+class ListEventsNodeTest {
+
+
+    private static final String CALENDAR_ID = "list-test@group.calendar.google.com";
+    private static final String ZONE = "Europe/Berlin";
+
+    @TempDir
+    Path tempDir;
+
+    private StandInCalendarServer server;
+    private GoogleCalendarPluginRuntime runtime;
+    private Calendar service;
+    private ListEventsNode node;
+
+
+    @BeforeEach
+    void startRuntime() throws Exception {
+        server = new StandInCalendarServer(0).start();
+        Path account = tempDir.resolve("standin-account.json");
+        server.writeServiceAccountFile(account);
+
+        GoogleCalendarPluginSettings settings = new GoogleCalendarPluginSettings();
+        settings.setServiceAccountFile(account.toString());
+        settings.setCalendarId(CALENDAR_ID);
+        settings.setApplicationName("ListEventsNodeTest");
+        settings.setRootUrl(server.getRootUrl());
+        runtime = new GoogleCalendarPluginRuntime(settings);
+        service = runtime.getCalendarService();
+        node = new ListEventsNode();
+    }
+
+
+    @AfterEach
+    void stopRuntime() {
+        if (runtime != null) {
+            runtime.dispose();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+
+    @Test
+    void exceptionMovedOutOfWindowHidesItsOccurrence() throws Exception {
+        // Weekly on Mondays since Jan 5; the window holds the Mondays Jan 12 and Jan 19
+        server.addEvents(CALENDAR_ID, Arrays.asList(
+                event("series", "Standup", "2026-01-05T08:00:00Z", "2026-01-05T08:30:00Z")
+                        .setRecurrence(new ArrayList<>(Collections.singletonList("RRULE:FREQ=WEEKLY"))),
+                // Jan 19 moved out of the window, Jan 5 moved into it
+                exception("series", "2026-01-19T08:00:00Z", "2026-02-03T09:00:00Z"),
+                exception("series", "2026-01-05T08:00:00Z", "2026-01-14T09:00:00Z"),
+                event("single", "Lunch", "2026-01-13T11:00:00Z", "2026-01-13T12:00:00Z")));
+
+        // Local times: the window contains the same Mondays in every time zone
+        List<EventRecord> events = node.listEventsByTimeRange(runtime, service, CALENDAR_ID,
+                LocalDateTime.parse("2026-01-11T12:00:00"), LocalDateTime.parse("2026-01-25T12:00:00"),
+                50, true);
+
+        assertEquals(Arrays.asList(
+                "series_20260112T080000Z@2026-01-12T08:00:00Z",
+                "single@2026-01-13T11:00:00Z",
+                "series_20260105T080000Z@2026-01-14T09:00:00Z"),
+                describe(events));
+        // The window listing and one listing of the series
+        assertEquals(2, server.getRequestCount(StandInCalendarServer.Operation.LIST));
+    }
+
+
+    @Test
+    void upcomingFallsBackToServerAfterOneWindow() throws Exception {
+        long now = System.currentTimeMillis();
+        server.addEvents(CALENDAR_ID, Collections.singletonList(
+                event("soon", "Dentist", iso(now + 3_600_000L), iso(now + 7_200_000L))));
+
+        List<EventRecord> events = node.listUpcomingEvents(runtime, service, CALENDAR_ID, 10, true);
+
+        assertEquals(Collections.singletonList("soon"), ids(events));
+        // Too few events locally: straight to the server, no wider local window
+        assertEquals(2, server.getRequestCount(StandInCalendarServer.Operation.LIST));
+    }
+
+
+    @Test
+    void sessionStampNewerThanMirrorForcesRemoteSearch() throws Exception {
+        long start = System.currentTimeMillis() + 86_400_000L;
+        Event listed = service.events().insert(CALENDAR_ID,
+                event("dentist", "Dentist appointment", iso(start), iso(start + 3_600_000L))).execute();
+        CalendarMirror mirror = runtime.getCalendarMirror(CALENDAR_ID);
+        mirror.sync(service);
+
+        Event written = listed.clone().setSummary("Dentist appointment (moved)");
+        long stamp = runtime.getLocalWrites().recordWrite(new Object(), CALENDAR_ID, written);
+
+        // The mirror does not include the session's write yet: ask the API
+        assertNull(node.searchLocally(runtime, service, CALENDAR_ID, "dentist", 10, 60_000L, stamp));
+
+        mirror.applyWrite(written, stamp);
+        List<EventRecord> found = node.searchLocally(runtime, service, CALENDAR_ID, "dentist", 10,
+                60_000L, stamp);
+        assertEquals(Collections.singletonList("Dentist appointment (moved)"), summaries(found));
+    }
+
+
+    @Test
+    void emptyCursorStartsNow() throws Exception {
+        insert("before", "Planning");
+
+        ListEventsNode.Changes changes = node.listChanges(runtime, service, CALENDAR_ID, "");
+
+        assertTrue(changes.events.isEmpty(), "changes before the first listing");
+        assertTrue(changes.cursor.matches("\\d+:.+"), changes.cursor);
+
+        insert("after", "Review");
+        assertEquals(Collections.singletonList("after"),
+                ids(node.listChanges(runtime, service, CALENDAR_ID, changes.cursor).events));
+    }
+
+
+    @Test
+    void cursorWithoutTokenListsChangesSinceItsTime() throws Exception {
+        insert("before", "Planning");
+        long since = pastLastChange();
+        insert("after", "Review");
+
+        ListEventsNode.Changes changes = node.listChanges(runtime, service, CALENDAR_ID,
+                String.valueOf(since));
+
+        assertEquals(Collections.singletonList("after"), ids(changes.events));
+        assertTrue(changes.cursor.matches("\\d+:.+"), "cursor continues with a sync token: " + changes.cursor);
+    }
+
+
+    @Test
+    void quotedCursorIsTheCursor() throws Exception {
+        String cursor = node.listChanges(runtime, service, CALENDAR_ID, "").cursor;
+        insert("after", "Review");
+
+        for (String quoted : Arrays.asList("\"" + cursor + "\"", "'" + cursor + "'", " \"" + cursor + "\" ")) {
+            assertEquals(Collections.singletonList("after"),
+                    ids(node.listChanges(runtime, service, CALENDAR_ID, quoted).events), quoted);
+        }
+    }
+
+
+    @Test
+    void expiredSyncTokenFallsBackToCursorTime() throws Exception {
+        insert("before", "Planning");
+        pastLastChange();
+        String cursor = node.listChanges(runtime, service, CALENDAR_ID, "").cursor;
+        insert("after", "Review");
+        server.expireSyncTokens();
+
+        ListEventsNode.Changes changes = node.listChanges(runtime, service, CALENDAR_ID, cursor);
+
+        // updatedMin with the cursor's time: only what changed since
+        assertEquals(Collections.singletonList("after"), ids(changes.events));
+        assertTrue(changes.cursor.matches("\\d+:.+"), "cursor with a fresh sync token: " + changes.cursor);
+        assertTrue(node.listChanges(runtime, service, CALENDAR_ID, changes.cursor).events.isEmpty());
+    }
+
+
+    private Event insert(String id, String summary) throws Exception {
+        long start = System.currentTimeMillis() + 86_400_000L;
+        return service.events().insert(CALENDAR_ID,
+                event(id, summary, iso(start), iso(start + 3_600_000L))).execute();
+    }
+
+
+    /**
+     * Returns a time after the last change, with changes from now on later than it.
+     */
+    private static long pastLastChange() throws InterruptedException {
+        Thread.sleep(5);
+        long time = System.currentTimeMillis();
+        Thread.sleep(5);
+        return time;
+    }
+
+
+    private static Event event(String id, String summary, String start, String end) {
+        return new Event()
+                .setId(id)
+                .setSummary(summary)
+                .setStart(new EventDateTime().setDateTime(new DateTime(start)).setTimeZone(ZONE))
+                .setEnd(new EventDateTime().setDateTime(new DateTime(end)).setTimeZone(ZONE));
+    }
+
+
+    /**
+     * Exception of a 30 minute series occurrence, moved to newStart.
+     */
+    private static Event exception(String masterId, String originalStart, String newStart) {
+        String instanceId = masterId + "_" + originalStart.replaceAll("[-:]", "");
+        String newEnd = Instant.parse(newStart).plusSeconds(1800).toString();
+        return event(instanceId, "Standup (moved)", newStart, newEnd)
+                .setRecurringEventId(masterId)
+                .setOriginalStartTime(new EventDateTime().setDateTime(new DateTime(originalStart)).setTimeZone(ZONE));
+    }
+
+
+    private static String iso(long millis) {
+        return Instant.ofEpochMilli(millis).toString();
+    }
+
+
+    private static List<String> ids(List<EventRecord> events) {
+        List<String> ids = new ArrayList<>();
+        for (EventRecord event : events) {
+            ids.add(event.getId());
+        }
+        return ids;
+    }
+
+
+    private static List<String> summaries(List<EventRecord> events) {
+        List<String> summaries = new ArrayList<>();
+        for (EventRecord event : events) {
+            summaries.add(event.getSummary());
+        }
+        return summaries;
+    }
+
+
+    private static List<String> describe(List<EventRecord> events) {
+        List<String> described = new ArrayList<>();
+        for (EventRecord event : events) {
+            described.add(event.getId() + "@" + Instant.ofEpochMilli(event.getStart()));
+        }
+        return described;
+    }
+}
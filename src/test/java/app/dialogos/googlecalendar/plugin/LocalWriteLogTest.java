@@ -0,0 +1,103 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * LocalWriteLogTest - Versions, session stamps and retention of recent
+ * writes, as used by CalendarMirror syncs and ListEventsNode results.
+ */
+class LocalWriteLogTest {
+
+
+    private static final String CALENDAR_ID = "primary";
+    private static final String OTHER_CALENDAR_ID = "team@group.calendar.google.com";
+    private static final long UPDATED = 1_767_600_000_000L;
+
+
+    @Test
+    void sessionStampIsTheVersionOfTheSessionsLastWrite() {
+        LocalWriteLog log = new LocalWriteLog();
+        Object session = new Object();
+        Object otherSession = new Object();
+
+        long first = log.recordWrite(session, CALENDAR_ID, written("a", "First", UPDATED));
+        long other = log.recordWrite(otherSession, CALENDAR_ID, written("b", "Other", UPDATED));
+        long delete = log.recordDelete(session, CALENDAR_ID, "c");
+
+        assertTrue(first < other && other < delete, "versions increase with every write");
+        assertEquals(delete, log.getSessionStamp(session));
+        assertEquals(other, log.getSessionStamp(otherSession));
+        assertEquals(0, log.getSessionStamp(new Object()), "session without writes");
+        assertEquals(delete, log.getVersion());
+    }
+
+
+    @Test
+    void writeSupersedesOlderAndUndatedListings() {
+        LocalWriteLog log = new LocalWriteLog();
+        log.recordWrite(new Object(), CALENDAR_ID, written("a", "Written", UPDATED));
+
+        assertTrue(log.supersedes(CALENDAR_ID, "a", UPDATED - 1), "listing lags behind the write");
+        assertTrue(log.supersedes(CALENDAR_ID, "a", UPDATED), "listing of the write itself");
+        assertTrue(log.supersedes(CALENDAR_ID, "a", EventRecord.NO_TIME), "listing without updated");
+        assertFalse(log.supersedes(CALENDAR_ID, "b", UPDATED - 1), "event not written");
+        assertFalse(log.supersedes(OTHER_CALENDAR_ID, "a", UPDATED - 1), "same ID in another calendar");
+    }
+
+
+    @Test
+    void newerListingEndsRetention() {
+        LocalWriteLog log = new LocalWriteLog();
+        log.recordWrite(new Object(), CALENDAR_ID, written("a", "Written", UPDATED));
+
+        // Another client changed the event after the write
+        assertFalse(log.supersedes(CALENDAR_ID, "a", UPDATED + 1));
+        assertFalse(log.supersedes(CALENDAR_ID, "a", UPDATED - 1), "write no longer retained");
+        assertTrue(log.retained(CALENDAR_ID).isEmpty());
+    }
+
+
+    @Test
+    void retainedListsTheCalendarsWritesInWriteOrder() {
+        LocalWriteLog log = new LocalWriteLog();
+        Object session = new Object();
+        log.recordWrite(session, CALENDAR_ID, written("a", "First", UPDATED));
+        log.recordDelete(session, CALENDAR_ID, "b");
+        log.recordWrite(session, OTHER_CALENDAR_ID, written("c", "Elsewhere", UPDATED));
+        // Written again: moves to the end
+        log.recordWrite(session, CALENDAR_ID, written("a", "Second", UPDATED + 1000));
+
+        List<Event> retained = log.retained(CALENDAR_ID);
+
+        assertEquals(Arrays.asList("b", "a"), ids(retained));
+        assertEquals(CalendarMirror.STATUS_CANCELLED, retained.get(0).getStatus(), "deletion");
+        assertEquals("Second", retained.get(1).getSummary());
+        assertEquals(Arrays.asList("c"), ids(log.retained(OTHER_CALENDAR_ID)));
+    }
+
+
+    private static Event written(String id, String summary, long updated) {
+        return new Event().setId(id).setSummary(summary).setUpdated(new DateTime(updated));
+    }
+
+
+    private static List<String> ids(List<Event> events) {
+        List<String> ids = new ArrayList<>();
+        for (Event event : events) {
+            ids.add(event.getId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,165 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.Calendar;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.EventDateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+
+/**
+ * PushChannelReceiverTest - Push notifications end to end: the runtime with a
+ * Push Callback URL against a StandInCalendarServer whose channels live only
+ * a few seconds, so every test also runs through channel renewals.
+ */
+class PushChannelReceiverTest {
+
+
+    private static final String CALENDAR_ID = "push-test@group.calendar.google.com";
+    private static final long CHANNEL_TTL_MILLIS = 2_000;
+    private static final long WAIT_MILLIS = 10_000;
+
+    @TempDir
+    Path tempDir;
+
+    private StandInCalendarServer server;
+    private GoogleCalendarPluginRuntime runtime;
+    private Calendar service;
+
+
+    @BeforeEach
+    void startRuntime() throws Exception {
+        server = new StandInCalendarServer(0).start();
+        server.setChannelTtl(CHANNEL_TTL_MILLIS);
+        Path account = tempDir.resolve("standin-account.json");
+        server.writeServiceAccountFile(account);
+
+        int receiverPort = freePort();
+        GoogleCalendarPluginSettings settings = new GoogleCalendarPluginSettings();
+        settings.setServiceAccountFile(account.toString());
+        settings.setCalendarId(CALENDAR_ID);
+        settings.setApplicationName("PushChannelReceiverTest");
+        settings.setRootUrl(server.getRootUrl());
+        settings.setPushCallbackUrl("http://127.0.0.1:" + receiverPort + "/calendar/notifications");
+        settings.setPushReceiver("127.0.0.1:" + receiverPort);
+        runtime = new GoogleCalendarPluginRuntime(settings);
+        service = runtime.getCalendarService();
+        assertNotNull(runtime.getPushReceiver(), "push receiver not started");
+    }
+
+
+    @AfterEach
+    void stopRuntime() {
+        if (runtime != null) {
+            runtime.dispose();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+
+    @Test
+    void serverChangeReachesMirror() throws Exception {
+        CalendarMirror mirror = runtime.getCalendarMirror(CALENDAR_ID);
+        mirror.sync(service);
+        awaitTrue("channel registered", () -> server.getOpenChannelCount() == 1);
+
+        Event inserted = insert("Planning");
+
+        awaitTrue("inserted event in mirror", () -> mirror.getEvents().getRecord(inserted.getId()) != null);
+        assertEquals("Planning", mirror.getEvents().getRecord(inserted.getId()).getSummary());
+        awaitTrue("notification delivered", () -> server.getDeliveredNotificationCount() >= 1);
+    }
+
+
+    @Test
+    void renewedChannelReplacesExpiringOne() throws Exception {
+        CalendarMirror mirror = runtime.getCalendarMirror(CALENDAR_ID);
+        mirror.sync(service);
+        PushChannelReceiver receiver = runtime.getPushReceiver();
+        awaitTrue("channel registered", () -> receiver.getChannelExpiration(CALENDAR_ID) != 0);
+        long firstExpiration = receiver.getChannelExpiration(CALENDAR_ID);
+
+        // Renewed halfway through the lifetime, the old channel is stopped explicitly
+        awaitTrue("channel renewed", () -> receiver.getChannelExpiration(CALENDAR_ID) > firstExpiration);
+        awaitTrue("old channel stopped",
+                () -> server.getRequestCount(StandInCalendarServer.Operation.STOP) >= 1);
+        awaitTrue("one channel open", () -> server.getOpenChannelCount() == 1);
+
+        // Past the first channel's expiration, changes still arrive through the new one
+        long wait = firstExpiration - System.currentTimeMillis();
+        if (wait > 0) {
+            Thread.sleep(wait);
+        }
+        Event inserted = insert("After renewal");
+        awaitTrue("event inserted after renewal in mirror",
+                () -> mirror.getEvents().getRecord(inserted.getId()) != null);
+    }
+
+
+    @Test
+    void disposeStopsChannels() throws Exception {
+        runtime.getCalendarMirror(CALENDAR_ID).sync(service);
+        PushChannelReceiver receiver = runtime.getPushReceiver();
+        awaitTrue("channel registered", () -> receiver.getChannelExpiration(CALENDAR_ID) != 0);
+
+        runtime.dispose();
+        runtime = null;
+
+        assertEquals(0, server.getOpenChannelCount());
+    }
+
+
+    @Test
+    void disposeStopsChannelStillBeingRegistered() throws Exception {
+        // Long enough that only an explicit stop closes the channel within the wait
+        server.setChannelTtl(60_000);
+        runtime.getCalendarMirror(CALENDAR_ID);
+
+        runtime.dispose();
+        runtime = null;
+
+        awaitTrue("no channel left open", () -> server.getOpenChannelCount() == 0);
+    }
+
+
+    private Event insert(String summary) throws IOException {
+        long start = System.currentTimeMillis() + 3_600_000L;
+        return service.events().insert(CALENDAR_ID, new Event()
+                .setSummary(summary)
+                .setStart(new EventDateTime().setDateTime(new DateTime(start)))
+                .setEnd(new EventDateTime().setDateTime(new DateTime(start + 1_800_000L)))).execute();
+    }
+
+
+    private static void awaitTrue(String what, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + WAIT_MILLIS;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for: " + what);
+            }
+            Thread.sleep(25);
+        }
+    }
+
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * RecurrenceExpanderTest - Local expansion compared with the instance lists
+ * the Calendar API returns for the same series (singleEvents=true): instance
+ * IDs (master ID plus original start in UTC) and start times.
+ */
+class RecurrenceExpanderTest {
+
+
+    private static final String ZONE = "Europe/Berlin";
+    private static final long UNBOUNDED_START = Long.MIN_VALUE;
+    private static final long UNBOUNDED_END = Long.MAX_VALUE;
+
+
+    @Test
+    void countLimitsWeeklySeries() {
+        EventRecord master = master("weekly", "2026-01-05T08:00:00Z", 60,
+                "RRULE:FREQ=WEEKLY;BYDAY=MO,WE;COUNT=5");
+
+        assertEquals(Arrays.asList(
+                "weekly_20260105T080000Z@2026-01-05T08:00:00Z",
+                "weekly_20260107T080000Z@2026-01-07T08:00:00Z",
+                "weekly_20260112T080000Z@2026-01-12T08:00:00Z",
+                "weekly_20260114T080000Z@2026-01-14T08:00:00Z",
+                "weekly_20260119T080000Z@2026-01-19T08:00:00Z"),
+                expand(UNBOUNDED_START, UNBOUNDED_END, master));
+    }
+
+
+    @Test
+    void untilIsInclusive() {
+        EventRecord master = master("daily", "2026-01-05T08:00:00Z", 30,
+                "RRULE:FREQ=DAILY;UNTIL=20260108T080000Z");
+
+        assertEquals(Arrays.asList(
+                "daily_20260105T080000Z@2026-01-05T08:00:00Z",
+                "daily_20260106T080000Z@2026-01-06T08:00:00Z",
+                "daily_20260107T080000Z@2026-01-07T08:00:00Z",
+                "daily_20260108T080000Z@2026-01-08T08:00:00Z"),
+                expand(UNBOUNDED_START, UNBOUNDED_END, master));
+    }
+
+
+    @Test
+    void dateOnlyUntilIncludesTheWholeDay() {
+        EventRecord master = master("daily", "2026-01-05T08:00:00Z", 30,
+                "RRULE:FREQ=DAILY;UNTIL=20260107");
+
+        assertEquals(Arrays.asList(
+                "daily_20260105T080000Z@2026-01-05T08:00:00Z",
+                "daily_20260106T080000Z@2026-01-06T08:00:00Z",
+                "daily_20260107T080000Z@2026-01-07T08:00:00Z"),
+                expand(UNBOUNDED_START, UNBOUNDED_END, master));
+    }
+
+
+    @Test
+    void exdateCountsTowardsCount() {
+        EventRecord master = master("standup", "2026-01-05T08:00:00Z", 15,
+                "RRULE:FREQ=DAILY;COUNT=4",
+                "EXDATE;TZID=Europe/Berlin:20260106T090000");
+
+        assertEquals(Arrays.asList(
+                "standup_20260105T080000Z@2026-01-05T08:00:00Z",
+                "standup_20260107T080000Z@2026-01-07T08:00:00Z",
+                "standup_20260108T080000Z@2026-01-08T08:00:00Z"),
+                expand(UNBOUNDED_START, UNBOUNDED_END, master));
+    }
+
+
+    @Test
+    void movedAndCancelledExceptionsReplaceTheirOccurrence() {
+        EventRecord master = master("team", "2026-01-05T08:00:00Z", 60,
+                "RRULE:FREQ=WEEKLY;COUNT=4");
+        // Moved from Monday 09:00 to Tuesday 10:00 (local time); keeps the original instance ID
+        EventRecord moved = new EventRecord("team_20260112T080000Z", "Series (moved)",
+                millis("2026-01-13T09:00:00Z"), millis("2026-01-13T10:00:00Z"), null, null, false,
+                false, ZONE, null, "team", millis("2026-01-12T08:00:00Z"));
+        // Deleted instance: only ID, master and original start, as in the API
+        EventRecord cancelled = new EventRecord("team_20260119T080000Z", null,
+                EventRecord.NO_TIME, EventRecord.NO_TIME, null, null, true,
+                false, null, null, "team", millis("2026-01-19T08:00:00Z"));
+
+        assertEquals(Arrays.asList(
+                "team_20260105T080000Z@2026-01-05T08:00:00Z",
+                "team_20260112T080000Z@2026-01-13T09:00:00Z",
+                "team_20260126T080000Z@2026-01-26T08:00:00Z"),
+                expand(UNBOUNDED_START, UNBOUNDED_END, master, moved, cancelled));
+    }
+
+
+    @Test
+    void localTimeIsKeptAcrossDaylightSavingChange() {
+        // Summer time in Berlin starts on 2026-03-29: 09:00 local is 08:00Z before, 07:00Z after
+        EventRecord master = master("jour", "2026-03-19T08:00:00Z", 60,
+                "RRULE:FREQ=WEEKLY;BYDAY=TH;COUNT=3");
+
+        assertEquals(Arrays.asList(
+                "jour_20260319T080000Z@2026-03-19T08:00:00Z",
+                "jour_20260326T080000Z@2026-03-26T08:00:00Z",
+                "jour_20260402T070000Z@2026-04-02T07:00:00Z"),
+                expand(UNBOUNDED_START, UNBOUNDED_END, master));
+    }
+
+
+    @Test
+    void windowAfterDaylightSavingChangeSkipsEarlierPeriods() {
+        EventRecord master = master("jour", "2025-11-06T08:00:00Z", 60,
+                "RRULE:FREQ=WEEKLY;BYDAY=TH");
+
+        assertEquals(Arrays.asList(
+                "jour_20260402T070000Z@2026-04-02T07:00:00Z",
+                "jour_20260409T070000Z@2026-04-09T07:00:00Z"),
+                expand(millis("2026-04-01T00:00:00Z"), millis("2026-04-10T00:00:00Z"), master));
+    }
+
+
+    @Test
+    void lastFridayOfTheMonth() {
+        EventRecord master = master("review", "2026-01-30T08:00:00Z", 60,
+                "RRULE:FREQ=MONTHLY;BYDAY=-1FR;COUNT=4");
+
+        assertEquals(Arrays.asList(
+                "review_20260130T080000Z@2026-01-30T08:00:00Z",
+                "review_20260227T080000Z@2026-02-27T08:00:00Z",
+                "review_20260327T080000Z@2026-03-27T08:00:00Z",
+                "review_20260424T070000Z@2026-04-24T07:00:00Z"),
+                expand(UNBOUNDED_START, UNBOUNDED_END, master));
+    }
+
+
+    @Test
+    void yearlyOnFebruary29OnlyInLeapYears() {
+        EventRecord master = master("leap", "2024-02-29T08:00:00Z", 60,
+                "RRULE:FREQ=YEARLY");
+
+        assertEquals(Arrays.asList(
+                "leap_20240229T080000Z@2024-02-29T08:00:00Z",
+                "leap_20280229T080000Z@2028-02-29T08:00:00Z",
+                "leap_20320229T080000Z@2032-02-29T08:00:00Z"),
+                expand(UNBOUNDED_START, millis("2035-01-01T00:00:00Z"), master));
+    }
+
+
+    @Test
+    void singleEventsAreMergedInStartOrderUpToMaxResults() {
+        EventRecord master = master("daily", "2026-01-05T08:00:00Z", 30, "RRULE:FREQ=DAILY");
+        EventRecord single = new EventRecord("single", "Lunch", millis("2026-01-06T11:00:00Z"),
+                millis("2026-01-06T12:00:00Z"), null, null, false);
+
+        List<EventRecord> result = RecurrenceExpander.expand(Arrays.asList(single, master),
+                millis("2026-01-06T00:00:00Z"), UNBOUNDED_END, 3);
+
+        assertEquals(Arrays.asList(
+                "daily_20260106T080000Z@2026-01-06T08:00:00Z",
+                "single@2026-01-06T11:00:00Z",
+                "daily_20260107T080000Z@2026-01-07T08:00:00Z"),
+                describe(result));
+    }
+
+
+    @Test
+    void unsupportedRulesAreReported() {
+        assertTrue(RecurrenceExpander.isSupported(master("a", "2026-01-05T08:00:00Z", 60,
+                "RRULE:FREQ=MONTHLY;BYDAY=-1FR")));
+        assertFalse(RecurrenceExpander.isSupported(master("b", "2026-01-05T08:00:00Z", 60,
+                "RRULE:FREQ=MONTHLY;BYDAY=MO,TU;BYSETPOS=-1")));
+        assertFalse(RecurrenceExpander.isSupported(master("c", "2026-01-05T08:00:00Z", 60,
+                "RRULE:FREQ=WEEKLY", "RDATE:20260110T080000Z")));
+        assertFalse(RecurrenceExpander.isSupported(master("d", "2026-01-05T08:00:00Z", 60,
+                "RRULE:FREQ=YEARLY;BYDAY=MO")));
+    }
+
+
+    private static EventRecord master(String id, String start, int minutes, String... recurrence) {
+        long startMillis = millis(start);
+        return new EventRecord(id, "Series", startMillis, startMillis + minutes * 60_000L, null, null, false,
+                false, ZONE, Arrays.asList(recurrence), null, EventRecord.NO_TIME);
+    }
+
+
+    private static List<String> expand(long windowStart, long windowEnd, EventRecord... items) {
+        return describe(RecurrenceExpander.expand(Arrays.asList(items), windowStart, windowEnd, 100));
+    }
+
+
+    private static List<String> describe(List<EventRecord> events) {
+        List<String> result = new ArrayList<>();
+        for (EventRecord event : events) {
+            result.add(event.getId() + "@" + Instant.ofEpochMilli(event.getStart()));
+        }
+        return result;
+    }
+
+
+    private static long millis(String instant) {
+        return Instant.parse(instant).toEpochMilli();
+    }
+}
@@ -0,0 +1,385 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import com.google.api.client.util.DateTime;
+import com.google.api.services.calendar.model.Event;
+import com.google.api.services.calendar.model.TimePeriod;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * StandInEventStore - In-memory event storage behind StandInCalendarServer.
+ *
+ * Calendars exist implicitly on first use. Deleted events are kept as
+ * cancelled tombstones, and every change gets a sequence number, so
+ * syncToken requests can return exactly the changes since the token was
+ * issued. Recurring events are stored and returned as they are (no
+ * expansion, singleEvents is ignored); like the API, timeMin/timeMax match
+ * a recurring master if one of its occurrences lies in the window, and
+ * every other event (including exceptions) by its own times. Inserted events
+ * get an iCalUID, exceptions the one of their master, so a series can be
+ * listed by iCalUID.
+ *
+ * All methods are synchronized; the server handles requests concurrently.
+ */
+class StandInEventStore {
+
+
+    private static final String STATUS_CONFIRMED = "confirmed";
+    private static final String STATUS_CANCELLED = "cancelled";
+    private static final char[] ID_ALPHABET = "abcdefghijklmnopqrstuv0123456789".toCharArray();
+    private static final int ID_LENGTH = 26;
+
+    private final Map<String, Map<String, StoredEvent>> calendars = new HashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private long sequence = 0;
+    // Sync tokens issued before this sequence number are rejected with 410
+    private long oldestValidSequence = 0;
+
+
+    /**
+     * Error answered with a Google-style error response.
+     */
+    static class ApiError extends Exception {
+        private final int statusCode;
+        private final String reason;
+
+        ApiError(int statusCode, String reason, String message) {
+            super(message);
+            this.statusCode = statusCode;
+            this.reason = reason;
+        }
+
+        int getStatusCode() { return statusCode; }
+        String getReason() { return reason; }
+    }
+
+
+    /**
+     * Parameters of an events.list request.
+     */
+    static class ListQuery {
+        Long timeMin;
+        Long timeMax;
+        Long updatedMin;
+        String q;
+        String iCalUID;
+        String syncToken;
+        String pageToken;
+        String orderBy;
+        boolean showDeleted;
+        int maxResults = 250;
+    }
+
+
+    /**
+     * One page of an events.list response.
+     */
+    static class ListPage {
+        final List<Event> items;
+        final String nextPageToken;
+        final String nextSyncToken;
+
+        ListPage(List<Event> items, String nextPageToken, String nextSyncToken) {
+            this.items = items;
+            this.nextPageToken = nextPageToken;
+            this.nextSyncToken = nextSyncToken;
+        }
+    }
+
+
+    private static class StoredEvent {
+        final Event event;
+        final long sequence;
+        final long start;
+        final long end;
+        // Recurring masters only, for the occurrences within a list window
+        final EventRecord series;
+
+        StoredEvent(Event event, long sequence) {
+            this.event = event;
+            this.sequence = sequence;
+            Long startMillis = EventConverter.toEpochMillis(event.getStart());
+            Long endMillis = EventConverter.toEpochMillis(event.getEnd());
+            this.start = startMillis != null ? startMillis : Long.MIN_VALUE;
+            this.end = endMillis != null ? endMillis : Long.MIN_VALUE;
+            boolean master = event.getRecurrence() != null && !event.getRecurrence().isEmpty()
+                    && startMillis != null && endMillis != null;
+            this.series = master
+                    ? new EventRecord(event.getId(), null, start, end, null, null, false,
+                            event.getStart().getDate() != null, event.getStart().getTimeZone(),
+                            event.getRecurrence(), null, EventRecord.NO_TIME)
+                    : null;
+        }
+
+        boolean isCancelled() {
+            return STATUS_CANCELLED.equals(event.getStatus());
+        }
+
+        boolean overlaps(Long timeMin, Long timeMax) {
+            long windowStart = timeMin != null ? timeMin : Long.MIN_VALUE;
+            long windowEnd = timeMax != null ? timeMax : Long.MAX_VALUE;
+            if (series == null) {
+                return end > windowStart && start < windowEnd;
+            }
+            if (!RecurrenceExpander.isSupported(series)) {
+                // Treated as endless
+                return start < windowEnd;
+            }
+            return RecurrenceExpander.occurrences(series, windowStart, windowEnd).hasNext();
+        }
+    }
+
+
+    synchronized ListPage list(String calendarId, ListQuery query) throws ApiError {
+        long since = -1;
+        if (query.syncToken != null) {
+            since = parseSyncToken(query.syncToken);
+        }
+
+        List<StoredEvent> matches = new ArrayList<>();
+        for (StoredEvent stored : calendar(calendarId).values()) {
+            if (since >= 0) {
+                // Incremental: every change since the token, including deletions
+                if (stored.sequence > since) {
+                    matches.add(stored);
+                }
+                continue;
+            }
+            // With updatedMin, deletions are listed regardless of showDeleted
+            if (stored.isCancelled() && !query.showDeleted && query.updatedMin == null) {
+                continue;
+            }
+            if ((query.timeMin != null || query.timeMax != null)
+                    && !stored.overlaps(query.timeMin, query.timeMax)) {
+                continue;
+            }
+            if (query.iCalUID != null && !query.iCalUID.equals(stored.event.getICalUID())) {
+                continue;
+            }
+            if (query.updatedMin != null && stored.event.getUpdated().getValue() < query.updatedMin) {
+                continue;
+            }
+            if (query.q != null && !matchesText(stored.event, query.q)) {
+                continue;
+            }
+            matches.add(stored);
+        }
+        if ("startTime".equals(query.orderBy)) {
+            matches.sort(Comparator.comparingLong(stored -> stored.start));
+        }
+
+        int offset = parsePageToken(query.pageToken);
+        int pageSize = Math.max(1, Math.min(query.maxResults, 2500));
+        int endIndex = Math.min(matches.size(), offset + pageSize);
+
+        List<Event> items = new ArrayList<>(Math.max(0, endIndex - offset));
+        for (int i = offset; i < endIndex; i++) {
+            items.add(matches.get(i).event.clone());
+        }
+        if (endIndex < matches.size()) {
+            return new ListPage(items, "p" + endIndex, null);
+        }
+        return new ListPage(items, null, "s" + sequence);
+    }
+
+
+    synchronized Event get(String calendarId, String eventId) throws ApiError {
+        return require(calendarId, eventId).event.clone();
+    }
+
+
+    synchronized Event insert(String calendarId, Event event) throws ApiError {
+        String eventId = event.getId() != null ? event.getId() : newEventId();
+        StoredEvent existing = calendar(calendarId).get(eventId);
+        if (existing != null && !existing.isCancelled()) {
+            throw new ApiError(409, "duplicate", "The requested identifier already exists.");
+        }
+        Event created = event.clone().setId(eventId);
+        created.setCreated(new DateTime(System.currentTimeMillis()));
+        if (created.getICalUID() == null) {
+            StoredEvent master = created.getRecurringEventId() != null
+                    ? calendar(calendarId).get(created.getRecurringEventId()) : null;
+            created.setICalUID(master != null ? master.event.getICalUID() : eventId + "@google.com");
+        }
+        return store(calendarId, created);
+    }
+
+
+    synchronized Event update(String calendarId, String eventId, Event event) throws ApiError {
+        Event existing = require(calendarId, eventId).event;
+        Event updated = event.clone().setId(eventId);
+        updated.setCreated(existing.getCreated());
+        return store(calendarId, updated);
+    }
+
+
+    synchronized Event patch(String calendarId, String eventId, Event changes) throws ApiError {
+        Event patched = require(calendarId, eventId).event.clone();
+        for (Map.Entry<String, Object> field : changes.entrySet()) {
+            patched.set(field.getKey(), field.getValue());
+        }
+        patched.setId(eventId);
+        return store(calendarId, patched);
+    }
+
+
+    synchronized void delete(String calendarId, String eventId) throws ApiError {
+        StoredEvent stored = require(calendarId, eventId);
+        if (stored.isCancelled()) {
+            throw new ApiError(410, "deleted", "Resource has been deleted");
+        }
+        store(calendarId, stored.event.clone().setStatus(STATUS_CANCELLED));
+    }
+
+
+    /**
+     * Returns the merged busy periods of a calendar within [timeMin, timeMax).
+     */
+    synchronized List<TimePeriod> busy(String calendarId, long timeMin, long timeMax) {
+        List<long[]> intervals = new ArrayList<>();
+        for (StoredEvent stored : calendar(calendarId).values()) {
+            if (CalendarMirror.blocksTime(stored.event)
+                    && stored.end > timeMin && stored.start < timeMax) {
+                intervals.add(new long[] {Math.max(stored.start, timeMin), Math.min(stored.end, timeMax)});
+            }
+        }
+        intervals.sort(Comparator.comparingLong(interval -> interval[0]));
+
+        List<TimePeriod> periods = new ArrayList<>();
+        long[] current = null;
+        for (long[] interval : intervals) {
+            if (current != null && interval[0] <= current[1]) {
+                current[1] = Math.max(current[1], interval[1]);
+                continue;
+            }
+            if (current != null) {
+                periods.add(toTimePeriod(current));
+            }
+            current = interval;
+        }
+        if (current != null) {
+            periods.add(toTimePeriod(current));
+        }
+        return periods;
+    }
+
+
+    /**
+     * Invalidates all sync tokens issued so far; the next incremental sync gets HTTP 410.
+     */
+    synchronized void expireSyncTokens() {
+        sequence++;
+        oldestValidSequence = sequence;
+    }
+
+
+    /**
+     * Returns the number of events (excluding deleted ones) in a calendar.
+     */
+    synchronized int size(String calendarId) {
+        int count = 0;
+        for (StoredEvent stored : calendar(calendarId).values()) {
+            if (!stored.isCancelled()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+
+    synchronized void clear() {
+        calendars.clear();
+    }
+
+
+    private Event store(String calendarId, Event event) {
+        sequence++;
+        event.setUpdated(new DateTime(System.currentTimeMillis()));
+        event.setEtag("\"" + sequence + "\"");
+        if (event.getStatus() == null) {
+            event.setStatus(STATUS_CONFIRMED);
+        }
+        Map<String, StoredEvent> calendar = calendar(calendarId);
+        // Re-insert so the map stays in change order
+        calendar.remove(event.getId());
+        calendar.put(event.getId(), new StoredEvent(event, sequence));
+        return event.clone();
+    }
+
+
+    private StoredEvent require(String calendarId, String eventId) throws ApiError {
+        StoredEvent stored = calendar(calendarId).get(eventId);
+        if (stored == null) {
+            throw new ApiError(404, "notFound", "Not Found");
+        }
+        return stored;
+    }
+
+
+    private Map<String, StoredEvent> calendar(String calendarId) {
+        return calendars.computeIfAbsent(calendarId, id -> new LinkedHashMap<>());
+    }
+
+
+    private long parseSyncToken(String token) throws ApiError {
+        try {
+            long tokenSequence = Long.parseLong(token.substring(1));
+            if (token.charAt(0) == 's' && tokenSequence >= oldestValidSequence
+                    && tokenSequence <= sequence) {
+                return tokenSequence;
+            }
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            // fall through
+        }
+        throw new ApiError(410, "fullSyncRequired",
+                "Sync token is no longer valid, a full sync is required.");
+    }
+
+
+    private static int parsePageToken(String token) throws ApiError {
+        if (token == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(token.substring(1));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new ApiError(400, "invalid", "Invalid page token");
+        }
+    }
+
+
+    private static boolean matchesText(Event event, String query) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        for (String text : new String[] {event.getSummary(), event.getDescription(), event.getLocation()}) {
+            if (text != null && text.toLowerCase(Locale.ROOT).contains(needle)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static TimePeriod toTimePeriod(long[] interval) {
+        return new TimePeriod()
+                .setStart(new DateTime(interval[0]))
+                .setEnd(new DateTime(interval[1]));
+    }
+
+
+    private String newEventId() {
+        char[] id = new char[ID_LENGTH];
+        for (int i = 0; i < id.length; i++) {
+            id[i] = ID_ALPHABET[random.nextInt(ID_ALPHABET.length)];
+        }
+        return new String(id);
+    }
+}
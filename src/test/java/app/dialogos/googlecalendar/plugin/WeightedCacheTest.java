@@ -0,0 +1,260 @@
+package app.dialogos.googlecalendar.plugin;
+
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/**
+ * WeightedCacheTest - Admission and eviction (W-TinyLFU), the weight bound,
+ * expiry, refresh-ahead against concurrent writes, and the limit syntax.
+ */
+class WeightedCacheTest {
+
+
+    private static final WeightedCache.Weigher<String, String> ONE = (key, value) -> 1;
+    private static final WeightedCache.Weigher<String, String> LENGTH = (key, value) -> value.length();
+
+
+    @Test
+    void candidateIsAdmittedOnlyIfUsedMoreThanProbationVictim() {
+        // Weight 10: window 1, protected at most 7
+        WeightedCache<String, String> cache = new WeightedCache<>("test", new WeightedCache.Spec(10, 0, 0), ONE, null);
+        for (char key = 'a'; key <= 'j'; key++) {
+            cache.put(String.valueOf(key), "v");
+        }
+        // A hit in probation promotes "a" to protected
+        cache.getIfPresent("a");
+
+        // "j" leaves the window as candidate, used no more than the probation LRU "b": rejected
+        cache.put("k", "v");
+        // "k" leaves the window after three hits: admitted, "b" goes
+        cache.getIfPresent("k");
+        cache.getIfPresent("k");
+        cache.getIfPresent("k");
+        cache.put("l", "v");
+
+        assertEquals(2, cache.getEvictions());
+        assertEquals(10, cache.size());
+        assertNull(cache.getIfPresent("j"));
+        assertNull(cache.getIfPresent("b"));
+        for (String key : new String[] {"a", "c", "d", "e", "f", "g", "h", "i", "k", "l"}) {
+            assertNotNull(cache.getIfPresent(key), key);
+        }
+    }
+
+
+    @Test
+    void frequentlyUsedEntriesSurviveScan() {
+        WeightedCache<String, String> cache = new WeightedCache<>("test", new WeightedCache.Spec(100, 0, 0), ONE, null);
+        for (int i = 0; i < 50; i++) {
+            cache.put("hot" + i, "v");
+        }
+        // Moves the last hot entry out of the window, so hits promote all of them
+        cache.put("filler", "v");
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                cache.getIfPresent("hot" + i);
+            }
+        }
+
+        // One-off entries, each used once, as from listings nobody asks for again
+        for (int i = 0; i < 1000; i++) {
+            cache.put("cold" + i, "v");
+        }
+
+        for (int i = 0; i < 50; i++) {
+            assertNotNull(cache.getIfPresent("hot" + i), "hot" + i);
+        }
+        assertEquals(100, cache.size());
+    }
+
+
+    @Test
+    void weightStaysWithinBound() {
+        WeightedCache<String, String> cache = new WeightedCache<>("test", new WeightedCache.Spec(1000, 0, 0), LENGTH,
+                null);
+        Random random = new Random(42);
+        long stored = 0;
+        for (int i = 0; i < 2000; i++) {
+            String value = "x".repeat(1 + random.nextInt(50));
+            cache.put("key" + random.nextInt(300), value);
+            stored += value.length();
+            assertTrue(cache.getWeight() <= 1000, "weight " + cache.getWeight());
+        }
+
+        long present = 0;
+        for (int i = 0; i < 300; i++) {
+            String value = cache.getIfPresent("key" + i);
+            present += value != null ? value.length() : 0;
+        }
+        assertEquals(present, cache.getWeight());
+        assertTrue(cache.getEvictedWeight() > 0 && cache.getEvictedWeight() < stored);
+    }
+
+
+    @Test
+    void replacedValueChangesWeight() {
+        WeightedCache<String, String> cache = new WeightedCache<>("test", new WeightedCache.Spec(100, 0, 0), LENGTH,
+                null);
+        cache.put("a", "x".repeat(10));
+        cache.put("a", "x".repeat(30));
+        assertEquals(30, cache.getWeight());
+
+        // Heavier than the whole cache: not stored, and the old value is gone
+        cache.put("a", "x".repeat(101));
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(0, cache.getWeight());
+    }
+
+
+    @Test
+    void entriesExpireAfterWrite() throws Exception {
+        WeightedCache<String, String> cache = new WeightedCache<>("test", new WeightedCache.Spec(100, 50, 0), ONE,
+                null);
+        cache.put("a", "v");
+        assertEquals("v", cache.getIfPresent("a"));
+
+        Thread.sleep(100);
+
+        assertNull(cache.getIfPresent("a"));
+        assertEquals(1, cache.getExpirations());
+        assertEquals(0, cache.getWeight());
+    }
+
+
+    @Test
+    void loaderResultIsCachedButNullIsNot() throws IOException {
+        WeightedCache<String, String> cache = new WeightedCache<>("test", new WeightedCache.Spec(100, 0, 0), ONE, null);
+
+        assertEquals("loaded", cache.get("a", key -> "loaded"));
+        assertEquals("loaded", cache.get("a", key -> "other"));
+        assertNull(cache.get("b", key -> null));
+        assertNull(cache.getIfPresent("b"));
+        assertThrows(IOException.class, () -> cache.get("c", key -> {
+            throw new IOException("unavailable");
+        }));
+
+        assertEquals(2, cache.getLoads());
+        assertEquals(1, cache.getLoadFailures());
+    }
+
+
+    @Test
+    void refreshReplacesStaleValue() throws Exception {
+        List<Runnable> refreshes = new ArrayList<>();
+        WeightedCache<String, String> cache = refreshingCache(refreshes);
+        cache.put("a", "old");
+        Thread.sleep(40);
+
+        // The stale value is returned at once, the reload is queued once
+        assertEquals("old", cache.get("a", key -> "new"));
+        assertEquals("old", cache.get("a", key -> "new"));
+        assertEquals(1, refreshes.size());
+
+        refreshes.get(0).run();
+        assertEquals("new", cache.getIfPresent("a"));
+        assertEquals(1, cache.getRefreshes());
+    }
+
+
+    @Test
+    void refreshDoesNotResurrectInvalidatedEntry() throws Exception {
+        List<Runnable> refreshes = new ArrayList<>();
+        WeightedCache<String, String> cache = refreshingCache(refreshes);
+        cache.put("a", "old");
+        Thread.sleep(40);
+        cache.get("a", key -> "reloaded");
+
+        // e.g. a delete of the event while the reload is in flight
+        cache.invalidate("a");
+        refreshes.get(0).run();
+
+        assertNull(cache.getIfPresent("a"));
+    }
+
+
+    @Test
+    void refreshDoesNotOverwriteNewerPut() throws Exception {
+        List<Runnable> refreshes = new ArrayList<>();
+        WeightedCache<String, String> cache = refreshingCache(refreshes);
+        cache.put("a", "old");
+        Thread.sleep(40);
+        cache.get("a", key -> "reloaded");
+
+        // e.g. the result of an update written while the reload is in flight
+        cache.put("a", "written");
+        refreshes.get(0).run();
+
+        assertEquals("written", cache.getIfPresent("a"));
+    }
+
+
+    @Test
+    void refreshToNullRemovesEntry() throws Exception {
+        List<Runnable> refreshes = new ArrayList<>();
+        WeightedCache<String, String> cache = refreshingCache(refreshes);
+        cache.put("a", "old");
+        Thread.sleep(40);
+        cache.get("a", key -> null);
+
+        refreshes.get(0).run();
+
+        assertNull(cache.getIfPresent("a"));
+    }
+
+
+    @Test
+    void specParsesSizesAndTimes() {
+        WeightedCache.Spec spec = WeightedCache.Spec.parse("16MB/10m/8m");
+        assertEquals(16L * 1024 * 1024, spec.maximumWeight);
+        assertEquals(600_000L, spec.expireAfterWriteMillis);
+        assertEquals(480_000L, spec.refreshAfterWriteMillis);
+
+        spec = WeightedCache.Spec.parse(" 2 kb / 30s ");
+        assertEquals(2048L, spec.maximumWeight);
+        assertEquals(30_000L, spec.expireAfterWriteMillis);
+        assertEquals(0L, spec.refreshAfterWriteMillis);
+
+        spec = WeightedCache.Spec.parse("512/250ms/1h");
+        assertEquals(512L, spec.maximumWeight);
+        assertEquals(250L, spec.expireAfterWriteMillis);
+        assertEquals(3_600_000L, spec.refreshAfterWriteMillis);
+    }
+
+
+    @Test
+    void specRejectsInvalidLimits() {
+        for (String text : new String[] {"16XB", "MB", "1MB/10", "1MB/tenm", "1/2s/3s/4s", "0", "-1KB"}) {
+            assertThrows(IllegalArgumentException.class, () -> WeightedCache.Spec.parse(text), text);
+        }
+    }
+
+
+    @Test
+    void specParsesNamedLimits() {
+        Map<String, WeightedCache.Spec> specs = WeightedCache.Spec.parseAll("events=1MB/1m, missing = 64KB");
+        assertEquals(List.of("events", "missing"), new ArrayList<>(specs.keySet()));
+        assertEquals(1024L * 1024, specs.get("events").maximumWeight);
+        assertEquals(65_536L, specs.get("missing").maximumWeight);
+
+        assertTrue(WeightedCache.Spec.parseAll(" ").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> WeightedCache.Spec.parseAll("events"));
+    }
+
+
+    private static WeightedCache<String, String> refreshingCache(List<Runnable> refreshes) {
+        return new WeightedCache<>("test", new WeightedCache.Spec(100, 0, 20), ONE, refreshes::add);
+    }
+}